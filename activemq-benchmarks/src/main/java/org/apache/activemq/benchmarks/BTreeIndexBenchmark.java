@@ -0,0 +1,118 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.benchmarks;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.activemq.store.kahadb.disk.index.BTreeIndex;
+import org.apache.activemq.store.kahadb.disk.page.PageFile;
+import org.apache.activemq.store.kahadb.disk.page.Transaction;
+import org.apache.activemq.store.kahadb.disk.util.LongMarshaller;
+import org.apache.activemq.store.kahadb.disk.util.StringMarshaller;
+import org.apache.activemq.util.IOHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link BTreeIndex} put and get against a {@link PageFile} using the
+ * same key shape (message id like strings) and value type KahaDB uses for its
+ * message id index.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BTreeIndexBenchmark {
+
+    @Param({"10000", "100000"})
+    private int preload;
+
+    @Param({"100", "10000"})
+    private int pageCacheSize;
+
+    private File directory;
+    private PageFile pageFile;
+    private BTreeIndex<String, Long> index;
+    private long putCounter;
+    private long getCounter;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("btree-benchmark").toFile();
+        pageFile = new PageFile(directory, "index");
+        pageFile.setPageCacheSize(pageCacheSize);
+        pageFile.setEnableDiskSyncs(false);
+        pageFile.load();
+
+        Transaction tx = pageFile.tx();
+        long pageId = tx.allocate().getPageId();
+        index = new BTreeIndex<>(pageFile, pageId);
+        index.setKeyMarshaller(StringMarshaller.INSTANCE);
+        index.setValueMarshaller(LongMarshaller.INSTANCE);
+        index.load(tx);
+        tx.commit();
+
+        tx = pageFile.tx();
+        for (long i = 0; i < preload; i++) {
+            index.put(tx, key(i), i);
+        }
+        tx.commit();
+        putCounter = preload;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        pageFile.unload();
+        IOHelper.delete(directory);
+    }
+
+    @Benchmark
+    public Long put() throws Exception {
+        Transaction tx = pageFile.tx();
+        long value = putCounter++;
+        Long previous = index.put(tx, key(value), value);
+        tx.commit();
+        return previous;
+    }
+
+    @Benchmark
+    public Long get() throws Exception {
+        Transaction tx = pageFile.tx();
+        Long value = index.get(tx, key(getCounter++ % preload));
+        tx.commit();
+        return value;
+    }
+
+    private static String key(long i) {
+        return String.format("ID:benchmark-host-12345-1234567890123-1:1:1:1:%010d", i);
+    }
+}
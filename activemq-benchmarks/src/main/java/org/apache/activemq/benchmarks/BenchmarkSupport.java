@@ -0,0 +1,65 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.benchmarks;
+
+import org.apache.activemq.command.ActiveMQDestination;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.command.ActiveMQTextMessage;
+import org.apache.activemq.command.MessageId;
+import org.apache.activemq.command.ProducerId;
+
+/**
+ * Shared fixtures for the benchmarks in this module.
+ */
+public final class BenchmarkSupport {
+
+    public static final ActiveMQDestination DESTINATION = new ActiveMQQueue("BENCHMARK.QUEUE");
+    public static final ProducerId PRODUCER_ID = new ProducerId("ID:benchmark-host-12345-1234567890123-1:1:1:1");
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * Creates a text message that resembles a typical application message: a
+     * handful of string and numeric properties and a body of the given size.
+     */
+    public static ActiveMQTextMessage createTextMessage(long sequence, int bodySize) throws Exception {
+        ActiveMQTextMessage message = new ActiveMQTextMessage();
+        message.setMessageId(new MessageId(PRODUCER_ID, sequence));
+        message.setProducerId(PRODUCER_ID);
+        message.setDestination(DESTINATION);
+        message.setPersistent(true);
+        message.setPriority((byte) (sequence % 10));
+        message.setTimestamp(System.currentTimeMillis());
+        message.setJMSType("order");
+        message.setStringProperty("region", sequence % 2 == 0 ? "EU" : "US");
+        message.setStringProperty("customer", "customer-" + (sequence % 1000));
+        message.setIntProperty("quantity", (int) (sequence % 100));
+        message.setDoubleProperty("price", 10.5 + (sequence % 50));
+        message.setBooleanProperty("express", sequence % 3 == 0);
+        message.setText(body(bodySize));
+        return message;
+    }
+
+    public static String body(int size) {
+        StringBuilder builder = new StringBuilder(size);
+        for (int i = 0; i < size; i++) {
+            builder.append((char) ('a' + (i % 26)));
+        }
+        return builder.toString();
+    }
+}
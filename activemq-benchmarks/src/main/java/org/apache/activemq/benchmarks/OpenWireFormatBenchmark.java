@@ -0,0 +1,80 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.activemq.command.ActiveMQTextMessage;
+import org.apache.activemq.command.CommandTypes;
+import org.apache.activemq.openwire.OpenWireFormat;
+import org.apache.activemq.util.ByteSequence;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures OpenWire marshal and unmarshal cost of a persistent text message
+ * using the current protocol version with tight and loose encoding.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OpenWireFormatBenchmark {
+
+    @Param({"true", "false"})
+    private boolean tightEncoding;
+
+    @Param({"256", "4096"})
+    private int bodySize;
+
+    private OpenWireFormat wireFormat;
+    private ActiveMQTextMessage message;
+    private ByteSequence marshalled;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        wireFormat = new OpenWireFormat(CommandTypes.PROTOCOL_VERSION);
+        wireFormat.setTightEncodingEnabled(tightEncoding);
+        wireFormat.setCacheEnabled(false);
+
+        message = BenchmarkSupport.createTextMessage(1, bodySize);
+        message.beforeMarshall(wireFormat);
+        marshalled = wireFormat.marshal(message);
+    }
+
+    @Benchmark
+    public ByteSequence marshal() throws Exception {
+        return wireFormat.marshal(message);
+    }
+
+    @Benchmark
+    public Object unmarshal() throws Exception {
+        return wireFormat.unmarshal(marshalled);
+    }
+}
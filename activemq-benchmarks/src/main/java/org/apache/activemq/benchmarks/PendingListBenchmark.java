@@ -0,0 +1,109 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.activemq.broker.region.IndirectMessageReference;
+import org.apache.activemq.broker.region.MessageReference;
+import org.apache.activemq.broker.region.cursors.OrderedPendingList;
+import org.apache.activemq.broker.region.cursors.PendingList;
+import org.apache.activemq.broker.region.cursors.PrioritizedPendingList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the {@link PendingList} implementations used to hold paged in
+ * queue messages.  The list is pre-filled to {@code size} entries and every
+ * mutating benchmark leaves it at that size.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PendingListBenchmark {
+
+    @Param({"ordered", "prioritized"})
+    private String listType;
+
+    @Param({"200", "10000"})
+    private int size;
+
+    private PendingList list;
+    private MessageReference[] references;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        list = "prioritized".equals(listType) ? new PrioritizedPendingList() : new OrderedPendingList();
+        references = new MessageReference[size];
+        for (int i = 0; i < size; i++) {
+            references[i] = new IndirectMessageReference(BenchmarkSupport.createTextMessage(i, 64));
+            list.addMessageLast(references[i]);
+        }
+    }
+
+    @Benchmark
+    public Object removeAndAddLast() {
+        MessageReference reference = references[next];
+        next = (next + 1) % size;
+        list.remove(reference);
+        return list.addMessageLast(reference);
+    }
+
+    @Benchmark
+    public Object removeAndAddFirst() {
+        MessageReference reference = references[next];
+        next = (next + 1) % size;
+        list.remove(reference);
+        return list.addMessageFirst(reference);
+    }
+
+    @Benchmark
+    public MessageReference getByMessageId() {
+        MessageReference reference = references[next];
+        next = (next + 1) % size;
+        return list.get(reference.getMessageId());
+    }
+
+    @Benchmark
+    public boolean contains() {
+        MessageReference reference = references[next];
+        next = (next + 1) % size;
+        return list.contains(reference);
+    }
+
+    @Benchmark
+    public void iterate(Blackhole blackhole) {
+        for (MessageReference reference : list) {
+            blackhole.consume(reference);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.activemq.command.ActiveMQTextMessage;
+import org.apache.activemq.filter.BooleanExpression;
+import org.apache.activemq.filter.MessageEvaluationContext;
+import org.apache.activemq.selector.SelectorParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures evaluation of {@link BooleanExpression}s built by the
+ * {@link SelectorParser} against a message with typical properties.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SelectorBenchmark {
+
+    @Param({
+        "region = 'EU'",
+        "region IN ('EU', 'APAC', 'LATAM')",
+        "quantity > 10 AND price < 30.0",
+        "customer LIKE 'customer-1%' OR express = TRUE",
+        "JMSType = 'order' AND region <> 'US' AND quantity BETWEEN 5 AND 50"
+    })
+    private String selector;
+
+    private BooleanExpression expression;
+    private MessageEvaluationContext context;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        expression = SelectorParser.parse(selector);
+
+        ActiveMQTextMessage message = BenchmarkSupport.createTextMessage(42, 256);
+        context = new MessageEvaluationContext();
+        context.setDestination(message.getDestination());
+        context.setMessageReference(message);
+    }
+
+    @Benchmark
+    public boolean matches() throws Exception {
+        return expression.matches(context);
+    }
+
+    @Benchmark
+    public BooleanExpression parseUncached() throws Exception {
+        SelectorParser.clearCache();
+        return SelectorParser.parse(selector);
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.store.kahadb.disk.journal;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.activemq.util.ByteSequence;
+import org.apache.activemq.util.IOHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link Journal#write(ByteSequence, boolean)} throughput with each of
+ * the {@link FileAppender} implementations.  Lives in the journal package so
+ * the appender can be swapped without going through the system property that
+ * normally selects it at class load time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class JournalWriteBenchmark {
+
+    @Param({"DataFileAppender", "CallerBufferingDataFileAppender", "GroupCommitDataFileAppender"})
+    private String appenderType;
+
+    @Param({"1024", "16384"})
+    private int recordSize;
+
+    @Param({"false", "true"})
+    private boolean sync;
+
+    private File directory;
+    private Journal journal;
+    private ByteSequence record;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("journal-benchmark").toFile();
+        journal = new Journal();
+        journal.setDirectory(directory);
+        journal.setMaxFileLength(32 * 1024 * 1024);
+        journal.setGroupCommit("GroupCommitDataFileAppender".equals(appenderType));
+        journal.start();
+
+        if ("CallerBufferingDataFileAppender".equals(appenderType)) {
+            journal.appender.close();
+            journal.appender = new CallerBufferingDataFileAppender(journal);
+        }
+
+        record = new ByteSequence(new byte[recordSize]);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        journal.close();
+        IOHelper.delete(directory);
+    }
+
+    @Benchmark
+    public Location write() throws Exception {
+        return journal.write(record, sync);
+    }
+}
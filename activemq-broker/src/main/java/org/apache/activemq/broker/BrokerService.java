@@ -100,6 +100,7 @@ import org.apache.activemq.store.PersistenceAdapterFactory;
 import org.apache.activemq.store.memory.MemoryPersistenceAdapter;
 import org.apache.activemq.thread.Scheduler;
 import org.apache.activemq.thread.TaskRunnerFactory;
+import org.apache.activemq.thread.VirtualThreads;
 import org.apache.activemq.transport.TransportFactorySupport;
 import org.apache.activemq.transport.TransportServer;
 import org.apache.activemq.transport.vm.VMTransportFactory;
@@ -223,6 +224,7 @@ public class BrokerService implements Service {
     private boolean monitorConnectionSplits = false;
     private int taskRunnerPriority = Thread.NORM_PRIORITY;
     private boolean dedicatedTaskRunner;
+    private boolean useVirtualThreads = VirtualThreads.isEnabledByDefault();
     private boolean cacheTempDestinations = false;// useful for failover
     private int timeBeforePurgeTempDestinations = 5000;
     private final List<Runnable> shutdownHooks = new ArrayList<>();
@@ -236,6 +238,8 @@ public class BrokerService implements Service {
     private File schedulerDirectoryFile;
     private Scheduler scheduler;
     private ThreadPoolExecutor executor;
+    private ThreadPoolExecutor storeReadAheadExecutor;
+    private int storeReadAheadPoolSize = 4;
     private int schedulePeriodForDestinationPurge= 0;
     private int maxPurgedDestinationsPerSweep = 0;
     private int schedulePeriodForDiskUsageCheck = 0;
@@ -255,6 +259,7 @@ public class BrokerService implements Service {
     private final AtomicBoolean persistenceAdapterStarted = new AtomicBoolean(false);
     private Throwable startException = null;
     private boolean startAsync = false;
+    private boolean restoreDestinationsAsync = false;
     private Date startDate;
     private boolean slave = true;
 
@@ -876,6 +881,12 @@ public class BrokerService implements Service {
             ThreadPoolUtils.shutdownNow(executor);
             this.executor = null;
         }
+        synchronized (this) {
+            if (this.storeReadAheadExecutor != null) {
+                ThreadPoolUtils.shutdownNow(storeReadAheadExecutor);
+                this.storeReadAheadExecutor = null;
+            }
+        }
 
         this.destinationInterceptors = null;
         this.destinationFactory = null;
@@ -1268,6 +1279,7 @@ public class BrokerService implements Service {
             this.taskRunnerFactory = new TaskRunnerFactory("ActiveMQ BrokerService["+getBrokerName()+"] Task", getTaskRunnerPriority(), true, 1000,
                     isDedicatedTaskRunner());
             this.taskRunnerFactory.setThreadClassLoader(this.getClass().getClassLoader());
+            this.taskRunnerFactory.setUseVirtualThreads(isUseVirtualThreads());
         }
         return this.taskRunnerFactory;
     }
@@ -1280,6 +1292,7 @@ public class BrokerService implements Service {
         if (taskRunnerFactory == null) {
             persistenceTaskRunnerFactory = new TaskRunnerFactory("Persistence Adaptor Task", persistenceThreadPriority,
                     true, 1000, isDedicatedTaskRunner());
+            persistenceTaskRunnerFactory.setUseVirtualThreads(isUseVirtualThreads());
         }
         return persistenceTaskRunnerFactory;
     }
@@ -1888,6 +1901,21 @@ public class BrokerService implements Service {
         this.dedicatedTaskRunner = dedicatedTaskRunner;
     }
 
+    public boolean isUseVirtualThreads() {
+        return useVirtualThreads;
+    }
+
+    /**
+     * Runs the broker's tasks on virtual threads when the JDK supports them.
+     * Transport reader threads are set with the transport.useVirtualThreads
+     * option on each transport connector.
+     *
+     * @param useVirtualThreads the useVirtualThreads to set
+     */
+    public void setUseVirtualThreads(boolean useVirtualThreads) {
+        this.useVirtualThreads = useVirtualThreads;
+    }
+
     public boolean isCacheTempDestinations() {
         return cacheTempDestinations;
     }
@@ -2843,6 +2871,41 @@ public class BrokerService implements Service {
         return this.executor;
     }
 
+    /**
+     * @return the pool queue store cursors read ahead of dispatch on, shared by all
+     *         destinations and bounded by the store read ahead pool size
+     */
+    public synchronized ThreadPoolExecutor getStoreReadAheadExecutor() {
+        if (this.storeReadAheadExecutor == null) {
+            this.storeReadAheadExecutor = new ThreadPoolExecutor(storeReadAheadPoolSize, storeReadAheadPoolSize, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+
+                private long i = 0;
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    this.i++;
+                    Thread thread = new Thread(runnable, "ActiveMQ BrokerService.storeReadAhead." + this.i);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            this.storeReadAheadExecutor.allowCoreThreadTimeOut(true);
+        }
+        return this.storeReadAheadExecutor;
+    }
+
+    public int getStoreReadAheadPoolSize() {
+        return storeReadAheadPoolSize;
+    }
+
+    /**
+     * Sets the number of threads shared by all queues that read messages ahead of
+     * dispatch from the store, see PolicyEntry storeReadAhead.
+     */
+    public void setStoreReadAheadPoolSize(int storeReadAheadPoolSize) {
+        this.storeReadAheadPoolSize = storeReadAheadPoolSize;
+    }
+
     public synchronized Scheduler getScheduler() {
         if (this.scheduler==null) {
             this.scheduler = new Scheduler("ActiveMQ Broker["+getBrokerName()+"] Scheduler");
@@ -3180,6 +3243,21 @@ public class BrokerService implements Service {
         this.startAsync = startAsync;
     }
 
+    public boolean isRestoreDestinationsAsync() {
+        return restoreDestinationsAsync;
+    }
+
+    /**
+     * Restore the destinations found in the persistence adapter on a worker thread so
+     * that transport connectors open without waiting for all of them. A destination that
+     * is used before it is restored is created on demand.
+     *
+     * @param restoreDestinationsAsync
+     */
+    public void setRestoreDestinationsAsync(boolean restoreDestinationsAsync) {
+        this.restoreDestinationsAsync = restoreDestinationsAsync;
+    }
+
     public boolean isSlave() {
         return this.slave;
     }
@@ -60,6 +60,7 @@ public class ConnectionContext {
     private final AtomicBoolean stopping = new AtomicBoolean();
     private final MessageEvaluationContext messageEvaluationContext;
     private boolean dontSendReponse;
+    private boolean deferIndividualAcks;
     private boolean clientMaster = true;
     private ConnectionState connectionState;
     private XATransactionId xid;
@@ -296,6 +297,18 @@ public class ConnectionContext {
         return dontSendReponse;
     }
 
+    /**
+     * @return true if subscriptions may hold back individual acks from this
+     *         connection until the connection asks them to sweep their dispatched list
+     */
+    public boolean isDeferIndividualAcks() {
+        return deferIndividualAcks;
+    }
+
+    public void setDeferIndividualAcks(boolean deferIndividualAcks) {
+        this.deferIndividualAcks = deferIndividualAcks;
+    }
+
     /**
      * @return the clientMaster
      */
@@ -19,13 +19,16 @@ package org.apache.activemq.broker;
 import java.io.EOFException;
 import java.io.IOException;
 import java.net.SocketException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
@@ -39,7 +42,9 @@ import javax.transaction.xa.XAResource;
 
 import org.apache.activemq.advisory.AdvisorySupport;
 import org.apache.activemq.broker.region.ConnectionStatistics;
+import org.apache.activemq.broker.region.PrefetchSubscription;
 import org.apache.activemq.broker.region.RegionBroker;
+import org.apache.activemq.broker.region.Subscription;
 import org.apache.activemq.command.ActiveMQDestination;
 import org.apache.activemq.command.BrokerInfo;
 import org.apache.activemq.command.BrokerSubscriptionInfo;
@@ -97,6 +102,7 @@ import org.apache.activemq.transport.ResponseCorrelator;
 import org.apache.activemq.transport.TransmitCallback;
 import org.apache.activemq.transport.Transport;
 import org.apache.activemq.transport.TransportDisposedIOException;
+import org.apache.activemq.transport.tcp.TcpTransport;
 import org.apache.activemq.util.IntrospectionSupport;
 import org.apache.activemq.util.MarshallingSupport;
 import org.apache.activemq.util.NetworkBridgeUtils;
@@ -164,6 +170,10 @@ public class TransportConnection implements Connection, Task, CommandVisitor {
     private final ReentrantReadWriteLock serviceLock = new ReentrantReadWriteLock();
     private String duplexNetworkConnectorId;
     private final long connectedTimestamp;
+    // set when individual acks are coalesced, see TransportConnector.isCoalesceAcks()
+    private final TcpTransport ackCoalescingTransport;
+    // filled by the reader thread and drained by it or by doStop, guarded by itself
+    private final Set<ConsumerBrokerExchange> coalescedAckExchanges = new LinkedHashSet<>();
 
     /**
      * @param taskRunnerFactory - can be null if you want direct dispatch to the transport
@@ -185,6 +195,25 @@ public class TransportConnection implements Connection, Task, CommandVisitor {
         this.taskRunnerFactory = taskRunnerFactory;
         this.stopTaskRunnerFactory = stopTaskRunnerFactory;
         this.transport = transport;
+        TcpTransport tcpTransport = connector != null && connector.isCoalesceAcks() ? transport.narrow(TcpTransport.class) : null;
+        this.ackCoalescingTransport = tcpTransport != null && tcpTransport.isReadIdleListenerSupported() ? tcpTransport : null;
+        if (this.ackCoalescingTransport != null) {
+            // deferred acks are flushed once the reader drained what had arrived, the last
+            // buffered command may never reach service(), a KeepAliveInfo for one
+            this.ackCoalescingTransport.setReadIdleListener(new Runnable() {
+                @Override
+                public void run() {
+                    serviceLock.readLock().lock();
+                    try {
+                        acknowledgeCoalescedAcks();
+                    } catch (Throwable e) {
+                        serviceException(e);
+                    } finally {
+                        serviceLock.readLock().unlock();
+                    }
+                }
+            });
+        }
         if( this.transport instanceof BrokerServiceAware ) {
             ((BrokerServiceAware)this.transport).setBrokerService(brokerService);
         }
@@ -332,6 +361,13 @@ public class TransportConnection implements Connection, Task, CommandVisitor {
         Response response = null;
         boolean responseRequired = command.isResponseRequired();
         int commandId = command.getCommandId();
+        if (ackCoalescingTransport != null && !command.isMessageAck()) {
+            try {
+                acknowledgeCoalescedAcks();
+            } catch (Throwable e) {
+                serviceException(e);
+            }
+        }
         try {
             if (status.get() != PENDING_STOP) {
                 response = command.visit(this);
@@ -588,13 +624,61 @@ public class TransportConnection implements Connection, Task, CommandVisitor {
     public Response processMessageAck(MessageAck ack) throws Exception {
         ConsumerBrokerExchange consumerExchange = getConsumerBrokerExchange(ack.getConsumerId());
         if (consumerExchange != null) {
-            broker.acknowledge(consumerExchange, ack);
+            if (ackCoalescingTransport != null && ack.isIndividualAck() && !ack.isInTransaction() && !ack.isResponseRequired()) {
+                coalesceAck(consumerExchange, ack);
+            } else {
+                acknowledgeCoalescedAcks();
+                broker.acknowledge(consumerExchange, ack);
+            }
         } else if (ack.isInTransaction()) {
             LOG.warn("no matching consumer {}, ignoring ack {}", consumerExchange, ack);
         }
         return null;
     }
 
+    /**
+     * The ack still passes through the broker but its subscription holds it back
+     * until the transport has no further commands buffered, so the acks of a burst
+     * are matched and removed together.
+     */
+    private void coalesceAck(ConsumerBrokerExchange consumerExchange, MessageAck ack) throws Exception {
+        ConnectionContext ackContext = consumerExchange.getConnectionContext();
+        ackContext.setDeferIndividualAcks(true);
+        try {
+            broker.acknowledge(consumerExchange, ack);
+        } finally {
+            ackContext.setDeferIndividualAcks(false);
+        }
+        synchronized (coalescedAckExchanges) {
+            coalescedAckExchanges.add(consumerExchange);
+        }
+    }
+
+    private void acknowledgeCoalescedAcks() throws Exception {
+        List<ConsumerBrokerExchange> exchanges;
+        synchronized (coalescedAckExchanges) {
+            if (coalescedAckExchanges.isEmpty()) {
+                return;
+            }
+            exchanges = new ArrayList<>(coalescedAckExchanges);
+            coalescedAckExchanges.clear();
+        }
+        Exception failure = null;
+        for (ConsumerBrokerExchange consumerExchange : exchanges) {
+            Subscription sub = consumerExchange.getSubscription();
+            if (sub instanceof PrefetchSubscription) {
+                try {
+                    ((PrefetchSubscription) sub).acknowledgeDeferred(consumerExchange.getConnectionContext());
+                } catch (Exception e) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
     @Override
     public Response processMessagePull(MessagePull pull) throws Exception {
         return broker.messagePull(lookupConnectionState(pull.getConsumerId()).getContext(), pull);
@@ -1231,6 +1315,11 @@ public class TransportConnection implements Connection, Task, CommandVisitor {
         // Remove all logical connection associated with this connection
         // from the broker.
         if (!broker.isStopped()) {
+            try {
+                acknowledgeCoalescedAcks();
+            } catch (Throwable ignore) {
+                LOG.debug("Exception caught acknowledging coalesced acks. This exception is ignored.", ignore);
+            }
             List<TransportConnectionState> connectionStates = listConnectionStates();
             for (TransportConnectionState cs : connectionStates) {
                 cs.getContext().getStopping().set(true);
@@ -80,6 +80,7 @@ public class TransportConnector implements Connector, BrokerServiceAware {
     private boolean allowLinkStealing = false;
     private boolean warnOnRemoteClose = false;
     private boolean displayStackTrace = false;
+    private boolean coalesceAcks = false;
 
     LinkedList<String> peerBrokers = new LinkedList<String>();
     private AtomicBoolean started = new AtomicBoolean(false);
@@ -131,6 +132,7 @@ public class TransportConnector implements Connector, BrokerServiceAware {
         rc.setPublishedAddressPolicy(getPublishedAddressPolicy());
         rc.setAllowLinkStealing(allowLinkStealing);
         rc.setWarnOnRemoteClose(isWarnOnRemoteClose());
+        rc.setCoalesceAcks(isCoalesceAcks());
         return rc;
     }
 
@@ -687,6 +689,22 @@ public class TransportConnector implements Connector, BrokerServiceAware {
         this.displayStackTrace = displayStackTrace;
     }
 
+    public boolean isCoalesceAcks() {
+        return coalesceAcks;
+    }
+
+    /**
+     * Coalesce the individual acks a consumer sends in one burst, as read from a tcp
+     * transport, so its subscription matches them in one pass over its dispatched
+     * messages and the store removes them together. Only blocking tcp and ssl
+     * transports coalesce, acks read by a nio transport are applied as they arrive.
+     *
+     * @param coalesceAcks
+     */
+    public void setCoalesceAcks(boolean coalesceAcks) {
+        this.coalesceAcks = coalesceAcks;
+    }
+
     @Override
     public long getMaxConnectionExceededCount() {
         return (server != null ? server.getMaxConnectionExceededCount() : 0l);
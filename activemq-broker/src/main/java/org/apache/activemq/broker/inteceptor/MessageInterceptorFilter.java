@@ -25,11 +25,12 @@ import org.apache.activemq.broker.ProducerBrokerExchange;
 import org.apache.activemq.command.ActiveMQDestination;
 import org.apache.activemq.command.Message;
 import org.apache.activemq.command.ProducerInfo;
+import org.apache.activemq.filter.CachingDestinationMap;
 import org.apache.activemq.filter.DestinationMap;
 import org.apache.activemq.state.ProducerState;
 
 class MessageInterceptorFilter extends BrokerFilter {
-    private DestinationMap interceptorMap = new DestinationMap();
+    private DestinationMap interceptorMap = new CachingDestinationMap();
 
     MessageInterceptorFilter(Broker next) {
         super(next);
@@ -61,6 +61,21 @@ public class PersistenceAdapterView implements PersistenceAdapterViewMBean {
         return persistenceAdapter.size();
     }
 
+    @Override
+    public long getPageCacheHits() {
+        return persistenceAdapterStatistics != null ? persistenceAdapterStatistics.getPageCacheHits().getCount() : 0;
+    }
+
+    @Override
+    public long getPageCacheMisses() {
+        return persistenceAdapterStatistics != null ? persistenceAdapterStatistics.getPageCacheMisses().getCount() : 0;
+    }
+
+    @Override
+    public long getPageCacheEvictions() {
+        return persistenceAdapterStatistics != null ? persistenceAdapterStatistics.getPageCacheEvictions().getCount() : 0;
+    }
+
     @Override
     public String getStatistics() {
         return serializePersistenceAdapterStatistics();
@@ -98,6 +113,9 @@ public class PersistenceAdapterView implements PersistenceAdapterViewMBean {
                 result.put("slowReadTime", getTimeStatisticAsMap(persistenceAdapterStatistics.getSlowReadTime()));
                 result.put("writeTime", getTimeStatisticAsMap(persistenceAdapterStatistics.getWriteTime()));
                 result.put("readTime", getTimeStatisticAsMap(persistenceAdapterStatistics.getReadTime()));
+                result.put("pageCacheHits", persistenceAdapterStatistics.getPageCacheHits().getCount());
+                result.put("pageCacheMisses", persistenceAdapterStatistics.getPageCacheMisses().getCount());
+                result.put("pageCacheEvictions", persistenceAdapterStatistics.getPageCacheEvictions().getCount());
                 return mapper.writeValueAsString(result);
             } catch (IOException e) {
                 return e.toString();
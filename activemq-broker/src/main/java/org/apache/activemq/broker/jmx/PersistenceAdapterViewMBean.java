@@ -30,6 +30,15 @@ public interface PersistenceAdapterViewMBean {
     @MBeanInfo("Current size.")
     long getSize();
 
+    @MBeanInfo("Index page reads served from the page cache.")
+    long getPageCacheHits();
+
+    @MBeanInfo("Index page reads that missed the page cache.")
+    long getPageCacheMisses();
+
+    @MBeanInfo("Pages evicted from the page cache.")
+    long getPageCacheEvictions();
+
     @MBeanInfo("Statistics related to the PersistentAdapter.")
     String getStatistics();
 
@@ -30,6 +30,7 @@ import jakarta.jms.JMSException;
 
 import org.apache.activemq.DestinationDoesNotExistException;
 import org.apache.activemq.advisory.AdvisorySupport;
+import org.apache.activemq.broker.BrokerService;
 import org.apache.activemq.broker.ConnectionContext;
 import org.apache.activemq.broker.ConsumerBrokerExchange;
 import org.apache.activemq.broker.ProducerBrokerExchange;
@@ -46,6 +47,7 @@ import org.apache.activemq.command.MessagePull;
 import org.apache.activemq.command.ProducerInfo;
 import org.apache.activemq.command.RemoveSubscriptionInfo;
 import org.apache.activemq.command.Response;
+import org.apache.activemq.filter.CachingDestinationMap;
 import org.apache.activemq.filter.DestinationFilter;
 import org.apache.activemq.filter.DestinationMap;
 import org.apache.activemq.security.SecurityContext;
@@ -62,7 +64,7 @@ public abstract class AbstractRegion implements Region {
     private static final Logger LOG = LoggerFactory.getLogger(AbstractRegion.class);
 
     protected final Map<ActiveMQDestination, Destination> destinations = new ConcurrentHashMap<ActiveMQDestination, Destination>();
-    protected final DestinationMap destinationMap = new DestinationMap();
+    protected final DestinationMap destinationMap = new CachingDestinationMap();
     protected final Map<ConsumerId, Subscription> subscriptions = new ConcurrentHashMap<ConsumerId, Subscription>();
     protected final SystemUsage usageManager;
     protected final DestinationFactory destinationFactory;
@@ -94,14 +96,24 @@ public abstract class AbstractRegion implements Region {
     public final void start() throws Exception {
         started = true;
 
-        Set<ActiveMQDestination> inactiveDests = getInactiveDestinations();
-        for (Iterator<ActiveMQDestination> iter = inactiveDests.iterator(); iter.hasNext();) {
-            ActiveMQDestination dest = iter.next();
-
-            ConnectionContext context = new ConnectionContext();
-            context.setBroker(broker.getBrokerService().getBroker());
-            context.setSecurityContext(SecurityContext.BROKER_SECURITY_CONTEXT);
-            context.getBroker().addDestination(context, dest, false);
+        final Set<ActiveMQDestination> inactiveDests = getInactiveDestinations();
+        BrokerService brokerService = broker.getBrokerService();
+        if (!inactiveDests.isEmpty() && brokerService != null && brokerService.isRestoreDestinationsAsync() && broker.getExecutor() != null) {
+            // destinations that get used first are created on demand, addDestination starts them
+            broker.getExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    long start = System.currentTimeMillis();
+                    try {
+                        restoreDestinations(inactiveDests);
+                        LOG.info("{} restored {} destinations in {} ms", broker.getBrokerName(), inactiveDests.size(), System.currentTimeMillis() - start);
+                    } catch (Exception e) {
+                        LOG.warn("{} failed to restore destinations, remaining ones are created on first use", broker.getBrokerName(), e);
+                    }
+                }
+            });
+        } else {
+            restoreDestinations(inactiveDests);
         }
         destinationsLock.readLock().lock();
         try{
@@ -114,6 +126,17 @@ public abstract class AbstractRegion implements Region {
         }
     }
 
+    private void restoreDestinations(Set<ActiveMQDestination> inactiveDests) throws Exception {
+        for (Iterator<ActiveMQDestination> iter = inactiveDests.iterator(); started && iter.hasNext();) {
+            ActiveMQDestination dest = iter.next();
+
+            ConnectionContext context = new ConnectionContext();
+            context.setBroker(broker.getBrokerService().getBroker());
+            context.setSecurityContext(SecurityContext.BROKER_SECURITY_CONTEXT);
+            context.getBroker().addDestination(context, dest, false);
+        }
+    }
+
     @Override
     public void stop() throws Exception {
         started = false;
@@ -0,0 +1,80 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.broker.region;
+
+/**
+ * Sizes the page in and cursor batch of a destination from the rate its messages
+ * are dispatched at, the prefetch room its consumers have left and how full its
+ * memory usage is, within the destination's min and max adaptive page size.
+ * A fast queue pages in up to a second's worth of messages at a time, so it goes
+ * to the store less often, a slow one pages in little and pins less memory.
+ */
+final class AdaptivePageSize {
+
+    static final long SAMPLE_PERIOD = 1000;
+    // memory usage percentage from which the page size is scaled down to nothing at 100%
+    static final int MEMORY_BACKOFF_PERCENT = 50;
+
+    private final BaseDestination destination;
+    private volatile long lastSample;
+    private long lastDispatched;
+    private double rate;
+    private volatile int pageSize;
+
+    AdaptivePageSize(BaseDestination destination) {
+        this.destination = destination;
+        this.pageSize = size(0, 0, 0, destination.getMinAdaptivePageSize(), destination.getMaxAdaptivePageSize());
+    }
+
+    int getPageSize() {
+        long now = System.currentTimeMillis();
+        if (now - lastSample >= SAMPLE_PERIOD) {
+            synchronized (this) {
+                if (now - lastSample >= SAMPLE_PERIOD) {
+                    sample(now);
+                }
+            }
+        }
+        return pageSize;
+    }
+
+    private void sample(long now) {
+        long dispatched = destination.getDestinationStatistics().getDispatched().getCount();
+        if (lastSample != 0) {
+            double sampled = (dispatched - lastDispatched) * 1000d / (now - lastSample);
+            // smooth out bursts, an idle second halves the rate
+            rate = (rate + sampled) / 2;
+        }
+        lastDispatched = dispatched;
+        lastSample = now;
+        pageSize = size(rate, destination.getPrefetchHeadroom(), destination.getMemoryUsage().getPercentUsage(),
+            destination.getMinAdaptivePageSize(), destination.getMaxAdaptivePageSize());
+    }
+
+    /**
+     * @return a second's worth of dispatch, or enough to fill the consumers' prefetch if that
+     *         is more, scaled down once memory usage passes {@link #MEMORY_BACKOFF_PERCENT}
+     *         and bounded by min and max.
+     */
+    static int size(double rate, int prefetchHeadroom, int memoryPercentUsage, int min, int max) {
+        long target = Math.max((long) Math.ceil(rate), prefetchHeadroom);
+        if (memoryPercentUsage > MEMORY_BACKOFF_PERCENT) {
+            target = target * Math.max(0, 100 - memoryPercentUsage) / (100 - MEMORY_BACKOFF_PERCENT);
+        }
+        return (int) Math.max(min, Math.min(max, target));
+    }
+}
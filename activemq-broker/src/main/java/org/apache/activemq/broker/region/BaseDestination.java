@@ -56,6 +56,8 @@ public abstract class BaseDestination implements Destination {
      */
     public static final int MAX_PAGE_SIZE = 200;
     public static final int MAX_BROWSE_PAGE_SIZE = MAX_PAGE_SIZE * 2;
+    public static final int MIN_ADAPTIVE_PAGE_SIZE = 10;
+    public static final int MAX_ADAPTIVE_PAGE_SIZE = MAX_PAGE_SIZE * 10;
     public static final long EXPIRE_MESSAGE_PERIOD = 30 * 1000;
     public static final long DEFAULT_INACTIVE_TIMEOUT_BEFORE_GC = 60 * 1000;
     public static final int MAX_PRODUCERS_TO_AUDIT = 64;
@@ -77,6 +79,9 @@ public abstract class BaseDestination implements Destination {
     private int maxAuditDepth = 2048;
     private boolean enableAudit = true;
     private int maxPageSize = MAX_PAGE_SIZE;
+    private volatile AdaptivePageSize adaptivePageSize;
+    private int minAdaptivePageSize = MIN_ADAPTIVE_PAGE_SIZE;
+    private int maxAdaptivePageSize = MAX_ADAPTIVE_PAGE_SIZE;
     private int maxBrowsePageSize = MAX_BROWSE_PAGE_SIZE;
     private boolean useCache = true;
     private int minimumMessageSize = 1024;
@@ -316,9 +321,14 @@ public abstract class BaseDestination implements Destination {
         return isActive;
     }
 
+    /**
+     * @return the configured max page size, or the current adaptive page size when
+     *         adaptive page sizing is on
+     */
     @Override
     public int getMaxPageSize() {
-        return maxPageSize;
+        AdaptivePageSize adaptive = this.adaptivePageSize;
+        return adaptive != null ? adaptive.getPageSize() : maxPageSize;
     }
 
     @Override
@@ -326,6 +336,46 @@ public abstract class BaseDestination implements Destination {
         this.maxPageSize = maxPageSize;
     }
 
+    public boolean isAdaptivePageSize() {
+        return adaptivePageSize != null;
+    }
+
+    /**
+     * Size the page in and cursor batch from the dispatch rate, the consumers' prefetch
+     * room and memory usage, between the min and max adaptive page size, instead of
+     * using the fixed max page size.
+     */
+    public void setAdaptivePageSize(boolean adaptivePageSize) {
+        if (!adaptivePageSize) {
+            this.adaptivePageSize = null;
+        } else if (this.adaptivePageSize == null) {
+            this.adaptivePageSize = new AdaptivePageSize(this);
+        }
+    }
+
+    public int getMinAdaptivePageSize() {
+        return minAdaptivePageSize;
+    }
+
+    public void setMinAdaptivePageSize(int minAdaptivePageSize) {
+        this.minAdaptivePageSize = minAdaptivePageSize;
+    }
+
+    public int getMaxAdaptivePageSize() {
+        return maxAdaptivePageSize;
+    }
+
+    public void setMaxAdaptivePageSize(int maxAdaptivePageSize) {
+        this.maxAdaptivePageSize = maxAdaptivePageSize;
+    }
+
+    /**
+     * @return how many more messages the consumers can take before their prefetch is full
+     */
+    protected int getPrefetchHeadroom() {
+        return 0;
+    }
+
     @Override
     public int getMaxBrowsePageSize() {
         return this.maxBrowsePageSize;
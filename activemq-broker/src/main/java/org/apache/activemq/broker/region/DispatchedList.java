@@ -0,0 +1,298 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.broker.region;
+
+import java.util.AbstractSequentialList;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.apache.activemq.command.MessageId;
+
+/**
+ * The messages dispatched to a subscription, in dispatch order. The messages are
+ * linked and indexed by MessageId so acks can find them, and remove them or start
+ * walking a range from them, without scanning the messages dispatched before.
+ * <p>
+ * Messages are compared by identity. If more than one message with the same id is
+ * held the index points at the earliest of them, like a scan from the head would.
+ */
+public class DispatchedList extends AbstractSequentialList<MessageReference> {
+
+    private final Map<MessageId, Node> index = new HashMap<MessageId, Node>();
+    private Node head;
+    private Node tail;
+    private int size;
+    // messages held that share their id with an earlier one and so are not indexed
+    private int unindexed;
+
+    private static final class Node {
+        MessageReference reference;
+        Node previous;
+        Node next;
+
+        Node(MessageReference reference) {
+            this.reference = reference;
+        }
+    }
+
+    @Override
+    public boolean add(MessageReference reference) {
+        Node node = new Node(reference);
+        if (tail == null) {
+            head = tail = node;
+        } else {
+            node.previous = tail;
+            tail.next = node;
+            tail = node;
+        }
+        size++;
+        modCount++;
+        index(node);
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        Node node = o instanceof MessageReference ? find((MessageReference) o) : null;
+        if (node == null) {
+            return false;
+        }
+        unlink(node);
+        return true;
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        boolean modified = false;
+        for (Object o : c) {
+            modified |= remove(o);
+        }
+        return modified;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof MessageReference && find((MessageReference) o) != null;
+    }
+
+    /**
+     * @return the earliest dispatched message with the given id, or null
+     */
+    public MessageReference get(MessageId messageId) {
+        Node node = messageId != null ? index.get(messageId) : null;
+        return node != null ? node.reference : null;
+    }
+
+    /**
+     * @return an iterator over the messages starting at the earliest one with the
+     *         given id, or at the head when the id is null. The iterator is empty
+     *         if no message has the id.
+     */
+    public Iterator<MessageReference> iterator(MessageId first) {
+        Node start = first == null ? head : index.get(first);
+        return new Itr(start, -1);
+    }
+
+    @Override
+    public void clear() {
+        index.clear();
+        head = tail = null;
+        size = 0;
+        unindexed = 0;
+        modCount++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public ListIterator<MessageReference> listIterator(int at) {
+        if (at < 0 || at > size) {
+            throw new IndexOutOfBoundsException("Index: " + at + ", Size: " + size);
+        }
+        Node node = head;
+        for (int i = 0; i < at; i++) {
+            node = node.next;
+        }
+        return new Itr(node, at);
+    }
+
+    private Node find(MessageReference reference) {
+        Node node = index.get(reference.getMessageId());
+        if (node != null && node.reference == reference) {
+            return node;
+        }
+        if (unindexed > 0) {
+            for (node = head; node != null; node = node.next) {
+                if (node.reference == reference) {
+                    return node;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void index(Node node) {
+        MessageId id = node.reference.getMessageId();
+        if (index.containsKey(id)) {
+            unindexed++;
+        } else {
+            index.put(id, node);
+        }
+    }
+
+    private void unindex(Node node) {
+        MessageId id = node.reference.getMessageId();
+        if (index.get(id) != node) {
+            unindexed--;
+            return;
+        }
+        index.remove(id);
+        if (unindexed > 0) {
+            for (Node other = node.next; other != null; other = other.next) {
+                if (id.equals(other.reference.getMessageId())) {
+                    index.put(id, other);
+                    unindexed--;
+                    break;
+                }
+            }
+        }
+    }
+
+    private void unlink(Node node) {
+        unindex(node);
+        if (node.previous == null) {
+            head = node.next;
+        } else {
+            node.previous.next = node.next;
+        }
+        if (node.next == null) {
+            tail = node.previous;
+        } else {
+            node.next.previous = node.previous;
+        }
+        node.previous = node.next = null;
+        size--;
+        modCount++;
+    }
+
+    private final class Itr implements ListIterator<MessageReference> {
+        private Node next;
+        private Node lastReturned;
+        // -1 when iterating from a message rather than a position
+        private int nextIndex;
+        private int expectedModCount = modCount;
+
+        Itr(Node next, int nextIndex) {
+            this.next = next;
+            this.nextIndex = nextIndex;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public MessageReference next() {
+            checkForComodification();
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = next;
+            next = next.next;
+            if (nextIndex >= 0) {
+                nextIndex++;
+            }
+            return lastReturned.reference;
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return nextIndex > 0;
+        }
+
+        @Override
+        public MessageReference previous() {
+            checkForComodification();
+            if (nextIndex <= 0) {
+                throw new NoSuchElementException();
+            }
+            next = next == null ? tail : next.previous;
+            lastReturned = next;
+            nextIndex--;
+            return lastReturned.reference;
+        }
+
+        @Override
+        public int nextIndex() {
+            checkPositional();
+            return nextIndex;
+        }
+
+        @Override
+        public int previousIndex() {
+            checkPositional();
+            return nextIndex - 1;
+        }
+
+        @Override
+        public void remove() {
+            checkForComodification();
+            if (lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            if (next == lastReturned) {
+                next = lastReturned.next;
+            } else if (nextIndex > 0) {
+                nextIndex--;
+            }
+            unlink(lastReturned);
+            lastReturned = null;
+            expectedModCount = modCount;
+        }
+
+        @Override
+        public void set(MessageReference reference) {
+            throw new UnsupportedOperationException("messages are not replaced");
+        }
+
+        @Override
+        public void add(MessageReference reference) {
+            throw new UnsupportedOperationException("messages are only added at the end");
+        }
+
+        private void checkPositional() {
+            if (nextIndex < 0) {
+                throw new UnsupportedOperationException("iterator started from a message");
+            }
+        }
+
+        private void checkForComodification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+}
@@ -219,9 +219,10 @@ public class DurableTopicSubscription extends PrefetchSubscription implements Us
 
                 // Before we add these back to pending they need to be in producer order not
                 // dispatch order so we can add them to the front of the pending list.
-                Collections.reverse(dispatched);
+                List<MessageReference> reversed = new ArrayList<MessageReference>(dispatched);
+                Collections.reverse(reversed);
 
-                for (final MessageReference node : dispatched) {
+                for (final MessageReference node : reversed) {
                     // Mark the dispatched messages as redelivered for next time.
                     if (lastDeliveredSequenceId == RemoveInfo.LAST_DELIVERED_UNKNOWN || lastDeliveredSequenceId == 0 ||
                             (lastDeliveredSequenceId > 0 && node.getMessageId().getBrokerSequenceId() <= lastDeliveredSequenceId)) {
@@ -241,7 +242,7 @@ public class DurableTopicSubscription extends PrefetchSubscription implements Us
                 }
 
                 if (!topicsToDeactivate.isEmpty()) {
-                    savedDispateched = new ArrayList<MessageReference>(dispatched);
+                    savedDispateched = reversed;
                 }
                 dispatched.clear();
                 getSubscriptionStatistics().getInflightMessageSize().reset();
@@ -55,13 +55,15 @@ public abstract class PrefetchSubscription extends AbstractSubscription {
     protected final Scheduler scheduler;
 
     protected PendingMessageCursor pending;
-    protected final List<MessageReference> dispatched = new ArrayList<MessageReference>();
+    protected final DispatchedList dispatched = new DispatchedList();
     private int maxProducersToAudit=32;
     private int maxAuditDepth=2048;
     protected final SystemUsage usageManager;
     protected final Object pendingLock = new Object();
     protected final Object dispatchLock = new Object();
     private final CountDownLatch okForAckAsDispatchDone = new CountDownLatch(1);
+    // individual acks held back by the connection, see ConnectionContext.isDeferIndividualAcks()
+    private final List<MessageAck> deferredAcks = new ArrayList<MessageAck>();
 
     public PrefetchSubscription(Broker broker, SystemUsage usageManager, ConnectionContext context, ConsumerInfo info, PendingMessageCursor cursor) throws JMSException {
         super(broker,context, info);
@@ -203,6 +205,14 @@ public abstract class PrefetchSubscription extends AbstractSubscription {
 
         LOG.trace("ack: {}", ack);
 
+        if (context.isDeferIndividualAcks() && ack.isIndividualAck() && !ack.isInTransaction()) {
+            synchronized (deferredAcks) {
+                deferredAcks.add(ack);
+            }
+            return;
+        }
+        acknowledgeDeferred(context);
+
         synchronized(dispatchLock) {
             if (ack.isStandardAck()) {
                 // First check if the ack matches the dispatched. When using failover this might
@@ -211,29 +221,23 @@ public abstract class PrefetchSubscription extends AbstractSubscription {
 
                 // Acknowledge all dispatched messages up till the message id of
                 // the acknowledgment.
-                boolean inAckRange = false;
                 List<MessageReference> removeList = new ArrayList<MessageReference>();
-                for (final MessageReference node : dispatched) {
+                for (Iterator<MessageReference> iter = dispatched.iterator(ack.getFirstMessageId()); iter.hasNext();) {
+                    final MessageReference node = iter.next();
                     MessageId messageId = node.getMessageId();
-                    if (ack.getFirstMessageId() == null
-                            || ack.getFirstMessageId().equals(messageId)) {
-                        inAckRange = true;
+                    // Don't remove the nodes until we are committed.
+                    if (!context.isInTransaction()) {
+                        getSubscriptionStatistics().getDequeues().increment();
+                        removeList.add(node);
+                        contractPrefetchExtension(1);
+                    } else {
+                        registerRemoveSync(context, node);
                     }
-                    if (inAckRange) {
-                        // Don't remove the nodes until we are committed.
-                        if (!context.isInTransaction()) {
-                            getSubscriptionStatistics().getDequeues().increment();
-                            removeList.add(node);
-                            contractPrefetchExtension(1);
-                        } else {
-                            registerRemoveSync(context, node);
-                        }
-                        acknowledge(context, ack, node);
-                        if (ack.getLastMessageId().equals(messageId)) {
-                            destination = (Destination) node.getRegionDestination();
-                            callDispatchMatched = true;
-                            break;
-                        }
+                    acknowledge(context, ack, node);
+                    if (ack.getLastMessageId().equals(messageId)) {
+                        destination = (Destination) node.getRegionDestination();
+                        callDispatchMatched = true;
+                        break;
                     }
                 }
                 for (final MessageReference node : removeList) {
@@ -248,38 +252,30 @@ public abstract class PrefetchSubscription extends AbstractSubscription {
             } else if (ack.isIndividualAck()) {
                 // Message was delivered and acknowledge - but only delete the
                 // individual message
-                for (final MessageReference node : dispatched) {
-                    MessageId messageId = node.getMessageId();
-                    if (ack.getLastMessageId().equals(messageId)) {
-                        // Don't remove the nodes until we are committed - immediateAck option
-                        if (!context.isInTransaction()) {
-                            getSubscriptionStatistics().getDequeues().increment();
-                            dispatched.remove(node);
-                            decrementPrefetchCounter(node);
-                            contractPrefetchExtension(1);
-                        } else {
-                            registerRemoveSync(context, node);
-                            expandPrefetchExtension(1);
-                        }
-                        acknowledge(context, ack, node);
-                        destination = (Destination) node.getRegionDestination();
-                        callDispatchMatched = true;
-                        break;
+                final MessageReference node = dispatched.get(ack.getLastMessageId());
+                if (node != null) {
+                    // Don't remove the nodes until we are committed - immediateAck option
+                    if (!context.isInTransaction()) {
+                        getSubscriptionStatistics().getDequeues().increment();
+                        dispatched.remove(node);
+                        decrementPrefetchCounter(node);
+                        contractPrefetchExtension(1);
+                    } else {
+                        registerRemoveSync(context, node);
+                        expandPrefetchExtension(1);
                     }
+                    acknowledge(context, ack, node);
+                    destination = (Destination) node.getRegionDestination();
+                    callDispatchMatched = true;
                 }
             } else if (ack.isDeliveredAck()) {
                 // Message was delivered but not acknowledged: update pre-fetch
                 // counters.
-                int index = 0;
-                for (Iterator<MessageReference> iter = dispatched.iterator(); iter.hasNext(); index++) {
-                    final MessageReference node = iter.next();
-                    Destination nodeDest = (Destination) node.getRegionDestination();
-                    if (ack.getLastMessageId().equals(node.getMessageId())) {
-                        expandPrefetchExtension(ack.getMessageCount());
-                        destination = nodeDest;
-                        callDispatchMatched = true;
-                        break;
-                    }
+                final MessageReference node = dispatched.get(ack.getLastMessageId());
+                if (node != null) {
+                    expandPrefetchExtension(ack.getMessageCount());
+                    destination = (Destination) node.getRegionDestination();
+                    callDispatchMatched = true;
                 }
                 if (!callDispatchMatched) {
                     throw new JMSException(
@@ -288,29 +284,21 @@ public abstract class PrefetchSubscription extends AbstractSubscription {
                 }
             } else if (ack.isExpiredAck()) {
                 // Message was expired
-                int index = 0;
-                boolean inAckRange = false;
-                for (Iterator<MessageReference> iter = dispatched.iterator(); iter.hasNext(); index++) {
+                for (Iterator<MessageReference> iter = dispatched.iterator(ack.getFirstMessageId()); iter.hasNext();) {
                     final MessageReference node = iter.next();
-                    Destination nodeDest = (Destination) node.getRegionDestination();
+                    Destination regionDestination = (Destination) node.getRegionDestination();
                     MessageId messageId = node.getMessageId();
-                    if (ack.getFirstMessageId() == null || ack.getFirstMessageId().equals(messageId)) {
-                        inAckRange = true;
+                    if (broker.isExpired(node)) {
+                        regionDestination.messageExpired(context, this, node);
                     }
-                    if (inAckRange) {
-                        Destination regionDestination = nodeDest;
-                        if (broker.isExpired(node)) {
-                            regionDestination.messageExpired(context, this, node);
-                        }
-                        iter.remove();
-                        decrementPrefetchCounter(node);
+                    iter.remove();
+                    decrementPrefetchCounter(node);
 
-                        if (ack.getLastMessageId().equals(messageId)) {
-                            contractPrefetchExtension(1);
-                            destination = (Destination) node.getRegionDestination();
-                            callDispatchMatched = true;
-                            break;
-                        }
+                    if (ack.getLastMessageId().equals(messageId)) {
+                        contractPrefetchExtension(1);
+                        destination = (Destination) node.getRegionDestination();
+                        callDispatchMatched = true;
+                        break;
                     }
                 }
                 if (!callDispatchMatched) {
@@ -321,19 +309,12 @@ public abstract class PrefetchSubscription extends AbstractSubscription {
             } else if (ack.isRedeliveredAck()) {
                 // Message was re-delivered but it was not yet considered to be
                 // a DLQ message.
-                boolean inAckRange = false;
-                for (final MessageReference node : dispatched) {
-                    MessageId messageId = node.getMessageId();
-                    if (ack.getFirstMessageId() == null
-                            || ack.getFirstMessageId().equals(messageId)) {
-                        inAckRange = true;
-                    }
-                    if (inAckRange) {
-                        if (ack.getLastMessageId().equals(messageId)) {
-                            destination = (Destination) node.getRegionDestination();
-                            callDispatchMatched = true;
-                            break;
-                        }
+                for (Iterator<MessageReference> iter = dispatched.iterator(ack.getFirstMessageId()); iter.hasNext();) {
+                    final MessageReference node = iter.next();
+                    if (ack.getLastMessageId().equals(node.getMessageId())) {
+                        destination = (Destination) node.getRegionDestination();
+                        callDispatchMatched = true;
+                        break;
                     }
                 }
                 if (!callDispatchMatched) {
@@ -349,28 +330,20 @@ public abstract class PrefetchSubscription extends AbstractSubscription {
                     throw new JMSException("Poison ack cannot be transacted: "
                             + ack);
                 }
-                int index = 0;
-                boolean inAckRange = false;
                 List<MessageReference> removeList = new ArrayList<MessageReference>();
-                for (final MessageReference node : dispatched) {
+                for (Iterator<MessageReference> iter = dispatched.iterator(ack.getFirstMessageId()); iter.hasNext();) {
+                    final MessageReference node = iter.next();
                     MessageId messageId = node.getMessageId();
-                    if (ack.getFirstMessageId() == null
-                            || ack.getFirstMessageId().equals(messageId)) {
-                        inAckRange = true;
-                    }
-                    if (inAckRange) {
-                        sendToDLQ(context, node, ack.getPoisonCause());
-                        Destination nodeDest = (Destination) node.getRegionDestination();
-                        removeList.add(node);
-                        getSubscriptionStatistics().getDequeues().increment();
-                        index++;
-                        acknowledge(context, ack, node);
-                        if (ack.getLastMessageId().equals(messageId)) {
-                            contractPrefetchExtension(1);
-                            destination = nodeDest;
-                            callDispatchMatched = true;
-                            break;
-                        }
+                    sendToDLQ(context, node, ack.getPoisonCause());
+                    Destination nodeDest = (Destination) node.getRegionDestination();
+                    removeList.add(node);
+                    getSubscriptionStatistics().getDequeues().increment();
+                    acknowledge(context, ack, node);
+                    if (ack.getLastMessageId().equals(messageId)) {
+                        contractPrefetchExtension(1);
+                        destination = nodeDest;
+                        callDispatchMatched = true;
+                        break;
                     }
                 }
                 for (final MessageReference node : removeList) {
@@ -396,6 +369,55 @@ public abstract class PrefetchSubscription extends AbstractSubscription {
         }
     }
 
+    /**
+     * Applies the individual acks held back while the connection was deferring them
+     * in one go.
+     *
+     * @param context the connection context the acks arrived on
+     * @throws Exception
+     */
+    public void acknowledgeDeferred(ConnectionContext context) throws Exception {
+        List<MessageAck> acks;
+        synchronized (deferredAcks) {
+            if (deferredAcks.isEmpty()) {
+                return;
+            }
+            acks = new ArrayList<MessageAck>(deferredAcks);
+            deferredAcks.clear();
+        }
+
+        Destination destination = null;
+        synchronized(dispatchLock) {
+            List<MessageAck> matchedAcks = new ArrayList<MessageAck>(acks.size());
+            List<MessageReference> matchedNodes = new ArrayList<MessageReference>(acks.size());
+            for (MessageAck ack : acks) {
+                final MessageReference node = dispatched.get(ack.getLastMessageId());
+                if (node != null) {
+                    getSubscriptionStatistics().getDequeues().increment();
+                    dispatched.remove(node);
+                    decrementPrefetchCounter(node);
+                    contractPrefetchExtension(1);
+                    matchedAcks.add(ack);
+                    matchedNodes.add(node);
+                } else {
+                    LOG.debug("Acknowledgment out of sync (Normally occurs when failover connection reconnects): {}", ack);
+                }
+            }
+            if (!matchedNodes.isEmpty()) {
+                acknowledge(context, matchedAcks, matchedNodes);
+                destination = (Destination) matchedNodes.get(matchedNodes.size() - 1).getRegionDestination();
+            }
+        }
+        if (destination != null) {
+            destination.wakeup();
+            dispatchPending();
+
+            if (pending.isEmpty()) {
+                wakeupDestinationsForDispatch();
+            }
+        }
+    }
+
     private void registerRemoveSync(ConnectionContext context, final MessageReference node) {
         // setup a Synchronization to remove nodes from the
         // dispatched list.
@@ -436,19 +458,11 @@ public abstract class PrefetchSubscription extends AbstractSubscription {
         MessageId firstAckedMsg = ack.getFirstMessageId();
         MessageId lastAckedMsg = ack.getLastMessageId();
         int checkCount = 0;
-        boolean checkFoundStart = false;
+        boolean checkFoundStart = firstAckedMsg == null || dispatched.get(firstAckedMsg) != null;
         boolean checkFoundEnd = false;
-        for (MessageReference node : dispatched) {
-
-            if (firstAckedMsg == null) {
-                checkFoundStart = true;
-            } else if (!checkFoundStart && firstAckedMsg.equals(node.getMessageId())) {
-                checkFoundStart = true;
-            }
-
-            if (checkFoundStart) {
-                checkCount++;
-            }
+        for (Iterator<MessageReference> iter = dispatched.iterator(firstAckedMsg); iter.hasNext();) {
+            MessageReference node = iter.next();
+            checkCount++;
 
             if (lastAckedMsg != null && lastAckedMsg.equals(node.getMessageId())) {
                 checkFoundEnd = true;
@@ -832,6 +846,18 @@ public abstract class PrefetchSubscription extends AbstractSubscription {
      */
     protected abstract void acknowledge(ConnectionContext context, final MessageAck ack, final MessageReference node) throws IOException;
 
+    /**
+     * Used when a batch of individual acknowledgments has been matched to the
+     * dispatched messages, the acks and nodes are in the same order.
+     *
+     * @throws IOException
+     */
+    protected void acknowledge(ConnectionContext context, List<MessageAck> acks, List<MessageReference> nodes) throws IOException {
+        for (int i = 0; i < acks.size(); i++) {
+            acknowledge(context, acks.get(i), nodes.get(i));
+        }
+    }
+
 
     public int getMaxProducersToAudit() {
         return maxProducersToAudit;
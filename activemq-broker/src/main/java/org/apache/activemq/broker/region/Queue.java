@@ -33,11 +33,16 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.DelayQueue;
 import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -59,6 +64,7 @@ import org.apache.activemq.broker.region.cursors.PendingList;
 import org.apache.activemq.broker.region.cursors.PendingMessageCursor;
 import org.apache.activemq.broker.region.cursors.PrioritizedPendingList;
 import org.apache.activemq.broker.region.cursors.QueueDispatchPendingList;
+import org.apache.activemq.broker.region.cursors.SequencePendingList;
 import org.apache.activemq.broker.region.cursors.StoreQueueCursor;
 import org.apache.activemq.broker.region.cursors.VMPendingMessageCursor;
 import org.apache.activemq.broker.region.group.CachedMessageGroupMapFactory;
@@ -114,7 +120,7 @@ public class Queue extends BaseDestination implements Task, UsageListener, Index
     private final ReentrantReadWriteLock messagesLock = new ReentrantReadWriteLock();
     protected PendingMessageCursor messages;
     private final ReentrantReadWriteLock pagedInMessagesLock = new ReentrantReadWriteLock();
-    private final PendingList pagedInMessages = new OrderedPendingList();
+    private PendingList pagedInMessages = new OrderedPendingList();
     // Messages that are paged in but have not yet been targeted at a subscription
     private final ReentrantReadWriteLock pagedInPendingDispatchLock = new ReentrantReadWriteLock();
     protected QueueDispatchPendingList dispatchPendingList = new QueueDispatchPendingList();
@@ -136,6 +142,10 @@ public class Queue extends BaseDestination implements Task, UsageListener, Index
     private CountDownLatch consumersBeforeStartsLatch;
     private final AtomicLong pendingWakeups = new AtomicLong();
     private boolean allConsumersExclusiveByDefault = false;
+    private volatile SelectorDispatchIndex selectorDispatchIndex;
+    private volatile int dispatchLanes = 1;
+    private volatile boolean storeReadAhead;
+    private ExecutorService dispatchLaneExecutor;
 
     private volatile boolean resetNeeded;
 
@@ -456,6 +466,9 @@ public class Queue extends BaseDestination implements Task, UsageListener, Index
                 }
 
                 addToConsumerList(sub);
+                if (selectorDispatchIndex != null) {
+                    selectorDispatchIndex.add(sub);
+                }
                 if (sub.getConsumerInfo().isExclusive() || isAllConsumersExclusiveByDefault()) {
                     Subscription exclusiveConsumer = dispatchSelector.getExclusiveConsumer();
                     if (exclusiveConsumer == null) {
@@ -511,6 +524,9 @@ public class Queue extends BaseDestination implements Task, UsageListener, Index
             consumersLock.writeLock().lock();
             try {
                 removeFromConsumerList(sub);
+                if (selectorDispatchIndex != null) {
+                    selectorDispatchIndex.remove(sub);
+                }
                 if (sub.getConsumerInfo().isExclusive()) {
                     Subscription exclusiveConsumer = dispatchSelector.getExclusiveConsumer();
                     if (exclusiveConsumer == sub) {
@@ -1046,6 +1062,7 @@ public class Queue extends BaseDestination implements Task, UsageListener, Index
                 ThreadPoolUtils.shutdownNow(executor);
                 executor = null;
             }
+            shutdownDispatchLaneExecutor();
 
             scheduler.cancel(expireMessagesTask);
 
@@ -1125,6 +1142,112 @@ public class Queue extends BaseDestination implements Task, UsageListener, Index
         this.useConsumerPriority = useConsumerPriority;
     }
 
+    public boolean isUseSelectorDispatchIndex() {
+        return selectorDispatchIndex != null;
+    }
+
+    /**
+     * Index the consumers by the equality and IN terms of their selectors on string
+     * properties, so dispatch only evaluates the selectors of consumers that can match.
+     */
+    public void setUseSelectorDispatchIndex(boolean useSelectorDispatchIndex) {
+        consumersLock.writeLock().lock();
+        try {
+            if (!useSelectorDispatchIndex) {
+                selectorDispatchIndex = null;
+            } else if (selectorDispatchIndex == null) {
+                SelectorDispatchIndex index = new SelectorDispatchIndex();
+                for (Subscription sub : consumers) {
+                    index.add(sub);
+                }
+                selectorDispatchIndex = index;
+            }
+        } finally {
+            consumersLock.writeLock().unlock();
+        }
+    }
+
+    public boolean isCompactPagedInMessages() {
+        pagedInMessagesLock.readLock().lock();
+        try {
+            return pagedInMessages instanceof SequencePendingList;
+        } finally {
+            pagedInMessagesLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Hold the paged in messages in a {@link SequencePendingList}, indexed by broker
+     * sequence id in primitive arrays rather than by a node and map entry per message.
+     */
+    public void setCompactPagedInMessages(boolean compactPagedInMessages) {
+        pagedInMessagesLock.writeLock().lock();
+        try {
+            if (compactPagedInMessages != pagedInMessages instanceof SequencePendingList) {
+                PendingList list = compactPagedInMessages ? new SequencePendingList() : new OrderedPendingList();
+                list.addAll(pagedInMessages);
+                pagedInMessages = list;
+            }
+        } finally {
+            pagedInMessagesLock.writeLock().unlock();
+        }
+    }
+
+    public boolean isStoreReadAhead() {
+        return storeReadAhead;
+    }
+
+    /**
+     * Have the store cursor load the next batch of messages in the background once the
+     * current batch runs low, rather than on the dispatch thread once it is empty.
+     */
+    public void setStoreReadAhead(boolean storeReadAhead) {
+        this.storeReadAhead = storeReadAhead;
+    }
+
+    public int getDispatchLanes() {
+        return dispatchLanes;
+    }
+
+    /**
+     * Split each dispatch pass over the pending messages into this many lanes, each
+     * dispatched to the consumers by its own task. Messages of a group always share a
+     * lane so they keep their order; messages without a group are spread over the
+     * lanes and may be delivered out of order with respect to each other.
+     */
+    public void setDispatchLanes(int dispatchLanes) {
+        synchronized (iteratingMutex) {
+            int lanes = Math.max(1, dispatchLanes);
+            if (lanes != this.dispatchLanes) {
+                this.dispatchLanes = lanes;
+                shutdownDispatchLaneExecutor();
+            }
+        }
+    }
+
+    private synchronized ExecutorService getDispatchLaneExecutor() {
+        if (dispatchLaneExecutor == null) {
+            final String threadName = "Queue:" + destination.getPhysicalName() + " dispatch lane";
+            final AtomicInteger id = new AtomicInteger();
+            ThreadPoolExecutor lanesExecutor = new ThreadPoolExecutor(dispatchLanes - 1, dispatchLanes - 1, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), runnable -> {
+                    Thread thread = new Thread(runnable, threadName + "-" + id.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            lanesExecutor.allowCoreThreadTimeOut(true);
+            dispatchLaneExecutor = lanesExecutor;
+        }
+        return dispatchLaneExecutor;
+    }
+
+    private synchronized void shutdownDispatchLaneExecutor() {
+        if (dispatchLaneExecutor != null) {
+            ThreadPoolUtils.shutdown(dispatchLaneExecutor);
+            dispatchLaneExecutor = null;
+        }
+    }
+
     public boolean isStrictOrderDispatch() {
         return strictOrderDispatch;
     }
@@ -1899,6 +2022,42 @@ public class Queue extends BaseDestination implements Task, UsageListener, Index
         reference.setAcked(true);
     }
 
+    /**
+     * Removes a batch of messages acked outside of a transaction, the store
+     * removes them in a single call.
+     */
+    protected void removeMessages(ConnectionContext context, Subscription sub, List<MessageAck> acks,
+            List<MessageReference> references) throws IOException {
+        List<MessageAck> storeAcks = new ArrayList<MessageAck>(acks.size());
+        for (int i = 0; i < references.size(); i++) {
+            MessageReference reference = references.get(i);
+            LOG.trace("ack of {} with {}", reference.getMessageId(), acks.get(i));
+            messageConsumed(context, reference);
+            if (store != null && reference.isPersistent()) {
+                storeAcks.add(convertToNonRangedAck(acks.get(i), reference));
+            }
+        }
+        if (!storeAcks.isEmpty()) {
+            store.removeAsyncMessages(context, storeAcks);
+        }
+        boolean networkSubscription = sub != null && sub.getConsumerInfo().isNetworkSubscription();
+        for (MessageReference reference : references) {
+            QueueMessageReference node = (QueueMessageReference) reference;
+            dropMessage(node);
+            if (networkSubscription) {
+                messagesLock.writeLock().lock();
+                try {
+                    messages.rollback(node.getMessageId());
+                } finally {
+                    messagesLock.writeLock().unlock();
+                }
+                getDestinationStatistics().getForwards().increment();
+            }
+            // after successful store update
+            node.setAcked(true);
+        }
+    }
+
     private void dropMessage(QueueMessageReference reference) {
         //use dropIfLive so we only process the statistics at most one time
         if (reference.dropIfLive()) {
@@ -2178,6 +2337,84 @@ public class Queue extends BaseDestination implements Task, UsageListener, Index
      *         were not full.
      */
     private PendingList doActualDispatch(PendingList list) throws Exception {
+        int lanes = dispatchLanes;
+        // lanes need the consumers read lock, removeSubscription dispatches holding the write lock
+        if (lanes > 1 && list.size() > 1 && !consumersLock.isWriteLockedByCurrentThread()) {
+            return doLaneDispatch(list, lanes);
+        }
+        return dispatchToConsumers(list);
+    }
+
+    /**
+     * Partitions the list into lanes, by message group where there is one, and
+     * dispatches every lane concurrently, the first one on the calling thread.
+     * Dispatched messages are then removed from the list.
+     */
+    private PendingList doLaneDispatch(PendingList list, int lanes) throws Exception {
+        List<PendingList> laneLists = new ArrayList<PendingList>(lanes);
+        for (int i = 0; i < lanes; i++) {
+            laneLists.add(isPrioritizedMessages() ? new PrioritizedPendingList() : new OrderedPendingList());
+        }
+        int ungrouped = 0;
+        for (MessageReference node : list) {
+            laneLists.get(laneOf(node, ungrouped++, lanes)).addMessageLast(node);
+        }
+        // create the group map up front rather than racing on it from the lanes
+        getMessageGroupOwners();
+        // lanes share the consumers, a consumer's prefetch check and add must not interleave
+        final ConcurrentHashMap<Subscription, Lock> subscriptionLocks = new ConcurrentHashMap<Subscription, Lock>();
+
+        ExecutorService laneExecutor = getDispatchLaneExecutor();
+        List<Future<PendingList>> lanesRunning = new ArrayList<Future<PendingList>>(lanes - 1);
+        for (int i = 1; i < lanes; i++) {
+            final PendingList laneList = laneLists.get(i);
+            if (!laneList.isEmpty()) {
+                lanesRunning.add(laneExecutor.submit(() -> dispatchToConsumers(laneList, subscriptionLocks)));
+            }
+        }
+        Exception failure = null;
+        try {
+            dispatchToConsumers(laneLists.get(0), subscriptionLocks);
+        } catch (Exception e) {
+            failure = e;
+        }
+        for (Future<PendingList> lane : lanesRunning) {
+            try {
+                lane.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                }
+            }
+        }
+
+        ungrouped = 0;
+        for (Iterator<MessageReference> iterator = list.iterator(); iterator.hasNext();) {
+            MessageReference node = iterator.next();
+            if (!laneLists.get(laneOf(node, ungrouped++, lanes)).contains(node)) {
+                iterator.remove();
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return list;
+    }
+
+    private static int laneOf(MessageReference node, int ungrouped, int lanes) {
+        String groupId = node.getGroupID();
+        return ((groupId != null ? groupId.hashCode() : ungrouped) & Integer.MAX_VALUE) % lanes;
+    }
+
+    private PendingList dispatchToConsumers(PendingList list) throws Exception {
+        return dispatchToConsumers(list, null);
+    }
+
+    /**
+     * @param subscriptionLocks when dispatch lanes run concurrently, the lock of each
+     *        consumer to hold while checking its prefetch and adding a message to it
+     */
+    private PendingList dispatchToConsumers(PendingList list, ConcurrentHashMap<Subscription, Lock> subscriptionLocks) throws Exception {
         List<Subscription> consumers;
         consumersLock.readLock().lock();
 
@@ -2192,40 +2429,66 @@ public class Queue extends BaseDestination implements Task, UsageListener, Index
         }
 
         Set<Subscription> fullConsumers = new HashSet<Subscription>(this.consumers.size());
+        SelectorDispatchIndex selectorIndex = this.selectorDispatchIndex;
+        MessageEvaluationContext indexContext = null;
+        if (selectorIndex != null && selectorIndex.getIndexedCount() > 0) {
+            indexContext = new NonCachedMessageEvaluationContext();
+            indexContext.setDestination(destination);
+        }
 
         for (Iterator<MessageReference> iterator = list.iterator(); iterator.hasNext();) {
 
             MessageReference node = iterator.next();
             Subscription target = null;
+            SelectorDispatchIndex.Candidates candidates = null;
+            if (indexContext != null) {
+                indexContext.setMessageReference(node);
+                candidates = selectorIndex.candidates(indexContext);
+            }
             for (Subscription s : consumers) {
                 if (s instanceof QueueBrowserSubscription) {
                     continue;
                 }
                 if (!fullConsumers.contains(s)) {
-                    if (!s.isFull()) {
-                        if (dispatchSelector.canSelect(s, node) && assignMessageGroup(s, (QueueMessageReference)node) && !((QueueMessageReference) node).isAcked() ) {
-                            // Dispatch it.
-                            s.add(node);
-                            LOG.trace("assigned {} to consumer {}", node.getMessageId(), s.getConsumerInfo().getConsumerId());
-                            iterator.remove();
-                            target = s;
-                            break;
-                        }
-                    } else {
-                        // no further dispatch of list to a full consumer to
-                        // avoid out of order message receipt
-                        fullConsumers.add(s);
-
-                        //For full consumers we need to mark that they are slow and
-                        // then call the broker.slowConsumer() hook if implemented
-                        if (s instanceof PrefetchSubscription) {
-                            final PrefetchSubscription sub = (PrefetchSubscription) s;
-                            if (!sub.isSlowConsumer()) {
-                                sub.setSlowConsumer(true);
-                                broker.slowConsumer(sub.getContext(), this, sub);
+                    Lock subscriptionLock = subscriptionLocks != null ? subscriptionLocks.computeIfAbsent(s, k -> new ReentrantLock()) : null;
+                    if (subscriptionLock != null) {
+                        subscriptionLock.lock();
+                    }
+                    try {
+                        if (!s.isFull()) {
+                            if (candidates != null && !candidates.mayMatch(s)) {
+                                // the selector index rules this consumer out, skip evaluating its selector
+                                continue;
                             }
+                            if (dispatchSelector.canSelect(s, node) && assignMessageGroup(s, (QueueMessageReference)node) && !((QueueMessageReference) node).isAcked() ) {
+                                // Dispatch it.
+                                s.add(node);
+                                LOG.trace("assigned {} to consumer {}", node.getMessageId(), s.getConsumerInfo().getConsumerId());
+                                iterator.remove();
+                                target = s;
+                                break;
+                            }
+                        } else {
+                            // no further dispatch of list to a full consumer to
+                            // avoid out of order message receipt
+                            fullConsumers.add(s);
+
+                            //For full consumers we need to mark that they are slow and
+                            // then call the broker.slowConsumer() hook if implemented
+                            if (s instanceof PrefetchSubscription) {
+                                final PrefetchSubscription sub = (PrefetchSubscription) s;
+                                if (!sub.isSlowConsumer()) {
+                                    sub.setSlowConsumer(true);
+                                    broker.slowConsumer(sub.getContext(), this, sub);
+                                }
+                            }
+                            LOG.trace("Subscription full {}", s);
+                        }
+
+                    } finally {
+                        if (subscriptionLock != null) {
+                            subscriptionLock.unlock();
                         }
-                        LOG.trace("Subscription full {}", s);
                     }
                 }
             }
@@ -2320,6 +2583,15 @@ public class Queue extends BaseDestination implements Task, UsageListener, Index
         return consumers.remove(sub);
     }
 
+    @Override
+    protected int getPrefetchHeadroom() {
+        try {
+            return getConsumerMessageCountBeforeFull();
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
     private int getConsumerMessageCountBeforeFull() throws Exception {
         int total = 0;
         consumersLock.readLock().lock();
@@ -17,6 +17,7 @@
 package org.apache.activemq.broker.region;
 
 import java.io.IOException;
+import java.util.List;
 
 import jakarta.jms.JMSException;
 
@@ -55,6 +56,28 @@ public class QueueSubscription extends PrefetchSubscription implements LockOwner
         queue.removeMessage(context, this, node, ack);
     }
 
+    /**
+     * Removes runs of acked messages from the same queue together so the queue
+     * can remove them from its store in one go.
+     *
+     * @throws IOException
+     */
+    @Override
+    protected void acknowledge(final ConnectionContext context, final List<MessageAck> acks, final List<MessageReference> nodes) throws IOException {
+        this.setTimeOfLastMessageAck(System.currentTimeMillis());
+
+        int start = 0;
+        while (start < nodes.size()) {
+            final Queue queue = (Queue) nodes.get(start).getRegionDestination();
+            int end = start + 1;
+            while (end < nodes.size() && nodes.get(end).getRegionDestination() == queue) {
+                end++;
+            }
+            queue.removeMessages(context, this, acks.subList(start, end), nodes.subList(start, end));
+            start = end;
+        }
+    }
+
     @Override
     protected boolean canDispatch(MessageReference n) throws IOException {
         boolean result = true;
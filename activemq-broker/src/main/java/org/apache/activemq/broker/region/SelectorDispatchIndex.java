@@ -0,0 +1,171 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.broker.region;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jakarta.jms.JMSException;
+
+import org.apache.activemq.filter.BooleanExpression;
+import org.apache.activemq.filter.MessageEvaluationContext;
+import org.apache.activemq.filter.PropertyEqualityTerm;
+
+/**
+ * Indexes the consumers of a queue by the property values their selectors require, so
+ * dispatch only evaluates the selectors of consumers that can match a message. Consumers
+ * whose selectors have no equality or IN term on a string property are always candidates.
+ *
+ * Updates happen as consumers come and go, lookups happen on the dispatch path without
+ * locking so the buckets are replaced rather than modified.
+ */
+class SelectorDispatchIndex {
+
+    private final Map<Subscription, IndexedSelector> selectors = new ConcurrentHashMap<>();
+    private final Map<String, PropertyBuckets> properties = new ConcurrentHashMap<>();
+
+    synchronized void add(Subscription subscription) {
+        if (!(subscription instanceof AbstractSubscription)) {
+            return;
+        }
+        BooleanExpression selector = ((AbstractSubscription) subscription).getSelectorExpression();
+        PropertyEqualityTerm term = PropertyEqualityTerm.extract(selector);
+        if (term == null) {
+            return;
+        }
+        PropertyBuckets buckets = properties.get(term.getPropertyName());
+        if (buckets == null) {
+            buckets = new PropertyBuckets(term);
+            properties.put(term.getPropertyName(), buckets);
+        }
+        buckets.add(subscription, term.getValues());
+        selectors.put(subscription, new IndexedSelector(selector, term));
+    }
+
+    synchronized void remove(Subscription subscription) {
+        IndexedSelector indexed = selectors.remove(subscription);
+        if (indexed != null) {
+            PropertyBuckets buckets = properties.get(indexed.term.getPropertyName());
+            buckets.remove(subscription, indexed.term.getValues());
+            if (buckets.isEmpty()) {
+                properties.remove(indexed.term.getPropertyName());
+            }
+        }
+    }
+
+    /**
+     * Looks up the consumers that can match the message in context.
+     */
+    Candidates candidates(MessageEvaluationContext context) {
+        Map<String, Set<Subscription>> resolved = new HashMap<>(properties.size());
+        for (PropertyBuckets buckets : properties.values()) {
+            Object value;
+            try {
+                value = buckets.term.evaluate(context);
+            } catch (JMSException e) {
+                // leave it to the selectors to deal with
+                continue;
+            }
+            if (value == null) {
+                resolved.put(buckets.term.getPropertyName(), Collections.emptySet());
+            } else if (value instanceof String) {
+                resolved.put(buckets.term.getPropertyName(), buckets.get((String) value));
+            }
+            // other types may still match a string after conversion, keep all candidates
+        }
+        return new Candidates(resolved);
+    }
+
+    int getIndexedCount() {
+        return selectors.size();
+    }
+
+    final class Candidates {
+
+        private final Map<String, Set<Subscription>> resolved;
+
+        private Candidates(Map<String, Set<Subscription>> resolved) {
+            this.resolved = resolved;
+        }
+
+        /**
+         * @return false only when the subscription's selector cannot match the message
+         */
+        boolean mayMatch(Subscription subscription) {
+            IndexedSelector indexed = selectors.get(subscription);
+            if (indexed == null || indexed.selector != ((AbstractSubscription) subscription).getSelectorExpression()) {
+                return true;
+            }
+            Set<Subscription> matching = resolved.get(indexed.term.getPropertyName());
+            return matching == null || matching.contains(subscription);
+        }
+    }
+
+    private static final class IndexedSelector {
+
+        private final BooleanExpression selector;
+        private final PropertyEqualityTerm term;
+
+        IndexedSelector(BooleanExpression selector, PropertyEqualityTerm term) {
+            this.selector = selector;
+            this.term = term;
+        }
+    }
+
+    private static final class PropertyBuckets {
+
+        private final PropertyEqualityTerm term;
+        private final Map<String, Set<Subscription>> buckets = new ConcurrentHashMap<>();
+
+        PropertyBuckets(PropertyEqualityTerm term) {
+            this.term = term;
+        }
+
+        Set<Subscription> get(String value) {
+            Set<Subscription> bucket = buckets.get(value);
+            return bucket != null ? bucket : Collections.emptySet();
+        }
+
+        void add(Subscription subscription, Set<String> values) {
+            for (String value : values) {
+                Set<Subscription> bucket = new HashSet<>(get(value));
+                bucket.add(subscription);
+                buckets.put(value, bucket);
+            }
+        }
+
+        void remove(Subscription subscription, Set<String> values) {
+            for (String value : values) {
+                Set<Subscription> bucket = new HashSet<>(get(value));
+                bucket.remove(subscription);
+                if (bucket.isEmpty()) {
+                    buckets.remove(value);
+                } else {
+                    buckets.put(value, bucket);
+                }
+            }
+        }
+
+        boolean isEmpty() {
+            return buckets.isEmpty();
+        }
+    }
+}
@@ -29,6 +29,7 @@ import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import org.apache.activemq.Service;
 import org.apache.activemq.advisory.AdvisorySupport;
 import org.apache.activemq.broker.BrokerService;
 import org.apache.activemq.broker.ConnectionContext;
@@ -622,6 +623,9 @@ public class Topic extends BaseDestination implements Task {
     public void start() throws Exception {
         if (started.compareAndSet(false, true)) {
             this.subscriptionRecoveryPolicy.start();
+            if (dispatchPolicy instanceof Service) {
+                ((Service) dispatchPolicy).start();
+            }
             if (memoryUsage != null) {
                 memoryUsage.start();
             }
@@ -639,6 +643,9 @@ public class Topic extends BaseDestination implements Task {
                 taskRunner.shutdown();
             }
             this.subscriptionRecoveryPolicy.stop();
+            if (dispatchPolicy instanceof Service) {
+                ((Service) dispatchPolicy).stop();
+            }
             if (memoryUsage != null) {
                 memoryUsage.stop();
             }
@@ -781,6 +788,10 @@ public class Topic extends BaseDestination implements Task {
                     onMessageWithNoConsumers(context, message);
                     return;
                 }
+                if (consumers.size() > 1) {
+                    // lets connections that share encodings marshal it once for all of them
+                    message.setMarshalledFormShared(true);
+                }
             }
 
             // Clear memory before dispatch - need to clear here because the call to
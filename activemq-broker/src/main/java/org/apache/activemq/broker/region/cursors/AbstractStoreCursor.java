@@ -430,6 +430,13 @@ public abstract class AbstractStoreCursor extends AbstractPendingMessageCursor i
         if (last != null) {
             last.decrementReferenceCount();
         }
+        batchRemoved();
+    }
+
+    /**
+     * Called with the cursor lock held after a message was removed from the batch.
+     */
+    protected void batchRemoved() {
     }
 
 
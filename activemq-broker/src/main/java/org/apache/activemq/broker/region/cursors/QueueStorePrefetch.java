@@ -17,12 +17,17 @@
 package org.apache.activemq.broker.region.cursors;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.apache.activemq.broker.Broker;
 import org.apache.activemq.broker.BrokerService;
 import org.apache.activemq.broker.region.Queue;
 import org.apache.activemq.command.Message;
 import org.apache.activemq.command.MessageId;
+import org.apache.activemq.store.MessageRecoveryListener;
 import org.apache.activemq.store.MessageStore;
 import org.apache.activemq.store.memory.MemoryMessageStore;
 import org.apache.activemq.store.memory.MemoryTransactionStore;
@@ -40,6 +45,10 @@ class QueueStorePrefetch extends AbstractStoreCursor {
     private final MessageStore store;
     private final Queue queue;
     private final Broker broker;
+    // held while reading from or moving the store's batch position
+    private final Object readAheadLock = new Object();
+    private int readAheadGeneration;
+    private ReadAhead readAhead;
 
     /**
      * Construct it
@@ -106,16 +115,22 @@ class QueueStorePrefetch extends AbstractStoreCursor {
     }
 
     @Override
-    protected void resetBatch() {
-        this.store.resetBatching();
+    protected synchronized void resetBatch() {
+        synchronized (readAheadLock) {
+            discardReadAhead();
+            this.store.resetBatching();
+        }
     }
 
     @Override
-    protected void setBatch(MessageId messageId) throws Exception {
+    protected synchronized void setBatch(MessageId messageId) throws Exception {
         if (LOG.isTraceEnabled()) {
             LOG.trace("{}  setBatch {} seq: {}, loc: {}", this, messageId, messageId.getFutureOrSequenceLong(), messageId.getEntryLocator());
         }
-        store.setBatch(messageId);
+        synchronized (readAheadLock) {
+            discardReadAhead();
+            store.setBatch(messageId);
+        }
         batchResetNeeded = false;
     }
 
@@ -124,11 +139,153 @@ class QueueStorePrefetch extends AbstractStoreCursor {
     protected void doFillBatch() throws Exception {
         hadSpace = this.hasSpace();
         if (!broker.getBrokerService().isPersistent() || hadSpace) {
-            this.store.recoverNextMessages(this.maxBatchSize, this);
+            if (!takeReadAhead()) {
+                synchronized (readAheadLock) {
+                    this.store.recoverNextMessages(this.maxBatchSize, this);
+                }
+            }
             dealWithDuplicates(); // without the index lock
         }
     }
 
+    @Override
+    public synchronized void gc() {
+        synchronized (readAheadLock) {
+            discardReadAhead();
+        }
+        super.gc();
+    }
+
+    @Override
+    protected void batchRemoved() {
+        if (readAhead == null && queue.isStoreReadAhead() && !cacheEnabled
+                && batchList.size() < maxBatchSize / 2 && size > batchList.size() && hasSpace()) {
+            ReadAhead next;
+            synchronized (readAheadLock) {
+                next = new ReadAhead(readAheadGeneration, maxBatchSize);
+            }
+            try {
+                broker.getBrokerService().getStoreReadAheadExecutor().execute(next);
+                readAhead = next;
+            } catch (RejectedExecutionException e) {
+                LOG.debug("{} read ahead rejected", this, e);
+            }
+        }
+    }
+
+    /**
+     * Moves the messages of a pending read ahead into the batch, waiting for it to
+     * complete if it is still reading.
+     *
+     * @return false if there was no read ahead to take
+     */
+    private boolean takeReadAhead() throws Exception {
+        ReadAhead pending = readAhead;
+        if (pending == null) {
+            return false;
+        }
+        readAhead = null;
+        pending.done.await();
+        synchronized (readAheadLock) {
+            if (pending.generation != readAheadGeneration) {
+                for (Message message : pending.messages) {
+                    message.decrementReferenceCount();
+                }
+                pending.messages.clear();
+                return false;
+            }
+            for (Message message : pending.messages) {
+                recoverMessage(message);
+                message.decrementReferenceCount();
+            }
+            pending.messages.clear();
+        }
+        if (pending.failure != null) {
+            throw pending.failure;
+        }
+        return true;
+    }
+
+    // the store position is about to move, so whatever was read ahead of it is stale
+    private void discardReadAhead() {
+        readAheadGeneration++;
+        if (readAhead != null) {
+            // a read ahead in progress holds the lock, so it is either done or will not read
+            for (Message message : readAhead.messages) {
+                message.decrementReferenceCount();
+            }
+            readAhead.messages.clear();
+            readAhead = null;
+        }
+    }
+
+    /**
+     * Reads the next batch from the store into a list of its own, holding each message's
+     * memory until the batch is taken or discarded.
+     */
+    private final class ReadAhead implements Runnable, MessageRecoveryListener {
+        private final int generation;
+        private final int maxBatchSize;
+        private final List<Message> messages = new ArrayList<Message>();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile Exception failure;
+
+        ReadAhead(int generation, int maxBatchSize) {
+            this.generation = generation;
+            this.maxBatchSize = maxBatchSize;
+        }
+
+        @Override
+        public void run() {
+            try {
+                synchronized (readAheadLock) {
+                    if (generation == readAheadGeneration) {
+                        store.recoverNextMessages(maxBatchSize, this);
+                    }
+                }
+            } catch (Exception e) {
+                LOG.debug("{} read ahead failed", QueueStorePrefetch.this, e);
+                failure = e;
+            } finally {
+                done.countDown();
+            }
+        }
+
+        @Override
+        public boolean recoverMessage(Message message) throws Exception {
+            message.setRegionDestination(queue);
+            message.incrementReferenceCount();
+            messages.add(message);
+            return true;
+        }
+
+        @Override
+        public boolean recoverMessageReference(MessageId messageReference) throws Exception {
+            Message msg = store.getMessage(messageReference);
+            if (msg != null) {
+                return recoverMessage(msg);
+            } else {
+                throw new IOException("Failed to retrieve message for id: " + messageReference);
+            }
+        }
+
+        @Override
+        public boolean hasSpace() {
+            return QueueStorePrefetch.this.hasSpace();
+        }
+
+        @Override
+        public boolean canRecoveryNextMessage() {
+            return QueueStorePrefetch.this.canRecoveryNextMessage();
+        }
+
+        @Override
+        public boolean isDuplicate(MessageId ref) {
+            // checked against the cursor's audit when the batch is taken
+            return false;
+        }
+    }
+
     @Override
     public String toString(){
         return super.toString() + ",store=" + store;
@@ -0,0 +1,377 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.broker.region.cursors;
+
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.apache.activemq.broker.region.MessageReference;
+import org.apache.activemq.command.MessageId;
+import org.apache.activemq.management.SizeStatisticImpl;
+
+/**
+ * An ordered {@link PendingList} for large numbers of messages. The messages are held
+ * in insertion order in an array and indexed by their broker sequence id in an open
+ * addressing table of primitives, so holding a message costs a few array slots rather
+ * than a {@link PendingNode} and a map entry. Messages without a usable sequence id
+ * (zero, or one already held by another message) are indexed by MessageId instead.
+ * <p>
+ * There are no nodes, so the add and remove methods always return null. Adding a
+ * message that is already held moves it to the new position.
+ */
+public class SequencePendingList implements PendingList {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private final SizeStatisticImpl messageSize;
+    private MessageReference[] refs;
+    // refs[head, tail) holds the messages, removed ones leave null holes
+    private int head;
+    private int tail;
+    private int size;
+    private int layoutVersion;
+
+    // sequence id -> slot in refs, linear probing with 0 as the free key
+    private long[] keys;
+    private int[] slots;
+    private int indexed;
+    private Map<MessageId, Integer> overflow;
+
+    public SequencePendingList() {
+        messageSize = new SizeStatisticImpl("messageSize", "The size in bytes of the pending messages");
+        messageSize.setEnabled(true);
+        reset();
+    }
+
+    @Override
+    public PendingNode addMessageFirst(MessageReference message) {
+        remove(message);
+        if (head == 0) {
+            relayout(Math.max(MIN_CAPACITY, size));
+        }
+        store(message, --head);
+        return null;
+    }
+
+    @Override
+    public PendingNode addMessageLast(MessageReference message) {
+        remove(message);
+        if (tail == refs.length) {
+            relayout(0);
+        }
+        store(message, tail++);
+        return null;
+    }
+
+    @Override
+    public PendingNode remove(MessageReference message) {
+        if (message != null) {
+            int slot = slotOf(message.getMessageId());
+            if (slot >= 0) {
+                removeSlot(slot);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void clear() {
+        reset();
+        messageSize.reset();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long messageSize() {
+        return messageSize.getTotalSize();
+    }
+
+    @Override
+    public boolean contains(MessageReference message) {
+        return message != null && slotOf(message.getMessageId()) >= 0;
+    }
+
+    @Override
+    public MessageReference get(MessageId messageId) {
+        int slot = slotOf(messageId);
+        return slot >= 0 ? refs[slot] : null;
+    }
+
+    @Override
+    public Collection<MessageReference> values() {
+        return OrderedPendingList.getValues(this);
+    }
+
+    @Override
+    public void addAll(PendingList pendingList) {
+        if (pendingList != null) {
+            for (MessageReference messageReference : pendingList) {
+                addMessageLast(messageReference);
+            }
+        }
+    }
+
+    @Override
+    public Iterator<MessageReference> iterator() {
+        return new Iterator<MessageReference>() {
+            private final int expectedLayout = layoutVersion;
+            private int next = head;
+            private int current = -1;
+
+            @Override
+            public boolean hasNext() {
+                checkLayout();
+                while (next < tail && refs[next] == null) {
+                    next++;
+                }
+                return next < tail;
+            }
+
+            @Override
+            public MessageReference next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                current = next++;
+                return refs[current];
+            }
+
+            @Override
+            public void remove() {
+                if (current < 0) {
+                    throw new IllegalStateException();
+                }
+                checkLayout();
+                if (current < refs.length && refs[current] != null) {
+                    removeSlot(current);
+                }
+                current = -1;
+            }
+
+            private void checkLayout() {
+                if (expectedLayout != layoutVersion) {
+                    throw new ConcurrentModificationException();
+                }
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "SequencePendingList(" + System.identityHashCode(this) + ")";
+    }
+
+    private void store(MessageReference message, int slot) {
+        refs[slot] = message;
+        size++;
+        index(message.getMessageId(), slot);
+        try {
+            messageSize.addSize(message.getSize());
+        } catch (Exception e) {
+            //expected for NullMessageReference
+        }
+    }
+
+    private void removeSlot(int slot) {
+        MessageReference message = refs[slot];
+        unindex(message.getMessageId(), slot);
+        refs[slot] = null;
+        size--;
+        try {
+            messageSize.addSize(-message.getSize());
+        } catch (Exception e) {
+            //expected for NullMessageReference
+        }
+        if (size == 0) {
+            if (refs.length > MIN_CAPACITY) {
+                reset();
+            } else {
+                head = tail = 0;
+            }
+        } else {
+            while (refs[head] == null) {
+                head++;
+            }
+            while (refs[tail - 1] == null) {
+                tail--;
+            }
+        }
+    }
+
+    private void reset() {
+        refs = new MessageReference[MIN_CAPACITY];
+        keys = new long[MIN_CAPACITY * 2];
+        slots = new int[MIN_CAPACITY * 2];
+        overflow = null;
+        head = tail = size = indexed = 0;
+    }
+
+    /**
+     * Compacts the messages into an array with the given free room ahead of them and
+     * at least as much room after them as they take, then rebuilds the index.
+     */
+    private void relayout(int front) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < front + size * 2) {
+            capacity <<= 1;
+        }
+        MessageReference[] compacted = new MessageReference[capacity];
+        int slot = front;
+        for (int i = head; i < tail; i++) {
+            if (refs[i] != null) {
+                compacted[slot++] = refs[i];
+            }
+        }
+        refs = compacted;
+        head = front;
+        tail = slot;
+        layoutVersion++;
+
+        int tableSize = MIN_CAPACITY * 2;
+        while (tableSize < size * 2) {
+            tableSize <<= 1;
+        }
+        keys = new long[tableSize];
+        slots = new int[tableSize];
+        overflow = null;
+        indexed = 0;
+        for (int i = head; i < tail; i++) {
+            index(refs[i].getMessageId(), i);
+        }
+    }
+
+    private int slotOf(MessageId messageId) {
+        if (messageId == null) {
+            return -1;
+        }
+        long sequence = messageId.getBrokerSequenceId();
+        if (sequence != 0) {
+            int i = find(sequence);
+            if (i >= 0 && messageId.equals(refs[slots[i]].getMessageId())) {
+                return slots[i];
+            }
+        }
+        if (overflow != null) {
+            Integer slot = overflow.get(messageId);
+            if (slot != null) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private void index(MessageId messageId, int slot) {
+        long sequence = messageId.getBrokerSequenceId();
+        if (sequence != 0 && find(sequence) < 0) {
+            if ((indexed + 1) * 2 > keys.length) {
+                rehash(keys.length * 2);
+            }
+            int mask = keys.length - 1;
+            int i = hash(sequence) & mask;
+            while (keys[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = sequence;
+            slots[i] = slot;
+            indexed++;
+        } else {
+            if (overflow == null) {
+                overflow = new HashMap<MessageId, Integer>();
+            }
+            overflow.put(messageId, slot);
+        }
+    }
+
+    private void unindex(MessageId messageId, int slot) {
+        long sequence = messageId.getBrokerSequenceId();
+        if (sequence != 0) {
+            int i = find(sequence);
+            if (i >= 0 && slots[i] == slot) {
+                delete(i);
+                return;
+            }
+        }
+        if (overflow != null) {
+            overflow.remove(messageId);
+        }
+    }
+
+    private int find(long sequence) {
+        int mask = keys.length - 1;
+        int i = hash(sequence) & mask;
+        while (keys[i] != 0) {
+            if (keys[i] == sequence) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    // shifts later entries of the probe run back so lookups need no tombstones
+    private void delete(int i) {
+        int mask = keys.length - 1;
+        int gap = i;
+        for (int j = (i + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+            int home = hash(keys[j]) & mask;
+            boolean movable = gap <= j ? (home <= gap || home > j) : (home <= gap && home > j);
+            if (movable) {
+                keys[gap] = keys[j];
+                slots[gap] = slots[j];
+                gap = j;
+            }
+        }
+        keys[gap] = 0;
+        indexed--;
+    }
+
+    private void rehash(int tableSize) {
+        long[] oldKeys = keys;
+        int[] oldSlots = slots;
+        keys = new long[tableSize];
+        slots = new int[tableSize];
+        int mask = tableSize - 1;
+        for (int k = 0; k < oldKeys.length; k++) {
+            if (oldKeys[k] != 0) {
+                int i = hash(oldKeys[k]) & mask;
+                while (keys[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[k];
+                slots[i] = oldSlots[k];
+            }
+        }
+    }
+
+    private static int hash(long sequence) {
+        int h = (int) (sequence ^ (sequence >>> 32)) * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,259 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.broker.region.policy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.activemq.Service;
+import org.apache.activemq.broker.region.MessageReference;
+import org.apache.activemq.broker.region.Subscription;
+import org.apache.activemq.command.ActiveMQDestination;
+import org.apache.activemq.filter.MessageEvaluationContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Dispatch policy that sends a message to every subscription that matches the
+ * message, like {@link SimpleDispatchPolicy}, but for wide fan-outs matches and
+ * adds the message on a ForkJoin pool rather than on the producer's thread.
+ * <p>
+ * Subscriptions are split over a fixed number of shards by consumer id and each
+ * shard runs its work in order, so a subscription still sees the messages in the
+ * order they were dispatched. Messages for fewer subscriptions than the inline
+ * threshold are dispatched on the calling thread while no shard has work pending.
+ * <p>
+ * Matching is done by the shards, so when a message is handed to them this
+ * policy reports it as dispatched if there was any subscription to try.
+ * <p>
+ * One policy can serve many topics. Every topic using it starts and stops it,
+ * and the pool is shut down when the last of them stops.
+ *
+ * @org.apache.xbean.XBean
+ *
+ */
+public class ParallelDispatchPolicy extends SimpleDispatchPolicy implements Service {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ParallelDispatchPolicy.class);
+
+    private int shardCount = Runtime.getRuntime().availableProcessors();
+    private int inlineThreshold = 64;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    // shard tasks not yet run per topic, a topic without any has no entry
+    private final ConcurrentHashMap<ActiveMQDestination, Integer> pending = new ConcurrentHashMap<ActiveMQDestination, Integer>();
+    private Shard[] shards;
+    private ForkJoinPool pool;
+    private int users;
+
+    @Override
+    public synchronized void start() throws Exception {
+        users++;
+    }
+
+    @Override
+    public void stop() throws Exception {
+        ForkJoinPool stopped = null;
+        synchronized (this) {
+            if (users > 0 && --users == 0) {
+                stopped = pool;
+                pool = null;
+                shards = null;
+            }
+        }
+        if (stopped != null) {
+            // lets the queued shard work finish so the messages it holds are released
+            stopped.shutdown();
+        }
+    }
+
+    @Override
+    public boolean dispatch(MessageReference node, MessageEvaluationContext msgContext, List<Subscription> consumers) throws Exception {
+        ActiveMQDestination destination = msgContext.getDestination();
+        if (consumers.size() < inlineThreshold && !pending.containsKey(destination)) {
+            return super.dispatch(node, msgContext, consumers);
+        }
+
+        Shard[] shards = getShards();
+        List<List<Subscription>> split = new ArrayList<List<Subscription>>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            split.add(null);
+        }
+        boolean candidates = false;
+        for (Subscription sub : consumers) {
+            // Don't deliver to browsers
+            if (sub.getConsumerInfo().isBrowser()) {
+                continue;
+            }
+            int shard = Math.floorMod(sub.getConsumerInfo().getConsumerId().hashCode(), shards.length);
+            List<Subscription> subs = split.get(shard);
+            if (subs == null) {
+                subs = new ArrayList<Subscription>();
+                split.set(shard, subs);
+            }
+            subs.add(sub);
+            candidates = true;
+        }
+
+        for (int i = 0; i < shards.length; i++) {
+            List<Subscription> subs = split.get(i);
+            if (subs != null) {
+                // keeps the message referenced until the shard has added it
+                node.incrementReferenceCount();
+                pending.merge(destination, 1, Integer::sum);
+                shards[i].execute(new ShardDispatch(node, destination, subs));
+            }
+        }
+        return candidates;
+    }
+
+    private synchronized Shard[] getShards() {
+        if (shards == null) {
+            pool = new ForkJoinPool(parallelism);
+            shards = new Shard[Math.max(1, shardCount)];
+            for (int i = 0; i < shards.length; i++) {
+                shards[i] = new Shard(pool);
+            }
+        }
+        return shards;
+    }
+
+    synchronized ForkJoinPool getPool() {
+        return pool;
+    }
+
+    private final class ShardDispatch implements Runnable {
+        private final MessageReference node;
+        private final ActiveMQDestination destination;
+        private final List<Subscription> subs;
+
+        ShardDispatch(MessageReference node, ActiveMQDestination destination, List<Subscription> subs) {
+            this.node = node;
+            this.destination = destination;
+            this.subs = subs;
+        }
+
+        @Override
+        public void run() {
+            MessageEvaluationContext msgContext = new MessageEvaluationContext();
+            msgContext.setDestination(destination);
+            msgContext.setMessageReference(node);
+            try {
+                for (Subscription sub : subs) {
+                    try {
+                        // Only dispatch to interested subscriptions
+                        if (!sub.matches(node, msgContext)) {
+                            sub.unmatched(node);
+                            continue;
+                        }
+                        sub.add(node);
+                    } catch (Exception e) {
+                        LOG.warn("Failed to dispatch {} to {}", node.getMessageId(), sub, e);
+                    }
+                }
+            } finally {
+                msgContext.clear();
+                node.decrementReferenceCount();
+                pending.computeIfPresent(destination, (key, count) -> count > 1 ? count - 1 : null);
+            }
+        }
+    }
+
+    /**
+     * Runs its work one task at a time, in the order it was given, on the pool.
+     */
+    private static final class Shard implements Runnable {
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final ForkJoinPool pool;
+
+        Shard(ForkJoinPool pool) {
+            this.pool = pool;
+        }
+
+        void execute(Runnable task) {
+            tasks.add(task);
+            if (scheduled.compareAndSet(false, true)) {
+                schedule();
+            }
+        }
+
+        private void schedule() {
+            try {
+                pool.execute(this);
+            } catch (RejectedExecutionException e) {
+                // the pool was shut down by a concurrent stop, run the work here so that
+                // the references and pending counts it holds are still released
+                run();
+            }
+        }
+
+        @Override
+        public void run() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+            scheduled.set(false);
+            // work added after the last poll but before the flag was cleared
+            if (!tasks.isEmpty() && scheduled.compareAndSet(false, true)) {
+                schedule();
+            }
+        }
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    /**
+     * Sets the number of shards the subscriptions are split over, which bounds how
+     * many threads dispatch a message at once.
+     */
+    public void setShardCount(int shardCount) {
+        this.shardCount = shardCount;
+    }
+
+    public int getInlineThreshold() {
+        return inlineThreshold;
+    }
+
+    /**
+     * Sets the number of subscriptions below which a message is dispatched on the
+     * calling thread.
+     */
+    public void setInlineThreshold(int inlineThreshold) {
+        this.inlineThreshold = inlineThreshold;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets the parallelism of the ForkJoin pool the shards run on.
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+}
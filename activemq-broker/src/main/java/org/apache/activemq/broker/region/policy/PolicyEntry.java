@@ -70,11 +70,18 @@ public class PolicyEntry extends DestinationMapEntry {
     private long blockedProducerWarningInterval = Destination.DEFAULT_BLOCKED_PRODUCER_WARNING_INTERVAL;
     private boolean optimizedDispatch=false;
     private int maxPageSize=BaseDestination.MAX_PAGE_SIZE;
+    private boolean adaptivePageSize = false;
+    private int minAdaptivePageSize = BaseDestination.MIN_ADAPTIVE_PAGE_SIZE;
+    private int maxAdaptivePageSize = BaseDestination.MAX_ADAPTIVE_PAGE_SIZE;
     private int maxBrowsePageSize=BaseDestination.MAX_BROWSE_PAGE_SIZE;
     private boolean useCache=true;
     private long minimumMessageSize=1024;
     private boolean useConsumerPriority=true;
     private boolean strictOrderDispatch=false;
+    private boolean useSelectorDispatchIndex=false;
+    private int dispatchLanes = 1;
+    private boolean compactPagedInMessages = false;
+    private boolean storeReadAhead = false;
     private boolean lazyDispatch=false;
     private int timeBeforeDispatchStarts = 0;
     private int consumersBeforeDispatchStarts = 0;
@@ -133,6 +140,10 @@ public class PolicyEntry extends DestinationMapEntry {
 
         queue.setUseConsumerPriority(isUseConsumerPriority());
         queue.setStrictOrderDispatch(isStrictOrderDispatch());
+        queue.setUseSelectorDispatchIndex(isUseSelectorDispatchIndex());
+        queue.setDispatchLanes(getDispatchLanes());
+        queue.setCompactPagedInMessages(isCompactPagedInMessages());
+        queue.setStoreReadAhead(isStoreReadAhead());
         queue.setOptimizedDispatch(isOptimizedDispatch());
         queue.setLazyDispatch(isLazyDispatch());
         queue.setTimeBeforeDispatchStarts(getTimeBeforeDispatchStarts());
@@ -166,6 +177,18 @@ public class PolicyEntry extends DestinationMapEntry {
         if (isUpdate("strictOrderDispatch", includedProperties)) {
             queue.setStrictOrderDispatch(isStrictOrderDispatch());
         }
+        if (isUpdate("useSelectorDispatchIndex", includedProperties)) {
+            queue.setUseSelectorDispatchIndex(isUseSelectorDispatchIndex());
+        }
+        if (isUpdate("dispatchLanes", includedProperties)) {
+            queue.setDispatchLanes(getDispatchLanes());
+        }
+        if (isUpdate("compactPagedInMessages", includedProperties)) {
+            queue.setCompactPagedInMessages(isCompactPagedInMessages());
+        }
+        if (isUpdate("storeReadAhead", includedProperties)) {
+            queue.setStoreReadAhead(isStoreReadAhead());
+        }
         if (isUpdate("optimizedDispatch", includedProperties)) {
             queue.setOptimizedDispatch(isOptimizedDispatch());
         }
@@ -240,6 +263,15 @@ public class PolicyEntry extends DestinationMapEntry {
         if (isUpdate("maxPageSize", includedProperties)) {
             destination.setMaxPageSize(getMaxPageSize());
         }
+        if (isUpdate("minAdaptivePageSize", includedProperties)) {
+            destination.setMinAdaptivePageSize(getMinAdaptivePageSize());
+        }
+        if (isUpdate("maxAdaptivePageSize", includedProperties)) {
+            destination.setMaxAdaptivePageSize(getMaxAdaptivePageSize());
+        }
+        if (isUpdate("adaptivePageSize", includedProperties)) {
+            destination.setAdaptivePageSize(isAdaptivePageSize());
+        }
         if (isUpdate("maxBrowsePageSize", includedProperties)) {
             destination.setMaxBrowsePageSize(getMaxBrowsePageSize());
         }
@@ -717,6 +749,38 @@ public class PolicyEntry extends DestinationMapEntry {
         this.maxPageSize = maxPageSize;
     }
 
+    public boolean isAdaptivePageSize() {
+        return adaptivePageSize;
+    }
+
+    /**
+     * Size the page in and store cursor batches of a destination from the rate its
+     * consumers drain it, their prefetch room and memory usage, between
+     * minAdaptivePageSize and maxAdaptivePageSize, instead of a fixed maxPageSize. Fast
+     * destinations then page in large batches and slow ones keep little in memory.
+     *
+     * @param adaptivePageSize
+     */
+    public void setAdaptivePageSize(boolean adaptivePageSize) {
+        this.adaptivePageSize = adaptivePageSize;
+    }
+
+    public int getMinAdaptivePageSize() {
+        return minAdaptivePageSize;
+    }
+
+    public void setMinAdaptivePageSize(int minAdaptivePageSize) {
+        this.minAdaptivePageSize = minAdaptivePageSize;
+    }
+
+    public int getMaxAdaptivePageSize() {
+        return maxAdaptivePageSize;
+    }
+
+    public void setMaxAdaptivePageSize(int maxAdaptivePageSize) {
+        this.maxAdaptivePageSize = maxAdaptivePageSize;
+    }
+
     public int getMaxBrowsePageSize() {
         return maxBrowsePageSize;
     }
@@ -757,6 +821,69 @@ public class PolicyEntry extends DestinationMapEntry {
         this.strictOrderDispatch = strictOrderDispatch;
     }
 
+    public boolean isUseSelectorDispatchIndex() {
+        return useSelectorDispatchIndex;
+    }
+
+    /**
+     * For queues with many consumers using selectors like <code>region = 'EU'</code>: index
+     * the consumers by the equality and IN terms of their selectors on string properties so
+     * dispatch only evaluates the selectors of consumers that can match a message. Consumers
+     * with other selectors are checked as before.
+     *
+     * @param useSelectorDispatchIndex
+     */
+    public void setUseSelectorDispatchIndex(boolean useSelectorDispatchIndex) {
+        this.useSelectorDispatchIndex = useSelectorDispatchIndex;
+    }
+
+    public int getDispatchLanes() {
+        return dispatchLanes;
+    }
+
+    /**
+     * For a single hot queue: split each dispatch pass into this many lanes, each served
+     * by its own task, so one queue can use more than one core to hand out messages.
+     * Messages of the same group always share a lane and keep their order, messages
+     * without a group may be delivered out of order. Defaults to 1, a single lane.
+     *
+     * @param dispatchLanes
+     */
+    public void setDispatchLanes(int dispatchLanes) {
+        this.dispatchLanes = dispatchLanes;
+    }
+
+    public boolean isCompactPagedInMessages() {
+        return compactPagedInMessages;
+    }
+
+    /**
+     * For queues with a large maxPageSize: hold the paged in messages in arrays indexed by
+     * broker sequence id instead of a linked node and a map entry per message, which cuts
+     * the memory each paged in message costs.
+     *
+     * @param compactPagedInMessages
+     */
+    public void setCompactPagedInMessages(boolean compactPagedInMessages) {
+        this.compactPagedInMessages = compactPagedInMessages;
+    }
+
+    public boolean isStoreReadAhead() {
+        return storeReadAhead;
+    }
+
+    /**
+     * For queues with deep backlogs in the store: once the store cursor's batch is down to
+     * half, load the next batch on the broker's shared store read ahead pool, charging the
+     * destination's memory usage, so dispatch does not stall on the store when the batch
+     * runs out.
+     *
+     * @param storeReadAhead
+     */
+    public void setStoreReadAhead(boolean storeReadAhead) {
+        this.storeReadAhead = storeReadAhead;
+    }
+
     public boolean isLazyDispatch() {
         return lazyDispatch;
     }
@@ -17,6 +17,7 @@
 package org.apache.activemq.store;
 
 import java.io.IOException;
+import java.util.List;
 
 import org.apache.activemq.Service;
 import org.apache.activemq.broker.ConnectionContext;
@@ -122,6 +123,20 @@ public interface MessageStore extends Service {
 
     void removeAsyncMessage(ConnectionContext context, MessageAck ack) throws IOException;
 
+    /**
+     * Removes a batch of messages acked outside of a transaction. Stores that
+     * can record the removals together should override this.
+     *
+     * @param context
+     * @param acks the non ranged acks of the messages to remove
+     * @throws IOException
+     */
+    default void removeAsyncMessages(ConnectionContext context, List<MessageAck> acks) throws IOException {
+        for (MessageAck ack : acks) {
+            removeAsyncMessage(context, ack);
+        }
+    }
+
     /**
      * Removes all the messages from the message store.
      *
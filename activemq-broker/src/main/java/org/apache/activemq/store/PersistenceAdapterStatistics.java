@@ -16,6 +16,7 @@
  */
 package org.apache.activemq.store;
 
+import org.apache.activemq.management.CountStatisticImpl;
 import org.apache.activemq.management.StatsImpl;
 import org.apache.activemq.management.TimeStatisticImpl;
 
@@ -27,6 +28,10 @@ public class PersistenceAdapterStatistics extends StatsImpl {
     protected TimeStatisticImpl writeTime;
     protected TimeStatisticImpl readTime;
 
+    protected CountStatisticImpl pageCacheHits;
+    protected CountStatisticImpl pageCacheMisses;
+    protected CountStatisticImpl pageCacheEvictions;
+
     public PersistenceAdapterStatistics() {
     	slowCleanupTime = new TimeStatisticImpl("slowCleanupTime", "Slow time to cleanup data in the PersistentAdapter.");
     	slowWriteTime = new TimeStatisticImpl("slowWriteTime", "Slow time to write data to the PersistentAdapter.");
@@ -39,6 +44,16 @@ public class PersistenceAdapterStatistics extends StatsImpl {
         readTime = new TimeStatisticImpl("readTime", "Time to read data from the PersistentAdapter.");
         addStatistic("writeTime", writeTime);
         addStatistic("readTime", readTime);
+
+        pageCacheHits = new CountStatisticImpl("pageCacheHits", "Index page reads served from the page cache.");
+        pageCacheMisses = new CountStatisticImpl("pageCacheMisses", "Index page reads that missed the page cache.");
+        pageCacheEvictions = new CountStatisticImpl("pageCacheEvictions", "Pages evicted from the page cache.");
+        pageCacheHits.setEnabled(true);
+        pageCacheMisses.setEnabled(true);
+        pageCacheEvictions.setEnabled(true);
+        addStatistic("pageCacheHits", pageCacheHits);
+        addStatistic("pageCacheMisses", pageCacheMisses);
+        addStatistic("pageCacheEvictions", pageCacheEvictions);
     }
 
     public void addSlowCleanupTime(final long time) {
@@ -69,6 +84,9 @@ public class PersistenceAdapterStatistics extends StatsImpl {
         slowReadTime.setEnabled(enabled);
         writeTime.setEnabled(enabled);
         readTime.setEnabled(enabled);
+        pageCacheHits.setEnabled(enabled);
+        pageCacheMisses.setEnabled(enabled);
+        pageCacheEvictions.setEnabled(enabled);
     }
     
     public TimeStatisticImpl getSlowCleanupTime() {
@@ -88,6 +106,18 @@ public class PersistenceAdapterStatistics extends StatsImpl {
 
     public TimeStatisticImpl getReadTime() { return readTime; }
 
+    public CountStatisticImpl getPageCacheHits() {
+        return pageCacheHits;
+    }
+
+    public CountStatisticImpl getPageCacheMisses() {
+        return pageCacheMisses;
+    }
+
+    public CountStatisticImpl getPageCacheEvictions() {
+        return pageCacheEvictions;
+    }
+
     @Override
     public void reset() {
         if (isDoReset()) {
@@ -96,6 +126,9 @@ public class PersistenceAdapterStatistics extends StatsImpl {
             slowCleanupTime.reset();
             slowWriteTime.reset();
             slowReadTime.reset();
+            pageCacheHits.reset();
+            pageCacheMisses.reset();
+            pageCacheEvictions.reset();
         }
     }
 
@@ -106,12 +139,18 @@ public class PersistenceAdapterStatistics extends StatsImpl {
             slowCleanupTime.setParent(parent.slowCleanupTime);
             slowWriteTime.setParent(parent.slowWriteTime);
             slowReadTime.setParent(parent.slowReadTime);
+            pageCacheHits.setParent(parent.pageCacheHits);
+            pageCacheMisses.setParent(parent.pageCacheMisses);
+            pageCacheEvictions.setParent(parent.pageCacheEvictions);
         } else {
             writeTime.setParent(null);
             readTime.setParent(null);
             slowCleanupTime.setParent(null);
             slowWriteTime.setParent(null);
             slowReadTime.setParent(null);
+            pageCacheHits.setParent(null);
+            pageCacheMisses.setParent(null);
+            pageCacheEvictions.setParent(null);
         }
 
     }
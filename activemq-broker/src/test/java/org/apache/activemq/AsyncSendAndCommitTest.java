@@ -0,0 +1,131 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.jms.CompletionListener;
+import jakarta.jms.DeliveryMode;
+import jakarta.jms.Message;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.util.Wait;
+import org.junit.Test;
+
+public class AsyncSendAndCommitTest extends VmBrokerTestSupport {
+
+    private final ActiveMQQueue queue = new ActiveMQQueue("Async.Send");
+
+    @Test(timeout = 60000)
+    public void testCompletionListenerSend() throws Exception {
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        MessageProducer producer = session.createProducer(queue);
+        producer.setDeliveryMode(DeliveryMode.PERSISTENT);
+
+        final int count = 100;
+        final CountDownLatch done = new CountDownLatch(count);
+        final List<Integer> completed = Collections.synchronizedList(new ArrayList<Integer>());
+        CompletionListener listener = new CompletionListener() {
+            @Override
+            public void onCompletion(Message message) {
+                try {
+                    completed.add(message.getIntProperty("seq"));
+                } catch (Exception e) {
+                    completed.add(-1);
+                }
+                done.countDown();
+            }
+
+            @Override
+            public void onException(Message message, Exception exception) {
+                done.countDown();
+            }
+        };
+        for (int i = 0; i < count; i++) {
+            Message message = session.createTextMessage("message " + i);
+            message.setIntProperty("seq", i);
+            producer.send(message, listener);
+        }
+
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        assertEquals(count, completed.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, completed.get(i).intValue());
+        }
+        assertEquals(count, broker.getDestination(queue).getDestinationStatistics().getMessages().getCount());
+    }
+
+    @Test(timeout = 60000)
+    public void testCommitAsync() throws Exception {
+        ActiveMQSession session = (ActiveMQSession) connection.createSession(true, Session.SESSION_TRANSACTED);
+        MessageProducer producer = session.createProducer(queue);
+        for (int i = 0; i < 10; i++) {
+            producer.send(session.createTextMessage("message " + i));
+        }
+        Session other = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        MessageConsumer consumer = other.createConsumer(queue);
+        assertNull(consumer.receive(200));
+
+        session.commitAsync().toCompletableFuture().get(30, TimeUnit.SECONDS);
+        for (int i = 0; i < 10; i++) {
+            assertNotNull(consumer.receive(5000));
+        }
+        assertNull(consumer.receiveNoWait());
+    }
+
+    @Test(timeout = 60000)
+    public void testConsumeAfterCommitAsync() throws Exception {
+        Session producerSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        MessageProducer producer = producerSession.createProducer(queue);
+        for (int i = 0; i < 20; i++) {
+            Message message = producerSession.createTextMessage("message " + i);
+            message.setIntProperty("seq", i);
+            producer.send(message);
+        }
+
+        ActiveMQSession session = (ActiveMQSession) connection.createSession(true, Session.SESSION_TRANSACTED);
+        MessageConsumer consumer = session.createConsumer(queue);
+        for (int batch = 0; batch < 4; batch++) {
+            for (int i = 0; i < 5; i++) {
+                Message message = consumer.receive(5000);
+                assertNotNull(message);
+                assertEquals(batch * 5 + i, message.getIntProperty("seq"));
+            }
+            session.commitAsync();
+        }
+        session.commit();
+
+        assertTrue(Wait.waitFor(new Wait.Condition() {
+            @Override
+            public boolean isSatisified() throws Exception {
+                return broker.getDestination(queue).getDestinationStatistics().getMessages().getCount() == 0;
+            }
+        }));
+    }
+}
@@ -0,0 +1,178 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import jakarta.jms.Message;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+
+import org.apache.activemq.broker.Broker;
+import org.apache.activemq.broker.BrokerFilter;
+import org.apache.activemq.broker.BrokerPlugin;
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.broker.ConsumerBrokerExchange;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.command.MessageAck;
+import org.apache.activemq.util.Wait;
+import org.junit.Test;
+
+public class ConsumerReceiveBatchTest extends VmBrokerTestSupport {
+
+    private final ActiveMQQueue queue = new ActiveMQQueue("Consumer.Batch");
+    private final List<MessageAck> acks = new CopyOnWriteArrayList<>();
+
+    @Override
+    protected BrokerService createBroker() throws Exception {
+        BrokerService answer = super.createBroker();
+        answer.setPlugins(new BrokerPlugin[] {new BrokerPlugin() {
+            @Override
+            public Broker installPlugin(Broker next) throws Exception {
+                return new BrokerFilter(next) {
+                    @Override
+                    public void acknowledge(ConsumerBrokerExchange consumerExchange, MessageAck ack) throws Exception {
+                        super.acknowledge(consumerExchange, ack);
+                        // recorded once processed, so the store reflects every ack seen
+                        if (ack.isStandardAck()) {
+                            acks.add(ack);
+                        }
+                    }
+                };
+            }
+        }});
+        return answer;
+    }
+
+    @Test(timeout = 60000)
+    public void testAutoAcknowledgeSendsOneAckPerBatch() throws Exception {
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        ActiveMQMessageConsumer consumer = prefetched(session, 100);
+
+        MessageBatch batch = consumer.receiveBatch(60, 5000);
+        assertSequence(batch, 0, 60);
+        awaitAcks(1);
+        assertEquals(60, acks.get(0).getMessageCount());
+
+        batch = consumer.receiveBatch(60, 5000);
+        assertSequence(batch, 60, 40);
+        awaitAcks(2);
+        assertTrue(consumer.receiveBatch(10, -1).isEmpty());
+        assertEquals(0, broker.getDestination(queue).getDestinationStatistics().getMessages().getCount());
+    }
+
+    @Test(timeout = 60000)
+    public void testClientAcknowledgeBatch() throws Exception {
+        Session session = connection.createSession(false, Session.CLIENT_ACKNOWLEDGE);
+        ActiveMQMessageConsumer consumer = prefetched(session, 50);
+
+        MessageBatch batch = consumer.receiveBatch(100, 5000);
+        assertSequence(batch, 0, 50);
+        assertTrue(acks.isEmpty());
+
+        batch.acknowledge();
+        awaitAcks(1);
+        assertEquals(50, acks.get(0).getMessageCount());
+        assertEquals(0, broker.getDestination(queue).getDestinationStatistics().getMessages().getCount());
+    }
+
+    @Test(timeout = 60000)
+    public void testTransactedBatchIsRedeliveredOnRollback() throws Exception {
+        Session session = connection.createSession(true, Session.SESSION_TRANSACTED);
+        ActiveMQMessageConsumer consumer = prefetched(session, 20);
+
+        MessageBatch batch = consumer.receiveBatch(20, 5000);
+        assertSequence(batch, 0, 20);
+        session.rollback();
+        assertEquals(20, broker.getDestination(queue).getDestinationStatistics().getMessages().getCount());
+        // the rolled back transaction carried one ack for the batch
+        assertEquals(1, acks.size());
+        acks.clear();
+
+        batch = consumer.receiveBatch(20, 5000);
+        assertSequence(batch, 0, 20);
+        assertTrue(batch.getMessages().get(0).getJMSRedelivered());
+        session.commit();
+        assertEquals(1, acks.size());
+        assertEquals(20, acks.get(0).getMessageCount());
+        assertEquals(0, broker.getDestination(queue).getDestinationStatistics().getMessages().getCount());
+    }
+
+    @Test(timeout = 60000)
+    public void testPullConsumerReceivesOneMessagePerBatch() throws Exception {
+        connection.getPrefetchPolicy().setAll(0);
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        ActiveMQMessageConsumer consumer = (ActiveMQMessageConsumer) session.createConsumer(queue);
+        send(session, 3);
+
+        for (int i = 0; i < 3; i++) {
+            assertSequence(consumer.receiveBatch(10, 5000), i, 1);
+        }
+        assertTrue(consumer.receiveBatch(10, 100).isEmpty());
+    }
+
+    private ActiveMQMessageConsumer prefetched(Session session, final int count) throws Exception {
+        final ActiveMQMessageConsumer consumer = (ActiveMQMessageConsumer) session.createConsumer(queue);
+        send(session, count);
+        assertTrue(Wait.waitFor(new Wait.Condition() {
+            @Override
+            public boolean isSatisified() throws Exception {
+                return consumer.getMessageSize() == count;
+            }
+        }, 10000, 10));
+        return consumer;
+    }
+
+    private void awaitAcks(final int count) throws Exception {
+        assertTrue(Wait.waitFor(new Wait.Condition() {
+            @Override
+            public boolean isSatisified() throws Exception {
+                return acks.size() >= count;
+            }
+        }, 10000, 10));
+        assertEquals(count, acks.size());
+    }
+
+    private void send(Session session, int count) throws Exception {
+        Session producerSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        MessageProducer producer = producerSession.createProducer(queue);
+        for (int i = 0; i < count; i++) {
+            Message message = producerSession.createTextMessage("message " + i);
+            message.setIntProperty("seq", i);
+            producer.send(message);
+        }
+        producerSession.close();
+    }
+
+    private static void assertSequence(MessageBatch batch, int first, int count) throws Exception {
+        assertEquals(count, batch.size());
+        assertFalse(batch.isEmpty());
+        List<Integer> sequence = new ArrayList<>();
+        for (Message message : batch) {
+            sequence.add(message.getIntProperty("seq"));
+        }
+        for (int i = 0; i < count; i++) {
+            assertEquals(Integer.valueOf(first + i), sequence.get(i));
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import jakarta.jms.JMSException;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.command.DestinationInfo;
+import org.apache.activemq.command.Response;
+import org.apache.activemq.transport.DefaultTransportListener;
+import org.apache.activemq.transport.failover.FailoverTransport;
+import org.junit.Test;
+
+public class FailoverAsyncRequestTest extends VmBrokerTestSupport {
+
+    private final ActiveMQQueue queue = new ActiveMQQueue("Failover.Async");
+    private URI connectUri;
+
+    @Override
+    protected BrokerService createBroker() throws Exception {
+        BrokerService answer = super.createBroker();
+        answer.addConnector(connectUri == null ? "tcp://localhost:0" : connectUri.toString());
+        return answer;
+    }
+
+    @Override
+    protected ActiveMQConnectionFactory createConnectionFactory() throws Exception {
+        connectUri = broker.getTransportConnectors().get(0).getConnectUri();
+        return new ActiveMQConnectionFactory("failover:(" + connectUri + ")?initialReconnectDelay=100&useExponentialBackOff=false");
+    }
+
+    @Test(timeout = 60000)
+    public void testAsyncRequestIsHeldUntilReconnected() throws Exception {
+        stopBroker();
+
+        long start = System.currentTimeMillis();
+        CompletableFuture<Response> response = connection.asyncRequest(
+            new DestinationInfo(connection.getConnectionInfo().getConnectionId(), DestinationInfo.ADD_OPERATION_TYPE, queue)).toCompletableFuture();
+        assertTrue("asyncRequest blocked on the reconnect", System.currentTimeMillis() - start < 2000);
+        assertTrue(!response.isDone());
+
+        restartBroker();
+
+        response.get(30, TimeUnit.SECONDS);
+        assertTrue(broker.getRegionBroker().getDestinationMap().containsKey(queue));
+    }
+
+    @Test(timeout = 60000)
+    public void testCommitAsyncFailsOnFailoverTimeout() throws Exception {
+        connection.getTransport().narrow(FailoverTransport.class).setTimeout(500);
+        ActiveMQSession session = (ActiveMQSession) connection.createSession(true, Session.SESSION_TRANSACTED);
+        MessageProducer producer = session.createProducer(queue);
+        producer.send(session.createTextMessage("message"));
+
+        stopBroker();
+
+        long start = System.currentTimeMillis();
+        CompletableFuture<Void> commit = session.commitAsync().toCompletableFuture();
+        assertTrue("commitAsync blocked on the reconnect", System.currentTimeMillis() - start < 500);
+        try {
+            commit.get(30, TimeUnit.SECONDS);
+            fail("commit should time out");
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof JMSException);
+            assertTrue(expected.getCause().getMessage(), expected.getCause().getMessage().contains("Failover timeout"));
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testAsyncRequestHonoursRequestTimeout() throws Exception {
+        connection.setRequestTimeout(500);
+        stopBroker();
+
+        CompletableFuture<Response> response = connection.asyncRequest(
+            new DestinationInfo(connection.getConnectionInfo().getConnectionId(), DestinationInfo.ADD_OPERATION_TYPE, queue)).toCompletableFuture();
+        try {
+            response.get(30, TimeUnit.SECONDS);
+            fail("request should time out");
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof JMSException);
+        }
+
+        // the timed out request is dropped, not sent once reconnected
+        restartBroker();
+        ActiveMQQueue other = new ActiveMQQueue("Failover.Other");
+        connection.syncSendPacket(new DestinationInfo(connection.getConnectionInfo().getConnectionId(), DestinationInfo.ADD_OPERATION_TYPE, other));
+        assertTrue(broker.getRegionBroker().getDestinationMap().containsKey(other));
+        assertFalse(broker.getRegionBroker().getDestinationMap().containsKey(queue));
+    }
+
+    @Test(timeout = 60000)
+    public void testSyncRequestTimeoutStartsOnceSent() throws Exception {
+        stopBroker();
+
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread sender = new Thread("sync sender") {
+            @Override
+            public void run() {
+                try {
+                    connection.syncSendPacket(new DestinationInfo(connection.getConnectionInfo().getConnectionId(), DestinationInfo.ADD_OPERATION_TYPE, queue), 1000);
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            }
+        };
+        sender.start();
+        // outlast the response timeout, the request is not sent while disconnected
+        sender.join(2000);
+        assertTrue(sender.isAlive());
+
+        restartBroker();
+        sender.join(30000);
+        assertFalse(sender.isAlive());
+        assertNull(failure.get());
+        assertTrue(broker.getRegionBroker().getDestinationMap().containsKey(queue));
+    }
+
+    private void restartBroker() throws Exception {
+        broker = createBroker();
+        broker.start();
+        broker.waitUntilStarted();
+    }
+
+    private void stopBroker() throws Exception {
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        connection.addTransportListener(new DefaultTransportListener() {
+            @Override
+            public void transportInterupted() {
+                interrupted.countDown();
+            }
+        });
+        broker.stop();
+        broker.waitUntilStopped();
+        assertTrue(interrupted.await(30, TimeUnit.SECONDS));
+    }
+}
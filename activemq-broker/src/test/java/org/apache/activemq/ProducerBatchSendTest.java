@@ -0,0 +1,213 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import jakarta.jms.Connection;
+import jakarta.jms.DeliveryMode;
+import jakarta.jms.Message;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.Session;
+
+import org.apache.activemq.broker.Broker;
+import org.apache.activemq.broker.BrokerFilter;
+import org.apache.activemq.broker.BrokerPlugin;
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.broker.ConnectionContext;
+import org.apache.activemq.broker.ProducerBrokerExchange;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.command.TransactionId;
+import org.junit.Test;
+
+public class ProducerBatchSendTest extends VmBrokerTestSupport {
+
+    private final ActiveMQQueue queue = new ActiveMQQueue("Producer.Batch");
+    private final AtomicInteger commits = new AtomicInteger();
+    private final CountDownLatch sendArrived = new CountDownLatch(1);
+    private volatile CountDownLatch holdSends;
+
+    @Override
+    protected BrokerService createBroker() throws Exception {
+        BrokerService answer = super.createBroker();
+        answer.setPlugins(new BrokerPlugin[] {new BrokerPlugin() {
+            @Override
+            public Broker installPlugin(Broker next) throws Exception {
+                return new BrokerFilter(next) {
+                    @Override
+                    public void send(ProducerBrokerExchange producerExchange, org.apache.activemq.command.Message messageSend) throws Exception {
+                        CountDownLatch hold = holdSends;
+                        if (hold != null && queue.equals(messageSend.getDestination())) {
+                            sendArrived.countDown();
+                            hold.await(30, TimeUnit.SECONDS);
+                        }
+                        super.send(producerExchange, messageSend);
+                    }
+
+                    @Override
+                    public void commitTransaction(ConnectionContext context, TransactionId xid, boolean onePhase) throws Exception {
+                        commits.incrementAndGet();
+                        super.commitTransaction(context, xid, onePhase);
+                    }
+                };
+            }
+        }});
+        return answer;
+    }
+
+    @Test(timeout = 60000)
+    public void testBatchIsCommittedOnce() throws Exception {
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        ActiveMQMessageProducer producer = (ActiveMQMessageProducer) session.createProducer(queue);
+        producer.setDeliveryMode(DeliveryMode.PERSISTENT);
+
+        producer.sendBatch(batch(session, 0, 200));
+        producer.sendBatch(batch(session, 200, 200));
+
+        assertEquals(2, commits.get());
+        assertEquals(400, broker.getDestination(queue).getDestinationStatistics().getMessages().getCount());
+        MessageConsumer consumer = session.createConsumer(queue);
+        for (int i = 0; i < 400; i++) {
+            Message message = consumer.receive(5000);
+            assertNotNull(message);
+            assertEquals(i, message.getIntProperty("seq"));
+            assertEquals(DeliveryMode.PERSISTENT, message.getJMSDeliveryMode());
+        }
+        assertNull(consumer.receiveNoWait());
+    }
+
+    @Test(timeout = 60000)
+    public void testBatchJoinsSessionTransaction() throws Exception {
+        Session session = connection.createSession(true, Session.SESSION_TRANSACTED);
+        ActiveMQMessageProducer producer = (ActiveMQMessageProducer) session.createProducer(null);
+
+        producer.sendBatch(queue, batch(session, 0, 50), DeliveryMode.PERSISTENT, 4, 0);
+        Session other = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        MessageConsumer consumer = other.createConsumer(queue);
+        assertNull(consumer.receive(500));
+        assertEquals(0, commits.get());
+
+        session.commit();
+        assertEquals(1, commits.get());
+        for (int i = 0; i < 50; i++) {
+            Message message = consumer.receive(5000);
+            assertNotNull(message);
+            assertEquals(i, message.getIntProperty("seq"));
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testBatchLargerThanProducerWindow() throws Exception {
+        ActiveMQConnectionFactory factory = createConnectionFactory();
+        factory.setProducerWindowSize(2048);
+        Connection windowed = factory.createConnection();
+        try {
+            windowed.start();
+            Session session = windowed.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            ActiveMQMessageProducer producer = (ActiveMQMessageProducer) session.createProducer(queue);
+            producer.sendBatch(batch(session, 0, 100));
+
+            assertEquals(1, commits.get());
+            MessageConsumer consumer = session.createConsumer(queue);
+            for (int i = 0; i < 100; i++) {
+                Message message = consumer.receive(5000);
+                assertNotNull(message);
+                assertEquals(i, message.getIntProperty("seq"));
+            }
+        } finally {
+            windowed.close();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testBatchWaitingForWindowDoesNotBlockSession() throws Exception {
+        ActiveMQConnectionFactory factory = createConnectionFactory();
+        factory.setProducerWindowSize(2048);
+        final Connection windowed = factory.createConnection();
+        try {
+            windowed.start();
+            final Session session = windowed.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            final ActiveMQMessageProducer producer = (ActiveMQMessageProducer) session.createProducer(queue);
+            final ActiveMQMessageProducer other = (ActiveMQMessageProducer) session.createProducer(new ActiveMQQueue("Producer.Other"));
+            other.setDeliveryMode(DeliveryMode.NON_PERSISTENT);
+            final List<Message> messages = batch(session, 0, 100);
+
+            // the broker holds the batch so the producer window fills up
+            CountDownLatch hold = new CountDownLatch(1);
+            holdSends = hold;
+            final AtomicReference<Exception> failure = new AtomicReference<>();
+            Thread batchSender = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        producer.sendBatch(messages);
+                    } catch (Exception e) {
+                        failure.set(e);
+                    }
+                }
+            }, "batch sender");
+            batchSender.start();
+            assertTrue(sendArrived.await(10, TimeUnit.SECONDS));
+
+            final CountDownLatch otherSent = new CountDownLatch(1);
+            Thread otherSender = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        other.send(session.createTextMessage("other"));
+                        otherSent.countDown();
+                    } catch (Exception e) {
+                        failure.set(e);
+                    }
+                }
+            }, "other sender");
+            otherSender.start();
+            boolean sent = otherSent.await(5, TimeUnit.SECONDS);
+
+            holdSends = null;
+            hold.countDown();
+            batchSender.join(30000);
+            otherSender.join(30000);
+            assertTrue("send blocked behind the batch's producer window", sent);
+            assertNull(failure.get());
+            assertEquals(1, commits.get());
+            assertEquals(100, broker.getDestination(queue).getDestinationStatistics().getMessages().getCount());
+        } finally {
+            windowed.close();
+        }
+    }
+
+    private static List<Message> batch(Session session, int first, int count) throws Exception {
+        List<Message> messages = new ArrayList<>();
+        for (int i = first; i < first + count; i++) {
+            Message message = session.createTextMessage("message " + i);
+            message.setIntProperty("seq", i);
+            messages.add(message);
+        }
+        return messages;
+    }
+}
@@ -0,0 +1,145 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.broker;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.jms.Connection;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.broker.region.Destination;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.command.ConnectionId;
+import org.apache.activemq.command.ConnectionInfo;
+import org.apache.activemq.command.ConsumerInfo;
+import org.apache.activemq.command.KeepAliveInfo;
+import org.apache.activemq.command.MessageAck;
+import org.apache.activemq.command.MessageDispatch;
+import org.apache.activemq.command.SessionInfo;
+import org.apache.activemq.command.WireFormatInfo;
+import org.apache.activemq.openwire.OpenWireFormat;
+import org.apache.activemq.openwire.OpenWireFormatFactory;
+import org.apache.activemq.util.Wait;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CoalescedAckTest {
+
+    private static final int MESSAGES = 10;
+
+    private final ActiveMQQueue queue = new ActiveMQQueue("Coalesced.Acks");
+    private BrokerService broker;
+    private URI connectUri;
+
+    @Before
+    public void startBroker() throws Exception {
+        broker = new BrokerService();
+        broker.setPersistent(false);
+        broker.setUseJmx(false);
+        broker.setAdvisorySupport(false);
+        TransportConnector connector = broker.addConnector("tcp://localhost:0");
+        connector.setCoalesceAcks(true);
+        broker.start();
+        broker.waitUntilStarted();
+        connectUri = connector.getConnectUri();
+    }
+
+    @After
+    public void stopBroker() throws Exception {
+        broker.stop();
+        broker.waitUntilStopped();
+    }
+
+    @Test(timeout = 60000)
+    public void testAckBurstFollowedByKeepAliveIsApplied() throws Exception {
+        Connection connection = new ActiveMQConnectionFactory("vm://localhost?create=false").createConnection();
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        MessageProducer producer = session.createProducer(queue);
+        for (int i = 0; i < MESSAGES; i++) {
+            producer.send(session.createTextMessage("message " + i));
+        }
+        connection.close();
+
+        // a raw openwire client, so the acks and the keep alive go out in one write
+        OpenWireFormat wireFormat = (OpenWireFormat) new OpenWireFormatFactory().createWireFormat();
+        try (Socket socket = new Socket(connectUri.getHost(), connectUri.getPort())) {
+            socket.setSoTimeout(10000);
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            OutputStream out = socket.getOutputStream();
+
+            write(out, wireFormat, wireFormat.getPreferedWireFormatInfo());
+            Object command = wireFormat.unmarshal(in);
+            assertTrue(command instanceof WireFormatInfo);
+            wireFormat.renegotiateWireFormat((WireFormatInfo) command);
+
+            ConnectionInfo connectionInfo = new ConnectionInfo(new ConnectionId("coalesced"));
+            connectionInfo.setClientId("coalesced");
+            SessionInfo sessionInfo = new SessionInfo(connectionInfo, 1);
+            ConsumerInfo consumerInfo = new ConsumerInfo(sessionInfo, 1);
+            consumerInfo.setDestination(queue);
+            consumerInfo.setPrefetchSize(MESSAGES);
+            write(out, wireFormat, connectionInfo, sessionInfo, consumerInfo);
+
+            List<MessageDispatch> dispatched = new ArrayList<>();
+            while (dispatched.size() < MESSAGES) {
+                command = wireFormat.unmarshal(in);
+                if (command instanceof MessageDispatch && ((MessageDispatch) command).getMessage() != null) {
+                    dispatched.add((MessageDispatch) command);
+                }
+            }
+
+            List<Object> burst = new ArrayList<>();
+            for (MessageDispatch dispatch : dispatched) {
+                burst.add(new MessageAck(dispatch, MessageAck.INDIVIDUAL_ACK_TYPE, 1));
+            }
+            // consumed by the inactivity monitor, it never reaches the connection
+            burst.add(new KeepAliveInfo());
+            write(out, wireFormat, burst.toArray());
+
+            final Destination destination = broker.getDestination(queue);
+            assertTrue("acks applied", Wait.waitFor(new Wait.Condition() {
+                @Override
+                public boolean isSatisified() throws Exception {
+                    return destination.getDestinationStatistics().getMessages().getCount() == 0;
+                }
+            }, 10000, 100));
+        }
+    }
+
+    private static void write(OutputStream out, OpenWireFormat wireFormat, Object... commands) throws Exception {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream dataOut = new DataOutputStream(buffer);
+        for (Object command : commands) {
+            wireFormat.marshal(command, dataOut);
+        }
+        dataOut.flush();
+        out.write(buffer.toByteArray());
+        out.flush();
+    }
+}
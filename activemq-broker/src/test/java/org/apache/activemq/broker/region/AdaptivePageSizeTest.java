@@ -0,0 +1,88 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.broker.region;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import jakarta.jms.Connection;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.broker.region.policy.PolicyEntry;
+import org.apache.activemq.broker.region.policy.PolicyMap;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.junit.Test;
+
+public class AdaptivePageSizeTest {
+
+    @Test
+    public void testSize() {
+        // idle with no consumers sits at the minimum
+        assertEquals(10, AdaptivePageSize.size(0, 0, 0, 10, 2000));
+        // a second's worth of dispatch, or the prefetch room if that is more
+        assertEquals(500, AdaptivePageSize.size(500, 100, 0, 10, 2000));
+        assertEquals(1000, AdaptivePageSize.size(20, 1000, 0, 10, 2000));
+        assertEquals(2000, AdaptivePageSize.size(100000, 0, 0, 10, 2000));
+        // backs off as memory fills up
+        assertEquals(500, AdaptivePageSize.size(1000, 0, 75, 10, 2000));
+        assertEquals(10, AdaptivePageSize.size(1000, 0, 100, 10, 2000));
+    }
+
+    @Test(timeout = 60000)
+    public void testQueuePagesInWithinBounds() throws Exception {
+        BrokerService broker = new BrokerService();
+        broker.setPersistent(false);
+        broker.setUseJmx(false);
+        broker.setAdvisorySupport(false);
+        PolicyEntry policy = new PolicyEntry();
+        policy.setAdaptivePageSize(true);
+        policy.setMinAdaptivePageSize(5);
+        policy.setMaxAdaptivePageSize(50);
+        PolicyMap policyMap = new PolicyMap();
+        policyMap.setDefaultEntry(policy);
+        broker.setDestinationPolicy(policyMap);
+        broker.start();
+        broker.waitUntilStarted();
+        Connection connection = new ActiveMQConnectionFactory("vm://localhost?create=false").createConnection();
+        try {
+            connection.start();
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            ActiveMQQueue queue = new ActiveMQQueue("Adaptive.PageSize");
+            MessageConsumer consumer = session.createConsumer(queue);
+            MessageProducer producer = session.createProducer(queue);
+            for (int i = 0; i < 500; i++) {
+                producer.send(session.createTextMessage("message " + i));
+            }
+            Queue destination = (Queue) broker.getRegionBroker().getDestinationMap().get(queue);
+            assertTrue(destination.isAdaptivePageSize());
+            for (int i = 0; i < 500; i++) {
+                assertEquals("message " + i, ((TextMessage) consumer.receive(5000)).getText());
+                int pageSize = destination.getMaxPageSize();
+                assertTrue(pageSize >= 5 && pageSize <= 50);
+            }
+        } finally {
+            connection.close();
+            broker.stop();
+            broker.waitUntilStopped();
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.broker.region;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Random;
+
+import org.apache.activemq.command.ActiveMQTextMessage;
+import org.apache.activemq.command.MessageId;
+import org.junit.Test;
+
+public class DispatchedListTest {
+
+    @Test
+    public void testLookupAndRangeIteration() throws Exception {
+        DispatchedList list = new DispatchedList();
+        List<MessageReference> refs = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            refs.add(reference(i));
+            list.add(refs.get(i));
+        }
+        assertSame(refs.get(4), list.get(refs.get(4).getMessageId()));
+        assertNull(list.get(reference(99).getMessageId()));
+
+        List<MessageReference> range = new ArrayList<>();
+        for (Iterator<MessageReference> iter = list.iterator(refs.get(6).getMessageId()); iter.hasNext();) {
+            range.add(iter.next());
+        }
+        assertEquals(refs.subList(6, 10), range);
+        assertFalse(list.iterator(reference(99).getMessageId()).hasNext());
+        assertEquals(refs, toList(list.iterator(null)));
+
+        // remove a range the way an expired ack does
+        Iterator<MessageReference> iter = list.iterator(refs.get(2).getMessageId());
+        for (int i = 0; i < 3; i++) {
+            iter.next();
+            iter.remove();
+        }
+        refs.subList(2, 5).clear();
+        assertEquals(refs, new ArrayList<>(list));
+        assertNull(list.get(reference(3).getMessageId()));
+
+        List<MessageReference> reversed = new ArrayList<>(list);
+        Collections.reverse(reversed);
+        List<MessageReference> backwards = new ArrayList<>();
+        for (ListIterator<MessageReference> it = list.listIterator(list.size()); it.hasPrevious();) {
+            backwards.add(it.previous());
+        }
+        assertEquals(reversed, backwards);
+    }
+
+    @Test
+    public void testDuplicateIdsAreComparedByIdentity() throws Exception {
+        DispatchedList list = new DispatchedList();
+        MessageReference a = reference(1);
+        MessageReference b = reference(2);
+        MessageReference redelivered = reference(1);
+        list.add(a);
+        list.add(b);
+        list.add(redelivered);
+
+        assertSame(a, list.get(a.getMessageId()));
+        assertTrue(list.contains(redelivered));
+        assertFalse(list.contains(reference(1)));
+
+        assertTrue(list.remove(a));
+        assertSame(redelivered, list.get(a.getMessageId()));
+        assertFalse(list.remove(a));
+        assertTrue(list.remove(redelivered));
+        assertNull(list.get(a.getMessageId()));
+        assertEquals(1, list.size());
+    }
+
+    @Test
+    public void testMatchesArrayList() throws Exception {
+        Random random = new Random(42);
+        DispatchedList list = new DispatchedList();
+        List<MessageReference> expected = new ArrayList<>();
+        List<MessageReference> all = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            // some messages are redispatched as a new reference with the same id
+            all.add(reference(random.nextInt(10) == 0 ? random.nextInt(50) : i));
+        }
+        for (int op = 0; op < 20000; op++) {
+            MessageReference ref = all.get(random.nextInt(all.size()));
+            switch (random.nextInt(5)) {
+            case 0:
+            case 1:
+                if (!containsSame(expected, ref)) {
+                    expected.add(ref);
+                    list.add(ref);
+                }
+                break;
+            case 2:
+                assertEquals(removeSame(expected, ref), list.remove(ref));
+                break;
+            case 3:
+                MessageReference found = list.get(ref.getMessageId());
+                MessageReference first = null;
+                for (MessageReference held : expected) {
+                    if (held.getMessageId().equals(ref.getMessageId())) {
+                        first = held;
+                        break;
+                    }
+                }
+                assertSame(first, found);
+                break;
+            default:
+                // drop every n-th message while iterating
+                int n = 2 + random.nextInt(5);
+                int i = 0;
+                for (Iterator<MessageReference> iterator = list.iterator(); iterator.hasNext();) {
+                    MessageReference next = iterator.next();
+                    if (i++ % n == 0) {
+                        iterator.remove();
+                        removeSame(expected, next);
+                    }
+                }
+            }
+            assertEquals(expected.size(), list.size());
+            assertEquals(containsSame(expected, ref), list.contains(ref));
+            if (op % 500 == 0) {
+                assertEquals(expected, new ArrayList<>(list));
+            }
+        }
+        list.clear();
+        assertTrue(list.isEmpty());
+        assertFalse(list.iterator().hasNext());
+    }
+
+    private static List<MessageReference> toList(Iterator<MessageReference> iter) {
+        List<MessageReference> result = new ArrayList<>();
+        while (iter.hasNext()) {
+            result.add(iter.next());
+        }
+        return result;
+    }
+
+    private static boolean containsSame(List<MessageReference> refs, MessageReference ref) {
+        for (MessageReference held : refs) {
+            if (held == ref) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean removeSame(List<MessageReference> refs, MessageReference ref) {
+        for (Iterator<MessageReference> iter = refs.iterator(); iter.hasNext();) {
+            if (iter.next() == ref) {
+                iter.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static MessageReference reference(int producerSequence) throws Exception {
+        ActiveMQTextMessage message = new ActiveMQTextMessage();
+        message.setMessageId(new MessageId("ID:dispatched-1:1:1:1:" + producerSequence));
+        message.setText("message " + producerSequence);
+        return new IndirectMessageReference(message);
+    }
+}
@@ -0,0 +1,164 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.broker.region;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import jakarta.jms.Connection;
+import jakarta.jms.Message;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.broker.region.policy.PolicyEntry;
+import org.apache.activemq.broker.region.policy.PolicyMap;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.util.Wait;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class QueueDispatchLanesTest {
+
+    private static final int LANES = 4;
+    private static final int CONSUMERS = 6;
+    private static final int GROUPS = 12;
+    private static final int MESSAGES_PER_GROUP = 50;
+    private static final int UNGROUPED = 200;
+
+    private final ActiveMQQueue queue = new ActiveMQQueue("Dispatch.Lanes");
+    private BrokerService broker;
+    private Connection connection;
+
+    @Before
+    public void setUp() throws Exception {
+        broker = new BrokerService();
+        broker.setPersistent(false);
+        broker.setUseJmx(false);
+        broker.setAdvisorySupport(false);
+        PolicyEntry policy = new PolicyEntry();
+        policy.setDispatchLanes(LANES);
+        PolicyMap policyMap = new PolicyMap();
+        policyMap.setDefaultEntry(policy);
+        broker.setDestinationPolicy(policyMap);
+        broker.start();
+        broker.waitUntilStarted();
+
+        connection = new ActiveMQConnectionFactory("vm://localhost?create=false").createConnection();
+        connection.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (connection != null) {
+            connection.close();
+        }
+        if (broker != null) {
+            broker.stop();
+            broker.waitUntilStopped();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testGroupsKeepTheirOrderAcrossLanes() throws Exception {
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        List<MessageConsumer> consumers = new ArrayList<>();
+        for (int i = 0; i < CONSUMERS; i++) {
+            consumers.add(session.createConsumer(queue));
+        }
+        Queue destination = (Queue) broker.getRegionBroker().getDestinationMap().get(queue);
+        assertEquals(LANES, destination.getDispatchLanes());
+
+        MessageProducer producer = session.createProducer(queue);
+        for (int i = 0; i < MESSAGES_PER_GROUP; i++) {
+            for (int g = 0; g < GROUPS; g++) {
+                Message message = session.createTextMessage("group " + g + " seq " + i);
+                message.setStringProperty("JMSXGroupID", "group" + g);
+                message.setIntProperty("seq", i);
+                producer.send(message);
+            }
+            for (int u = 0; u < UNGROUPED / MESSAGES_PER_GROUP; u++) {
+                producer.send(session.createTextMessage("ungrouped"));
+            }
+        }
+
+        Map<String, Integer> lastSeq = new HashMap<>();
+        Map<String, MessageConsumer> owners = new HashMap<>();
+        Set<String> ids = new HashSet<>();
+        int ungrouped = 0;
+        long deadline = System.currentTimeMillis() + 30000;
+        while (ids.size() < GROUPS * MESSAGES_PER_GROUP + UNGROUPED && System.currentTimeMillis() < deadline) {
+            for (MessageConsumer consumer : consumers) {
+                Message message = consumer.receive(10);
+                if (message == null) {
+                    continue;
+                }
+                assertTrue(ids.add(message.getJMSMessageID()));
+                String group = message.getStringProperty("JMSXGroupID");
+                if (group == null) {
+                    ungrouped++;
+                    continue;
+                }
+                int seq = message.getIntProperty("seq");
+                assertEquals(group, lastSeq.getOrDefault(group, -1) + 1, seq);
+                lastSeq.put(group, seq);
+                MessageConsumer owner = owners.putIfAbsent(group, consumer);
+                assertEquals(group, owner == null ? consumer : owner, consumer);
+            }
+        }
+        assertEquals(UNGROUPED, ungrouped);
+        assertEquals(GROUPS, lastSeq.size());
+        for (int g = 0; g < GROUPS; g++) {
+            assertEquals(MESSAGES_PER_GROUP - 1, lastSeq.get("group" + g).intValue());
+        }
+        for (MessageConsumer consumer : consumers) {
+            assertNull(consumer.receive(50));
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testLanesKeepToThePrefetch() throws Exception {
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        MessageProducer producer = session.createProducer(queue);
+        for (int i = 0; i < UNGROUPED; i++) {
+            producer.send(session.createTextMessage("ungrouped"));
+        }
+
+        ActiveMQQueue prefetchOfTwo = new ActiveMQQueue(queue.getPhysicalName() + "?consumer.prefetchSize=2");
+        for (int i = 0; i < CONSUMERS; i++) {
+            session.createConsumer(prefetchOfTwo);
+        }
+        final Queue destination = (Queue) broker.getRegionBroker().getDestinationMap().get(queue);
+        assertTrue(Wait.waitFor(() -> destination.getDestinationStatistics().getInflight().getCount() >= CONSUMERS * 2));
+        Thread.sleep(100);
+        for (Subscription subscription : destination.getConsumers()) {
+            assertEquals(subscription.toString(), 2, ((PrefetchSubscription) subscription).getDispatchedQueueSize());
+        }
+        assertEquals(CONSUMERS * 2, destination.getDestinationStatistics().getInflight().getCount());
+    }
+}
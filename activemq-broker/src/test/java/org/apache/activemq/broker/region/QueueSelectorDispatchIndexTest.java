@@ -0,0 +1,135 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.broker.region;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.jms.Connection;
+import jakarta.jms.Message;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.broker.region.policy.PolicyEntry;
+import org.apache.activemq.broker.region.policy.PolicyMap;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class QueueSelectorDispatchIndexTest {
+
+    private static final String[] REGIONS = {"EU", "US", "APAC", "LATAM"};
+    private static final int CONSUMERS_PER_REGION = 5;
+    private static final int MESSAGES_PER_REGION = 20;
+
+    private final ActiveMQQueue queue = new ActiveMQQueue("Selector.Index");
+    private BrokerService broker;
+    private Connection connection;
+
+    @Before
+    public void setUp() throws Exception {
+        broker = new BrokerService();
+        broker.setPersistent(false);
+        broker.setUseJmx(false);
+        broker.setAdvisorySupport(false);
+        PolicyEntry policy = new PolicyEntry();
+        policy.setUseSelectorDispatchIndex(true);
+        PolicyMap policyMap = new PolicyMap();
+        policyMap.setDefaultEntry(policy);
+        broker.setDestinationPolicy(policyMap);
+        broker.start();
+        broker.waitUntilStarted();
+
+        connection = new ActiveMQConnectionFactory("vm://localhost?create=false").createConnection();
+        connection.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (connection != null) {
+            connection.close();
+        }
+        if (broker != null) {
+            broker.stop();
+            broker.waitUntilStopped();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testMessagesReachOnlyMatchingConsumers() throws Exception {
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        List<List<MessageConsumer>> regionConsumers = new ArrayList<>();
+        for (String region : REGIONS) {
+            List<MessageConsumer> consumers = new ArrayList<>();
+            for (int i = 0; i < CONSUMERS_PER_REGION; i++) {
+                consumers.add(session.createConsumer(queue, "region = '" + region + "'"));
+            }
+            regionConsumers.add(consumers);
+        }
+        MessageConsumer gold = session.createConsumer(queue, "tier IN ('gold', 'platinum') AND region = 'NONE'");
+        MessageConsumer large = session.createConsumer(queue, "amount > 1000");
+
+        Queue destination = (Queue) broker.getRegionBroker().getDestinationMap().get(queue);
+        assertTrue(destination.isUseSelectorDispatchIndex());
+
+        MessageProducer producer = session.createProducer(queue);
+        for (int i = 0; i < MESSAGES_PER_REGION; i++) {
+            for (String region : REGIONS) {
+                Message message = session.createTextMessage(region + i);
+                message.setStringProperty("region", region);
+                message.setIntProperty("amount", i);
+                producer.send(message);
+            }
+        }
+        Message big = session.createTextMessage("big");
+        big.setStringProperty("region", "NONE");
+        big.setIntProperty("amount", 5000);
+        producer.send(big);
+        Message numeric = session.createTextMessage("numeric");
+        numeric.setIntProperty("region", 7);
+        numeric.setIntProperty("amount", 2000);
+        producer.send(numeric);
+
+        for (int r = 0; r < REGIONS.length; r++) {
+            int received = 0;
+            long deadline = System.currentTimeMillis() + 10000;
+            while (received < MESSAGES_PER_REGION && System.currentTimeMillis() < deadline) {
+                for (MessageConsumer consumer : regionConsumers.get(r)) {
+                    Message message = consumer.receive(10);
+                    if (message != null) {
+                        assertEquals(REGIONS[r], message.getStringProperty("region"));
+                        received++;
+                    }
+                }
+            }
+            assertEquals(REGIONS[r], MESSAGES_PER_REGION, received);
+        }
+        assertNull(gold.receive(100));
+        assertEquals("big", ((TextMessage) large.receive(2000)).getText());
+        assertEquals("numeric", ((TextMessage) large.receive(2000)).getText());
+        assertNull(large.receive(100));
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.broker.region;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.jms.Connection;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.command.ActiveMQTopic;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TopicSharedEncodingTest {
+
+    private static final int CONSUMERS = 4;
+    private static final int MESSAGES = 200;
+
+    private final ActiveMQTopic topic = new ActiveMQTopic("Shared.Encoding");
+    private final List<Connection> connections = new ArrayList<>();
+    private BrokerService broker;
+    private String brokerUri;
+
+    @Before
+    public void setUp() throws Exception {
+        broker = new BrokerService();
+        broker.setPersistent(false);
+        broker.setUseJmx(false);
+        broker.setAdvisorySupport(false);
+        broker.addConnector("tcp://localhost:0?wireFormat.cacheEnabled=false&wireFormat.sharedMessageEncodingEnabled=true");
+        broker.start();
+        broker.waitUntilStarted();
+        brokerUri = broker.getTransportConnectors().get(0).getPublishableConnectString();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (Connection connection : connections) {
+            connection.close();
+        }
+        if (broker != null) {
+            broker.stop();
+            broker.waitUntilStopped();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testEverySubscriberReceivesTheSharedEncoding() throws Exception {
+        List<MessageConsumer> consumers = new ArrayList<>();
+        for (int i = 0; i < CONSUMERS; i++) {
+            Session session = createConnection().createSession(false, Session.AUTO_ACKNOWLEDGE);
+            consumers.add(session.createConsumer(topic));
+        }
+
+        Session session = createConnection().createSession(false, Session.AUTO_ACKNOWLEDGE);
+        MessageProducer producer = session.createProducer(topic);
+        for (int i = 0; i < MESSAGES; i++) {
+            TextMessage message = session.createTextMessage("price " + i);
+            message.setIntProperty("seq", i);
+            producer.send(message);
+        }
+
+        for (MessageConsumer consumer : consumers) {
+            for (int i = 0; i < MESSAGES; i++) {
+                TextMessage message = (TextMessage) consumer.receive(5000);
+                assertNotNull("message " + i, message);
+                assertEquals("price " + i, message.getText());
+                assertEquals(i, message.getIntProperty("seq"));
+                assertEquals(topic, message.getJMSDestination());
+                assertFalse(message.getJMSRedelivered());
+            }
+        }
+    }
+
+    private Connection createConnection() throws Exception {
+        Connection connection = new ActiveMQConnectionFactory(brokerUri).createConnection();
+        connections.add(connection);
+        connection.start();
+        return connection;
+    }
+}
@@ -0,0 +1,150 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.broker.region.cursors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.activemq.broker.region.IndirectMessageReference;
+import org.apache.activemq.broker.region.MessageReference;
+import org.apache.activemq.command.ActiveMQTextMessage;
+import org.apache.activemq.command.MessageId;
+import org.junit.Test;
+
+public class SequencePendingListTest {
+
+    @Test
+    public void testKeepsOrder() throws Exception {
+        SequencePendingList list = new SequencePendingList();
+        List<MessageReference> refs = new ArrayList<>();
+        for (int i = 1; i <= 100; i++) {
+            refs.add(reference(i, i));
+            list.addMessageLast(refs.get(i - 1));
+        }
+        MessageReference first = reference(1000, 1000);
+        list.addMessageFirst(first);
+        refs.add(0, first);
+
+        assertEquals(101, list.size());
+        assertEquals(refs, new ArrayList<>(list.values()));
+        assertSame(refs.get(50), list.get(refs.get(50).getMessageId()));
+        assertEquals(sizeOf(refs), list.messageSize());
+    }
+
+    @Test
+    public void testSequenceClashesAndZeroSequences() throws Exception {
+        SequencePendingList list = new SequencePendingList();
+        MessageReference a = reference(1, 7);
+        MessageReference b = reference(2, 7);
+        MessageReference c = reference(3, 0);
+        list.addMessageLast(a);
+        list.addMessageLast(b);
+        list.addMessageLast(c);
+        assertSame(b, list.get(b.getMessageId()));
+        assertSame(c, list.get(c.getMessageId()));
+
+        list.remove(a);
+        assertFalse(list.contains(a));
+        assertTrue(list.contains(b));
+        assertNull(list.get(a.getMessageId()));
+        list.addMessageFirst(a);
+        assertEquals(3, list.size());
+        assertSame(a, list.iterator().next());
+    }
+
+    @Test
+    public void testMatchesOrderedPendingList() throws Exception {
+        Random random = new Random(42);
+        SequencePendingList list = new SequencePendingList();
+        OrderedPendingList expected = new OrderedPendingList();
+        List<MessageReference> all = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            // some ids share or lack a sequence id
+            all.add(reference(i, random.nextInt(10) == 0 ? random.nextInt(50) : i + 100));
+        }
+        for (int op = 0; op < 50000; op++) {
+            MessageReference ref = all.get(random.nextInt(all.size()));
+            switch (random.nextInt(6)) {
+            case 0:
+                expected.remove(ref);
+                expected.addMessageFirst(ref);
+                list.addMessageFirst(ref);
+                break;
+            case 1:
+            case 2:
+                expected.remove(ref);
+                expected.addMessageLast(ref);
+                list.addMessageLast(ref);
+                break;
+            case 3:
+            case 4:
+                expected.remove(ref);
+                list.remove(ref);
+                break;
+            default:
+                // drop every n-th message while iterating
+                int n = 2 + random.nextInt(5);
+                int i = 0;
+                for (Iterator<MessageReference> iterator = list.iterator(); iterator.hasNext();) {
+                    MessageReference next = iterator.next();
+                    if (i++ % n == 0) {
+                        iterator.remove();
+                        expected.remove(next);
+                    }
+                }
+            }
+            assertEquals(expected.size(), list.size());
+            assertEquals(expected.contains(ref), list.contains(ref));
+            if (op % 1000 == 0) {
+                assertEquals(new ArrayList<>(expected.values()), new ArrayList<>(list.values()));
+                assertEquals(expected.messageSize(), list.messageSize());
+                for (MessageReference held : expected) {
+                    assertSame(held, list.get(held.getMessageId()));
+                }
+            }
+        }
+        list.clear();
+        assertTrue(list.isEmpty());
+        assertEquals(0, list.messageSize());
+        assertFalse(list.iterator().hasNext());
+    }
+
+    private static long sizeOf(List<MessageReference> refs) {
+        long size = 0;
+        for (MessageReference ref : refs) {
+            size += ref.getSize();
+        }
+        return size;
+    }
+
+    private static MessageReference reference(int producerSequence, long brokerSequence) throws Exception {
+        ActiveMQTextMessage message = new ActiveMQTextMessage();
+        MessageId id = new MessageId("ID:sequence-1:1:1:1:" + producerSequence);
+        id.setBrokerSequenceId(brokerSequence);
+        message.setMessageId(id);
+        message.setText("message " + producerSequence);
+        return new IndirectMessageReference(message);
+    }
+}
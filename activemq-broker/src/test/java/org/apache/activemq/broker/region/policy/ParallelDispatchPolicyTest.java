@@ -0,0 +1,187 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.broker.region.policy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.jms.Connection;
+import jakarta.jms.Message;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.command.ActiveMQTopic;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParallelDispatchPolicyTest {
+
+    private static final int MESSAGES = 500;
+
+    private final ActiveMQTopic topic = new ActiveMQTopic("Parallel.Dispatch");
+    private BrokerService broker;
+    private Connection connection;
+    private ParallelDispatchPolicy dispatchPolicy;
+
+    @Before
+    public void setUp() throws Exception {
+        broker = new BrokerService();
+        broker.setPersistent(false);
+        broker.setUseJmx(false);
+        broker.setAdvisorySupport(false);
+        dispatchPolicy = new ParallelDispatchPolicy();
+        dispatchPolicy.setShardCount(4);
+        dispatchPolicy.setInlineThreshold(3);
+        PolicyEntry policy = new PolicyEntry();
+        policy.setDispatchPolicy(dispatchPolicy);
+        PolicyMap policyMap = new PolicyMap();
+        policyMap.setDefaultEntry(policy);
+        broker.setDestinationPolicy(policyMap);
+        broker.start();
+        broker.waitUntilStarted();
+
+        connection = new ActiveMQConnectionFactory("vm://localhost?create=false").createConnection();
+        connection.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (connection != null) {
+            connection.close();
+        }
+        if (broker != null) {
+            broker.stop();
+            broker.waitUntilStopped();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testEverySubscriptionKeepsItsOrder() throws Exception {
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        List<MessageConsumer> all = new ArrayList<>();
+        List<MessageConsumer> even = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            all.add(session.createConsumer(topic));
+            even.add(session.createConsumer(topic, "even = TRUE"));
+        }
+
+        send(session, 0, MESSAGES);
+
+        for (MessageConsumer consumer : all) {
+            assertReceived(consumer, 0, MESSAGES, 1);
+        }
+        for (MessageConsumer consumer : even) {
+            assertReceived(consumer, 0, MESSAGES, 2);
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testOrderKeptAcrossInlineThreshold() throws Exception {
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        MessageConsumer first = session.createConsumer(topic);
+        MessageConsumer second = session.createConsumer(topic);
+
+        Session churn = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        for (int i = 0; i < MESSAGES; i += 50) {
+            // moves the fan-out above and below the inline threshold
+            MessageConsumer extra = churn.createConsumer(topic);
+            send(session, i, i + 25);
+            extra.close();
+            send(session, i + 25, i + 50);
+        }
+
+        assertReceived(first, 0, MESSAGES, 1);
+        assertReceived(second, 0, MESSAGES, 1);
+    }
+
+    @Test(timeout = 60000)
+    public void testPoolShutDownWithTheBroker() throws Exception {
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        List<MessageConsumer> consumers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            consumers.add(session.createConsumer(topic));
+        }
+        send(session, 0, 10);
+        for (MessageConsumer consumer : consumers) {
+            assertReceived(consumer, 0, 10, 1);
+        }
+        ForkJoinPool pool = dispatchPolicy.getPool();
+        assertNotNull(pool);
+
+        connection.close();
+        connection = null;
+        broker.stop();
+        broker.waitUntilStopped();
+        broker = null;
+        assertNull(dispatchPolicy.getPool());
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test(timeout = 60000)
+    public void testDispatchInlineOncePoolShutDown() throws Exception {
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        List<MessageConsumer> consumers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            consumers.add(session.createConsumer(topic));
+        }
+        send(session, 0, 10);
+        for (MessageConsumer consumer : consumers) {
+            assertReceived(consumer, 0, 10, 1);
+        }
+
+        // as a stop racing with a dispatch leaves it
+        ForkJoinPool pool = dispatchPolicy.getPool();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        send(session, 10, 20);
+        for (MessageConsumer consumer : consumers) {
+            assertReceived(consumer, 10, 20, 1);
+        }
+    }
+
+    private void send(Session session, int from, int to) throws Exception {
+        MessageProducer producer = session.createProducer(topic);
+        for (int i = from; i < to; i++) {
+            Message message = session.createTextMessage("message " + i);
+            message.setIntProperty("seq", i);
+            message.setBooleanProperty("even", i % 2 == 0);
+            producer.send(message);
+        }
+        producer.close();
+    }
+
+    private void assertReceived(MessageConsumer consumer, int from, int to, int step) throws Exception {
+        for (int i = from; i < to; i += step) {
+            Message message = consumer.receive(5000);
+            assertNotNull("message " + i, message);
+            assertEquals(i, message.getIntProperty("seq"));
+        }
+        assertNull(consumer.receiveNoWait());
+    }
+}
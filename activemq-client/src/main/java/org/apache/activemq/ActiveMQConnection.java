@@ -24,6 +24,9 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -33,6 +36,7 @@ import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -94,6 +98,7 @@ import org.apache.activemq.management.StatsImpl;
 import org.apache.activemq.state.CommandVisitorAdapter;
 import org.apache.activemq.thread.Scheduler;
 import org.apache.activemq.thread.TaskRunnerFactory;
+import org.apache.activemq.thread.VirtualThreads;
 import org.apache.activemq.transport.FutureResponse;
 import org.apache.activemq.transport.RequestTimedOutIOException;
 import org.apache.activemq.transport.ResponseCallback;
@@ -157,6 +162,7 @@ public class ActiveMQConnection implements Connection, TopicConnection, QueueCon
     private boolean watchTopicAdvisories = true;
     private long warnAboutUnstartedConnectionTimeout = 500L;
     private int sendTimeout =0;
+    private int requestTimeout = 0;
     private boolean sendAcksAsync=true;
     private boolean checkForDuplicates = true;
     private boolean queueOnlyConnection = false;
@@ -199,11 +205,13 @@ public class ActiveMQConnection implements Connection, TopicConnection, QueueCon
     private DestinationSource destinationSource;
     private final Object ensureConnectionInfoSentMutex = new Object();
     private boolean useDedicatedTaskRunner;
+    private boolean useVirtualThreads = VirtualThreads.isEnabledByDefault();
     protected AtomicInteger transportInterruptionProcessingComplete = new AtomicInteger(0);
     private long consumerFailoverRedeliveryWaitPeriod;
     private volatile Scheduler scheduler;
     private final Object schedulerLock = new Object();
     private boolean messagePrioritySupported = false;
+    private boolean useRingBufferDispatchChannel = false;
     private boolean transactedIndividualAck = false;
     private boolean nonBlockingRedelivery = false;
     private boolean rmIdFromConnectionId = false;
@@ -1068,11 +1076,20 @@ public class ActiveMQConnection implements Connection, TopicConnection, QueueCon
         this.useDedicatedTaskRunner = useDedicatedTaskRunner;
     }
 
+    public boolean isUseVirtualThreads() {
+        return useVirtualThreads;
+    }
+
+    public void setUseVirtualThreads(boolean useVirtualThreads) {
+        this.useVirtualThreads = useVirtualThreads;
+    }
+
     public TaskRunnerFactory getSessionTaskRunner() {
         synchronized (this) {
             if (sessionTaskRunner == null) {
                 sessionTaskRunner = new TaskRunnerFactory("ActiveMQ Session Task", ThreadPriorities.INBOUND_CLIENT_SESSION, false, 1000, isUseDedicatedTaskRunner(), maxThreadPoolSize);
                 sessionTaskRunner.setRejectedTaskHandler(rejectedTaskHandler);
+                sessionTaskRunner.setUseVirtualThreads(isUseVirtualThreads());
             }
         }
         return sessionTaskRunner;
@@ -1498,6 +1515,72 @@ public class ActiveMQConnection implements Connection, TopicConnection, QueueCon
         return syncSendPacket(command, 0);
     }
 
+    /**
+     * Send a packet through a Connection without waiting for the broker to
+     * respond - for internal use only
+     *
+     * @param command
+     *
+     * @return a stage completed with the broker Response for the given Command,
+     *         or exceptionally with a JMSException if the broker failed it or
+     *         did not answer within the requestTimeout. Over a failover transport
+     *         a command still held for the reconnect when the stage times out or
+     *         gets cancelled is dropped, it is not sent later.
+     *
+     * @throws JMSException if the command could not be sent
+     */
+    public CompletionStage<Response> asyncRequest(final Command command) throws JMSException {
+        if (isClosed()) {
+            throw new ConnectionClosedException();
+        }
+        final CompletableFuture<Response> result = new CompletableFuture<Response>();
+        final FailoverTransport failover = transport.narrow(FailoverTransport.class);
+        if (failover != null) {
+            // held on a reconnect rather than blocking the caller
+            failover.expectAsyncRequest(command);
+            result.whenComplete((answer, error) -> {
+                if (result.isCancelled()) {
+                    failover.cancelAsyncRequest(command);
+                }
+            });
+        }
+        CompletableFuture<Response> response;
+        try {
+            response = this.transport.asyncRequest(command, null).toCompletionStage().toCompletableFuture();
+        } catch (IOException e) {
+            if (failover != null) {
+                failover.cancelAsyncRequest(command);
+            }
+            throw JMSExceptionSupport.create(e);
+        }
+        if (requestTimeout > 0) {
+            response = response.orTimeout(requestTimeout, TimeUnit.MILLISECONDS);
+        }
+        response.whenComplete((answer, error) -> {
+            try {
+                if (error != null) {
+                    if (error instanceof CompletionException && error.getCause() != null) {
+                        error = error.getCause();
+                    }
+                    if (error instanceof TimeoutException) {
+                        if (failover != null) {
+                            failover.cancelAsyncRequest(command);
+                        }
+                        error = new RequestTimedOutIOException();
+                    }
+                    result.completeExceptionally(JMSExceptionSupport.create(error));
+                } else if (answer.isException()) {
+                    result.completeExceptionally(JMSExceptionSupport.create(((ExceptionResponse)answer).getException()));
+                } else {
+                    result.complete(answer);
+                }
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
     /**
      * @return statistics for this Connection
      */
@@ -1615,6 +1698,20 @@ public class ActiveMQConnection implements Connection, TopicConnection, QueueCon
         this.messagePrioritySupported = messagePrioritySupported;
     }
 
+    /**
+     * @return true if consumers hold their prefetched messages in a lock free ring buffer
+     */
+    public boolean isUseRingBufferDispatchChannel() {
+        return this.useRingBufferDispatchChannel;
+    }
+
+    /**
+     * @param useRingBufferDispatchChannel the useRingBufferDispatchChannel to set
+     */
+    public void setUseRingBufferDispatchChannel(boolean useRingBufferDispatchChannel) {
+        this.useRingBufferDispatchChannel = useRingBufferDispatchChannel;
+    }
+
     /**
      * Cleans up this connection so that it's state is as if the connection was
      * just created. This allows the Resource Adapter to clean up a connection
@@ -1824,6 +1921,21 @@ public class ActiveMQConnection implements Connection, TopicConnection, QueueCon
         this.sendTimeout = sendTimeout;
     }
 
+    /**
+     * @return the time to wait for the broker to answer an asynchronous
+     *         request before failing it (in milliseconds), 0 to wait forever
+     */
+    public int getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    /**
+     * @param requestTimeout the requestTimeout to set (in milliseconds)
+     */
+    public void setRequestTimeout(int requestTimeout) {
+        this.requestTimeout = requestTimeout;
+    }
+
     /**
      * @return the sendAcksAsync
      */
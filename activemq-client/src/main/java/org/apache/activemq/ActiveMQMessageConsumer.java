@@ -215,7 +215,13 @@ public class ActiveMQMessageConsumer implements MessageAvailableConsumer, StatsC
                 throw new JMSException("Cannot have a prefetch size less than zero");
             }
         }
-        if (session.connection.isMessagePrioritySupported()) {
+        if (session.connection.isUseRingBufferDispatchChannel()) {
+            if (session.connection.isMessagePrioritySupported()) {
+                this.unconsumedMessages = new PriorityRingBufferMessageDispatchChannel(prefetch);
+            } else {
+                this.unconsumedMessages = new RingBufferMessageDispatchChannel(prefetch);
+            }
+        } else if (session.connection.isMessagePrioritySupported()) {
             this.unconsumedMessages = new SimplePriorityMessageDispatchChannel();
         }else {
             this.unconsumedMessages = new FifoMessageDispatchChannel();
@@ -589,6 +595,76 @@ public class ActiveMQMessageConsumer implements MessageAvailableConsumer, StatsC
         return createActiveMQMessage(md);
     }
 
+    /**
+     * Receives up to max messages that are available to this consumer in one
+     * call. Only the first message is waited for, the rest are those already
+     * prefetched. Messages received together share one acknowledgement: in
+     * AUTO_ACKNOWLEDGE mode one ack covers the whole batch and
+     * {@link MessageBatch#acknowledge()} acknowledges them together in
+     * CLIENT_ACKNOWLEDGE mode. A consumer with a prefetch of zero receives one
+     * message per call.
+     *
+     * @param max the most messages to return
+     * @param timeout how long to wait for the first message in milliseconds,
+     *                zero to wait indefinitely or a negative value not to wait
+     * @return the batch, which is empty if no message arrived in time or the
+     *         consumer was closed
+     * @throws JMSException if the JMS provider fails to receive the messages
+     *                 due to some internal error.
+     */
+    public MessageBatch receiveBatch(int max, long timeout) throws JMSException {
+        checkClosed();
+        checkMessageListener();
+        if (max <= 0) {
+            throw new JMSException("The maximum batch size must be greater than zero");
+        }
+
+        MessageDispatch md;
+        if (timeout == 0) {
+            sendPullCommand(0);
+            md = dequeue(-1);
+        } else if (timeout < 0) {
+            sendPullCommand(-1);
+            md = dequeue(info.getPrefetchSize() == 0 ? -1 : 0);
+        } else {
+            sendPullCommand(timeout);
+            md = dequeue(info.getPrefetchSize() == 0 ? -1 : timeout);
+        }
+
+        List<MessageDispatch> dispatches = new ArrayList<MessageDispatch>();
+        if (md != null) {
+            dispatches.add(md);
+            if (info.getPrefetchSize() > 0) {
+                while (dispatches.size() < max && (md = dequeue(0)) != null) {
+                    dispatches.add(md);
+                }
+            }
+        }
+
+        // all are delivered before any is consumed so an auto ack covers them all
+        for (MessageDispatch dispatch : dispatches) {
+            beforeMessageIsConsumed(dispatch);
+        }
+        List<Message> messages = new ArrayList<Message>(dispatches.size());
+        for (MessageDispatch dispatch : dispatches) {
+            afterMessageIsConsumed(dispatch, false);
+            messages.add(createActiveMQMessage(dispatch));
+        }
+        return new MessageBatch(this, messages, dispatches);
+    }
+
+    void acknowledge(List<MessageDispatch> batch) throws JMSException {
+        checkClosed();
+        session.checkClosed();
+        if (session.isClientAcknowledge()) {
+            session.acknowledge();
+        } else if (session.isIndividualAcknowledge()) {
+            for (MessageDispatch md : batch) {
+                acknowledge(md);
+            }
+        }
+    }
+
     /**
      * @param md
      *      the MessageDispatch that arrived from the Broker.
@@ -928,6 +1004,10 @@ public class ActiveMQMessageConsumer implements MessageAvailableConsumer, StatsC
     }
 
     private void beforeMessageIsConsumed(MessageDispatch md) throws JMSException {
+        if (session.getTransacted()) {
+            // the delivered list must not take messages before an async commit clears it
+            session.getTransactionContext().waitForPendingCommit();
+        }
         md.setDeliverySequenceId(session.getNextDeliveryId());
         lastDeliveredSequenceId = md.getMessage().getMessageId().getBrokerSequenceId();
         if (!isAutoAcknowledgeBatch()) {
@@ -16,7 +16,9 @@
  */
 package org.apache.activemq;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -225,38 +227,59 @@ public class ActiveMQMessageProducer extends ActiveMQMessageProducerSupport impl
     }
 
     /**
+     * Sends a message without waiting for the broker to accept it. The
+     * completion listener is called once the broker has, or with the exception
+     * the send failed with, in the order the messages were sent.
      *
      * @param message the message to send
-     * @param CompletionListener to callback
+     * @param completionListener to callback
      * @throws JMSException if the JMS provider fails to send the message due to
      *                 some internal error.
      * @throws UnsupportedOperationException if an invalid destination is
      *                 specified.
      * @throws InvalidDestinationException if a client uses this method with an
      *                 invalid destination.
+     * @throws IllegalArgumentException if the completion listener is null.
      * @see jakarta.jms.Session#createProducer
      * @since 2.0
      */
     @Override
     public void send(Message message, CompletionListener completionListener) throws JMSException {
-        throw new UnsupportedOperationException("send(Message, CompletionListener) is not supported");
+        this.send(this.getDestination(), message, this.defaultDeliveryMode, this.defaultPriority, this.defaultTimeToLive, completionListener);
     }
 
     @Override
     public void send(Message message, int deliveryMode, int priority, long timeToLive,
                       CompletionListener completionListener) throws JMSException {
-        throw new UnsupportedOperationException("send(Message, deliveryMode, priority, timetoLive, CompletionListener) is not supported");
+        this.send(this.getDestination(), message, deliveryMode, priority, timeToLive, completionListener);
     }
 
     @Override
     public void send(Destination destination, Message message, CompletionListener completionListener) throws JMSException {
-        throw new UnsupportedOperationException("send(Destination, Message, CompletionListener) is not supported");
+        this.send(destination, message, this.defaultDeliveryMode, this.defaultPriority, this.defaultTimeToLive, completionListener);
     }
 
     @Override
     public void send(Destination destination, Message message, int deliveryMode, int priority, long timeToLive,
                      CompletionListener completionListener) throws JMSException {
-        throw new UnsupportedOperationException("send(Destination, Message, deliveryMode, priority, timetoLive, CompletionListener) is not supported");
+        if (completionListener == null) {
+            throw new IllegalArgumentException("CompletionListener must not be null");
+        }
+        this.send(destination, message, deliveryMode, priority, timeToLive, completionCallback(message, completionListener));
+    }
+
+    static AsyncCallback completionCallback(final Message message, final CompletionListener completionListener) {
+        return new AsyncCallback() {
+            @Override
+            public void onSuccess() {
+                completionListener.onCompletion(message);
+            }
+
+            @Override
+            public void onException(JMSException exception) {
+                completionListener.onException(message, exception);
+            }
+        };
     }
 
     public void send(Message message, AsyncCallback onComplete) throws JMSException {
@@ -292,6 +315,61 @@ public class ActiveMQMessageProducer extends ActiveMQMessageProducerSupport impl
     public void send(Destination destination, Message message, int deliveryMode, int priority, long timeToLive, boolean disableMessageID, boolean disableMessageTimestamp, AsyncCallback onComplete) throws JMSException {
 
         checkClosed();
+        ActiveMQDestination dest = getSendDestination(destination);
+        message = transform(message);
+        waitForProducerWindow();
+
+        this.session.send(this, dest, message, deliveryMode, priority, timeToLive, disableMessageID, disableMessageTimestamp, producerWindow, sendTimeout, onComplete);
+
+        stats.onMessage();
+    }
+
+    /**
+     * Sends a batch of messages to the producer's destination with the default delivery
+     * mode, priority and time to live.
+     *
+     * @param messages the messages to send
+     * @throws JMSException if the JMS provider fails to send the messages due to
+     *                 some internal error.
+     * @see #sendBatch(Destination, List, int, int, long)
+     */
+    public void sendBatch(List<? extends Message> messages) throws JMSException {
+        this.sendBatch(this.getDestination(), messages, this.defaultDeliveryMode, this.defaultPriority, this.defaultTimeToLive);
+    }
+
+    /**
+     * Sends a batch of messages to a destination. Outside of a transaction the messages
+     * are pipelined to the broker and this waits for a single response covering all of
+     * them, which the broker only sends once the whole batch has been stored. In a
+     * transacted session the messages are sent as part of the session's transaction.
+     *
+     * @param destination the destination to send the messages to
+     * @param messages the messages to send
+     * @param deliveryMode the delivery mode to use
+     * @param priority the priority for the messages
+     * @param timeToLive the messages' lifetime (in milliseconds)
+     * @throws JMSException if the JMS provider fails to send the messages due to
+     *                 some internal error.
+     */
+    public void sendBatch(Destination destination, List<? extends Message> messages, int deliveryMode, int priority, long timeToLive) throws JMSException {
+        checkClosed();
+        ActiveMQDestination dest = getSendDestination(destination);
+        if (messages.isEmpty()) {
+            return;
+        }
+        List<Message> batch = new ArrayList<Message>(messages.size());
+        for (Message message : messages) {
+            batch.add(transform(message));
+        }
+
+        this.session.sendBatch(this, dest, batch, deliveryMode, priority, timeToLive, producerWindow, sendTimeout);
+
+        for (int i = 0; i < batch.size(); i++) {
+            stats.onMessage();
+        }
+    }
+
+    private ActiveMQDestination getSendDestination(Destination destination) throws JMSException {
         if (destination == null) {
             if (info.getDestination() == null) {
                 throw new UnsupportedOperationException("A destination must be specified.");
@@ -310,14 +388,20 @@ public class ActiveMQMessageProducer extends ActiveMQMessageProducerSupport impl
         if (dest == null) {
             throw new JMSException("No destination specified");
         }
+        return dest;
+    }
 
+    private Message transform(Message message) throws JMSException {
         if (transformer != null) {
             Message transformedMessage = transformer.producerTransform(session, this, message);
             if (transformedMessage != null) {
-                message = transformedMessage;
+                return transformedMessage;
             }
         }
+        return message;
+    }
 
+    void waitForProducerWindow() throws JMSException {
         if (producerWindow != null) {
             try {
                 producerWindow.waitForSpace();
@@ -325,10 +409,6 @@ public class ActiveMQMessageProducer extends ActiveMQMessageProducerSupport impl
                 throw new JMSException("Send aborted due to thread interrupt.");
             }
         }
-
-        this.session.send(this, dest, message, deliveryMode, priority, timeToLive, disableMessageID, disableMessageTimestamp, producerWindow, sendTimeout, onComplete);
-
-        stats.onMessage();
     }
 
     public MessageTransformer getTransformer() {
@@ -53,6 +53,7 @@ public class ActiveMQProducer implements JMSProducer {
     private Destination replyTo = null;
     private Long timeToLive = null;
     private String type = null;
+    private CompletionListener completionListener = null;
 
     // Properties applied to all messages on a per-JMS producer instance basis
     private Map<String, Object> messageProperties = null;
@@ -87,7 +88,11 @@ public class ActiveMQProducer implements JMSProducer {
                 }
             }
 
-            activemqMessageProducer.send(destination, message, getDeliveryMode(), getPriority(), getTimeToLive(), getDisableMessageID(), getDisableMessageTimestamp(), null);
+            AsyncCallback onComplete = null;
+            if (completionListener != null) {
+                onComplete = ActiveMQMessageProducer.completionCallback(message, completionListener);
+            }
+            activemqMessageProducer.send(destination, message, getDeliveryMode(), getPriority(), getTimeToLive(), getDisableMessageID(), getDisableMessageTimestamp(), onComplete);
         } catch (JMSException e) {
             throw JMSExceptionSupport.convertToJMSRuntimeException(e);
         }
@@ -253,12 +258,13 @@ public class ActiveMQProducer implements JMSProducer {
 
     @Override
     public JMSProducer setAsync(CompletionListener completionListener) {
-        throw new UnsupportedOperationException("setAsync(CompletionListener) is not supported");
+        this.completionListener = completionListener;
+        return this;
     }
 
     @Override
     public CompletionListener getAsync() {
-        throw new UnsupportedOperationException("getAsync() is not supported");
+        return completionListener;
     }
 
     @Override
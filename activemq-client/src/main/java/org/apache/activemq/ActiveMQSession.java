@@ -25,6 +25,7 @@ import java.net.URL;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -76,7 +77,9 @@ import org.apache.activemq.command.ActiveMQTextMessage;
 import org.apache.activemq.command.ActiveMQTopic;
 import org.apache.activemq.command.Command;
 import org.apache.activemq.command.CommandTypes;
+import org.apache.activemq.command.ConnectionId;
 import org.apache.activemq.command.ConsumerId;
+import org.apache.activemq.command.LocalTransactionId;
 import org.apache.activemq.command.MessageAck;
 import org.apache.activemq.command.MessageDispatch;
 import org.apache.activemq.command.MessageId;
@@ -86,6 +89,7 @@ import org.apache.activemq.command.Response;
 import org.apache.activemq.command.SessionId;
 import org.apache.activemq.command.SessionInfo;
 import org.apache.activemq.command.TransactionId;
+import org.apache.activemq.command.TransactionInfo;
 import org.apache.activemq.management.JMSSessionStatsImpl;
 import org.apache.activemq.management.StatsCapable;
 import org.apache.activemq.management.StatsImpl;
@@ -585,6 +589,31 @@ public class ActiveMQSession implements Session, QueueSession, TopicSession, Sta
         transactionContext.commit();
     }
 
+    /**
+     * Commits all messages done in this transaction without waiting for the
+     * broker to complete the commit. Work on the session's next transaction
+     * waits for the commit to complete, so a session should not consume
+     * messages on the thread that reads from the transport (alwaysSessionAsync
+     * set to false) while a commit is outstanding.
+     *
+     * @return a stage completed once the broker has committed the transaction,
+     *         or exceptionally with the JMSException the commit failed with
+     * @throws JMSException if the JMS provider fails to send the commit due to
+     *                 some internal error.
+     * @throws jakarta.jms.IllegalStateException if the method is not called by a
+     *                 transacted session.
+     */
+    public CompletionStage<Void> commitAsync() throws JMSException {
+        checkClosed();
+        if (!getTransacted()) {
+            throw new jakarta.jms.IllegalStateException("Not a transacted session");
+        }
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(getSessionId() + " Transaction Commit Async :" + transactionContext.getTransactionId());
+        }
+        return transactionContext.commitAsync();
+    }
+
     /**
      * Rolls back any messages done in this transaction and releases any locks
      * currently held.
@@ -1975,53 +2004,7 @@ public class ActiveMQSession implements Session, QueueSession, TopicSession, Sta
                 throw new IllegalStateException("transaction marked rollback only");
             }
             TransactionId txid = transactionContext.getTransactionId();
-            long sequenceNumber = producer.getMessageSequence();
-
-            //Set the "JMS" header fields on the original message, see 1.1 spec section 3.4.11
-            message.setJMSDeliveryMode(deliveryMode);
-            long expiration = 0L;
-            long timeStamp = System.currentTimeMillis();
-            if (timeToLive > 0) {
-                expiration = timeToLive + timeStamp;
-            }
-
-            // TODO: AMQ-8500 - update this when openwire supports JMSDeliveryTime
-            // ref: ActiveMQMessageTransformation#copyProperties
-            if(!(message instanceof ActiveMQMessage)) {
-                setForeignMessageDeliveryTime(message, timeStamp);
-            } else {
-                message.setJMSDeliveryTime(timeStamp);
-            }
-            if (!disableMessageTimestamp && !producer.getDisableMessageTimestamp()) {
-                message.setJMSTimestamp(timeStamp);
-            } else {
-                message.setJMSTimestamp(0l);
-            }
-            message.setJMSExpiration(expiration);
-            message.setJMSPriority(priority);
-            message.setJMSRedelivered(false);
-
-            // transform to our own message format here
-            ActiveMQMessage msg = ActiveMQMessageTransformation.transformMessage(message, connection);
-            msg.setDestination(destination);
-            msg.setMessageId(new MessageId(producer.getProducerInfo().getProducerId(), sequenceNumber));
-
-            // Set the message id.
-            if (msg != message) {
-                message.setJMSMessageID(msg.getMessageId().toString());
-                // Make sure the JMS destination is set on the foreign messages too.
-                message.setJMSDestination(destination);
-            }
-            //clear the brokerPath in case we are re-sending this message
-            msg.setBrokerPath(null);
-
-            msg.setTransactionId(txid);
-            if (connection.isCopyMessageOnSend()) {
-                msg = (ActiveMQMessage)msg.copy();
-            }
-            msg.setConnection(connection);
-            msg.onSend();
-            msg.setProducerId(msg.getMessageId().getProducerId());
+            ActiveMQMessage msg = prepareMessage(producer, destination, message, deliveryMode, priority, timeToLive, disableMessageTimestamp, txid);
             if (LOG.isTraceEnabled()) {
                 LOG.trace(getSessionId() + " sending message: " + msg);
             }
@@ -2049,6 +2032,136 @@ public class ActiveMQSession implements Session, QueueSession, TopicSession, Sta
         }
     }
 
+    /**
+     * Sends a batch of messages for dispatch by the broker. Outside of a transaction the
+     * messages are sent without waiting, in a local transaction of their own, and the
+     * batch completes with the single round trip that commits it, so the broker adds
+     * all of them to the store together or not at all. In a transacted session they
+     * are sent as part of the session's transaction. When the producer has a window
+     * every message waits for room in it, as a single send would.
+     *
+     * @param producer - message producer.
+     * @param destination - message destination.
+     * @param messages - messages to be sent.
+     * @param deliveryMode - JMS message delivery mode.
+     * @param priority - message priority.
+     * @param timeToLive - message expiration.
+     * @param producerWindow
+     * @param sendTimeout - how long to wait for the commit, or 0 to wait indefinitely.
+     * @throws JMSException
+     */
+    protected void sendBatch(ActiveMQMessageProducer producer, ActiveMQDestination destination, List<? extends Message> messages, int deliveryMode, int priority,
+                             long timeToLive, MemoryUsage producerWindow, int sendTimeout) throws JMSException {
+
+        checkClosed();
+        if (destination.isTemporary() && connection.isDeleted(destination)) {
+            throw new InvalidDestinationException("Cannot publish to a deleted Destination: " + destination);
+        }
+        // the window is waited for outside of the send mutex, as a single send does, so
+        // other producers of the session are not held up while this one is blocked
+        if (getTransacted() || transactionContext.isInXATransaction()) {
+            for (Message message : messages) {
+                producer.waitForProducerWindow();
+                send(producer, destination, message, deliveryMode, priority, timeToLive, producerWindow, 0, null);
+            }
+            return;
+        }
+
+        ConnectionId connectionId = connection.getConnectionInfo().getConnectionId();
+        LocalTransactionId txid = new LocalTransactionId(connectionId, connection.getLocalTransactionIdGenerator().getNextSequenceId());
+        connection.ensureConnectionInfoSent();
+        connection.asyncSendPacket(new TransactionInfo(connectionId, txid, TransactionInfo.BEGIN));
+        boolean commitSent = false;
+        try {
+            for (Message message : messages) {
+                // the window is checked for every message so a large batch cannot overshoot it
+                producer.waitForProducerWindow();
+                synchronized (sendMutex) {
+                    ActiveMQMessage msg = prepareMessage(producer, destination, message, deliveryMode, priority, timeToLive, producer.getDisableMessageTimestamp(), txid);
+                    if (LOG.isTraceEnabled()) {
+                        LOG.trace(getSessionId() + " sending message: " + msg);
+                    }
+                    this.connection.asyncSendPacket(msg);
+                    if (producerWindow != null) {
+                        producerWindow.increaseUsage(msg.getSize());
+                    }
+                }
+            }
+            TransactionInfo commit = new TransactionInfo(connectionId, txid, TransactionInfo.COMMIT_ONE_PHASE);
+            commitSent = true;
+            synchronized (sendMutex) {
+                if (sendTimeout > 0) {
+                    this.connection.syncSendPacket(commit, sendTimeout);
+                } else {
+                    this.connection.syncSendPacket(commit);
+                }
+            }
+        } finally {
+            if (!commitSent) {
+                try {
+                    connection.asyncSendPacket(new TransactionInfo(connectionId, txid, TransactionInfo.ROLLBACK));
+                } catch (JMSException e) {
+                    LOG.debug("Failed to roll back batch {}", txid, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets the JMS header fields on the message and returns the copy of it to send.
+     */
+    private ActiveMQMessage prepareMessage(ActiveMQMessageProducer producer, ActiveMQDestination destination, Message message, int deliveryMode, int priority,
+                                           long timeToLive, boolean disableMessageTimestamp, TransactionId txid) throws JMSException {
+        long sequenceNumber = producer.getMessageSequence();
+
+        //Set the "JMS" header fields on the original message, see 1.1 spec section 3.4.11
+        message.setJMSDeliveryMode(deliveryMode);
+        long expiration = 0L;
+        long timeStamp = System.currentTimeMillis();
+        if (timeToLive > 0) {
+            expiration = timeToLive + timeStamp;
+        }
+
+        // TODO: AMQ-8500 - update this when openwire supports JMSDeliveryTime
+        // ref: ActiveMQMessageTransformation#copyProperties
+        if(!(message instanceof ActiveMQMessage)) {
+            setForeignMessageDeliveryTime(message, timeStamp);
+        } else {
+            message.setJMSDeliveryTime(timeStamp);
+        }
+        if (!disableMessageTimestamp && !producer.getDisableMessageTimestamp()) {
+            message.setJMSTimestamp(timeStamp);
+        } else {
+            message.setJMSTimestamp(0l);
+        }
+        message.setJMSExpiration(expiration);
+        message.setJMSPriority(priority);
+        message.setJMSRedelivered(false);
+
+        // transform to our own message format here
+        ActiveMQMessage msg = ActiveMQMessageTransformation.transformMessage(message, connection);
+        msg.setDestination(destination);
+        msg.setMessageId(new MessageId(producer.getProducerInfo().getProducerId(), sequenceNumber));
+
+        // Set the message id.
+        if (msg != message) {
+            message.setJMSMessageID(msg.getMessageId().toString());
+            // Make sure the JMS destination is set on the foreign messages too.
+            message.setJMSDestination(destination);
+        }
+        //clear the brokerPath in case we are re-sending this message
+        msg.setBrokerPath(null);
+
+        msg.setTransactionId(txid);
+        if (connection.isCopyMessageOnSend()) {
+            msg = (ActiveMQMessage)msg.copy();
+        }
+        msg.setConnection(connection);
+        msg.onSend();
+        msg.setProducerId(msg.getMessageId().getProducerId());
+        return msg;
+    }
+
     /**
      * Send TransactionInfo to indicate transaction has started
      *
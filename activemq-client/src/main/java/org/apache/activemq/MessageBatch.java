@@ -0,0 +1,79 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+
+import org.apache.activemq.command.MessageDispatch;
+
+/**
+ * The messages taken by one call to
+ * {@link ActiveMQMessageConsumer#receiveBatch(int, long)}, in the order they
+ * were delivered.
+ */
+public class MessageBatch implements Iterable<Message> {
+
+    private final ActiveMQMessageConsumer consumer;
+    private final List<Message> messages;
+    private final List<MessageDispatch> dispatches;
+
+    MessageBatch(ActiveMQMessageConsumer consumer, List<Message> messages, List<MessageDispatch> dispatches) {
+        this.consumer = consumer;
+        this.messages = Collections.unmodifiableList(messages);
+        this.dispatches = dispatches;
+    }
+
+    public List<Message> getMessages() {
+        return messages;
+    }
+
+    public int size() {
+        return messages.size();
+    }
+
+    public boolean isEmpty() {
+        return messages.isEmpty();
+    }
+
+    @Override
+    public Iterator<Message> iterator() {
+        return messages.iterator();
+    }
+
+    /**
+     * Acknowledges the messages in the batch. With CLIENT_ACKNOWLEDGE this is a
+     * single ack for everything the consumer has delivered so far, as for
+     * {@link Message#acknowledge()}. With INDIVIDUAL_ACKNOWLEDGE each message of
+     * the batch is acknowledged. In other modes the messages are acknowledged on
+     * receipt or by the transaction and this does nothing.
+     *
+     * @throws JMSException if the messages could not be acknowledged
+     */
+    public void acknowledge() throws JMSException {
+        consumer.acknowledge(dispatches);
+    }
+
+    @Override
+    public String toString() {
+        return "MessageBatch {size = " + messages.size() + "}";
+    }
+}
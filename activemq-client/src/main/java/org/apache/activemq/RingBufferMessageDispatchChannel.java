@@ -0,0 +1,384 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.activemq.command.MessageDispatch;
+
+/**
+ * A {@link MessageDispatchChannel} that hands messages from the thread dispatching
+ * them to the thread receiving them through a lock free ring buffer sized to the
+ * prefetch, parking the receiver rather than waiting on a monitor. Receiving a
+ * message takes no lock, so the dispatching thread, which enqueues while holding
+ * {@link #getMutex()}, does not contend with it.
+ * <p>
+ * Messages enqueued while the ring is full, and those enqueued first for
+ * redelivery, are kept in lists guarded by the mutex and taken in order.
+ */
+public class RingBufferMessageDispatchChannel implements MessageDispatchChannel {
+
+    private static final int MIN_CAPACITY = 16;
+    // past this the overflow list takes the rest of a large prefetch
+    private static final int MAX_CAPACITY = 1 << 14;
+    // stands in for the null dispatch a pull consumer enqueues at the end of a pull
+    private static final MessageDispatch NULL_DISPATCH = new MessageDispatch();
+
+    private final Object mutex = new Object();
+    private final Ring[] rings;
+    private final ArrayDeque<MessageDispatch> first = new ArrayDeque<MessageDispatch>();
+    private volatile int firstSize;
+    private final Queue<Thread> waiters = new ConcurrentLinkedQueue<Thread>();
+    private volatile boolean closed;
+    private volatile boolean running;
+
+    public RingBufferMessageDispatchChannel(int capacity) {
+        this(capacity, 1);
+    }
+
+    protected RingBufferMessageDispatchChannel(int capacity, int levels) {
+        int size = MIN_CAPACITY;
+        while (size < capacity && size < MAX_CAPACITY) {
+            size <<= 1;
+        }
+        rings = new Ring[levels];
+        for (int i = 0; i < levels; i++) {
+            rings[i] = new Ring(size);
+        }
+    }
+
+    /**
+     * @return the ring the message goes to, later rings are taken from first
+     */
+    protected int getLevel(MessageDispatch message) {
+        return 0;
+    }
+
+    @Override
+    public void enqueue(MessageDispatch message) {
+        MessageDispatch element = message != null ? message : NULL_DISPATCH;
+        synchronized (mutex) {
+            rings[message != null ? getLevel(message) : 0].add(element);
+        }
+        wakeup();
+    }
+
+    @Override
+    public void enqueueFirst(MessageDispatch message) {
+        synchronized (mutex) {
+            first.addFirst(message != null ? message : NULL_DISPATCH);
+            firstSize = first.size();
+        }
+        wakeup();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public MessageDispatch dequeue(long timeout) throws InterruptedException {
+        long deadline = timeout > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout) : 0;
+        while (timeout != 0 && !closed && (!running || isEmpty())) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            Thread current = Thread.currentThread();
+            waiters.add(current);
+            try {
+                // checked again now that an enqueue will unpark this thread
+                if (closed || (running && !isEmpty())) {
+                    break;
+                }
+                if (timeout == -1) {
+                    LockSupport.park(this);
+                } else {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    LockSupport.parkNanos(this, remaining);
+                }
+            } finally {
+                waiters.remove(current);
+            }
+            if (timeout > 0 && deadline - System.nanoTime() <= 0) {
+                break;
+            }
+        }
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        return dequeueNoWait();
+    }
+
+    @Override
+    public MessageDispatch dequeueNoWait() {
+        if (closed || !running) {
+            return null;
+        }
+        return unwrap(poll());
+    }
+
+    @Override
+    public MessageDispatch peek() {
+        if (closed || !running) {
+            return null;
+        }
+        if (firstSize > 0) {
+            synchronized (mutex) {
+                if (!first.isEmpty()) {
+                    return unwrap(first.peekFirst());
+                }
+            }
+        }
+        for (int i = rings.length - 1; i >= 0; i--) {
+            MessageDispatch element = rings[i].peek();
+            if (element != null) {
+                return unwrap(element);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        signalAll();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        signalAll();
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            running = false;
+            closed = true;
+        }
+        signalAll();
+    }
+
+    @Override
+    public void clear() {
+        synchronized (mutex) {
+            drain(null);
+        }
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public int size() {
+        int size = firstSize;
+        for (Ring ring : rings) {
+            size += ring.size();
+        }
+        return size;
+    }
+
+    @Override
+    public Object getMutex() {
+        return mutex;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public List<MessageDispatch> removeAll() {
+        synchronized (mutex) {
+            List<MessageDispatch> rc = new ArrayList<MessageDispatch>(size());
+            drain(rc);
+            return rc;
+        }
+    }
+
+    @Override
+    public String toString() {
+        synchronized (mutex) {
+            List<MessageDispatch> rc = new ArrayList<MessageDispatch>(first);
+            for (int i = rings.length - 1; i >= 0; i--) {
+                rings[i].copyTo(rc);
+            }
+            return rc.toString();
+        }
+    }
+
+    private MessageDispatch poll() {
+        if (firstSize > 0) {
+            synchronized (mutex) {
+                MessageDispatch element = first.pollFirst();
+                firstSize = first.size();
+                if (element != null) {
+                    return element;
+                }
+            }
+        }
+        for (int i = rings.length - 1; i >= 0; i--) {
+            MessageDispatch element = rings[i].poll();
+            if (element != null) {
+                return element;
+            }
+        }
+        return null;
+    }
+
+    private void drain(List<MessageDispatch> into) {
+        MessageDispatch element;
+        while ((element = poll()) != null) {
+            if (into != null) {
+                into.add(unwrap(element));
+            }
+        }
+    }
+
+    private static MessageDispatch unwrap(MessageDispatch element) {
+        return element == NULL_DISPATCH ? null : element;
+    }
+
+    private void wakeup() {
+        if (!waiters.isEmpty()) {
+            for (Thread waiter : waiters) {
+                LockSupport.unpark(waiter);
+            }
+        }
+    }
+
+    private void signalAll() {
+        wakeup();
+        // for anyone waiting on the mutex for the channel to start or close
+        synchronized (mutex) {
+            mutex.notifyAll();
+        }
+    }
+
+    /**
+     * A ring with one producer, which holds the mutex, and any number of consumers.
+     * A consumer claims a slot by moving the head past it and only then clears it,
+     * and the producer only fills a cleared slot. Once the ring fills, messages go to
+     * an overflow list until it has been emptied so they keep their order.
+     */
+    private final class Ring {
+        private final AtomicReferenceArray<MessageDispatch> slots;
+        private final int mask;
+        private final AtomicLong head = new AtomicLong();
+        private final AtomicLong tail = new AtomicLong();
+        private final ArrayDeque<MessageDispatch> overflow = new ArrayDeque<MessageDispatch>();
+        private volatile int overflowSize;
+
+        Ring(int capacity) {
+            slots = new AtomicReferenceArray<MessageDispatch>(capacity);
+            mask = capacity - 1;
+        }
+
+        // called holding the mutex
+        void add(MessageDispatch element) {
+            if (overflowSize == 0) {
+                long t = tail.get();
+                int index = (int) t & mask;
+                if (slots.get(index) == null) {
+                    slots.set(index, element);
+                    tail.set(t + 1);
+                    return;
+                }
+            }
+            overflow.addLast(element);
+            overflowSize = overflow.size();
+        }
+
+        MessageDispatch poll() {
+            MessageDispatch element = pollRing();
+            if (element == null && overflowSize > 0) {
+                synchronized (mutex) {
+                    // nothing is added to the ring while the overflow holds messages
+                    element = pollRing();
+                    if (element == null) {
+                        element = overflow.pollFirst();
+                        overflowSize = overflow.size();
+                    }
+                }
+            }
+            return element;
+        }
+
+        private MessageDispatch pollRing() {
+            while (true) {
+                long h = head.get();
+                if (h >= tail.get()) {
+                    return null;
+                }
+                int index = (int) h & mask;
+                MessageDispatch element = slots.get(index);
+                if (element != null && head.compareAndSet(h, h + 1)) {
+                    slots.set(index, null);
+                    return element;
+                }
+            }
+        }
+
+        MessageDispatch peek() {
+            long h = head.get();
+            if (h < tail.get()) {
+                MessageDispatch element = slots.get((int) h & mask);
+                if (element != null) {
+                    return element;
+                }
+            }
+            if (overflowSize > 0) {
+                synchronized (mutex) {
+                    return overflow.peekFirst();
+                }
+            }
+            return null;
+        }
+
+        int size() {
+            return (int) Math.max(0, tail.get() - head.get()) + overflowSize;
+        }
+
+        // called holding the mutex
+        void copyTo(List<MessageDispatch> rc) {
+            for (long i = head.get(); i < tail.get(); i++) {
+                MessageDispatch element = slots.get((int) i & mask);
+                if (element != null) {
+                    rc.add(unwrap(element));
+                }
+            }
+            for (MessageDispatch element : overflow) {
+                rc.add(unwrap(element));
+            }
+        }
+    }
+}
@@ -20,6 +20,10 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
 
 import jakarta.jms.JMSException;
 import jakarta.jms.TransactionInProgressException;
@@ -33,6 +37,7 @@ import org.apache.activemq.command.DataArrayResponse;
 import org.apache.activemq.command.DataStructure;
 import org.apache.activemq.command.IntegerResponse;
 import org.apache.activemq.command.LocalTransactionId;
+import org.apache.activemq.command.Response;
 import org.apache.activemq.command.TransactionId;
 import org.apache.activemq.command.TransactionInfo;
 import org.apache.activemq.command.XATransactionId;
@@ -73,6 +78,8 @@ public class TransactionContext implements XAResource {
     private ActiveMQConnection connection;
     private final LongSequenceGenerator localTransactionIdGenerator;
     private List<Synchronization> synchronizations;
+    // the commit sent by commitAsync() that the broker has yet to answer
+    private volatile CompletableFuture<Void> pendingCommit;
 
     // To track XA transactions.
     private Xid associatedXid;
@@ -237,6 +244,7 @@ public class TransactionContext implements XAResource {
             throw new TransactionInProgressException("Cannot start local transaction.  XA transaction is already in progress.");
         }
 
+        waitForPendingCommit();
         if (transactionId == null) {
             synchronizations = null;
             beforeEndIndex = 0;
@@ -265,6 +273,7 @@ public class TransactionContext implements XAResource {
      *                 transacted session.
      */
     public void rollback() throws JMSException {
+        waitForPendingCommit();
         if (isInXATransaction()) {
             throw new TransactionInProgressException("Cannot rollback() if an XA transaction is already in progress ");
         }
@@ -301,6 +310,105 @@ public class TransactionContext implements XAResource {
      *                 transacted session.
      */
     public void commit() throws JMSException {
+        TransactionInfo info = startCommit("Commit");
+        if (info != null) {
+            // Notify the listener that the tx was committed back
+            try {
+                this.connection.syncSendPacket(info);
+                if (localTransactionEventListener != null) {
+                    localTransactionEventListener.commitEvent();
+                }
+                afterCommit();
+            } catch (JMSException cause) {
+                LOG.info("commit failed for transaction {}", info.getTransactionId(), cause);
+                if (localTransactionEventListener != null) {
+                    localTransactionEventListener.rollbackEvent();
+                }
+                afterRollback();
+                throw cause;
+            }
+        }
+    }
+
+    /**
+     * Commits the work done in this transaction like {@link #commit()}, but
+     * without waiting for the broker to complete the commit. The returned stage
+     * completes once it has, or completes exceptionally with the JMSException
+     * the commit failed with, after the transaction's synchronizations have run
+     * on the connection's executor.
+     * <p>
+     * Work on the next transaction waits for the commit to complete, so only the
+     * caller is freed to do other work in the meantime.
+     *
+     * @throws JMSException if the commit could not be sent
+     */
+    public CompletionStage<Void> commitAsync() throws JMSException {
+        final TransactionInfo info = startCommit("Commit async");
+        if (info == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        final CompletableFuture<Void> result = new CompletableFuture<Void>();
+        pendingCommit = result;
+        CompletionStage<Response> response;
+        try {
+            response = this.connection.asyncRequest(info);
+        } catch (JMSException cause) {
+            pendingCommit = null;
+            LOG.info("commit failed for transaction {}", info.getTransactionId(), cause);
+            if (localTransactionEventListener != null) {
+                localTransactionEventListener.rollbackEvent();
+            }
+            afterRollback();
+            throw cause;
+        }
+        response.whenComplete((ignored, error) -> {
+            Runnable completion = () -> {
+                Throwable failure = error;
+                try {
+                    if (failure == null) {
+                        try {
+                            if (localTransactionEventListener != null) {
+                                localTransactionEventListener.commitEvent();
+                            }
+                            afterCommit();
+                        } catch (JMSException cause) {
+                            failure = cause;
+                        }
+                    }
+                    if (failure != null) {
+                        LOG.info("commit failed for transaction {}", info.getTransactionId(), failure);
+                        if (localTransactionEventListener != null) {
+                            localTransactionEventListener.rollbackEvent();
+                        }
+                        afterRollback();
+                    }
+                } catch (Throwable e) {
+                    LOG.debug("Exception completing commit of {}", info.getTransactionId(), e);
+                } finally {
+                    pendingCommit = null;
+                    if (failure == null) {
+                        result.complete(null);
+                    } else {
+                        result.completeExceptionally(failure);
+                    }
+                }
+            };
+            try {
+                this.connection.getExecutor().execute(completion);
+            } catch (RejectedExecutionException closing) {
+                completion.run();
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Runs the transaction's beforeEnd synchronizations and ends it.
+     *
+     * @return the command that commits the transaction, or null if none was started
+     */
+    private TransactionInfo startCommit(String what) throws JMSException {
+        waitForPendingCommit();
         if (isInXATransaction()) {
             throw new TransactionInProgressException("Cannot commit() if an XA transaction is already in progress ");
         }
@@ -323,28 +431,32 @@ public class TransactionContext implements XAResource {
         }
 
         // Only send commit if the transaction was started.
-        if (transactionId != null) {
-            LOG.debug("Commit: {} syncCount: {}",
-                transactionId, (synchronizations != null ? synchronizations.size() : 0));
+        if (transactionId == null) {
+            return null;
+        }
+        LOG.debug("{}: {} syncCount: {}",
+            what, transactionId, (synchronizations != null ? synchronizations.size() : 0));
 
-            TransactionInfo info = new TransactionInfo(getConnectionId(), transactionId, TransactionInfo.COMMIT_ONE_PHASE);
-            this.transactionId = null;
-            // Notify the listener that the tx was committed back
+        TransactionInfo info = new TransactionInfo(getConnectionId(), transactionId, TransactionInfo.COMMIT_ONE_PHASE);
+        this.transactionId = null;
+        return info;
+    }
+
+    /**
+     * Waits for a commit sent by {@link #commitAsync()} to complete, whatever its
+     * outcome, so the next transaction does not overlap it.
+     */
+    void waitForPendingCommit() throws JMSException {
+        CompletableFuture<Void> commit = pendingCommit;
+        if (commit != null) {
             try {
-                this.connection.syncSendPacket(info);
-                if (localTransactionEventListener != null) {
-                    localTransactionEventListener.commitEvent();
-                }
-                afterCommit();
-            } catch (JMSException cause) {
-                LOG.info("commit failed for transaction {}", info.getTransactionId(), cause);
-                if (localTransactionEventListener != null) {
-                    localTransactionEventListener.rollbackEvent();
-                }
-                afterRollback();
-                throw cause;
+                commit.get();
+            } catch (ExecutionException failed) {
+                // reported to whoever committed
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw JMSExceptionSupport.create(e);
             }
-
         }
     }
 
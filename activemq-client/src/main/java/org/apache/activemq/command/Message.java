@@ -98,6 +98,8 @@ public abstract class Message extends BaseCommand implements MarshallAware, Mess
     transient MessageDestination regionDestination;
     transient MemoryUsage memoryUsage;
     transient AtomicBoolean processAsExpired = new AtomicBoolean(false);
+    private transient boolean marshalledFormShared;
+    private transient volatile CachedMarshalledForm cachedMarshalledForm;
 
     private BrokerId[] brokerPath;
     private BrokerId[] cluster;
@@ -107,6 +109,27 @@ public abstract class Message extends BaseCommand implements MarshallAware, Mess
         MemoryUsage getMemoryUsage();
     }
 
+    private static final class CachedMarshalledForm {
+        final int version;
+        final int redeliveryCounter;
+        final ByteSequence data;
+        // the usage the bytes are charged to, null if they are not accounted for
+        final MemoryUsage chargedTo;
+
+        CachedMarshalledForm(int version, int redeliveryCounter, ByteSequence data, MemoryUsage chargedTo) {
+            this.version = version;
+            this.redeliveryCounter = redeliveryCounter;
+            this.data = data;
+            this.chargedTo = chargedTo;
+        }
+
+        void release() {
+            if (chargedTo != null) {
+                chargedTo.decreaseUsage(data.getLength());
+            }
+        }
+    }
+
     public abstract Message copy();
     public abstract void clearBody() throws JMSException;
     public abstract void storeContent();
@@ -671,6 +694,62 @@ public abstract class Message extends BaseCommand implements MarshallAware, Mess
         return true;
     }
 
+    /**
+     * @return true if the message is dispatched to many consumers and its encoding
+     *         may be cached and shared between their connections
+     */
+    public boolean isMarshalledFormShared() {
+        return marshalledFormShared;
+    }
+
+    /**
+     * Marks a message that is dispatched to many consumers, so that a wire format
+     * which shares encodings between connections caches its encoding. Copies are
+     * not marked.
+     */
+    public void setMarshalledFormShared(boolean marshalledFormShared) {
+        this.marshalledFormShared = marshalledFormShared;
+        if (!marshalledFormShared) {
+            setCachedMarshalledForm(null, null);
+        }
+    }
+
+    /**
+     * @return the encoding cached for the version of the wire format, or null if
+     *         there is none or the redelivery counter has changed since
+     */
+    public ByteSequence getCachedMarshalledForm(WireFormat wireFormat) {
+        CachedMarshalledForm cached = cachedMarshalledForm;
+        if (cached != null && cached.version == wireFormat.getVersion() && cached.redeliveryCounter == redeliveryCounter) {
+            return cached.data;
+        }
+        return null;
+    }
+
+    /**
+     * Caches the encoding of the message. When the message has a memory usage the
+     * cached bytes are charged to it and are only kept while the message is
+     * referenced, they are released with the last reference.
+     */
+    public void setCachedMarshalledForm(WireFormat wireFormat, ByteSequence data) {
+        MemoryUsage usage = getMemoryUsage();
+        CachedMarshalledForm previous;
+        CachedMarshalledForm cached = null;
+        synchronized (this) {
+            if (data != null && (usage == null || referenceCount > 0)) {
+                cached = new CachedMarshalledForm(wireFormat.getVersion(), redeliveryCounter, data, usage);
+            }
+            previous = cachedMarshalledForm;
+            cachedMarshalledForm = cached;
+        }
+        if (cached != null && usage != null) {
+            usage.increaseUsage(data.getLength());
+        }
+        if (previous != null) {
+            previous.release();
+        }
+    }
+
     @Override
 	public int incrementReferenceCount() {
         int rc;
@@ -694,9 +773,17 @@ public abstract class Message extends BaseCommand implements MarshallAware, Mess
 	public int decrementReferenceCount() {
         int rc;
         int size;
+        CachedMarshalledForm cached = null;
         synchronized (this) {
             rc = --referenceCount;
             size = getSize();
+            if (rc == 0) {
+                cached = cachedMarshalledForm;
+                cachedMarshalledForm = null;
+            }
+        }
+        if (cached != null) {
+            cached.release();
         }
 
         if (rc == 0 && getMemoryUsage() != null) {
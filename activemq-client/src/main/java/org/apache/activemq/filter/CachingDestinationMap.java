@@ -0,0 +1,158 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.filter;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.activemq.command.ActiveMQDestination;
+
+/**
+ * A {@link DestinationMap} that remembers the values found for each destination
+ * looked up, so repeated lookups of the same destination, such as the wildcard a
+ * virtual topic forwards to on every send, cost one hash lookup rather than a walk
+ * of the index. Adding or removing a value only forgets the lookups whose
+ * destinations overlap the one changed.
+ * <p>
+ * The sets returned are shared between callers and can not be modified.
+ */
+public class CachingDestinationMap extends DestinationMap {
+
+    public static final int DEFAULT_MAX_CACHE_SIZE = 10000;
+
+    @SuppressWarnings("rawtypes")
+    private final Map<ActiveMQDestination, Set> cache = new ConcurrentHashMap<ActiveMQDestination, Set>();
+    private final Object invalidationLock = new Object();
+    private final int maxCacheSize;
+    // bumped on every change so a lookup racing with one does not cache what it found
+    private volatile long version;
+
+    public CachingDestinationMap() {
+        this(DEFAULT_MAX_CACHE_SIZE);
+    }
+
+    public CachingDestinationMap(int maxCacheSize) {
+        this.maxCacheSize = maxCacheSize;
+    }
+
+    @Override
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public Set unsynchronizedGet(ActiveMQDestination key) {
+        Set answer = cache.get(key);
+        if (answer == null) {
+            long expected = version;
+            answer = Collections.unmodifiableSet(super.unsynchronizedGet(key));
+            synchronized (invalidationLock) {
+                if (version == expected) {
+                    if (cache.size() >= maxCacheSize) {
+                        cache.clear();
+                    }
+                    cache.put(key, answer);
+                }
+            }
+        }
+        return answer;
+    }
+
+    @Override
+    public void unsynchronizedPut(ActiveMQDestination key, Object value) {
+        super.unsynchronizedPut(key, value);
+        invalidate(key);
+    }
+
+    @Override
+    public void unsynchronizedRemove(ActiveMQDestination key, Object value) {
+        super.unsynchronizedRemove(key, value);
+        invalidate(key);
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public Set removeAll(ActiveMQDestination key) {
+        Set answer = super.removeAll(key);
+        invalidate(key);
+        return answer;
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        synchronized (invalidationLock) {
+            version++;
+            cache.clear();
+        }
+    }
+
+    /**
+     * @return the number of lookups currently remembered
+     */
+    public int getCacheSize() {
+        return cache.size();
+    }
+
+    private void invalidate(ActiveMQDestination changed) {
+        synchronized (invalidationLock) {
+            version++;
+            for (Iterator<ActiveMQDestination> iter = cache.keySet().iterator(); iter.hasNext();) {
+                if (overlaps(iter.next(), changed)) {
+                    iter.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true unless no destination could be matched by both, erring on the side
+     *         of true for descendant wildcards
+     */
+    static boolean overlaps(ActiveMQDestination a, ActiveMQDestination b) {
+        if (a.isComposite()) {
+            for (ActiveMQDestination child : a.getCompositeDestinations()) {
+                if (overlaps(child, b)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (b.isComposite()) {
+            return overlaps(b, a);
+        }
+        if (a.isTemporary() != b.isTemporary() || a.isQueue() != b.isQueue()) {
+            return false;
+        }
+        return overlaps(a.getDestinationPaths(), 0, b.getDestinationPaths(), 0);
+    }
+
+    private static boolean overlaps(String[] a, int i, String[] b, int j) {
+        while (true) {
+            if (i < a.length && ANY_DESCENDENT.equals(a[i]) || j < b.length && ANY_DESCENDENT.equals(b[j])) {
+                return true;
+            }
+            if (i == a.length || j == b.length) {
+                return i == a.length && j == b.length;
+            }
+            if (!ANY_CHILD.equals(a[i]) && !ANY_CHILD.equals(b[j]) && !a[i].equals(b[j])) {
+                return false;
+            }
+            i++;
+            j++;
+        }
+    }
+}
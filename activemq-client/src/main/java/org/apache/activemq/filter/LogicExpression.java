@@ -143,7 +143,7 @@ public abstract class LogicExpression implements BooleanExpression {
         }
     }
 
-    private static class ANDExpression extends LogicExpression {
+    static class ANDExpression extends LogicExpression {
 
         public ANDExpression(BooleanExpression lvalue, BooleanExpression rvalue) {
             super(lvalue, rvalue);
@@ -0,0 +1,134 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.filter;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import jakarta.jms.JMSException;
+
+/**
+ * A <code>property = 'value'</code> or <code>property IN ('value', ...)</code> condition
+ * that every message matching a selector has to meet. It lets the broker group consumers by
+ * the property values their selectors accept instead of evaluating every selector.
+ */
+public final class PropertyEqualityTerm {
+
+    private final PropertyExpression property;
+    private final Set<String> values;
+
+    private PropertyEqualityTerm(PropertyExpression property, Set<String> values) {
+        this.property = property;
+        this.values = values;
+    }
+
+    /**
+     * Finds a term that a message has to meet to match the selector. Only string values are
+     * used since a string constant can only equal a string property without conversion.
+     *
+     * @param selector
+     *        the selector expression, may be null
+     * @return the term, or null if the selector has no such term
+     */
+    public static PropertyEqualityTerm extract(BooleanExpression selector) {
+        if (selector instanceof ComparisonExpression.EqualsExpression) {
+            ComparisonExpression.EqualsExpression equals = (ComparisonExpression.EqualsExpression) selector;
+            PropertyEqualityTerm term = create(equals.getLeft(), equals.getRight());
+            return term != null ? term : create(equals.getRight(), equals.getLeft());
+        }
+        if (selector instanceof UnaryExpression.InExpression) {
+            UnaryExpression.InExpression in = (UnaryExpression.InExpression) selector;
+            if (in.isNot() || in.getInList() == null) {
+                return null;
+            }
+            return create((PropertyExpression) in.getRight(), in.getInList());
+        }
+        if (selector instanceof LogicExpression.ANDExpression) {
+            // any of the terms is required, use the most selective one
+            PropertyEqualityTerm result = null;
+            for (BooleanExpression expression : ((LogicExpression) selector).expressions) {
+                PropertyEqualityTerm term = extract(expression);
+                if (term != null && (result == null || term.values.size() < result.values.size())) {
+                    result = term;
+                }
+            }
+            return result;
+        }
+        if (selector instanceof LogicExpression.ORExpression) {
+            // one of the terms is required, which is only a single term if they share a property
+            PropertyExpression property = null;
+            Set<String> values = new HashSet<>();
+            for (BooleanExpression expression : ((LogicExpression) selector).expressions) {
+                PropertyEqualityTerm term = extract(expression);
+                if (term == null || (property != null && !property.getName().equals(term.getPropertyName()))) {
+                    return null;
+                }
+                property = term.property;
+                values.addAll(term.values);
+            }
+            return new PropertyEqualityTerm(property, values);
+        }
+        return null;
+    }
+
+    private static PropertyEqualityTerm create(Expression property, Expression constant) {
+        if (property instanceof PropertyExpression && constant instanceof ConstantExpression) {
+            Object value = ((ConstantExpression) constant).getValue();
+            if (value instanceof String) {
+                Set<String> values = new HashSet<>();
+                values.add((String) value);
+                return new PropertyEqualityTerm((PropertyExpression) property, values);
+            }
+        }
+        return null;
+    }
+
+    private static PropertyEqualityTerm create(PropertyExpression property, Collection<?> elements) {
+        Set<String> values = new HashSet<>();
+        for (Object element : elements) {
+            if (!(element instanceof String)) {
+                return null;
+            }
+            values.add((String) element);
+        }
+        return new PropertyEqualityTerm(property, values);
+    }
+
+    public String getPropertyName() {
+        return property.getName();
+    }
+
+    /**
+     * @return the values of the property that can satisfy the term
+     */
+    public Set<String> getValues() {
+        return values;
+    }
+
+    /**
+     * @return the value of the term's property for the message being evaluated
+     */
+    public Object evaluate(MessageEvaluationContext message) throws JMSException {
+        return property.evaluate(message);
+    }
+
+    @Override
+    public String toString() {
+        return property + " IN " + values;
+    }
+}
@@ -20,11 +20,13 @@ import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
 import java.lang.reflect.Method;
+import java.util.ArrayDeque;
 import java.util.HashMap;
 import java.util.Map;
 
 import org.apache.activemq.command.CommandTypes;
 import org.apache.activemq.command.DataStructure;
+import org.apache.activemq.command.Message;
 import org.apache.activemq.command.WireFormatInfo;
 import org.apache.activemq.util.ByteSequence;
 import org.apache.activemq.util.ByteSequenceData;
@@ -57,6 +59,9 @@ public final class OpenWireFormat implements WireFormat {
     private boolean sizePrefixDisabled;
     private boolean maxFrameSizeEnabled = true;
     private long maxFrameSize = DEFAULT_MAX_FRAME_SIZE;
+    private boolean sharedMessageEncodingEnabled;
+    // shared encodings sized by the first marshal pass, in the order the second pass writes them
+    private final ArrayDeque<ByteSequence> sharedEncodings = new ArrayDeque<ByteSequence>();
 
     // The following fields are used for value caching
     private short nextMarshallCacheIndex;
@@ -94,6 +99,7 @@ public final class OpenWireFormat implements WireFormat {
         answer.sizePrefixDisabled = sizePrefixDisabled;
         answer.preferedWireFormatInfo = preferedWireFormatInfo;
         answer.maxFrameSizeEnabled = maxFrameSizeEnabled;
+        answer.sharedMessageEncodingEnabled = sharedMessageEncodingEnabled;
         return answer;
     }
 
@@ -125,6 +131,22 @@ public final class OpenWireFormat implements WireFormat {
 
     @Override
     public synchronized ByteSequence marshal(Object command) throws IOException {
+        return marshal(command, 0);
+    }
+
+    /**
+     * Marshals the command leaving headroom bytes free in front of it, so that a caller can
+     * frame the marshalled command in place instead of copying it into a larger buffer.
+     *
+     * @param command
+     *        the command to marshal
+     * @param headroom
+     *        the number of bytes to reserve ahead of the marshalled command
+     *
+     * @return the marshalled command, which starts at offset headroom of the backing array
+     * @throws IOException
+     */
+    public synchronized ByteSequence marshal(Object command, int headroom) throws IOException {
 
         if (cacheEnabled) {
             runMarshallCacheEvictionSweep();
@@ -142,6 +164,7 @@ public final class OpenWireFormat implements WireFormat {
             }
             if (tightEncodingEnabled) {
 
+                sharedEncodings.clear();
                 BooleanStream bs = new BooleanStream();
                 size += dsm.tightMarshal1(this, c, bs);
                 size += bs.marshalledSize();
@@ -150,17 +173,19 @@ public final class OpenWireFormat implements WireFormat {
                     throw IOExceptionSupport.createFrameSizeException(size, maxFrameSize);
                 }
 
-                bytesOut.restart(size);
+                bytesOut.restart(headroom + size);
+                bytesOut.position(headroom);
                 if (!sizePrefixDisabled) {
                     bytesOut.writeInt(size);
                 }
                 bytesOut.writeByte(type);
                 bs.marshal(bytesOut);
                 dsm.tightMarshal2(this, c, bytesOut, bs);
-                sequence = bytesOut.toByteSequence();
+                sequence = marshalled(headroom);
 
             } else {
                 bytesOut.restart();
+                bytesOut.position(headroom);
                 if (!sizePrefixDisabled) {
                     bytesOut.writeInt(0); // we don't know the final size
                     // yet but write this here for
@@ -168,7 +193,7 @@ public final class OpenWireFormat implements WireFormat {
                 }
                 bytesOut.writeByte(type);
                 dsm.looseMarshal(this, c, bytesOut);
-                sequence = bytesOut.toByteSequence();
+                sequence = marshalled(headroom);
 
                 if (!sizePrefixDisabled) {
                     size = sequence.getLength() - 4;
@@ -179,15 +204,20 @@ public final class OpenWireFormat implements WireFormat {
             }
 
         } else {
-            bytesOut.restart(5);
+            bytesOut.restart(headroom + 5);
+            bytesOut.position(headroom);
             bytesOut.writeInt(size);
             bytesOut.writeByte(NULL_TYPE);
-            sequence = bytesOut.toByteSequence();
+            sequence = marshalled(headroom);
         }
 
         return sequence;
     }
 
+    private ByteSequence marshalled(int headroom) {
+        return new ByteSequence(bytesOut.getData(), headroom, bytesOut.size() - headroom);
+    }
+
     @Override
     public synchronized Object unmarshal(ByteSequence sequence) throws IOException {
         bytesIn.restart(sequence);
@@ -230,6 +260,7 @@ public final class OpenWireFormat implements WireFormat {
                 throw new IOException("Unknown data type: " + type);
             }
             if (tightEncodingEnabled) {
+                sharedEncodings.clear();
                 BooleanStream bs = new BooleanStream();
                 size += dsm.tightMarshal1(this, c, bs);
                 size += bs.marshalledSize();
@@ -303,6 +334,7 @@ public final class OpenWireFormat implements WireFormat {
                 throw new IOException("Unknown data type: " + type);
             }
 
+            sharedEncodings.clear();
             size += dsm.tightMarshal1(this, c, bs);
             size += bs.marshalledSize();
         }
@@ -395,9 +427,11 @@ public final class OpenWireFormat implements WireFormat {
         }
 
         if (o.isMarshallAware()) {
-            // MarshallAware ma = (MarshallAware)o;
             ByteSequence sequence = null;
-            // sequence=ma.getCachedMarshalledForm(this);
+            if (o instanceof Message && ((Message) o).isMarshalledFormShared() && isSharingEncodings()) {
+                sequence = sharedEncoding((Message) o);
+                sharedEncodings.add(sequence);
+            }
             bs.writeBoolean(sequence != null);
             if (sequence != null) {
                 return 1 + sequence.getLength();
@@ -423,12 +457,11 @@ public final class OpenWireFormat implements WireFormat {
 
         if (o.isMarshallAware() && bs.readBoolean()) {
 
-            // We should not be doing any caching
-            throw new IOException("Corrupted stream");
-            // MarshallAware ma = (MarshallAware) o;
-            // ByteSequence sequence=ma.getCachedMarshalledForm(this);
-            // ds.write(sequence.getData(), sequence.getOffset(),
-            // sequence.getLength());
+            ByteSequence sequence = sharedEncodings.poll();
+            if (sequence == null) {
+                throw new IOException("Corrupted stream");
+            }
+            ds.write(sequence.getData(), sequence.getOffset(), sequence.getLength());
 
         } else {
 
@@ -441,6 +474,41 @@ public final class OpenWireFormat implements WireFormat {
         }
     }
 
+    /**
+     * A shared encoding is a complete size prefixed frame that the reader unmarshals
+     * with its own boolean stream, which every tight encoding reader does. It must not
+     * refer to the marshal cache of any one connection.
+     */
+    private boolean isSharingEncodings() {
+        return sharedMessageEncodingEnabled && tightEncodingEnabled && !cacheEnabled;
+    }
+
+    private ByteSequence sharedEncoding(Message message) throws IOException {
+        ByteSequence sequence = message.getCachedMarshalledForm(this);
+        if (sequence == null) {
+            int redeliveryCounter = message.getRedeliveryCounter();
+            byte type = message.getDataStructureType();
+            DataStreamMarshaller dsm = dataMarshallers[type & 0xFF];
+            if (dsm == null) {
+                throw new IOException("Unknown data type: " + type);
+            }
+            BooleanStream bs = new BooleanStream();
+            int size = 1 + dsm.tightMarshal1(this, message, bs);
+            size += bs.marshalledSize();
+
+            DataByteArrayOutputStream out = new DataByteArrayOutputStream(size + 4);
+            out.writeInt(size);
+            out.writeByte(type);
+            bs.marshal(out);
+            dsm.tightMarshal2(this, message, out, bs);
+            sequence = out.toByteSequence();
+            if (redeliveryCounter == message.getRedeliveryCounter()) {
+                message.setCachedMarshalledForm(this, sequence);
+            }
+        }
+        return sequence;
+    }
+
     public DataStructure tightUnmarshalNestedObject(DataInput dis, BooleanStream bs) throws IOException {
         if (bs.readBoolean()) {
 
@@ -631,6 +699,23 @@ public final class OpenWireFormat implements WireFormat {
         this.maxFrameSizeEnabled = maxFrameSizeEnabled;
     }
 
+    public boolean isSharedMessageEncodingEnabled() {
+        return sharedMessageEncodingEnabled;
+    }
+
+    /**
+     * Set whether messages marked as dispatched to many consumers are encoded once and
+     * the encoding shared by every connection using a wire format of the same version,
+     * so only the dispatch around them is encoded per connection. Only applies while
+     * tight encoding is used and the marshal cache is disabled. Note this is only applied
+     * to this format and will NOT be negotiated
+     *
+     * @param sharedMessageEncodingEnabled
+     */
+    public void setSharedMessageEncodingEnabled(boolean sharedMessageEncodingEnabled) {
+        this.sharedMessageEncodingEnabled = sharedMessageEncodingEnabled;
+    }
+
     public void renegotiateWireFormat(WireFormatInfo info) throws IOException {
 
         if (preferedWireFormatInfo == null) {
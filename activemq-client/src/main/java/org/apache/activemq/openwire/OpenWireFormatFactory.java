@@ -42,6 +42,7 @@ public class OpenWireFormatFactory implements WireFormatFactory {
     private int cacheSize = 1024;
     private long maxFrameSize = OpenWireFormat.DEFAULT_MAX_FRAME_SIZE;
     private boolean maxFrameSizeEnabled = true;
+    private boolean sharedMessageEncodingEnabled;
     private String host=null;
     private String providerName = ActiveMQConnectionMetaData.PROVIDER_NAME;
     private String providerVersion = ActiveMQConnectionMetaData.PROVIDER_VERSION;
@@ -83,6 +84,7 @@ public class OpenWireFormatFactory implements WireFormatFactory {
         f.setMaxFrameSize(maxFrameSize);
         f.setPreferedWireFormatInfo(info);
         f.setMaxFrameSizeEnabled(maxFrameSizeEnabled);
+        f.setSharedMessageEncodingEnabled(sharedMessageEncodingEnabled);
         return f;
     }
 
@@ -220,4 +222,12 @@ public class OpenWireFormatFactory implements WireFormatFactory {
     public boolean isMaxFrameSizeEnabled() {
         return this.maxFrameSizeEnabled;
     }
+
+    public void setSharedMessageEncodingEnabled(boolean sharedMessageEncodingEnabled) {
+        this.sharedMessageEncodingEnabled = sharedMessageEncodingEnabled;
+    }
+
+    public boolean isSharedMessageEncodingEnabled() {
+        return this.sharedMessageEncodingEnabled;
+    }
 }
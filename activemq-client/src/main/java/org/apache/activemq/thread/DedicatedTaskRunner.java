@@ -16,6 +16,10 @@
  */
 package org.apache.activemq.thread;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -28,14 +32,20 @@ class DedicatedTaskRunner implements TaskRunner {
     private final Task task;
     private final Thread thread;
 
-    private final Object mutex = new Object();
+    // a lock rather than a monitor so an idle virtual thread does not pin its carrier
+    private final ReentrantLock mutex = new ReentrantLock();
+    private final Condition changed = mutex.newCondition();
     private boolean threadTerminated;
     private boolean pending;
     private boolean shutdown;
 
     public DedicatedTaskRunner(final Task task, String name, int priority, boolean daemon) {
+        this(task, name, priority, daemon, false);
+    }
+
+    public DedicatedTaskRunner(final Task task, String name, int priority, boolean daemon, boolean virtual) {
         this.task = task;
-        thread = new Thread(name) {
+        Runnable runnable = new Runnable() {
             @Override
             public void run() {
                 try {
@@ -45,9 +55,13 @@ class DedicatedTaskRunner implements TaskRunner {
                 }
             }
         };
-        thread.setDaemon(daemon);
-        thread.setName(name);
-        thread.setPriority(priority);
+        if (virtual) {
+            thread = VirtualThreads.newThread(name, runnable);
+        } else {
+            thread = new Thread(runnable, name);
+            thread.setDaemon(daemon);
+            thread.setPriority(priority);
+        }
         thread.start();
     }
 
@@ -55,12 +69,15 @@ class DedicatedTaskRunner implements TaskRunner {
      */
     @Override
     public void wakeup() throws InterruptedException {
-        synchronized (mutex) {
+        mutex.lock();
+        try {
             if (shutdown) {
                 return;
             }
             pending = true;
-            mutex.notifyAll();
+            changed.signalAll();
+        } finally {
+            mutex.unlock();
         }
     }
 
@@ -73,16 +90,23 @@ class DedicatedTaskRunner implements TaskRunner {
     @Override
     public void shutdown(long timeout) throws InterruptedException {
         LOG.trace("Shutdown timeout: {} task: {}", timeout, task);
-        synchronized (mutex) {
+        mutex.lock();
+        try {
             shutdown = true;
             pending = true;
-            mutex.notifyAll();
+            changed.signalAll();
 
             // Wait till the thread stops ( no need to wait if shutdown
             // is called from thread that is shutting down)
             if (Thread.currentThread() != thread && !threadTerminated) {
-                mutex.wait(timeout);
+                if (timeout > 0) {
+                    changed.await(timeout, TimeUnit.MILLISECONDS);
+                } else {
+                    changed.await();
+                }
             }
+        } finally {
+            mutex.unlock();
         }
     }
 
@@ -101,23 +125,29 @@ class DedicatedTaskRunner implements TaskRunner {
         try {
             while (true) {
 
-                synchronized (mutex) {
+                mutex.lock();
+                try {
                     pending = false;
                     if (shutdown) {
                         return;
                     }
+                } finally {
+                    mutex.unlock();
                 }
 
                 LOG.trace("Running task {}", task);
                 if (!task.iterate()) {
                     // wait to be notified.
-                    synchronized (mutex) {
+                    mutex.lock();
+                    try {
                         if (shutdown) {
                             return;
                         }
                         while (!pending) {
-                            mutex.wait();
+                            changed.await();
                         }
+                    } finally {
+                        mutex.unlock();
                     }
                 }
 
@@ -129,9 +159,12 @@ class DedicatedTaskRunner implements TaskRunner {
         } finally {
             // Make sure we notify any waiting threads that thread
             // has terminated.
-            synchronized (mutex) {
+            mutex.lock();
+            try {
                 threadTerminated = true;
-                mutex.notifyAll();
+                changed.signalAll();
+            } finally {
+                mutex.unlock();
             }
         }
     }
@@ -55,6 +55,7 @@ public class TaskRunnerFactory implements Executor {
     private int maxThreadPoolSize = getDefaultMaximumPoolSize();
     private RejectedExecutionHandler rejectedTaskHandler = null;
     private ClassLoader threadClassLoader;
+    private boolean useVirtualThreads = VirtualThreads.isEnabledByDefault();
 
     public TaskRunnerFactory() {
         this("ActiveMQ Task");
@@ -156,7 +157,7 @@ public class TaskRunnerFactory implements Executor {
         if (executor != null) {
             return new PooledTaskRunner(executor, task, maxIterationsPerRun);
         } else {
-            return new DedicatedTaskRunner(task, name, priority, daemon);
+            return new DedicatedTaskRunner(task, name, priority, daemon, VirtualThreads.use(useVirtualThreads));
         }
     }
 
@@ -178,21 +179,33 @@ public class TaskRunnerFactory implements Executor {
 
     private void doExecuteNewThread(Runnable runnable, String name) {
         String threadName = name + "-" + id.incrementAndGet();
-        Thread thread = new Thread(runnable, threadName);
-        thread.setDaemon(daemon);
+        Thread thread;
+        if (VirtualThreads.use(useVirtualThreads)) {
+            thread = VirtualThreads.newThread(threadName, runnable);
+        } else {
+            thread = new Thread(runnable, threadName);
+            thread.setDaemon(daemon);
+        }
 
         LOG.trace("Created and running thread[{}]: {}", threadName, thread);
         thread.start();
     }
 
     protected ExecutorService createDefaultExecutor() {
-        ThreadPoolExecutor rc = new ThreadPoolExecutor(getDefaultCorePoolSize(), getMaxThreadPoolSize(), getDefaultKeepAliveTime(), TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new ThreadFactory() {
+        final boolean virtual = VirtualThreads.use(useVirtualThreads);
+        ThreadFactory threadFactory = new ThreadFactory() {
             @Override
             public Thread newThread(Runnable runnable) {
                 String threadName = name + "-" + id.incrementAndGet();
-                Thread thread = new Thread(runnable, threadName);
-                thread.setDaemon(daemon);
-                thread.setPriority(priority);
+                Thread thread;
+                if (virtual) {
+                    // virtual threads are always daemon and ignore priority
+                    thread = VirtualThreads.newThread(threadName, runnable);
+                } else {
+                    thread = new Thread(runnable, threadName);
+                    thread.setDaemon(daemon);
+                    thread.setPriority(priority);
+                }
                 if (threadClassLoader != null) {
                     thread.setContextClassLoader(threadClassLoader);
                 }
@@ -206,7 +219,15 @@ public class TaskRunnerFactory implements Executor {
                 LOG.trace("Created thread[{}]: {}", threadName, thread);
                 return thread;
             }
-        });
+        };
+
+        ThreadPoolExecutor rc;
+        if (virtual) {
+            // a virtual thread per task, so no pool sizing and no idle threads kept
+            rc = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 0, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), threadFactory);
+        } else {
+            rc = new ThreadPoolExecutor(getDefaultCorePoolSize(), getMaxThreadPoolSize(), getDefaultKeepAliveTime(), TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), threadFactory);
+        }
 
         if (rejectedTaskHandler != null) {
             rc.setRejectedExecutionHandler(rejectedTaskHandler);
@@ -277,6 +298,19 @@ public class TaskRunnerFactory implements Executor {
         this.threadClassLoader = threadClassLoader;
     }
 
+    public boolean isUseVirtualThreads() {
+        return useVirtualThreads;
+    }
+
+    /**
+     * Runs tasks on virtual threads, when the JDK supports them, rather than on a
+     * pool of platform threads or a platform thread per dedicated task runner.
+     * Defaults to the value of the org.apache.activemq.UseVirtualThreads system property.
+     */
+    public void setUseVirtualThreads(boolean useVirtualThreads) {
+        this.useVirtualThreads = useVirtualThreads;
+    }
+
     public RejectedExecutionHandler getRejectedTaskHandler() {
         return rejectedTaskHandler;
     }
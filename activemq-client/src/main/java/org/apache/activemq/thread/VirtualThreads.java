@@ -0,0 +1,132 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.thread;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates virtual threads on JDKs that have them. ActiveMQ is built for JDKs
+ * that predate virtual threads, so the API is found reflectively and callers
+ * use platform threads when {@link #isAvailable()} is false.
+ * <p>
+ * Virtual threads are used where they are enabled, either on the component or
+ * for the whole JVM with the {@value #USE_VIRTUAL_THREADS_PROPERTY} system
+ * property.
+ */
+public final class VirtualThreads {
+
+    public static final String USE_VIRTUAL_THREADS_PROPERTY = "org.apache.activemq.UseVirtualThreads";
+
+    private static final Logger LOG = LoggerFactory.getLogger(VirtualThreads.class);
+    private static final Method OF_VIRTUAL;
+    private static final Method NAME;
+    private static final Method UNSTARTED;
+    private static final Method IS_VIRTUAL;
+    private static volatile boolean warned;
+
+    static {
+        Method ofVirtual = null;
+        Method name = null;
+        Method unstarted = null;
+        Method isVirtual = null;
+        try {
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            name = builder.getMethod("name", String.class);
+            unstarted = builder.getMethod("unstarted", Runnable.class);
+            isVirtual = Thread.class.getMethod("isVirtual");
+            // preview JDKs have the API but refuse to create virtual threads
+            // unless started with --enable-preview
+            unstarted.invoke(ofVirtual.invoke(null), (Runnable) () -> { });
+        } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        UNSTARTED = unstarted;
+        IS_VIRTUAL = isVirtual;
+    }
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return true if the JDK can create virtual threads
+     */
+    public static boolean isAvailable() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * @return the default for components that can use virtual threads, set with
+     *         the {@value #USE_VIRTUAL_THREADS_PROPERTY} system property
+     */
+    public static boolean isEnabledByDefault() {
+        return Boolean.getBoolean(USE_VIRTUAL_THREADS_PROPERTY);
+    }
+
+    /**
+     * @return true if virtual threads should be used when asked for with the
+     *         given setting, logging once when the JDK does not have them
+     */
+    public static boolean use(boolean enabled) {
+        if (enabled && !isAvailable()) {
+            if (!warned) {
+                warned = true;
+                LOG.warn("Virtual threads are not supported by this JDK, using platform threads");
+            }
+            return false;
+        }
+        return enabled;
+    }
+
+    /**
+     * @return true if the thread is a virtual thread
+     */
+    public static boolean isVirtual(Thread thread) {
+        return IS_VIRTUAL != null && (Boolean) invoke(IS_VIRTUAL, thread);
+    }
+
+    /**
+     * Creates a virtual thread that has not been started.
+     */
+    public static Thread newThread(String name, Runnable runnable) {
+        Object builder = invoke(NAME, invoke(OF_VIRTUAL, null), name);
+        return (Thread) invoke(UNSTARTED, builder, runnable);
+    }
+
+    private static Object invoke(Method method, Object target, Object... args) {
+        if (method == null) {
+            throw new UnsupportedOperationException("Virtual threads are not supported by this JDK");
+        }
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -19,6 +19,8 @@ package org.apache.activemq.transport;
 import java.io.IOException;
 import java.io.InterruptedIOException;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.activemq.command.Response;
@@ -32,6 +34,7 @@ public class FutureResponse {
     private final TransportFilter transportFilter;
 
     private final ArrayBlockingQueue<Response> responseSlot = new ArrayBlockingQueue<Response>(1);
+    private volatile CompletableFuture<Response> completion;
 
     public FutureResponse(ResponseCallback responseCallback) {
         this(responseCallback, null);
@@ -89,11 +92,37 @@ public class FutureResponse {
         }
     }
 
+    /**
+     * @return a stage completed with the response, without blocking for it
+     */
+    public CompletionStage<Response> toCompletionStage() {
+        CompletableFuture<Response> stage = completion;
+        if (stage == null) {
+            synchronized (this) {
+                stage = completion;
+                if (stage == null) {
+                    stage = new CompletableFuture<Response>();
+                    completion = stage;
+                }
+            }
+        }
+        // the response may have been set before the stage was asked for
+        Response result = responseSlot.peek();
+        if (result != null) {
+            stage.complete(result);
+        }
+        return stage;
+    }
+
     public void set(Response result) {
         if (responseSlot.offer(result)) {
             if (responseCallback != null) {
                 responseCallback.onCompletion(this);
             }
+            CompletableFuture<Response> stage = completion;
+            if (stage != null) {
+                stage.complete(result);
+            }
         }
     }
 }
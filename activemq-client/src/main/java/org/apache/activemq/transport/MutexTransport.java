@@ -55,7 +55,7 @@ public class MutexTransport extends TransportFilter {
     public FutureResponse asyncRequest(Object command, ResponseCallback responseCallback) throws IOException {
         writeLock.lock();
         try {
-            return next.asyncRequest(command, null);
+            return next.asyncRequest(command, responseCallback);
         } finally {
             writeLock.unlock();
         }
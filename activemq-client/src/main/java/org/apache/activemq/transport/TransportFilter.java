@@ -96,7 +96,7 @@ public class TransportFilter implements TransportListener, Transport {
 
     @Override
     public FutureResponse asyncRequest(Object command, ResponseCallback responseCallback) throws IOException {
-        return next.asyncRequest(command, null);
+        return next.asyncRequest(command, responseCallback);
     }
 
     @Override
@@ -16,6 +16,8 @@
  */
 package org.apache.activemq.transport;
 
+import org.apache.activemq.thread.VirtualThreads;
+
 /**
  * A useful base class for a transport implementation which has a background
  * reading thread.
@@ -28,6 +30,7 @@ public abstract class TransportThreadSupport extends TransportSupport implements
     private Thread runner;
     // should be a multiple of 128k
     private long stackSize;
+    private boolean useVirtualThreads = VirtualThreads.isEnabledByDefault();
 
     public boolean isDaemon() {
         return daemon;
@@ -38,8 +41,13 @@ public abstract class TransportThreadSupport extends TransportSupport implements
     }
 
     protected void doStart() throws Exception {
-        runner = new Thread(null, this, "ActiveMQ Transport: " + toString(), stackSize);
-        runner.setDaemon(daemon);
+        String name = "ActiveMQ Transport: " + toString();
+        if (VirtualThreads.use(useVirtualThreads)) {
+            runner = VirtualThreads.newThread(name, this);
+        } else {
+            runner = new Thread(null, this, name, stackSize);
+            runner.setDaemon(daemon);
+        }
         runner.start();
     }
 
@@ -56,4 +64,18 @@ public abstract class TransportThreadSupport extends TransportSupport implements
     public void setStackSize(long stackSize) {
         this.stackSize = stackSize;
     }
+
+    public boolean isUseVirtualThreads() {
+        return useVirtualThreads;
+    }
+
+    /**
+     * Reads on a virtual thread, when the JDK supports them, rather than on a
+     * platform thread per transport.
+     *
+     * @param useVirtualThreads the useVirtualThreads to set
+     */
+    public void setUseVirtualThreads(boolean useVirtualThreads) {
+        this.useVirtualThreads = useVirtualThreads;
+    }
 }
@@ -27,14 +27,17 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.security.cert.X509Certificate;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicReference;
@@ -45,12 +48,14 @@ import org.apache.activemq.command.Command;
 import org.apache.activemq.command.ConnectionControl;
 import org.apache.activemq.command.ConnectionId;
 import org.apache.activemq.command.ConsumerControl;
+import org.apache.activemq.command.ExceptionResponse;
 import org.apache.activemq.command.MessageDispatch;
 import org.apache.activemq.command.MessagePull;
 import org.apache.activemq.command.RemoveInfo;
 import org.apache.activemq.command.Response;
 import org.apache.activemq.state.ConnectionStateTracker;
 import org.apache.activemq.state.Tracked;
+import org.apache.activemq.thread.Scheduler;
 import org.apache.activemq.thread.Task;
 import org.apache.activemq.thread.TaskRunner;
 import org.apache.activemq.thread.TaskRunnerFactory;
@@ -88,6 +93,11 @@ public class FailoverTransport implements CompositeTransport {
     private final Object listenerMutex = new Object();
     private final ConnectionStateTracker stateTracker = new ConnectionStateTracker();
     private final Map<Integer, Command> requestMap = new LinkedHashMap<Integer, Command>();
+    // async requests held while disconnected, sent ahead of anything else on reconnect
+    private final ArrayDeque<Command> pendingRequests = new ArrayDeque<Command>();
+    // requests marked by expectAsyncRequest that have not reached oneway yet, guarded by pendingRequests
+    private final Set<Command> asyncRequests = Collections.newSetFromMap(new IdentityHashMap<Command, Boolean>());
+    private Scheduler timeoutScheduler;
 
     private URI connectedTransportURI;
     private URI failedConnectTransportURI;
@@ -392,6 +402,7 @@ public class FailoverTransport implements CompositeTransport {
                 if (connectedTransport.get() != null) {
                     transportToStop = connectedTransport.getAndSet(null);
                 }
+                clearPendingRequests();
                 reconnectMutex.notifyAll();
             }
             synchronized (sleepMutex) {
@@ -573,6 +584,10 @@ public class FailoverTransport implements CompositeTransport {
 
         Command command = (Command) o;
         Exception error = null;
+        boolean asyncRequest;
+        synchronized (pendingRequests) {
+            asyncRequest = asyncRequests.remove(command);
+        }
         try {
 
             synchronized (reconnectMutex) {
@@ -600,6 +615,11 @@ public class FailoverTransport implements CompositeTransport {
                             processCommand(dispatch);
                         }
                         return;
+                    } else if (asyncRequest && !disposed && connectionFailure == null && willReconnect()) {
+                        // The caller waits on the response asynchronously, hold the request
+                        // until we reconnect, the timeout fails it or the caller cancels it.
+                        holdPendingRequest(command);
+                        return;
                     }
                 }
 
@@ -727,6 +747,148 @@ public class FailoverTransport implements CompositeTransport {
         return firstConnection || 0 != calculateReconnectAttemptLimit();
     }
 
+    /**
+     * Marks a request whose caller waits on the response asynchronously, to be
+     * sent by the next oneway. While disconnected that oneway holds it and returns,
+     * the request goes out on reconnect unless the failover timeout expires or
+     * {@link #cancelAsyncRequest(Command)} takes it back first. Other requests
+     * keep blocking their sender until reconnected, so response timeouts only
+     * start once they were sent.
+     */
+    public void expectAsyncRequest(Command command) {
+        synchronized (pendingRequests) {
+            asyncRequests.add(command);
+        }
+    }
+
+    /**
+     * Takes back a request marked by {@link #expectAsyncRequest(Command)} whose
+     * caller gave up on it.
+     *
+     * @return true if the request was not sent, and never will be
+     */
+    public boolean cancelAsyncRequest(Command command) {
+        synchronized (pendingRequests) {
+            if (asyncRequests.remove(command)) {
+                return true;
+            }
+        }
+        if (removePendingRequest(command)) {
+            LOG.debug("Dropped held request given up by its caller: {}", command);
+            return true;
+        }
+        return false;
+    }
+
+    private boolean removePendingRequest(Command command) {
+        synchronized (pendingRequests) {
+            Iterator<Command> iter = pendingRequests.iterator();
+            while (iter.hasNext()) {
+                if (iter.next() == command) {
+                    iter.remove();
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /*
+     * called with reconnectMutex held
+     */
+    private void holdPendingRequest(final Command command) throws IOException {
+        LOG.trace("Holding request until reconnected: {}", command);
+        synchronized (pendingRequests) {
+            pendingRequests.add(command);
+        }
+        if (timeout > 0) {
+            if (timeoutScheduler == null) {
+                timeoutScheduler = new Scheduler("ActiveMQ Failover Timeout: " + System.identityHashCode(this));
+                try {
+                    timeoutScheduler.start();
+                } catch (Exception e) {
+                    throw IOExceptionSupport.create(e);
+                }
+            }
+            timeoutScheduler.executeAfterDelay(new Runnable() {
+                @Override
+                public void run() {
+                    if (!removePendingRequest(command)) {
+                        return;
+                    }
+                    LOG.info("Failover timed out after {} ms", timeout);
+                    ExceptionResponse response = new ExceptionResponse(new IOException("Failover timeout of " + timeout + " ms reached."));
+                    response.setCorrelationId(command.getCommandId());
+                    processCommand(response);
+                }
+            }, timeout);
+        }
+    }
+
+    /*
+     * called with reconnectMutex held, before the transport is published so the
+     * held requests go out ahead of anything sent once connected
+     */
+    private void sendPendingRequests(Transport transport) throws IOException {
+        while (true) {
+            Command command;
+            synchronized (pendingRequests) {
+                command = pendingRequests.poll();
+            }
+            if (command == null) {
+                return;
+            }
+
+            Tracked tracked = null;
+            try {
+                tracked = stateTracker.track(command);
+            } catch (IOException ioe) {
+                LOG.debug("Cannot track the command {} {}", command, ioe);
+            }
+            synchronized (requestMap) {
+                if (tracked != null && tracked.isWaitingForResponse()) {
+                    requestMap.put(command.getCommandId(), tracked);
+                } else if (tracked == null) {
+                    requestMap.put(command.getCommandId(), command);
+                }
+            }
+
+            try {
+                transport.oneway(command);
+                stateTracker.trackBack(command);
+            } catch (IOException e) {
+                // tracked commands are replayed on reconnect, hold on to the rest
+                if (tracked == null) {
+                    synchronized (requestMap) {
+                        requestMap.remove(command.getCommandId());
+                    }
+                    synchronized (pendingRequests) {
+                        pendingRequests.addFirst(command);
+                    }
+                }
+                throw e;
+            }
+        }
+    }
+
+    /*
+     * the response correlator fails the callers' futures when we are stopped or give up
+     */
+    private void clearPendingRequests() {
+        synchronized (pendingRequests) {
+            pendingRequests.clear();
+            asyncRequests.clear();
+        }
+        if (timeoutScheduler != null) {
+            try {
+                timeoutScheduler.stop();
+            } catch (Exception e) {
+                LOG.debug("Failed to stop the failover timeout scheduler", e);
+            }
+            timeoutScheduler = null;
+        }
+    }
+
     @Override
     public FutureResponse asyncRequest(Object command, ResponseCallback responseCallback) throws IOException {
         throw new AssertionError("Unsupported Method");
@@ -1028,6 +1190,7 @@ public class FailoverTransport implements CompositeTransport {
                             if (started && !firstConnection) {
                                 restoreTransport(transport);
                             }
+                            sendPendingRequests(transport);
 
                             LOG.debug("Connection established");
 
@@ -1088,6 +1251,7 @@ public class FailoverTransport implements CompositeTransport {
             if (reconnectLimit != INFINITE && connectFailures >= reconnectLimit) {
                 LOG.error("Failed to connect to {} after: {} attempt(s)", connectList, connectFailures);
                 connectionFailure = failure;
+                clearPendingRequests();
 
                 // Make sure on initial startup, that the transportListener has been
                 // initialized for this instance.
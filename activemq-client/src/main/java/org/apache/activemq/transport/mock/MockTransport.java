@@ -103,7 +103,7 @@ public class MockTransport extends DefaultTransportListener implements Transport
 
     @Override
     public FutureResponse asyncRequest(Object command, ResponseCallback responseCallback) throws IOException {
-        return getNext().asyncRequest(command, null);
+        return getNext().asyncRequest(command, responseCallback);
     }
 
     @Override
@@ -176,6 +176,12 @@ public class NIOTransport extends TcpTransport {
         }
     }
 
+    @Override
+    public boolean isReadIdleListenerSupported() {
+        // reads are serviced by the selector, not by the blocking read loop
+        return false;
+    }
+
     @Override
     protected void doStart() throws Exception {
         connect();
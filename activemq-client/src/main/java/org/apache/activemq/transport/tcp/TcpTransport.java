@@ -132,6 +132,7 @@ public class TcpTransport extends TransportThreadSupport implements Transport, S
     protected SocketFactory socketFactory;
     protected final AtomicReference<CountDownLatch> stoppedLatch = new AtomicReference<CountDownLatch>();
     protected volatile int receiveCounter;
+    private volatile Runnable readIdleListener;
 
     protected Map<String, Object> socketOptions;
     private int soLinger = Integer.MIN_VALUE;
@@ -231,6 +232,10 @@ public class TcpTransport extends TransportThreadSupport implements Transport, S
         try {
             Object command = readCommand();
             doConsume(command);
+            Runnable idle = readIdleListener;
+            if (idle != null && !hasBufferedInput()) {
+                idle.run();
+            }
         } catch (SocketTimeoutException e) {
         } catch (InterruptedIOException e) {
         }
@@ -687,6 +692,36 @@ public class TcpTransport extends TransportThreadSupport implements Transport, S
         return receiveCounter;
     }
 
+    /**
+     * @return true if bytes of a further command have already arrived, only
+     *         meaningful on the thread reading commands from this transport
+     */
+    public boolean hasBufferedInput() {
+        DataInputStream in = dataIn;
+        try {
+            return in != null && in.available() > 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Sets a task the reading thread runs after consuming a command once every
+     * command that had arrived is consumed, before it blocks for more input.
+     * It runs whatever the command was, including ones consumed by filters such
+     * as the inactivity monitor.
+     */
+    public void setReadIdleListener(Runnable readIdleListener) {
+        this.readIdleListener = readIdleListener;
+    }
+
+    /**
+     * @return true if a listener set by {@link #setReadIdleListener(Runnable)} gets run
+     */
+    public boolean isReadIdleListenerSupported() {
+        return true;
+    }
+
     public static class InitBuffer {
         public final int readSize;
         public final ByteBuffer buffer;
@@ -0,0 +1,174 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.activemq;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.activemq.command.ActiveMQTextMessage;
+import org.apache.activemq.command.MessageDispatch;
+import org.junit.Test;
+
+public class RingBufferMessageDispatchChannelTest {
+
+    @Test
+    public void testMatchesFifoChannel() throws Exception {
+        MessageDispatchChannel expected = new FifoMessageDispatchChannel();
+        MessageDispatchChannel channel = new RingBufferMessageDispatchChannel(16);
+        expected.start();
+        channel.start();
+        int id = 0;
+        for (int round = 0; round < 50; round++) {
+            // runs past the ring into the overflow list and back
+            for (int i = 0; i < round % 40; i++) {
+                MessageDispatch md = dispatch(id++, 4);
+                expected.enqueue(md);
+                channel.enqueue(md);
+            }
+            if (round % 3 == 0) {
+                MessageDispatch md = dispatch(id++, 4);
+                expected.enqueueFirst(md);
+                channel.enqueueFirst(md);
+            }
+            if (round % 7 == 0) {
+                expected.enqueue(null);
+                channel.enqueue(null);
+            }
+            assertEquals(expected.size(), channel.size());
+            assertSame(expected.peek(), channel.peek());
+            for (int i = 0; i < round % 25 && !expected.isEmpty(); i++) {
+                assertSame(expected.dequeueNoWait(), channel.dequeueNoWait());
+            }
+        }
+        assertEquals(expected.removeAll(), channel.removeAll());
+        assertTrue(channel.isEmpty());
+        assertNull(channel.dequeue(10));
+    }
+
+    @Test
+    public void testPriorityOrder() throws Exception {
+        MessageDispatchChannel channel = new PriorityRingBufferMessageDispatchChannel(4);
+        List<MessageDispatch> low = new ArrayList<>();
+        List<MessageDispatch> high = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            MessageDispatch md = dispatch(i, i % 2 == 0 ? 1 : 8);
+            (i % 2 == 0 ? low : high).add(md);
+            channel.enqueue(md);
+        }
+        MessageDispatch redelivered = dispatch(100, 0);
+        channel.enqueueFirst(redelivered);
+        channel.start();
+
+        assertSame(redelivered, channel.dequeueNoWait());
+        for (MessageDispatch md : high) {
+            assertSame(md, channel.dequeueNoWait());
+        }
+        for (MessageDispatch md : low) {
+            assertSame(md, channel.dequeueNoWait());
+        }
+        assertNull(channel.dequeueNoWait());
+    }
+
+    @Test
+    public void testStoppedChannelReturnsNothing() throws Exception {
+        MessageDispatchChannel channel = new RingBufferMessageDispatchChannel(16);
+        channel.enqueue(dispatch(1, 4));
+        assertNull(channel.dequeueNoWait());
+        assertNull(channel.dequeue(10));
+        channel.start();
+        assertTrue(channel.dequeueNoWait() != null);
+    }
+
+    @Test(timeout = 30000)
+    public void testHandsOffToParkedReceiver() throws Exception {
+        final RingBufferMessageDispatchChannel channel = new RingBufferMessageDispatchChannel(32);
+        channel.start();
+        final int count = 100000;
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        Thread receiver = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (int i = 0; i < count; i++) {
+                        MessageDispatch md = channel.dequeue(-1);
+                        assertEquals(i, md.getRedeliveryCounter());
+                    }
+                } catch (Throwable e) {
+                    failure.set(e);
+                } finally {
+                    done.countDown();
+                }
+            }
+        });
+        receiver.start();
+        for (int i = 0; i < count; i++) {
+            MessageDispatch md = dispatch(0, 4);
+            md.setRedeliveryCounter(i);
+            synchronized (channel.getMutex()) {
+                channel.enqueue(md);
+            }
+            if (i % 1000 == 0) {
+                Thread.yield();
+            }
+        }
+        assertTrue(done.await(20, TimeUnit.SECONDS));
+        assertNull(failure.get());
+        assertTrue(channel.isEmpty());
+    }
+
+    @Test(timeout = 30000)
+    public void testCloseWakesReceiver() throws Exception {
+        final MessageDispatchChannel channel = new RingBufferMessageDispatchChannel(16);
+        channel.start();
+        final CountDownLatch done = new CountDownLatch(1);
+        Thread receiver = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    channel.dequeue(-1);
+                } catch (InterruptedException e) {
+                } finally {
+                    done.countDown();
+                }
+            }
+        });
+        receiver.start();
+        Thread.sleep(100);
+        channel.close();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertTrue(channel.isClosed());
+    }
+
+    private static MessageDispatch dispatch(int id, int priority) {
+        ActiveMQTextMessage message = new ActiveMQTextMessage();
+        message.setPriority((byte) priority);
+        message.setJMSCorrelationID("message-" + id);
+        MessageDispatch md = new MessageDispatch();
+        md.setMessage(message);
+        return md;
+    }
+}
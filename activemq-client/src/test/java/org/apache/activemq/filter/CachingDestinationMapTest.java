@@ -0,0 +1,120 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.activemq.command.ActiveMQDestination;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.command.ActiveMQTopic;
+import org.junit.Test;
+
+public class CachingDestinationMapTest {
+
+    private static final String[] STEPS = {"A", "B", "C", "*", ">"};
+
+    @Test
+    public void testLookupsAreCachedUntilAnOverlappingChange() {
+        CachingDestinationMap map = new CachingDestinationMap();
+        map.put(new ActiveMQQueue("Consumer.A.VirtualTopic.Orders"), "a");
+        map.put(new ActiveMQQueue("Consumer.B.VirtualTopic.Orders"), "b");
+        map.put(new ActiveMQQueue("Other"), "other");
+
+        ActiveMQQueue wildcard = new ActiveMQQueue("Consumer.*.VirtualTopic.Orders");
+        Set<?> first = map.get(wildcard);
+        assertEquals(set("a", "b"), first);
+        assertSame(first, map.get(wildcard));
+
+        // not matched by the wildcard, so the lookup stays cached
+        map.put(new ActiveMQQueue("Consumer.C.VirtualTopic.Prices"), "c");
+        map.remove(new ActiveMQQueue("Other"), "other");
+        assertSame(first, map.get(wildcard));
+
+        map.put(new ActiveMQQueue("Consumer.C.VirtualTopic.Orders"), "c");
+        assertEquals(set("a", "b", "c"), map.get(wildcard));
+        map.remove(new ActiveMQQueue("Consumer.A.VirtualTopic.Orders"), "a");
+        assertEquals(set("b", "c"), map.get(wildcard));
+
+        map.reset();
+        assertTrue(map.get(wildcard).isEmpty());
+    }
+
+    @Test
+    public void testOverlaps() {
+        assertTrue(CachingDestinationMap.overlaps(new ActiveMQTopic("A.*.C"), new ActiveMQTopic("A.B.*")));
+        assertTrue(CachingDestinationMap.overlaps(new ActiveMQTopic("A.>"), new ActiveMQTopic("A")));
+        assertTrue(CachingDestinationMap.overlaps(new ActiveMQTopic("B,A.B"), new ActiveMQTopic("A.*")));
+        assertFalse(CachingDestinationMap.overlaps(new ActiveMQTopic("A.*"), new ActiveMQTopic("A.B.C")));
+        assertFalse(CachingDestinationMap.overlaps(new ActiveMQTopic("A.B"), new ActiveMQTopic("A.C")));
+        assertFalse(CachingDestinationMap.overlaps(new ActiveMQTopic("A.B"), new ActiveMQQueue("A.B")));
+    }
+
+    @Test
+    public void testMatchesDestinationMap() {
+        Random random = new Random(42);
+        CachingDestinationMap map = new CachingDestinationMap(50);
+        DestinationMap expected = new DestinationMap();
+        for (int op = 0; op < 20000; op++) {
+            ActiveMQDestination destination = randomDestination(random);
+            Object value = random.nextInt(20);
+            switch (random.nextInt(4)) {
+            case 0:
+                map.put(destination, value);
+                expected.put(destination, value);
+                break;
+            case 1:
+                map.remove(destination, value);
+                expected.remove(destination, value);
+                break;
+            default:
+                assertEquals(destination.toString(), expected.get(destination), map.get(destination));
+            }
+        }
+        assertTrue(map.getCacheSize() <= 50);
+    }
+
+    private static ActiveMQDestination randomDestination(Random random) {
+        StringBuilder name = new StringBuilder();
+        int steps = 1 + random.nextInt(3);
+        for (int i = 0; i < steps; i++) {
+            if (i > 0) {
+                name.append('.');
+            }
+            String step = STEPS[random.nextInt(i == steps - 1 ? STEPS.length : STEPS.length - 1)];
+            name.append(step);
+        }
+        if (random.nextInt(10) == 0) {
+            name.append(",B");
+        }
+        return random.nextBoolean() ? new ActiveMQQueue(name.toString()) : new ActiveMQTopic(name.toString());
+    }
+
+    private static Set<Object> set(Object... values) {
+        Set<Object> set = new HashSet<>();
+        for (Object value : values) {
+            set.add(value);
+        }
+        return set;
+    }
+}
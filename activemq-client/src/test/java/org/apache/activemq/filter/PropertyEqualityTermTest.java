@@ -0,0 +1,64 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.apache.activemq.selector.SelectorParser;
+import org.junit.Test;
+
+public class PropertyEqualityTermTest {
+
+    @Test
+    public void testIndexableSelectors() throws Exception {
+        assertTerm("region", "region = 'EU'", "EU");
+        assertTerm("region", "'EU' = region", "EU");
+        assertTerm("region", "region IN ('EU', 'US', 'APAC', 'LATAM', 'MEA')", "EU", "US", "APAC", "LATAM", "MEA");
+        assertTerm("region", "region = 'EU' OR region = 'US'", "EU", "US");
+        assertTerm("region", "region = 'EU' OR region IN ('US', 'APAC')", "EU", "US", "APAC");
+        assertTerm("region", "amount > 5 AND region = 'EU'", "EU");
+        assertTerm("tier", "region IN ('EU', 'US') AND tier = 'gold'", "gold");
+        assertTerm("JMSType", "JMSType = 'order' AND (amount > 5 OR urgent = TRUE)", "order");
+    }
+
+    @Test
+    public void testNonIndexableSelectors() throws Exception {
+        assertNoTerm("region <> 'EU'");
+        assertNoTerm("NOT region = 'EU'");
+        assertNoTerm("region NOT IN ('EU', 'US')");
+        assertNoTerm("region LIKE 'E%'");
+        assertNoTerm("amount = 5");
+        assertNoTerm("urgent = TRUE");
+        assertNoTerm("region IS NULL");
+        assertNoTerm("region = 'EU' OR tier = 'gold'");
+        assertNoTerm("region = 'EU' OR amount > 5");
+    }
+
+    private void assertTerm(String property, String selector, String... values) throws Exception {
+        PropertyEqualityTerm term = PropertyEqualityTerm.extract(SelectorParser.parse(selector));
+        assertEquals(selector, property, term.getPropertyName());
+        assertEquals(selector, new HashSet<>(Arrays.asList(values)), term.getValues());
+    }
+
+    private void assertNoTerm(String selector) throws Exception {
+        assertNull(selector, PropertyEqualityTerm.extract(SelectorParser.parse(selector)));
+    }
+}
@@ -0,0 +1,181 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.openwire;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.activemq.command.ActiveMQTextMessage;
+import org.apache.activemq.command.ActiveMQTopic;
+import org.apache.activemq.command.ConnectionId;
+import org.apache.activemq.command.ConsumerId;
+import org.apache.activemq.command.MessageDispatch;
+import org.apache.activemq.command.MessageId;
+import org.apache.activemq.command.ProducerId;
+import org.apache.activemq.command.SessionId;
+import org.apache.activemq.usage.MemoryUsage;
+import org.apache.activemq.util.ByteArrayInputStream;
+import org.apache.activemq.util.ByteArrayOutputStream;
+import org.apache.activemq.util.ByteSequence;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Test that a message dispatched to many consumers is encoded once and that every
+ * dispatch around the shared encoding unmarshals as if it had been encoded in full
+ */
+@RunWith(Parameterized.class)
+public class OpenWireSharedEncodingTest {
+
+    private final int version;
+
+    @Parameters(name = "version={0}")
+    public static Collection<Object[]> data() {
+        List<Object[]> versionObjs = new ArrayList<>();
+        for (int i : List.of(1, 9, 10, 11, 12)) {
+            versionObjs.add(new Object[]{i});
+        }
+        return versionObjs;
+    }
+
+    public OpenWireSharedEncodingTest(int version) {
+        this.version = version;
+    }
+
+    @Test
+    public void testEncodingSharedBetweenConnections() throws Exception {
+        ActiveMQTextMessage message = createMessage();
+        message.setMarshalledFormShared(true);
+
+        OpenWireFormat first = createFormat(true);
+        OpenWireFormat second = createFormat(true);
+        OpenWireFormat reader = createFormat(false);
+
+        MessageDispatch dispatch = (MessageDispatch) reader.unmarshal(first.marshal(dispatch(message, 1)));
+        assertDispatch(dispatch, 1, message);
+        ByteSequence shared = message.getCachedMarshalledForm(first);
+        assertNotNull(shared);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        second.marshal(dispatch(message, 2), new DataOutputStream(bytes));
+        dispatch = (MessageDispatch) reader.unmarshal(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertDispatch(dispatch, 2, message);
+        assertSame(shared, message.getCachedMarshalledForm(second));
+
+        // a redelivery changes the message, so it is encoded again
+        message.incrementRedeliveryCounter();
+        assertNull(message.getCachedMarshalledForm(first));
+        dispatch = (MessageDispatch) reader.unmarshal(first.marshal(dispatch(message, 3)));
+        assertDispatch(dispatch, 3, message);
+        assertNotSame(shared, message.getCachedMarshalledForm(first));
+    }
+
+    @Test
+    public void testNotSharedUnlessEnabledAndUncached() throws Exception {
+        ActiveMQTextMessage message = createMessage();
+        message.setMarshalledFormShared(true);
+
+        OpenWireFormat reader = createFormat(false);
+        reader.unmarshal(createFormat(false).marshal(dispatch(message, 1)));
+        assertNull(message.getCachedMarshalledForm(reader));
+
+        OpenWireFormat cached = createFormat(true);
+        cached.setCacheEnabled(true);
+        OpenWireFormat cachedReader = createFormat(false);
+        cachedReader.setCacheEnabled(true);
+        assertDispatch((MessageDispatch) cachedReader.unmarshal(cached.marshal(dispatch(message, 1))), 1, message);
+        assertNull(message.getCachedMarshalledForm(cached));
+
+        ActiveMQTextMessage unmarked = createMessage();
+        assertDispatch((MessageDispatch) reader.unmarshal(createFormat(true).marshal(dispatch(unmarked, 1))), 1, unmarked);
+        assertNull(unmarked.getCachedMarshalledForm(reader));
+    }
+
+    @Test
+    public void testSharedEncodingIsChargedToMemoryUsage() throws Exception {
+        ActiveMQTextMessage message = createMessage();
+        message.setMarshalledFormShared(true);
+        MemoryUsage usage = new MemoryUsage("shared encoding");
+        message.setMemoryUsage(usage);
+        OpenWireFormat format = createFormat(true);
+
+        // not referenced, so nothing would release it
+        format.marshal(dispatch(message, 1));
+        assertNull(message.getCachedMarshalledForm(format));
+        assertEquals(0, usage.getUsage());
+
+        message.incrementReferenceCount();
+        format.marshal(dispatch(message, 1));
+        ByteSequence shared = message.getCachedMarshalledForm(format);
+        assertNotNull(shared);
+        assertEquals(message.getSize() + shared.getLength(), usage.getUsage());
+
+        message.decrementReferenceCount();
+        assertNull(message.getCachedMarshalledForm(format));
+        assertEquals(0, usage.getUsage());
+    }
+
+    private OpenWireFormat createFormat(boolean shared) {
+        OpenWireFormat format = new OpenWireFormat(version);
+        format.setTightEncodingEnabled(true);
+        format.setSharedMessageEncodingEnabled(shared);
+        return format;
+    }
+
+    private ActiveMQTextMessage createMessage() throws Exception {
+        ActiveMQTextMessage message = new ActiveMQTextMessage();
+        message.setMessageId(new MessageId(new ProducerId("ID:producer-1:1:1"), 1));
+        message.setDestination(new ActiveMQTopic("market.data"));
+        message.setText("price update");
+        message.setIntProperty("price", 42);
+        return message;
+    }
+
+    private MessageDispatch dispatch(ActiveMQTextMessage message, long consumer) {
+        MessageDispatch dispatch = new MessageDispatch();
+        dispatch.setConsumerId(consumerId(consumer));
+        dispatch.setDestination(message.getDestination());
+        dispatch.setMessage(message);
+        dispatch.setRedeliveryCounter((int) consumer);
+        return dispatch;
+    }
+
+    private ConsumerId consumerId(long consumer) {
+        return new ConsumerId(new SessionId(new ConnectionId("ID:consumer-1"), 1), consumer);
+    }
+
+    private void assertDispatch(MessageDispatch dispatch, long consumer, ActiveMQTextMessage expected) throws Exception {
+        assertEquals(consumerId(consumer), dispatch.getConsumerId());
+        assertEquals(consumer, dispatch.getRedeliveryCounter());
+        ActiveMQTextMessage message = (ActiveMQTextMessage) dispatch.getMessage();
+        assertEquals(expected.getMessageId(), message.getMessageId());
+        assertEquals(expected.getRedeliveryCounter(), message.getRedeliveryCounter());
+        assertEquals("price update", message.getText());
+        assertEquals(42, message.getIntProperty("price"));
+    }
+}
@@ -16,6 +16,8 @@
  */
 package org.apache.activemq.thread;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
@@ -24,6 +26,11 @@ import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.Test;
 
@@ -74,4 +81,75 @@ public class TaskRunnerFactoryTest {
             assertTrue(runner instanceof PooledTaskRunner);
         }
     }
+
+    @Test
+    public void testVirtualThreads() throws Exception {
+        final AtomicReference<Thread> ran = new AtomicReference<>();
+        final CountDownLatch executed = new CountDownLatch(1);
+
+        TaskRunnerFactory pooled = new TaskRunnerFactory();
+        pooled.setUseVirtualThreads(true);
+        pooled.execute(new Runnable() {
+            @Override
+            public void run() {
+                ran.set(Thread.currentThread());
+                executed.countDown();
+            }
+        });
+        assertTrue(executed.await(10, TimeUnit.SECONDS));
+        // platform threads are used where the JDK has no virtual threads
+        assertEquals(VirtualThreads.isAvailable(), VirtualThreads.isVirtual(ran.get()));
+        pooled.shutdownNow();
+
+        final CountDownLatch iterated = new CountDownLatch(1);
+        TaskRunnerFactory dedicated = new TaskRunnerFactory("dedicated", Thread.NORM_PRIORITY, true, 1000, true);
+        dedicated.setUseVirtualThreads(true);
+        TaskRunner runner = dedicated.createTaskRunner(new Task() {
+            @Override
+            public boolean iterate() {
+                ran.set(Thread.currentThread());
+                iterated.countDown();
+                return false;
+            }
+        }, "dedicated task");
+        assertTrue(iterated.await(10, TimeUnit.SECONDS));
+        assertEquals(VirtualThreads.isAvailable(), VirtualThreads.isVirtual(ran.get()));
+        runner.shutdown(10000);
+    }
+
+    @Test
+    public void testVirtualThreadExecutorKeepsThreadSettings() throws Exception {
+        final ClassLoader classLoader = new ClassLoader(getClass().getClassLoader()) { };
+        final AtomicReference<ClassLoader> ranWith = new AtomicReference<>();
+        final AtomicBoolean rejected = new AtomicBoolean();
+        final CountDownLatch executed = new CountDownLatch(1);
+
+        TaskRunnerFactory factory = new TaskRunnerFactory();
+        factory.setUseVirtualThreads(true);
+        factory.setThreadClassLoader(classLoader);
+        factory.setRejectedTaskHandler(new RejectedExecutionHandler() {
+            @Override
+            public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+                rejected.set(true);
+            }
+        });
+        factory.execute(new Runnable() {
+            @Override
+            public void run() {
+                ranWith.set(Thread.currentThread().getContextClassLoader());
+                executed.countDown();
+            }
+        });
+        assertTrue(executed.await(10, TimeUnit.SECONDS));
+        assertSame(classLoader, ranWith.get());
+
+        ExecutorService executor = factory.getExecutor();
+        executor.shutdown();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+        assertTrue(rejected.get());
+    }
 }
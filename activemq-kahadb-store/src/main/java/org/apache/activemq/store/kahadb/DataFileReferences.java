@@ -0,0 +1,120 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.store.kahadb;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.activemq.store.kahadb.disk.page.Transaction;
+
+/**
+ * Counts the live location index entries of every journal data file.
+ *
+ * The counts are built once from a full walk of the location indexes and then follow every
+ * location added to or removed from them, so a data file without references can be found
+ * without visiting the location index of each destination on every cleanup. Changes are
+ * collected per index transaction and only applied once it commits, a rolled back
+ * transaction leaves the counts as they were.
+ */
+class DataFileReferences {
+
+    private final ConcurrentHashMap<Integer, Long> counts = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Transaction, Changes> pending = new ConcurrentHashMap<>();
+    private volatile boolean initialized;
+    // bumped on every initialize and reset so changes counted against older counts are dropped
+    private volatile int generation;
+
+    void added(Transaction tx, int dataFileId) {
+        if (initialized) {
+            changesOf(tx).merge(dataFileId, 1L, Long::sum);
+        }
+    }
+
+    void removed(Transaction tx, int dataFileId) {
+        if (initialized) {
+            changesOf(tx).merge(dataFileId, -1L, Long::sum);
+        }
+    }
+
+    boolean isReferenced(int dataFileId) {
+        return counts.containsKey(dataFileId);
+    }
+
+    long getCount(int dataFileId) {
+        Long count = counts.get(dataFileId);
+        return count != null ? count : 0;
+    }
+
+    boolean isInitialized() {
+        return initialized;
+    }
+
+    /**
+     * Starts tracking with the counts of a full walk, the caller has to keep the location
+     * indexes from changing until this returns.
+     */
+    void initialize(Map<Integer, Long> walked) {
+        generation++;
+        counts.clear();
+        counts.putAll(walked);
+        initialized = true;
+    }
+
+    void reset() {
+        generation++;
+        initialized = false;
+        counts.clear();
+    }
+
+    private Changes changesOf(Transaction tx) {
+        Changes changes = pending.get(tx);
+        if (changes == null) {
+            changes = new Changes(generation);
+            pending.put(tx, changes);
+            tx.addSynchronization(changes);
+        }
+        return changes;
+    }
+
+    /**
+     * The count changes made by one index transaction, a transaction is only used by one
+     * thread at a time.
+     */
+    private final class Changes extends HashMap<Integer, Long> implements Transaction.Synchronization {
+
+        private static final long serialVersionUID = 1L;
+        private final int startedIn;
+
+        Changes(int generation) {
+            this.startedIn = generation;
+        }
+
+        @Override
+        public void afterCompletion(Transaction tx, boolean committed) {
+            pending.remove(tx);
+            if (committed && initialized && startedIn == generation) {
+                for (Map.Entry<Integer, Long> change : entrySet()) {
+                    counts.compute(change.getKey(), (id, count) -> {
+                        long updated = (count != null ? count : 0) + change.getValue();
+                        return updated > 0 ? updated : null;
+                    });
+                }
+            }
+        }
+    }
+}
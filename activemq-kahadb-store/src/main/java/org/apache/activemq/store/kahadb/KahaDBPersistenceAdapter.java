@@ -524,6 +524,114 @@ public class KahaDBPersistenceAdapter extends LockableServiceSupport implements
         this.letter.setIndexCacheSize(indexCacheSize);
     }
 
+    public int getRecoveryThreads() {
+        return this.letter.getRecoveryThreads();
+    }
+
+    /**
+     * Set the number of threads used to replay the journal into the index on startup
+     * after an unclean shutdown. Data files are decoded in parallel and the index updates
+     * of different destinations are applied concurrently, the updates of one destination
+     * stay in journal order. The default of 0 replays on the starting thread only.
+     *
+     * @param recoveryThreads
+     *            the recoveryThreads to set
+     */
+    public void setRecoveryThreads(int recoveryThreads) {
+        this.letter.setRecoveryThreads(recoveryThreads);
+    }
+
+    public boolean isIncrementalJournalCleanup() {
+        return this.letter.isIncrementalJournalCleanup();
+    }
+
+    /**
+     * Keep a count of the live index references to each journal data file as messages are
+     * added and removed, so journal cleanup finds unreferenced files from the counts instead
+     * of visiting the location index of every destination while holding the index lock.
+     * The counts are built by one full walk on the first cleanup. Defaults to false.
+     *
+     * @param incrementalJournalCleanup
+     *            the incrementalJournalCleanup to set
+     */
+    public void setIncrementalJournalCleanup(boolean incrementalJournalCleanup) {
+        this.letter.setIncrementalJournalCleanup(incrementalJournalCleanup);
+    }
+
+    public boolean isCompactAckPositions() {
+        return this.letter.isCompactAckPositions();
+    }
+
+    /**
+     * Write the pending ack positions of durable topic subscriptions as variable length
+     * range deltas instead of fixed size longs, so more subscriptions fit in an index page
+     * and fewer pages are rewritten as messages are added and acked. Both formats are read
+     * regardless of this setting, a store written with it can not be opened by versions
+     * that predate it. Defaults to false.
+     *
+     * @param compactAckPositions
+     *            the compactAckPositions to set
+     */
+    public void setCompactAckPositions(boolean compactAckPositions) {
+        this.letter.setCompactAckPositions(compactAckPositions);
+    }
+
+    public boolean isLazyIndexLoad() {
+        return this.letter.isLazyIndexLoad();
+    }
+
+    /**
+     * Open the store without loading the index of every destination when the journal
+     * needs no replay. A destination is loaded and checked against the journal on first
+     * access while a background thread loads the rest and restores the producer audit.
+     * Journal files are not cleaned up until all destinations are loaded. Defaults to false.
+     *
+     * @param lazyIndexLoad
+     *            the lazyIndexLoad to set
+     */
+    public void setLazyIndexLoad(boolean lazyIndexLoad) {
+        this.letter.setLazyIndexLoad(lazyIndexLoad);
+    }
+
+    public long getIndexOffHeapCacheSize() {
+        return this.letter.getIndexOffHeapCacheSize();
+    }
+
+    /**
+     * Set the number of bytes of raw index pages to keep in direct memory below the
+     * indexCacheSize page object cache, 0 (the default) disables the off heap cache.
+     * Cache hits, misses and evictions are reported by the PersistenceAdapter mbean.
+     * When set using Xbean, values of the form "20 Mb", "1024kb", and "1g" can be used
+     * @org.apache.xbean.Property propertyEditor="org.apache.activemq.util.MemoryPropertyEditor"
+     * @param indexOffHeapCacheSize
+     *            the indexOffHeapCacheSize to set
+     */
+    public void setIndexOffHeapCacheSize(long indexOffHeapCacheSize) {
+        this.letter.setIndexOffHeapCacheSize(indexOffHeapCacheSize);
+    }
+
+    /**
+     * Get the number of stripes the index lock is partitioned into
+     *
+     * @return the indexLockStripes, 0 when all index updates share a single lock
+     */
+    public int getIndexLockStripes() {
+        return this.letter.getIndexLockStripes();
+    }
+
+    /**
+     * Partition the index lock into the given number of destination stripes so that
+     * index updates for different destinations can proceed concurrently. Checkpoints,
+     * destination creation/removal and transaction commits still lock the whole index.
+     * The default of 0 keeps a single index lock.
+     *
+     * @param indexLockStripes
+     *            the number of stripes, rounded up to a power of two
+     */
+    public void setIndexLockStripes(int indexLockStripes) {
+        this.letter.setIndexLockStripes(indexLockStripes);
+    }
+
     /**
      * Get the ignoreMissingJournalfiles
      *
@@ -555,6 +663,63 @@ public class KahaDBPersistenceAdapter extends LockableServiceSupport implements
         letter.setChecksumJournalFiles(checksumJournalFiles);
     }
 
+    public boolean isJournalMemoryMappedReads() {
+        return letter.isJournalMemoryMappedReads();
+    }
+
+    /**
+     * Read messages from journal data files that are no longer appended to through a
+     * read only memory mapping rather than a seek and read on a pooled file handle.
+     *
+     * @param journalMemoryMappedReads
+     */
+    public void setJournalMemoryMappedReads(boolean journalMemoryMappedReads) {
+        letter.setJournalMemoryMappedReads(journalMemoryMappedReads);
+    }
+
+    public boolean isJournalGroupCommit() {
+        return letter.isJournalGroupCommit();
+    }
+
+    /**
+     * Write journal batches through the data file channel from pooled direct buffers and
+     * force batches that queue up behind each other to disk with a single sync.
+     *
+     * @param journalGroupCommit
+     */
+    public void setJournalGroupCommit(boolean journalGroupCommit) {
+        letter.setJournalGroupCommit(journalGroupCommit);
+    }
+
+    public long getJournalGroupCommitMaxLatency() {
+        return letter.getJournalGroupCommitMaxLatency();
+    }
+
+    /**
+     * When journalGroupCommit is enabled, the max number of microseconds the journal
+     * writer waits for more write batches before forcing a group to disk. The default of
+     * 0 never delays a sync write.
+     *
+     * @param journalGroupCommitMaxLatency
+     */
+    public void setJournalGroupCommitMaxLatency(long journalGroupCommitMaxLatency) {
+        letter.setJournalGroupCommitMaxLatency(journalGroupCommitMaxLatency);
+    }
+
+    public int getJournalGroupCommitMaxBytes() {
+        return letter.getJournalGroupCommitMaxBytes();
+    }
+
+    /**
+     * When journalGroupCommit is enabled, the number of bytes after which a group of
+     * write batches is written and forced without waiting any longer.
+     *
+     * @param journalGroupCommitMaxBytes
+     */
+    public void setJournalGroupCommitMaxBytes(int journalGroupCommitMaxBytes) {
+        letter.setJournalGroupCommitMaxBytes(journalGroupCommitMaxBytes);
+    }
+
     public void setCheckForCorruptJournalFiles(boolean checkForCorruptJournalFiles) {
         letter.setCheckForCorruptJournalFiles(checkForCorruptJournalFiles);
     }
@@ -613,6 +778,20 @@ public class KahaDBPersistenceAdapter extends LockableServiceSupport implements
         letter.setConcurrentStoreAndDispatchQueues(concurrentStoreAndDispatch);
     }
 
+    public boolean isCombineQueueRemoves() {
+        return letter.isCombineQueueRemoves();
+    }
+
+    /**
+     * When enabled a batch of queue removals is journaled as a single record. A
+     * journal holding such records cannot be read by a broker that predates them.
+     *
+     * @param combineQueueRemoves
+     */
+    public void setCombineQueueRemoves(boolean combineQueueRemoves) {
+        letter.setCombineQueueRemoves(combineQueueRemoves);
+    }
+
     public boolean isConcurrentStoreAndDispatchTopics() {
         return letter.isConcurrentStoreAndDispatchTopics();
     }
@@ -42,6 +42,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
 
 import org.apache.activemq.broker.ConnectionContext;
 import org.apache.activemq.broker.region.BaseDestination;
@@ -58,6 +59,7 @@ import org.apache.activemq.command.ProducerId;
 import org.apache.activemq.command.SubscriptionInfo;
 import org.apache.activemq.openwire.OpenWireFormat;
 import org.apache.activemq.protobuf.Buffer;
+import org.apache.activemq.protobuf.CodedOutputStream;
 import org.apache.activemq.store.AbstractMessageStore;
 import org.apache.activemq.store.IndexListener;
 import org.apache.activemq.store.ListenableFuture;
@@ -77,6 +79,7 @@ import org.apache.activemq.store.kahadb.data.KahaDestination.DestinationType;
 import org.apache.activemq.store.kahadb.data.KahaLocation;
 import org.apache.activemq.store.kahadb.data.KahaRemoveDestinationCommand;
 import org.apache.activemq.store.kahadb.data.KahaRemoveMessageCommand;
+import org.apache.activemq.store.kahadb.data.KahaRemoveMessagesCommand;
 import org.apache.activemq.store.kahadb.data.KahaSubscriptionCommand;
 import org.apache.activemq.store.kahadb.data.KahaUpdateMessageCommand;
 import org.apache.activemq.store.kahadb.disk.journal.Location;
@@ -88,13 +91,15 @@ import org.apache.activemq.usage.SystemUsage;
 import org.apache.activemq.util.IOExceptionSupport;
 import org.apache.activemq.util.ServiceStopper;
 import org.apache.activemq.util.ThreadPoolUtils;
-import org.apache.activemq.wireformat.WireFormat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class KahaDBStore extends MessageDatabase implements PersistenceAdapter, NoLocalSubscriptionAware {
     static final Logger LOG = LoggerFactory.getLogger(KahaDBStore.class);
     private static final int MAX_ASYNC_JOBS = BaseDestination.MAX_AUDIT_DEPTH;
+    // field number of the message body in KahaAddMessageCommand, see journal-data.proto
+    private static final int ADD_MESSAGE_FIELD = 4;
+    private static final int MAX_VARINT32_SIZE = 5;
 
     public static final String PROPERTY_CANCELED_TASK_MOD_METRIC = "org.apache.activemq.store.kahadb.CANCELED_TASK_MOD_METRIC";
     public static final int cancelledTaskModMetric = Integer.parseInt(System.getProperty(
@@ -107,7 +112,7 @@ public class KahaDBStore extends MessageDatabase implements PersistenceAdapter,
     protected ExecutorService topicExecutor;
     protected final List<Map<AsyncJobKey, StoreTask>> asyncQueueMaps = new LinkedList<>();
     protected final List<Map<AsyncJobKey, StoreTask>> asyncTopicMaps = new LinkedList<>();
-    final WireFormat wireFormat = new OpenWireFormat();
+    final OpenWireFormat wireFormat = new OpenWireFormat();
     private SystemUsage usageManager;
     private LinkedBlockingQueue<Runnable> asyncQueueJobQueue;
     private LinkedBlockingQueue<Runnable> asyncTopicJobQueue;
@@ -117,6 +122,8 @@ public class KahaDBStore extends MessageDatabase implements PersistenceAdapter,
     // when true, message order may be compromised when cache is exhausted if store is out
     // or order w.r.t cache
     private boolean concurrentStoreAndDispatchTopics = false;
+    // older brokers cannot replay the combined remove record, so it is opt in
+    private boolean combineQueueRemoves = false;
     private int maxAsyncJobs = MAX_ASYNC_JOBS;
     private final KahaDBTransactionStore transactionStore;
     private TransactionIdTransformer transactionIdTransformer;
@@ -159,6 +166,24 @@ public class KahaDBStore extends MessageDatabase implements PersistenceAdapter,
         this.concurrentStoreAndDispatchQueues = concurrentStoreAndDispatch;
     }
 
+    /**
+     * @return true if a batch of queue removals is journaled as a single record
+     */
+    public boolean isCombineQueueRemoves() {
+        return this.combineQueueRemoves;
+    }
+
+    /**
+     * When enabled a batch of queue removals is journaled as a single record rather
+     * than a record per message. The journal can then no longer be read by a broker
+     * that predates the combined record.
+     *
+     * @param combineQueueRemoves
+     */
+    public void setCombineQueueRemoves(boolean combineQueueRemoves) {
+        this.combineQueueRemoves = combineQueueRemoves;
+    }
+
     /**
      * @return the concurrentStoreAndDispatch
      */
@@ -507,39 +532,66 @@ public class KahaDBStore extends MessageDatabase implements PersistenceAdapter,
 
         @Override
         public void removeAsyncMessage(ConnectionContext context, MessageAck ack) throws IOException {
-            if (isConcurrentStoreAndDispatchQueues()) {
-                AsyncJobKey key = new AsyncJobKey(ack.getLastMessageId(), getDestination());
-                StoreQueueTask task = null;
-                synchronized (asyncTaskMap) {
-                    task = (StoreQueueTask) asyncTaskMap.get(key);
+            if (isConcurrentStoreAndDispatchQueues() && cancelPendingAdd(ack)) {
+                return;
+            }
+            removeMessage(context, ack);
+        }
+
+        @Override
+        public void removeAsyncMessages(ConnectionContext context, List<MessageAck> acks) throws IOException {
+            if (!isCombineQueueRemoves() || acks.size() < 2) {
+                super.removeAsyncMessages(context, acks);
+                return;
+            }
+            KahaRemoveMessagesCommand command = new KahaRemoveMessagesCommand();
+            command.setDestination(dest);
+            boolean sync = false;
+            for (MessageAck ack : acks) {
+                if (isConcurrentStoreAndDispatchQueues() && cancelPendingAdd(ack)) {
+                    continue;
                 }
-                if (task != null) {
-                    if (ack.isInTransaction() || !task.cancel()) {
-                        try {
-                            task.future.get();
-                        } catch (InterruptedException e) {
-                            throw new InterruptedIOException(e.toString());
-                        } catch (Exception ignored) {
-                            LOG.debug("removeAsync: cannot cancel, waiting for add resulted in ex", ignored);
-                        }
-                        removeMessage(context, ack);
-                    } else {
-                        indexLock.writeLock().lock();
-                        try {
-                            metadata.producerSequenceIdTracker.isDuplicate(ack.getLastMessageId());
-                        } finally {
-                            indexLock.writeLock().unlock();
-                        }
-                        synchronized (asyncTaskMap) {
-                            asyncTaskMap.remove(key);
-                        }
-                    }
-                } else {
-                    removeMessage(context, ack);
+                command.addMessageId(ack.getLastMessageId().toProducerKey());
+                sync |= ack.isResponseRequired();
+            }
+            if (command.getMessageIdCount() > 0) {
+                store(command, isEnableJournalDiskSyncs() && sync, null, null);
+            }
+        }
+
+        /**
+         * @return true if the ack cancelled the pending async add of its message,
+         *         which then needs no remove record
+         */
+        private boolean cancelPendingAdd(MessageAck ack) throws IOException {
+            AsyncJobKey key = new AsyncJobKey(ack.getLastMessageId(), getDestination());
+            StoreQueueTask task = null;
+            synchronized (asyncTaskMap) {
+                task = (StoreQueueTask) asyncTaskMap.get(key);
+            }
+            if (task == null) {
+                return false;
+            }
+            if (ack.isInTransaction() || !task.cancel()) {
+                try {
+                    task.future.get();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException(e.toString());
+                } catch (Exception ignored) {
+                    LOG.debug("removeAsync: cannot cancel, waiting for add resulted in ex", ignored);
                 }
-            } else {
-                removeMessage(context, ack);
+                return false;
+            }
+            indexLock.writeLock().lock();
+            try {
+                metadata.producerSequenceIdTracker.isDuplicate(ack.getLastMessageId());
+            } finally {
+                indexLock.writeLock().unlock();
             }
+            synchronized (asyncTaskMap) {
+                asyncTaskMap.remove(key);
+            }
+            return true;
         }
 
         @Override
@@ -550,9 +602,8 @@ public class KahaDBStore extends MessageDatabase implements PersistenceAdapter,
             command.setTransactionInfo(TransactionIdConversion.convert(transactionIdTransformer.transform(message.getTransactionId())));
             command.setPriority(message.getPriority());
             command.setPrioritySupported(isPrioritizedMessages());
-            org.apache.activemq.util.ByteSequence packet = wireFormat.marshal(message);
-            command.setMessage(new Buffer(packet.getData(), packet.getOffset(), packet.getLength()));
-            store(command, isEnableJournalDiskSyncs() && message.isResponseRequired(), new IndexAware() {
+            org.apache.activemq.util.ByteSequence record = toByteSequence(command, message);
+            store(command, record, isEnableJournalDiskSyncs() && message.isResponseRequired(), new IndexAware() {
                 // sync add? (for async, future present from getFutureOrSequenceLong)
                 Object possibleFuture = message.getMessageId().getFutureOrSequenceLong();
 
@@ -571,7 +622,7 @@ public class KahaDBStore extends MessageDatabase implements PersistenceAdapter,
                         }
                     }
                 }
-            }, null);
+            }, null, null);
 
             /*
              * After we store the command in the journal we no longer need to keep the message
@@ -641,11 +692,11 @@ public class KahaDBStore extends MessageDatabase implements PersistenceAdapter,
             // operations... but for now we must
             // externally synchronize...
             Location location;
-            indexLock.writeLock().lock();
+            Lock lock = lockIndex(dest);
             try {
                 location = findMessageLocation(key, dest);
             } finally {
-                indexLock.writeLock().unlock();
+                lock.unlock();
             }
             if (location == null) {
                 return null;
@@ -656,7 +707,7 @@ public class KahaDBStore extends MessageDatabase implements PersistenceAdapter,
 
         @Override
         public boolean isEmpty() throws IOException {
-            indexLock.writeLock().lock();
+            Lock lock = lockIndex(dest);
             try {
                 return pageFile.tx().execute(new Transaction.CallableClosure<Boolean, IOException>() {
                     @Override
@@ -668,7 +719,7 @@ public class KahaDBStore extends MessageDatabase implements PersistenceAdapter,
                     }
                 });
             } finally {
-                indexLock.writeLock().unlock();
+                lock.unlock();
             }
         }
 
@@ -768,7 +819,7 @@ public class KahaDBStore extends MessageDatabase implements PersistenceAdapter,
         @Override
         public void resetBatching() {
             if (pageFile.isLoaded()) {
-                indexLock.writeLock().lock();
+                Lock lock = lockIndex(dest);
                 try {
                     pageFile.tx().execute(new Transaction.Closure<Exception>() {
                         @Override
@@ -781,14 +832,14 @@ public class KahaDBStore extends MessageDatabase implements PersistenceAdapter,
                 } catch (Exception e) {
                     LOG.error("Failed to reset batching",e);
                 } finally {
-                    indexLock.writeLock().unlock();
+                    lock.unlock();
                 }
             }
         }
 
         @Override
         public void setBatch(final MessageId identity) throws IOException {
-            indexLock.writeLock().lock();
+            Lock lock = lockIndex(dest);
             try {
                 pageFile.tx().execute(new Transaction.Closure<IOException>() {
                     @Override
@@ -803,7 +854,7 @@ public class KahaDBStore extends MessageDatabase implements PersistenceAdapter,
                     }
                 });
             } finally {
-                indexLock.writeLock().unlock();
+                lock.unlock();
             }
         }
 
@@ -1374,7 +1425,8 @@ public class KahaDBStore extends MessageDatabase implements PersistenceAdapter,
     }
 
     @Override
-    public long getLastProducerSequenceId(ProducerId id) {
+    public long getLastProducerSequenceId(ProducerId id) throws IOException {
+        awaitProducerAudit();
         indexLock.writeLock().lock();
         try {
             return metadata.producerSequenceIdTracker.getLastSeqId(id);
@@ -1414,6 +1466,42 @@ public class KahaDBStore extends MessageDatabase implements PersistenceAdapter,
     // Internal helper methods.
     // /////////////////////////////////////////////////////////////////
 
+    /**
+     * Builds the journal record of an add command by marshalling the message with enough
+     * headroom to write the framed command header in front of it, so the message body is not
+     * copied again into a separate record buffer. The message field is written last, which
+     * protobuf accepts in any field order, so the record reads back as a normal add command.
+     *
+     * @param command
+     *        the add command, its message is set to the marshalled message on return
+     * @param message
+     *        the message to marshal
+     * @return the journal record
+     * @throws IOException
+     */
+    org.apache.activemq.util.ByteSequence toByteSequence(KahaAddMessageCommand command, Message message) throws IOException {
+        command.clearMessage();
+        int fieldsSize = command.serializedSizeUnframed();
+        int messageTagSize = CodedOutputStream.computeTagSize(ADD_MESSAGE_FIELD);
+        int headroom = 1 + MAX_VARINT32_SIZE + fieldsSize + messageTagSize + MAX_VARINT32_SIZE;
+        org.apache.activemq.util.ByteSequence packet = wireFormat.marshal(message, headroom);
+
+        int messageSize = packet.getLength();
+        int unframedSize = fieldsSize + messageTagSize + CodedOutputStream.computeRawVarint32Size(messageSize) + messageSize;
+        int headerSize = 1 + CodedOutputStream.computeRawVarint32Size(unframedSize) + unframedSize - messageSize;
+        int offset = packet.getOffset() - headerSize;
+        CodedOutputStream header = new CodedOutputStream(new Buffer(packet.getData(), offset, headerSize));
+        header.writeRawByte(command.type().getNumber());
+        header.writeRawVarint32(unframedSize);
+        command.writeUnframed(header);
+        header.writeTag(ADD_MESSAGE_FIELD, org.apache.activemq.protobuf.WireFormat.WIRETYPE_LENGTH_DELIMITED);
+        header.writeRawVarint32(messageSize);
+        header.flush();
+
+        command.setMessage(new Buffer(packet.getData(), packet.getOffset(), messageSize));
+        return new org.apache.activemq.util.ByteSequence(packet.getData(), offset, headerSize + messageSize);
+    }
+
     /**
      * @param location
      * @return
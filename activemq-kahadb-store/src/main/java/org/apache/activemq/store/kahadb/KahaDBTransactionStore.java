@@ -175,6 +175,11 @@ public class KahaDBTransactionStore implements TransactionStore {
             public void removeAsyncMessage(ConnectionContext context, MessageAck ack) throws IOException {
                 KahaDBTransactionStore.this.removeAsyncMessage(context, getDelegate(), ack);
             }
+
+            @Override
+            public void removeAsyncMessages(ConnectionContext context, List<MessageAck> acks) throws IOException {
+                KahaDBTransactionStore.this.removeAsyncMessages(context, getDelegate(), acks);
+            }
         };
     }
 
@@ -350,6 +355,11 @@ public class KahaDBTransactionStore implements TransactionStore {
         destination.removeAsyncMessage(context, ack);
     }
 
+    final void removeAsyncMessages(ConnectionContext context, final MessageStore destination, final List<MessageAck> acks)
+            throws IOException {
+        destination.removeAsyncMessages(context, acks);
+    }
+
     final void acknowledge(ConnectionContext context, final TopicMessageStore destination, final String clientId, final String subscriptionName,
                            final MessageId messageId, final MessageAck ack) throws IOException {
         destination.acknowledge(context, clientId, subscriptionName, messageId, ack);
@@ -51,6 +51,8 @@ import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
@@ -58,6 +60,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.activemq.ActiveMQMessageAuditNoSync;
@@ -83,6 +86,7 @@ import org.apache.activemq.store.kahadb.data.KahaPrepareCommand;
 import org.apache.activemq.store.kahadb.data.KahaProducerAuditCommand;
 import org.apache.activemq.store.kahadb.data.KahaRemoveDestinationCommand;
 import org.apache.activemq.store.kahadb.data.KahaRemoveMessageCommand;
+import org.apache.activemq.store.kahadb.data.KahaRemoveMessagesCommand;
 import org.apache.activemq.store.kahadb.data.KahaRewrittenDataFileCommand;
 import org.apache.activemq.store.kahadb.data.KahaRollbackCommand;
 import org.apache.activemq.store.kahadb.data.KahaSubscriptionCommand;
@@ -97,6 +101,7 @@ import org.apache.activemq.store.kahadb.disk.journal.Journal;
 import org.apache.activemq.store.kahadb.disk.journal.Journal.JournalDiskSyncStrategy;
 import org.apache.activemq.store.kahadb.disk.journal.Location;
 import org.apache.activemq.store.kahadb.disk.journal.TargetedDataFileAppender;
+import org.apache.activemq.store.kahadb.disk.page.OffHeapPageCache;
 import org.apache.activemq.store.kahadb.disk.page.Page;
 import org.apache.activemq.store.kahadb.disk.page.PageFile;
 import org.apache.activemq.store.kahadb.disk.page.Transaction;
@@ -135,6 +140,7 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
     static final int CLOSED_STATE = 1;
     static final int OPEN_STATE = 2;
     static final long NOT_ACKED = -1;
+    static final int INDEX_LOADER_BATCH_SIZE = 100;
 
     static final int VERSION = 7;
 
@@ -282,9 +288,25 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
     protected AtomicBoolean opened = new AtomicBoolean();
     private boolean ignoreMissingJournalfiles = false;
     private int indexCacheSize = 10000;
+    private long indexOffHeapCacheSize = 0;
+    private int recoveryThreads = 0;
+    private boolean lazyIndexLoad = false;
+    private boolean compactAckPositions = false;
+    private boolean incrementalJournalCleanup = false;
+    private final DataFileReferences dataFileReferences = new DataFileReferences();
+    private volatile boolean storedDestinationsLoaded = true;
+    private volatile CountDownLatch producerAuditRestored;
+    // message ids recorded while the stored producer audit is restored in the background, guarded by sharedMetadataMutex
+    private List<String> producerAuditBacklog;
+    private ExecutorService indexLoader;
+    private Location lazyLoadAppendLocation;
     private boolean checkForCorruptJournalFiles = false;
     protected PurgeRecoveredXATransactionStrategy purgeRecoveredXATransactionStrategy = PurgeRecoveredXATransactionStrategy.NEVER;
     private boolean checksumJournalFiles = true;
+    private boolean journalMemoryMappedReads = false;
+    private boolean journalGroupCommit = false;
+    private long journalGroupCommitMaxLatency = 0;
+    private int journalGroupCommitMaxBytes = Journal.DEFAULT_MAX_WRITE_BATCH_SIZE;
     protected boolean forceRecoverIndex = false;
     private boolean archiveCorruptedIndex = false;
     private boolean useIndexLFRUEviction = false;
@@ -328,6 +350,12 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
         try {
             final PageFile pageFile = getPageFile();
             pageFile.load();
+            OffHeapPageCache offHeapPageCache = pageFile.getOffHeapPageCache();
+            if (offHeapPageCache != null) {
+                offHeapPageCache.getHits().setParent(persistenceAdapterStatistics.getPageCacheHits());
+                offHeapPageCache.getMisses().setParent(persistenceAdapterStatistics.getPageCacheMisses());
+                offHeapPageCache.getEvictions().setParent(persistenceAdapterStatistics.getPageCacheEvictions());
+            }
             pageFile.tx().execute(new Transaction.Closure<IOException>() {
                 @Override
                 public void execute(Transaction tx) throws IOException {
@@ -354,28 +382,213 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
             // Load up all the destinations since we need to scan all the indexes to figure out which journal files can be deleted.
             // Perhaps we should just keep an index of file
             storedDestinations.clear();
-            pageFile.tx().execute(new Transaction.Closure<IOException>() {
+            if (lazyIndexLoad && !forceRecoverIndex) {
+                // destinations get loaded on first access and by the background index loader, unless recovery needs them all
+                storedDestinationsLoaded = false;
+            } else {
+                storedDestinationsLoaded = true;
+                loadStoredDestinations();
+            }
+            pageFile.flush();
+        } finally {
+            this.indexLock.writeLock().unlock();
+        }
+    }
+
+    private void loadStoredDestinations() throws IOException {
+        pageFile.tx().execute(new Transaction.Closure<IOException>() {
+            @Override
+            public void execute(Transaction tx) throws IOException {
+                loadStoredDestinations(tx, null, Integer.MAX_VALUE);
+            }
+        });
+    }
+
+    /**
+     * Loads the stored destinations that are not loaded yet, in key order.
+     *
+     * @return the key to continue from once max destinations were loaded, null when the end was reached
+     */
+    private String loadStoredDestinations(Transaction tx, String fromKey, int max) throws IOException {
+        int loaded = 0;
+        Iterator<Entry<String, StoredDestination>> iterator = fromKey == null ? metadata.destinations.iterator(tx) : metadata.destinations.iterator(tx, fromKey);
+        while (iterator.hasNext()) {
+            Entry<String, StoredDestination> entry = iterator.next();
+            if (storedDestinations.containsKey(entry.getKey())) {
+                continue;
+            }
+            if (loaded == max) {
+                return entry.getKey();
+            }
+            StoredDestination sd = loadStoredDestination(tx, entry.getKey(), entry.getValue().subscriptions!=null);
+            checkStoredDestination(tx, entry.getKey(), sd);
+            storedDestinations.put(entry.getKey(), sd);
+            loaded++;
+        }
+        storedDestinationsLoaded = true;
+        return null;
+    }
+
+    private void checkStoredDestination(Transaction tx, String key, StoredDestination sd) throws IOException {
+        if (checkForCorruptJournalFiles) {
+            // sanity check the index also
+            if (!sd.locationIndex.isEmpty(tx)) {
+                if (sd.orderIndex.nextMessageId <= 0) {
+                    throw new IOException("Detected uninitialized orderIndex nextMessageId with pending messages for " + key);
+                }
+            }
+        }
+        if (!storedDestinationsLoaded) {
+            // recoverIndex was skipped on a lazy start, undo index updates past the journal as it was on start
+            for (MessageKeys keys : removeMessagesFrom(tx, key, sd, lazyLoadAppendLocation)) {
+                LOG.info("[" + key + "] rolled back: " + keys.messageId + " past the journal at: " + keys.location);
+            }
+
+            // and check the journal files this destination references
+            final SequenceSet ss = new SequenceSet();
+            sd.locationIndex.visit(tx, new BTreeVisitor<Location, Long>() {
                 @Override
-                public void execute(Transaction tx) throws IOException {
-                    for (Iterator<Entry<String, StoredDestination>> iterator = metadata.destinations.iterator(tx); iterator.hasNext();) {
-                        Entry<String, StoredDestination> entry = iterator.next();
-                        StoredDestination sd = loadStoredDestination(tx, entry.getKey(), entry.getValue().subscriptions!=null);
-                        storedDestinations.put(entry.getKey(), sd);
-
-                        if (checkForCorruptJournalFiles) {
-                            // sanity check the index also
-                            if (!entry.getValue().locationIndex.isEmpty(tx)) {
-                                if (entry.getValue().orderIndex.nextMessageId <= 0) {
-                                    throw new IOException("Detected uninitialized orderIndex nextMessageId with pending messages for " + entry.getKey());
-                                }
+                public boolean isInterestedInKeysBetween(Location first, Location second) {
+                    return first == null || second == null || !ss.contains(first.getDataFileId(), second.getDataFileId());
+                }
+
+                @Override
+                public void visit(List<Location> keys, List<Long> values) {
+                    for (Location l : keys) {
+                        ss.add(l.getDataFileId());
+                    }
+                }
+            });
+            ArrayList<BTreeVisitor.Predicate<Location>> missingPredicates = new ArrayList<>();
+            while (!ss.isEmpty()) {
+                int fileId = (int) ss.removeFirst();
+                if (!journal.getFileMap().containsKey(fileId)) {
+                    missingPredicates.add(new BTreeVisitor.BetweenVisitor<Location, Long>(new Location(fileId, 0), new Location(fileId + 1, 0)));
+                }
+            }
+            if (!missingPredicates.isEmpty()) {
+                final LinkedHashMap<Long, Location> matches = new LinkedHashMap<>();
+                sd.locationIndex.visit(tx, new BTreeVisitor.OrVisitor<Location, Long>(missingPredicates) {
+                    @Override
+                    protected void matched(Location key, Long value) {
+                        matches.put(value, key);
+                    }
+                });
+                if (!ignoreMissingJournalfiles) {
+                    LOG.error("[" + key + "] references missing journal files: " + matches);
+                    throw new IOException("Detected missing journal files referenced by:[" + key + "] " + matches.size() + " messages affected.");
+                }
+                dropMessages(tx, key, sd, matches.keySet());
+            }
+        }
+    }
+
+    private void startIndexLoader() {
+        indexLoader = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "ActiveMQ KahaDB Index Loader");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        indexLoader.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    restoreProducerAudit();
+                    long start = System.currentTimeMillis();
+                    String next = null;
+                    do {
+                        final String fromKey = next;
+                        indexLock.writeLock().lock();
+                        try {
+                            if (!opened.get() || Thread.currentThread().isInterrupted()) {
+                                return;
                             }
+                            next = pageFile.tx().execute(new Transaction.CallableClosure<String, IOException>() {
+                                @Override
+                                public String execute(Transaction tx) throws IOException {
+                                    return loadStoredDestinations(tx, fromKey, INDEX_LOADER_BATCH_SIZE);
+                                }
+                            });
+                        } finally {
+                            indexLock.writeLock().unlock();
                         }
+                    } while (next != null);
+                    LOG.info("Loaded the index of all destinations in the background in {} seconds.", (System.currentTimeMillis() - start) / 1000.0f);
+                } catch (IOException ioe) {
+                    // as on an eager start, a destination that cannot be loaded fails the store,
+                    // otherwise journal files would never be cleaned up again
+                    LOG.error("Background index load failed", ioe);
+                    if (brokerService != null) {
+                        brokerService.handleIOException(ioe);
+                    }
+                } catch (Throwable e) {
+                    LOG.error("Background index load failed", e);
+                    if (brokerService != null) {
+                        brokerService.handleIOException(IOExceptionSupport.create(e));
                     }
                 }
-            });
-            pageFile.flush();
-        } finally {
-            this.indexLock.writeLock().unlock();
+            }
+        });
+    }
+
+    private void stopIndexLoader() {
+        if (indexLoader != null) {
+            ThreadPoolUtils.shutdownGraceful(indexLoader);
+            indexLoader = null;
+        }
+        if (producerAuditRestored != null) {
+            // an unfinished restore leaves the previous audit location in place
+            producerAuditRestored.countDown();
+        }
+    }
+
+    private void restoreProducerAudit() {
+        if (producerAuditRestored == null || producerAuditRestored.getCount() == 0) {
+            return;
+        }
+        ActiveMQMessageAuditNoSync restored = null;
+        try {
+            restored = loadProducerAudit(metadata.producerSequenceIdTrackerLocation);
+        } catch (Exception e) {
+            LOG.warn("Cannot recover message audit, continuing with the audit of messages added since start", e);
+        }
+        synchronized (sharedMetadataMutex) {
+            if (restored != null) {
+                for (String messageId : producerAuditBacklog) {
+                    restored.isDuplicate(messageId);
+                }
+                metadata.producerSequenceIdTracker = restored;
+            }
+            metadata.producerSequenceIdTracker.setModified(true);
+            producerAuditBacklog = null;
+            producerAuditRestored.countDown();
+        }
+    }
+
+    /**
+     * Waits for the producer audit that is restored in the background on a lazy start.
+     */
+    protected void awaitProducerAudit() throws InterruptedIOException {
+        CountDownLatch restored = producerAuditRestored;
+        if (restored != null) {
+            try {
+                restored.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException(e.toString());
+            }
+        }
+    }
+
+    void trackProducerSequence(String messageId) {
+        synchronized (sharedMetadataMutex) {
+            metadata.producerSequenceIdTracker.isDuplicate(messageId);
+            if (producerAuditBacklog != null) {
+                producerAuditBacklog.add(messageId);
+            }
         }
     }
 
@@ -503,6 +716,7 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
                 deleteAllMessages = false;
             }
 
+            stripedIndexLock = indexLockStripes > 0 ? new StripedIndexLock(indexLock, indexLockStripes) : null;
             open();
             store(new KahaTraceCommand().setMessage("LOADED " + new Date()));
         } finally {
@@ -512,6 +726,7 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
 
     public void close() throws IOException, InterruptedException {
         if (opened.compareAndSet(true, false)) {
+            stopIndexLoader();
             checkpointLock.writeLock().lock();
             try {
                 if (metadata.page != null) {
@@ -519,6 +734,7 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
                 }
                 pageFile.unload();
                 metadata = createMetadata();
+                dataFileReferences.reset();
             } finally {
                 checkpointLock.writeLock().unlock();
             }
@@ -700,37 +916,54 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
         try {
 
             long start = System.currentTimeMillis();
-            boolean requiresJournalReplay = recoverProducerAudit();
+            boolean lazy = !storedDestinationsLoaded && metadata.producerSequenceIdTrackerLocation != null && getRecoveryPosition() == null;
+            boolean requiresJournalReplay = lazy ? false : recoverProducerAudit();
             requiresJournalReplay |= recoverAckMessageFileMap();
+            if (!storedDestinationsLoaded && (!lazy || requiresJournalReplay)) {
+                LOG.info("Index was not closed cleanly, loading all destinations before recovery");
+                lazy = false;
+                storedDestinationsLoaded = true;
+                loadStoredDestinations();
+            }
+            if (lazy) {
+                lazyLoadAppendLocation = journal.getLastAppendLocation();
+                // the stored audit is restored by the index loader, track what gets added until then
+                producerAuditBacklog = new ArrayList<>();
+                producerAuditRestored = new CountDownLatch(1);
+            }
             Location lastIndoubtPosition = getRecoveryPosition();
             Location recoveryPosition = requiresJournalReplay ? journal.getNextLocation(null) : lastIndoubtPosition;
             if (recoveryPosition != null) {
                 int redoCounter = 0;
-                int dataFileRotationTracker = recoveryPosition.getDataFileId();
                 LOG.info("Recovering from the journal @" + recoveryPosition);
-                while (recoveryPosition != null) {
-                    try {
-                        JournalCommand<?> message = load(recoveryPosition);
-                        metadata.lastUpdate = recoveryPosition;
-                        process(message, recoveryPosition, lastIndoubtPosition);
-                        redoCounter++;
-                    } catch (IOException failedRecovery) {
-                        if (isIgnoreMissingJournalfiles()) {
-                            LOG.debug("Failed to recover data at position:" + recoveryPosition, failedRecovery);
-                            // track this dud location
-                            journal.corruptRecoveryLocation(recoveryPosition);
-                        } else {
-                            throw new IOException("Failed to recover data at position:" + recoveryPosition, failedRecovery);
+                if (recoveryThreads > 1) {
+                    redoCounter = new ParallelJournalRecovery(this, recoveryThreads).replay(recoveryPosition, lastIndoubtPosition);
+                } else {
+                    int dataFileRotationTracker = recoveryPosition.getDataFileId();
+                    while (recoveryPosition != null) {
+                        try {
+                            JournalCommand<?> message = load(recoveryPosition);
+                            metadata.lastUpdate = recoveryPosition;
+                            process(message, recoveryPosition, lastIndoubtPosition);
+                            redoCounter++;
+                        } catch (IOException failedRecovery) {
+                            if (isIgnoreMissingJournalfiles()) {
+                                LOG.debug("Failed to recover data at position:" + recoveryPosition, failedRecovery);
+                                // track this dud location
+                                journal.corruptRecoveryLocation(recoveryPosition);
+                            } else {
+                                throw new IOException("Failed to recover data at position:" + recoveryPosition, failedRecovery);
+                            }
+                        }
+                        recoveryPosition = journal.getNextLocation(recoveryPosition);
+                        // hold on to the minimum number of open files during recovery
+                        if (recoveryPosition != null && dataFileRotationTracker != recoveryPosition.getDataFileId()) {
+                            dataFileRotationTracker = recoveryPosition.getDataFileId();
+                            journal.cleanup();
+                        }
+                        if (LOG.isInfoEnabled() && redoCounter % 100000 == 0) {
+                            LOG.info("@" + recoveryPosition + ", " + redoCounter + " entries recovered ..");
                         }
-                    }
-                    recoveryPosition = journal.getNextLocation(recoveryPosition);
-                    // hold on to the minimum number of open files during recovery
-                    if (recoveryPosition != null && dataFileRotationTracker != recoveryPosition.getDataFileId()) {
-                        dataFileRotationTracker = recoveryPosition.getDataFileId();
-                        journal.cleanup();
-                    }
-                    if (LOG.isInfoEnabled() && redoCounter % 100000 == 0) {
-                        LOG.info("@" + recoveryPosition + ", " + redoCounter + " entries recovered ..");
                     }
                 }
                 if (LOG.isInfoEnabled()) {
@@ -739,13 +972,18 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
                 }
             }
 
-            // We may have to undo some index updates.
-            pageFile.tx().execute(new Transaction.Closure<IOException>() {
-                @Override
-                public void execute(Transaction tx) throws IOException {
-                    recoverIndex(tx);
-                }
-            });
+            if (lazy) {
+                LOG.info("Lazy index load, destinations are loaded on first access and in the background");
+                startIndexLoader();
+            } else {
+                // We may have to undo some index updates.
+                pageFile.tx().execute(new Transaction.Closure<IOException>() {
+                    @Override
+                    public void execute(Transaction tx) throws IOException {
+                        recoverIndex(tx);
+                    }
+                });
+            }
 
             // rollback any recovered inflight local transactions, and discard any inflight XA transactions.
             Set<TransactionId> toRollback = new HashSet<>();
@@ -823,13 +1061,7 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
         boolean requiresReplay = true;
         if (metadata.producerSequenceIdTrackerLocation != null) {
             try {
-                KahaProducerAuditCommand audit = (KahaProducerAuditCommand) load(metadata.producerSequenceIdTrackerLocation);
-                ObjectInputStream objectIn = new MessageDatabaseObjectInputStream(audit.getAudit().newInput());
-                int maxNumProducers = getMaxFailoverProducersToTrack();
-                int maxAuditDepth = getFailoverProducersAuditDepth();
-                metadata.producerSequenceIdTracker = (ActiveMQMessageAuditNoSync) objectIn.readObject();
-                metadata.producerSequenceIdTracker.setAuditDepth(maxAuditDepth);
-                metadata.producerSequenceIdTracker.setMaximumNumberOfProducersToTrack(maxNumProducers);
+                metadata.producerSequenceIdTracker = loadProducerAudit(metadata.producerSequenceIdTrackerLocation);
                 requiresReplay = false;
             } catch (Exception e) {
                 LOG.warn("Cannot recover message audit", e);
@@ -839,6 +1071,17 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
         return requiresReplay;
     }
 
+    private ActiveMQMessageAuditNoSync loadProducerAudit(Location location) throws Exception {
+        KahaProducerAuditCommand audit = (KahaProducerAuditCommand) load(location);
+        ObjectInputStream objectIn = new MessageDatabaseObjectInputStream(audit.getAudit().newInput());
+        int maxNumProducers = getMaxFailoverProducersToTrack();
+        int maxAuditDepth = getFailoverProducersAuditDepth();
+        ActiveMQMessageAuditNoSync producerAudit = (ActiveMQMessageAuditNoSync) objectIn.readObject();
+        producerAudit.setAuditDepth(maxAuditDepth);
+        producerAudit.setMaximumNumberOfProducersToTrack(maxNumProducers);
+        return producerAudit;
+    }
+
     @SuppressWarnings("unchecked")
     private boolean recoverAckMessageFileMap() throws IOException {
         boolean requiresReplay = true;
@@ -867,26 +1110,9 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
         // Go through all the destinations to see if they have messages past the lastAppendLocation
         for (String key : storedDestinations.keySet()) {
             StoredDestination sd = storedDestinations.get(key);
-
-            final ArrayList<Long> matches = new ArrayList<>();
-            // Find all the Locations that are >= than the last Append Location.
-            sd.locationIndex.visit(tx, new BTreeVisitor.GTEVisitor<Location, Long>(lastAppendLocation) {
-                @Override
-                protected void matched(Location key, Long value) {
-                    matches.add(value);
-                }
-            });
-
-            for (Long sequenceId : matches) {
-                MessageKeys keys = sd.orderIndex.remove(tx, sequenceId);
-                if (keys != null) {
-                    sd.locationIndex.remove(tx, keys.location);
-                    sd.messageIdIndex.remove(tx, keys.messageId);
-                    metadata.producerSequenceIdTracker.rollback(keys.messageId);
-                    undoCounter++;
-                    decrementAndSubSizeToStoreStat(tx, key, sd, keys.location.getSize());
-                    // TODO: do we need to modify the ack positions for the pub sub case?
-                }
+            for (MessageKeys keys : removeMessagesFrom(tx, key, sd, lastAppendLocation)) {
+                metadata.producerSequenceIdTracker.rollback(keys.messageId);
+                undoCounter++;
             }
         }
 
@@ -994,15 +1220,7 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
                     // we error out.
                     if( ignoreMissingJournalfiles ) {
                         // Update the index to remove the references to the missing data
-                        for (Long sequenceId : matches.keySet()) {
-                            MessageKeys keys = sd.orderIndex.remove(tx, sequenceId);
-                            sd.locationIndex.remove(tx, keys.location);
-                            sd.messageIdIndex.remove(tx, keys.messageId);
-                            LOG.info("[" + sdEntry.getKey() + "] dropped: " + keys.messageId + " at corrupt location: " + keys.location);
-                            undoCounter++;
-                            decrementAndSubSizeToStoreStat(tx, sdEntry.getKey(), sdEntry.getValue(), keys.location.getSize());
-                            // TODO: do we need to modify the ack positions for the pub sub case?
-                        }
+                        undoCounter += dropMessages(tx, sdEntry.getKey(), sd, matches.keySet());
                     } else {
                         LOG.error("[" + sdEntry.getKey() + "] references corrupt locations: " + matches);
                         throw new IOException("Detected missing/corrupt journal files referenced by:[" + sdEntry.getKey() + "] " +matches.size()+" messages affected.");
@@ -1033,6 +1251,55 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
         }
     }
 
+    /**
+     * Removes the messages of a destination that the index holds at or past the given
+     * location. Index updates can get applied before their journal writes.
+     *
+     * @return the keys of the removed messages
+     */
+    private List<MessageKeys> removeMessagesFrom(Transaction tx, String key, StoredDestination sd, Location location) throws IOException {
+        final ArrayList<Long> matches = new ArrayList<>();
+        // Find all the Locations that are >= than the given Location.
+        sd.locationIndex.visit(tx, new BTreeVisitor.GTEVisitor<Location, Long>(location) {
+            @Override
+            protected void matched(Location key, Long value) {
+                matches.add(value);
+            }
+        });
+
+        ArrayList<MessageKeys> removed = new ArrayList<>(matches.size());
+        for (Long sequenceId : matches) {
+            MessageKeys keys = sd.orderIndex.remove(tx, sequenceId);
+            if (keys != null) {
+                sd.locationIndex.remove(tx, keys.location);
+                sd.messageIdIndex.remove(tx, keys.messageId);
+                decrementAndSubSizeToStoreStat(tx, key, sd, keys.location.getSize());
+                // TODO: do we need to modify the ack positions for the pub sub case?
+                removed.add(keys);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Removes the messages of a destination stored at missing or corrupt journal locations.
+     *
+     * @return the number of messages dropped
+     */
+    private int dropMessages(Transaction tx, String key, StoredDestination sd, Collection<Long> sequenceIds) throws IOException {
+        int dropped = 0;
+        for (Long sequenceId : sequenceIds) {
+            MessageKeys keys = sd.orderIndex.remove(tx, sequenceId);
+            sd.locationIndex.remove(tx, keys.location);
+            sd.messageIdIndex.remove(tx, keys.messageId);
+            LOG.info("[" + key + "] dropped: " + keys.messageId + " at corrupt location: " + keys.location);
+            dropped++;
+            decrementAndSubSizeToStoreStat(tx, key, sd, keys.location.getSize());
+            // TODO: do we need to modify the ack positions for the pub sub case?
+        }
+        return dropped;
+    }
+
     private Location nextRecoveryPosition;
     private Location lastRecoveryPosition;
 
@@ -1142,8 +1409,20 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
      * during a recovery process.
      */
     public Location store(JournalCommand<?> data, boolean sync, IndexAware before, Runnable after, Runnable onJournalStoreComplete) throws IOException {
+        return store(data, null, sync, before, after, onJournalStoreComplete);
+    }
+
+    /**
+     * Stores a command whose journal record the caller may have encoded already, see
+     * {@link #toByteSequence(JournalCommand)} for the record layout.
+     *
+     * @param sequence the journal record of the command, or null to have it encoded here
+     */
+    public Location store(JournalCommand<?> data, ByteSequence sequence, boolean sync, IndexAware before, Runnable after, Runnable onJournalStoreComplete) throws IOException {
         try {
-            ByteSequence sequence = toByteSequence(data);
+            if (sequence == null) {
+                sequence = toByteSequence(data);
+            }
             Location location;
 
             checkpointLock.readLock().lock();
@@ -1276,6 +1555,11 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
                 process(command, location);
             }
 
+            @Override
+            public void visit(KahaRemoveMessagesCommand command) throws IOException {
+                process(command, location);
+            }
+
             @Override
             public void visit(KahaPrepareCommand command) throws IOException {
                 process(command, location);
@@ -1334,7 +1618,7 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
             List<Operation> inflightTx = getInflightTx(command.getTransactionInfo());
             inflightTx.add(new AddOperation(command, location, runWithIndexLock));
         } else {
-            this.indexLock.writeLock().lock();
+            Lock lock = lockIndex(command.getDestination());
             try {
                 pageFile.tx().execute(new Transaction.Closure<IOException>() {
                     @Override
@@ -1347,13 +1631,13 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
                 });
 
             } finally {
-                this.indexLock.writeLock().unlock();
+                lock.unlock();
             }
         }
     }
 
     protected void process(final KahaUpdateMessageCommand command, final Location location) throws IOException {
-        this.indexLock.writeLock().lock();
+        Lock lock = lockIndex(command.getMessage().getDestination());
         try {
             pageFile.tx().execute(new Transaction.Closure<IOException>() {
                 @Override
@@ -1362,7 +1646,7 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
                 }
             });
         } finally {
-            this.indexLock.writeLock().unlock();
+            lock.unlock();
         }
     }
 
@@ -1372,7 +1656,7 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
            List<Operation> inflightTx = getInflightTx(command.getTransactionInfo());
            inflightTx.add(new RemoveOperation(command, location));
         } else {
-            this.indexLock.writeLock().lock();
+            Lock lock = lockIndex(command.getDestination());
             try {
                 pageFile.tx().execute(new Transaction.Closure<IOException>() {
                     @Override
@@ -1381,11 +1665,25 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
                     }
                 });
             } finally {
-                this.indexLock.writeLock().unlock();
+                lock.unlock();
             }
         }
     }
 
+    protected void process(final KahaRemoveMessagesCommand command, final Location location) throws IOException {
+        Lock lock = lockIndex(command.getDestination());
+        try {
+            pageFile.tx().execute(new Transaction.Closure<IOException>() {
+                @Override
+                public void execute(Transaction tx) throws IOException {
+                    updateIndex(tx, command, location);
+                }
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+
     protected void process(final KahaRemoveDestinationCommand command, final Location location) throws IOException {
         this.indexLock.writeLock().lock();
         try {
@@ -1524,6 +1822,36 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
     // /////////////////////////////////////////////////////////////////
 
     protected final ReentrantReadWriteLock indexLock = new ReentrantReadWriteLock();
+    // guards the metadata shared by all destinations when index updates run on separate stripes
+    private final Object sharedMetadataMutex = new Object();
+    private volatile StripedIndexLock stripedIndexLock;
+    private int indexLockStripes = 0;
+
+    /**
+     * Acquires the lock needed to update the index of a single destination and returns it so the
+     * caller can release it. When index lock striping is enabled and the destination is already
+     * loaded this is the stripe of the destination, otherwise it is the exclusive index lock.
+     * Callers may only unlock the returned lock, a stripe does not support conditions.
+     */
+    protected Lock lockIndex(KahaDestination destination) {
+        StripedIndexLock striped = this.stripedIndexLock;
+        if (striped != null) {
+            String key = key(destination);
+            Lock stripe = striped.forKey(key);
+            stripe.lock();
+            if (storedDestinations.containsKey(key)) {
+                return stripe;
+            }
+            // loading a destination updates the shared destinations index
+            stripe.unlock();
+            if (indexLock.getReadHoldCount() > 0 && !indexLock.isWriteLockedByCurrentThread()) {
+                throw new IllegalStateException("Cannot load destination " + key + " while holding an index lock stripe");
+            }
+        }
+        Lock exclusive = indexLock.writeLock();
+        exclusive.lock();
+        return exclusive;
+    }
     private final HashSet<Integer> journalFilesBeingReplicated = new HashSet<>();
 
     long updateIndex(Transaction tx, KahaAddMessageCommand command, Location location) throws IOException {
@@ -1550,7 +1878,7 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
                 if (sd.subscriptions != null && !sd.subscriptions.isEmpty(tx)) {
                     addAckLocationForNewMessage(tx, command.getDestination(), sd, id);
                 }
-                metadata.lastUpdate = location;
+                updateLastUpdate(location);
             } else {
                 MessageKeys messageKeys = sd.orderIndex.get(tx, previous);
                 if (messageKeys != null && messageKeys.location.compareTo(location) < 0) {
@@ -1570,10 +1898,10 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
             sd.locationIndex.put(tx, location, previous);
             // ensure sequence is not broken
             sd.orderIndex.revertNextMessageId();
-            metadata.lastUpdate = location;
+            updateLastUpdate(location);
         }
         // record this id in any event, initial send or recovery
-        metadata.producerSequenceIdTracker.isDuplicate(command.getMessageId());
+        trackProducerSequence(command.getMessageId());
 
        return id;
     }
@@ -1628,7 +1956,7 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
                     sd.locationIndex.remove(tx, previousKeys.location);
                 }
             }
-            metadata.lastUpdate = location;
+            updateLastUpdate(location);
         } else {
             //Add the message if it can't be found
             this.updateIndex(tx, command, location);
@@ -1640,20 +1968,7 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
         if (!command.hasSubscriptionKey()) {
 
             // In the queue case we just remove the message from the index..
-            Long sequenceId = sd.messageIdIndex.remove(tx, command.getMessageId());
-            if (sequenceId != null) {
-                MessageKeys keys = sd.orderIndex.remove(tx, sequenceId);
-                if (keys != null) {
-                    sd.locationIndex.remove(tx, keys.location);
-                    decrementAndSubSizeToStoreStat(tx, command.getDestination(), keys.location.getSize());
-                    recordAckMessageReferenceLocation(ackLocation, keys.location);
-                    metadata.lastUpdate = ackLocation;
-                }  else if (LOG.isDebugEnabled()) {
-                    LOG.debug("message not found in order index: " + sequenceId  + " for: " + command.getMessageId());
-                }
-            } else if (LOG.isDebugEnabled()) {
-                LOG.debug("message not found in sequence id index: " + command.getMessageId());
-            }
+            removeQueueMessage(tx, sd, command.getDestination(), command.getMessageId(), ackLocation);
         } else {
             // In the topic case we need remove the message once it's been acked
             // by all the subs
@@ -1674,7 +1989,7 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
                 }
                 // The following method handles deleting un-referenced messages.
                 removeAckLocation(command, tx, sd, subscriptionKey, sequence);
-                metadata.lastUpdate = ackLocation;
+                updateLastUpdate(ackLocation);
             } else if (LOG.isDebugEnabled()) {
                 LOG.debug("on ack, no message sequence exists for id: " + command.getMessageId() + " and sub: " + command.getSubscriptionKey());
             }
@@ -1682,18 +1997,56 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
         }
     }
 
+    void updateIndex(Transaction tx, KahaRemoveMessagesCommand command, Location ackLocation) throws IOException {
+        StoredDestination sd = getStoredDestination(command.getDestination(), tx);
+        for (String messageId : command.getMessageIdList()) {
+            removeQueueMessage(tx, sd, command.getDestination(), messageId, ackLocation);
+        }
+    }
+
+    private void removeQueueMessage(Transaction tx, StoredDestination sd, KahaDestination destination, String messageId, Location ackLocation) throws IOException {
+        Long sequenceId = sd.messageIdIndex.remove(tx, messageId);
+        if (sequenceId != null) {
+            MessageKeys keys = sd.orderIndex.remove(tx, sequenceId);
+            if (keys != null) {
+                sd.locationIndex.remove(tx, keys.location);
+                decrementAndSubSizeToStoreStat(tx, destination, keys.location.getSize());
+                recordAckMessageReferenceLocation(ackLocation, keys.location);
+                updateLastUpdate(ackLocation);
+            }  else if (LOG.isDebugEnabled()) {
+                LOG.debug("message not found in order index: " + sequenceId  + " for: " + messageId);
+            }
+        } else if (LOG.isDebugEnabled()) {
+            LOG.debug("message not found in sequence id index: " + messageId);
+        }
+    }
+
+    /**
+     * Moves the last index update position forward. Index updates on different lock stripes
+     * run concurrently, so the position is only advanced under the shared metadata mutex.
+     */
+    private void updateLastUpdate(Location location) {
+        synchronized (sharedMetadataMutex) {
+            if (metadata.lastUpdate == null || metadata.lastUpdate.compareTo(location) < 0) {
+                metadata.lastUpdate = location;
+            }
+        }
+    }
+
     private void recordAckMessageReferenceLocation(Location ackLocation, Location messageLocation) {
-        Set<Integer> referenceFileIds = metadata.ackMessageFileMap.get(ackLocation.getDataFileId());
-        if (referenceFileIds == null) {
-            referenceFileIds = new HashSet<>();
-            referenceFileIds.add(messageLocation.getDataFileId());
-            metadata.ackMessageFileMap.put(ackLocation.getDataFileId(), referenceFileIds);
-            metadata.ackMessageFileMapDirtyFlag.lazySet(true);
+        synchronized (sharedMetadataMutex) {
+            Set<Integer> referenceFileIds = metadata.ackMessageFileMap.get(ackLocation.getDataFileId());
+            if (referenceFileIds == null) {
+                referenceFileIds = new HashSet<>();
+                referenceFileIds.add(messageLocation.getDataFileId());
+                metadata.ackMessageFileMap.put(ackLocation.getDataFileId(), referenceFileIds);
+                metadata.ackMessageFileMapDirtyFlag.lazySet(true);
 
-        } else {
-            Integer id = messageLocation.getDataFileId();
-            if (!referenceFileIds.contains(id)) {
-                referenceFileIds.add(id);
+            } else {
+                Integer id = messageLocation.getDataFileId();
+                if (!referenceFileIds.contains(id)) {
+                    referenceFileIds.add(id);
+                }
             }
         }
     }
@@ -1818,7 +2171,10 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
         Location lastUpdate = metadata.lastUpdate;
 
         metadata.state = OPEN_STATE;
-        metadata.producerSequenceIdTrackerLocation = checkpointProducerAudit();
+        CountDownLatch auditRestored = producerAuditRestored;
+        if (auditRestored == null || auditRestored.getCount() == 0) {
+            metadata.producerSequenceIdTrackerLocation = checkpointProducerAudit();
+        }
         if (metadata.ackMessageFileMapDirtyFlag.get() || (metadata.ackMessageFileMapLocation == null)) {
             metadata.ackMessageFileMapLocation = checkpointAckMessageFileMap();
         }
@@ -1828,7 +2184,10 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
         tx.store(metadata.page, metadataMarshaller, true);
 
         final TreeSet<Integer> gcCandidateSet = new TreeSet<>();
-        if (cleanup) {
+        if (cleanup && !storedDestinationsLoaded) {
+            // unloaded destinations may still reference any of the data files
+            LOG.debug("Skipping journal cleanup until all destinations are loaded");
+        } else if (cleanup) {
 
             final TreeSet<Integer> completeFileSet = new TreeSet<>(journal.getFileMap().keySet());
             gcCandidateSet.addAll(completeFileSet);
@@ -1880,6 +2239,14 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
                 LOG.trace("gc candidates after in progress tx range:" + Arrays.asList(inProgressTxRange) + ", " + gcCandidateSet);
             }
 
+            final boolean referencesCounted = incrementalJournalCleanup && countDataFileReferences(tx);
+            if (referencesCounted) {
+                gcCandidateSet.removeIf(dataFileReferences::isReferenced);
+                if (LOG.isTraceEnabled()) {
+                    LOG.trace("gc candidates after counted data file references: " + gcCandidateSet);
+                }
+            }
+
             // Go through all the destinations to see if any of them can remove GC candidates.
             for (Entry<String, StoredDestination> entry : storedDestinations.entrySet()) {
                 if( gcCandidateSet.isEmpty() ) {
@@ -1887,45 +2254,47 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
                 }
 
                 // Use a visitor to cut down the number of pages that we load
-                entry.getValue().locationIndex.visit(tx, new BTreeVisitor<Location, Long>() {
-                    int last=-1;
-                    @Override
-                    public boolean isInterestedInKeysBetween(Location first, Location second) {
-                        if( first==null ) {
-                            SortedSet<Integer> subset = gcCandidateSet.headSet(second.getDataFileId()+1);
-                            if( !subset.isEmpty() && subset.last() == second.getDataFileId() ) {
-                                subset.remove(second.getDataFileId());
-                            }
-                            return !subset.isEmpty();
-                        } else if( second==null ) {
-                            SortedSet<Integer> subset = gcCandidateSet.tailSet(first.getDataFileId());
-                            if( !subset.isEmpty() && subset.first() == first.getDataFileId() ) {
-                                subset.remove(first.getDataFileId());
-                            }
-                            return !subset.isEmpty();
-                        } else {
-                            SortedSet<Integer> subset = gcCandidateSet.subSet(first.getDataFileId(), second.getDataFileId()+1);
-                            if( !subset.isEmpty() && subset.first() == first.getDataFileId() ) {
-                                subset.remove(first.getDataFileId());
-                            }
-                            if( !subset.isEmpty() && subset.last() == second.getDataFileId() ) {
-                                subset.remove(second.getDataFileId());
+                if (!referencesCounted) {
+                    entry.getValue().locationIndex.visit(tx, new BTreeVisitor<Location, Long>() {
+                        int last=-1;
+                        @Override
+                        public boolean isInterestedInKeysBetween(Location first, Location second) {
+                            if( first==null ) {
+                                SortedSet<Integer> subset = gcCandidateSet.headSet(second.getDataFileId()+1);
+                                if( !subset.isEmpty() && subset.last() == second.getDataFileId() ) {
+                                    subset.remove(second.getDataFileId());
+                                }
+                                return !subset.isEmpty();
+                            } else if( second==null ) {
+                                SortedSet<Integer> subset = gcCandidateSet.tailSet(first.getDataFileId());
+                                if( !subset.isEmpty() && subset.first() == first.getDataFileId() ) {
+                                    subset.remove(first.getDataFileId());
+                                }
+                                return !subset.isEmpty();
+                            } else {
+                                SortedSet<Integer> subset = gcCandidateSet.subSet(first.getDataFileId(), second.getDataFileId()+1);
+                                if( !subset.isEmpty() && subset.first() == first.getDataFileId() ) {
+                                    subset.remove(first.getDataFileId());
+                                }
+                                if( !subset.isEmpty() && subset.last() == second.getDataFileId() ) {
+                                    subset.remove(second.getDataFileId());
+                                }
+                                return !subset.isEmpty();
                             }
-                            return !subset.isEmpty();
                         }
-                    }
 
-                    @Override
-                    public void visit(List<Location> keys, List<Long> values) {
-                        for (Location l : keys) {
-                            int fileId = l.getDataFileId();
-                            if( last != fileId ) {
-                                gcCandidateSet.remove(fileId);
-                                last = fileId;
+                        @Override
+                        public void visit(List<Location> keys, List<Long> values) {
+                            for (Location l : keys) {
+                                int fileId = l.getDataFileId();
+                                if( last != fileId ) {
+                                    gcCandidateSet.remove(fileId);
+                                    last = fileId;
+                                }
                             }
                         }
-                    }
-                });
+                    });
+                }
 
                 // Durable Subscription
                 if (entry.getValue().subLocations != null) {
@@ -2060,6 +2429,41 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
         return gcCandidateSet;
     }
 
+    /**
+     * Builds the data file reference counts with one walk of all location indexes the first
+     * time journal cleanup runs, they are maintained as locations change from then on.
+     *
+     * @return true when the counts can be used to find unreferenced data files
+     */
+    private boolean countDataFileReferences(Transaction tx) throws IOException {
+        if (dataFileReferences.isInitialized()) {
+            return true;
+        }
+        if (!indexLock.isWriteLockedByCurrentThread()) {
+            return false;
+        }
+        long start = System.currentTimeMillis();
+        final HashMap<Integer, Long> counts = new HashMap<>();
+        for (StoredDestination sd : storedDestinations.values()) {
+            sd.locationIndex.visit(tx, new BTreeVisitor<Location, Long>() {
+                @Override
+                public boolean isInterestedInKeysBetween(Location first, Location second) {
+                    return true;
+                }
+
+                @Override
+                public void visit(List<Location> keys, List<Long> values) {
+                    for (Location l : keys) {
+                        counts.merge(l.getDataFileId(), 1L, Long::sum);
+                    }
+                }
+            });
+        }
+        dataFileReferences.initialize(counts);
+        LOG.info("Counted the references to {} journal files in {} ms", counts.size(), System.currentTimeMillis() - start);
+        return true;
+    }
+
     private final class AckCompactionRunner implements Runnable {
 
         @Override
@@ -2238,7 +2642,8 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
             return false;
         }
 
-        return (command instanceof KahaRemoveMessageCommand || command instanceof KahaCommitCommand);
+        return (command instanceof KahaRemoveMessageCommand || command instanceof KahaRemoveMessagesCommand
+                || command instanceof KahaCommitCommand);
     }
 
     private Location getNextLocationForAckForward(final Location nextLocation, final Location limit) {
@@ -2464,6 +2869,55 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
             tx.store(page, messageStoreStatisticsMarshaller, true);
         }
     }
+    /**
+     * Location index that reports the locations it gains and loses to the data file
+     * reference counts.
+     */
+    class StoredLocationIndex extends BTreeIndex<Location, Long> {
+
+        StoredLocationIndex(long rootPageId) {
+            super(pageFile, rootPageId);
+        }
+
+        @Override
+        public synchronized Long put(Transaction tx, Location key, Long value) throws IOException {
+            Long previous = super.put(tx, key, value);
+            if (previous == null) {
+                dataFileReferences.added(tx, key.getDataFileId());
+            }
+            return previous;
+        }
+
+        @Override
+        public synchronized Long remove(Transaction tx, Location key) throws IOException {
+            Long previous = super.remove(tx, key);
+            if (previous != null) {
+                dataFileReferences.removed(tx, key.getDataFileId());
+            }
+            return previous;
+        }
+
+        @Override
+        public synchronized void clear(Transaction tx) throws IOException {
+            if (dataFileReferences.isInitialized()) {
+                visit(tx, new BTreeVisitor<Location, Long>() {
+                    @Override
+                    public boolean isInterestedInKeysBetween(Location first, Location second) {
+                        return true;
+                    }
+
+                    @Override
+                    public void visit(List<Location> keys, List<Long> values) {
+                        for (Location l : keys) {
+                            dataFileReferences.removed(tx, l.getDataFileId());
+                        }
+                    }
+                });
+            }
+            super.clear(tx);
+        }
+    }
+
     class StoredDestination {
 
         MessageOrderIndex orderIndex = new MessageOrderIndex();
@@ -2536,7 +2990,7 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
         public StoredDestination readPayload(final DataInput dataIn) throws IOException {
             final StoredDestination value = new StoredDestination();
             value.orderIndex.defaultPriorityIndex = new BTreeIndex<>(pageFile, dataIn.readLong());
-            value.locationIndex = new BTreeIndex<>(pageFile, dataIn.readLong());
+            value.locationIndex = new StoredLocationIndex(dataIn.readLong());
             value.messageIdIndex = new BTreeIndex<>(pageFile, dataIn.readLong());
 
             if (dataIn.readBoolean()) {
@@ -2581,7 +3035,7 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
                             // structure.
                             value.ackPositions = new ListIndex<>(pageFile, tx.allocate());
                             value.ackPositions.setKeyMarshaller(StringMarshaller.INSTANCE);
-                            value.ackPositions.setValueMarshaller(SequenceSet.Marshaller.INSTANCE);
+                            value.ackPositions.setValueMarshaller(getAckPositionsMarshaller());
                             value.ackPositions.load(tx);
                             for(String subscriptionKey : temp.keySet()) {
                                 value.ackPositions.put(tx, subscriptionKey, temp.get(subscriptionKey));
@@ -2682,6 +3136,9 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
         if (rc == null) {
             boolean topic = destination.getType() == KahaDestination.DestinationType.TOPIC || destination.getType() == KahaDestination.DestinationType.TEMP_TOPIC;
             rc = loadStoredDestination(tx, key, topic);
+            if (!storedDestinationsLoaded) {
+                checkStoredDestination(tx, key, rc);
+            }
             // Cache it. We may want to remove/unload destinations from the
             // cache that are not used for a while
             // to reduce memory usage.
@@ -2718,7 +3175,7 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
             // Brand new destination.. allocate indexes for it.
             rc = new StoredDestination();
             rc.orderIndex.allocate(tx);
-            rc.locationIndex = new BTreeIndex<>(pageFile, tx.allocate());
+            rc.locationIndex = new StoredLocationIndex(tx.allocate().getPageId());
             rc.messageIdIndex = new BTreeIndex<>(pageFile, tx.allocate());
 
             if (topic) {
@@ -2777,7 +3234,7 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
             rc.subscriptionAcks.load(tx);
 
             rc.ackPositions.setKeyMarshaller(StringMarshaller.INSTANCE);
-            rc.ackPositions.setValueMarshaller(SequenceSet.Marshaller.INSTANCE);
+            rc.ackPositions.setValueMarshaller(getAckPositionsMarshaller());
             rc.ackPositions.load(tx);
 
             rc.subLocations.setKeyMarshaller(StringMarshaller.INSTANCE);
@@ -3076,19 +3533,27 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
 
     // on a new message add, all existing subs are interested in this message
     private void addAckLocationForNewMessage(Transaction tx, KahaDestination kahaDest,
-            StoredDestination sd, Long messageSequence) throws IOException {
-        for(String subscriptionKey : sd.subscriptionCache) {
-            SequenceSet sequences = sd.ackPositions.get(tx, subscriptionKey);
-            if (sequences == null) {
-                sequences = new SequenceSet();
-                sequences.add(new Sequence(messageSequence, messageSequence + 1));
-                sd.ackPositions.add(tx, subscriptionKey, sequences);
-            } else {
+            StoredDestination sd, final Long messageSequence) throws IOException {
+        if (sd.subscriptionCache.isEmpty()) {
+            return;
+        }
+        // one pass over the ack positions, each list node gets stored once
+        final Set<String> missing = new HashSet<>(sd.subscriptionCache);
+        sd.ackPositions.updateAll(tx, (subscriptionKey, sequences) -> {
+            if (missing.remove(subscriptionKey)) {
                 sequences.add(new Sequence(messageSequence, messageSequence + 1));
-                sd.ackPositions.put(tx, subscriptionKey, sequences);
+                return true;
             }
+            return false;
+        });
+        for (String subscriptionKey : missing) {
+            SequenceSet sequences = new SequenceSet();
+            sequences.add(new Sequence(messageSequence, messageSequence + 1));
+            sd.ackPositions.add(tx, subscriptionKey, sequences);
+        }
 
-            MessageKeys key = sd.orderIndex.get(tx, messageSequence);
+        MessageKeys key = sd.orderIndex.get(tx, messageSequence);
+        for (String subscriptionKey : sd.subscriptionCache) {
             incrementAndAddSizeToStoreStat(kahaDest, subscriptionKey, key.location.getSize());
         }
     }
@@ -3126,9 +3591,9 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
     }
 
     private boolean isSequenceReferenced(final Transaction tx, final StoredDestination sd, final Long sequenceId) throws IOException {
-        for(String subscriptionKey : sd.subscriptionCache) {
-            SequenceSet sequence = sd.ackPositions.get(tx, subscriptionKey);
-            if (sequence != null && sequence.contains(sequenceId)) {
+        for (Iterator<Entry<String, SequenceSet>> iterator = sd.ackPositions.iterator(tx); iterator.hasNext();) {
+            Entry<String, SequenceSet> entry = iterator.next();
+            if (entry.getValue().contains(sequenceId) && sd.subscriptionCache.contains(entry.getKey())) {
                 return true;
             }
         }
@@ -3395,6 +3860,7 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
         index.setEnableWriteThread(isEnableIndexWriteAsync());
         index.setWriteBatchSize(getIndexWriteBatchSize());
         index.setPageCacheSize(indexCacheSize);
+        index.setOffHeapPageCacheSize(indexOffHeapCacheSize);
         index.setUseLFRUEviction(isUseIndexLFRUEviction());
         index.setLFUEvictionFactor(getIndexLFUEvictionFactor());
         index.setEnableDiskSyncs(isEnableIndexDiskSyncs());
@@ -3409,6 +3875,10 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
         manager.setMaxFileLength(getJournalMaxFileLength());
         manager.setCheckForCorruptionOnStartup(checkForCorruptJournalFiles);
         manager.setChecksum(checksumJournalFiles || checkForCorruptJournalFiles);
+        manager.setMemoryMappedReads(journalMemoryMappedReads);
+        manager.setGroupCommit(journalGroupCommit);
+        manager.setGroupCommitMaxLatency(journalGroupCommitMaxLatency);
+        manager.setGroupCommitMaxBytes(journalGroupCommitMaxBytes);
         manager.setWriteBatchSize(getJournalMaxWriteBatchSize());
         manager.setArchiveDataLogs(isArchiveDataLogs());
         manager.setSizeAccumulator(journalSize);
@@ -3605,6 +4075,66 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
         this.indexCacheSize = indexCacheSize;
     }
 
+    public int getRecoveryThreads() {
+        return recoveryThreads;
+    }
+
+    public void setRecoveryThreads(int recoveryThreads) {
+        this.recoveryThreads = recoveryThreads;
+    }
+
+    public boolean isIncrementalJournalCleanup() {
+        return incrementalJournalCleanup;
+    }
+
+    public void setIncrementalJournalCleanup(boolean incrementalJournalCleanup) {
+        this.incrementalJournalCleanup = incrementalJournalCleanup;
+    }
+
+    DataFileReferences getDataFileReferences() {
+        return dataFileReferences;
+    }
+
+    public boolean isCompactAckPositions() {
+        return compactAckPositions;
+    }
+
+    public void setCompactAckPositions(boolean compactAckPositions) {
+        this.compactAckPositions = compactAckPositions;
+    }
+
+    private SequenceSet.Marshaller getAckPositionsMarshaller() {
+        return compactAckPositions ? SequenceSet.CompactMarshaller.INSTANCE : SequenceSet.Marshaller.INSTANCE;
+    }
+
+    public boolean isLazyIndexLoad() {
+        return lazyIndexLoad;
+    }
+
+    public void setLazyIndexLoad(boolean lazyIndexLoad) {
+        this.lazyIndexLoad = lazyIndexLoad;
+    }
+
+    public boolean isStoredDestinationsLoaded() {
+        return storedDestinationsLoaded;
+    }
+
+    public long getIndexOffHeapCacheSize() {
+        return indexOffHeapCacheSize;
+    }
+
+    public void setIndexOffHeapCacheSize(long indexOffHeapCacheSize) {
+        this.indexOffHeapCacheSize = indexOffHeapCacheSize;
+    }
+
+    public int getIndexLockStripes() {
+        return indexLockStripes;
+    }
+
+    public void setIndexLockStripes(int indexLockStripes) {
+        this.indexLockStripes = indexLockStripes;
+    }
+
     public boolean isCheckForCorruptJournalFiles() {
         return checkForCorruptJournalFiles;
     }
@@ -3626,6 +4156,38 @@ public abstract class MessageDatabase extends ServiceSupport implements BrokerSe
                 purgeRecoveredXATransactionStrategy.trim().toUpperCase());
     }
 
+    public boolean isJournalMemoryMappedReads() {
+        return journalMemoryMappedReads;
+    }
+
+    public void setJournalMemoryMappedReads(boolean journalMemoryMappedReads) {
+        this.journalMemoryMappedReads = journalMemoryMappedReads;
+    }
+
+    public boolean isJournalGroupCommit() {
+        return journalGroupCommit;
+    }
+
+    public void setJournalGroupCommit(boolean journalGroupCommit) {
+        this.journalGroupCommit = journalGroupCommit;
+    }
+
+    public long getJournalGroupCommitMaxLatency() {
+        return journalGroupCommitMaxLatency;
+    }
+
+    public void setJournalGroupCommitMaxLatency(long journalGroupCommitMaxLatency) {
+        this.journalGroupCommitMaxLatency = journalGroupCommitMaxLatency;
+    }
+
+    public int getJournalGroupCommitMaxBytes() {
+        return journalGroupCommitMaxBytes;
+    }
+
+    public void setJournalGroupCommitMaxBytes(int journalGroupCommitMaxBytes) {
+        this.journalGroupCommitMaxBytes = journalGroupCommitMaxBytes;
+    }
+
     public boolean isChecksumJournalFiles() {
         return checksumJournalFiles;
     }
@@ -0,0 +1,374 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.store.kahadb;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.activemq.store.kahadb.data.KahaAddMessageCommand;
+import org.apache.activemq.store.kahadb.data.KahaDestination;
+import org.apache.activemq.store.kahadb.data.KahaRemoveMessageCommand;
+import org.apache.activemq.store.kahadb.data.KahaRemoveMessagesCommand;
+import org.apache.activemq.store.kahadb.data.KahaUpdateMessageCommand;
+import org.apache.activemq.store.kahadb.disk.journal.Location;
+import org.apache.activemq.store.kahadb.disk.page.Transaction;
+import org.apache.activemq.util.IOExceptionSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Replays the journal into the index of a {@link MessageDatabase} with several threads.
+ *
+ * Data files are read and decoded ahead of the replay position by a pool of decoder
+ * threads, one data file per task. The decoded records are then applied in journal order:
+ * non transactional adds, updates and removes for a destination that is already indexed
+ * are handed to one of a fixed set of lanes chosen by the destination, so the updates of a
+ * destination are applied in order while different destinations are indexed concurrently.
+ * Every other record is a barrier: the lanes are drained and the record is processed on
+ * the recovering thread exactly as a sequential replay would. A barrier that skips the
+ * rest of its data file, the marker of a rewritten file, discards the records decoded
+ * after it.
+ *
+ * The recovering thread holds the index write lock for the whole replay, the lanes work
+ * under it on disjoint destinations.
+ */
+class ParallelJournalRecovery {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ParallelJournalRecovery.class);
+
+    private static final int LANE_QUEUE_SIZE = 1024;
+
+    private final MessageDatabase store;
+    private final int threads;
+    private final Lane[] lanes;
+    private final AtomicLong pending = new AtomicLong();
+    private final ConcurrentLinkedQueue<LaneFailure> failures = new ConcurrentLinkedQueue<>();
+
+    ParallelJournalRecovery(MessageDatabase store, int threads) {
+        this.store = store;
+        this.threads = threads;
+        this.lanes = new Lane[threads];
+    }
+
+    /**
+     * Replays the journal from the recovery position to its end.
+     *
+     * @return the number of journal records replayed
+     */
+    int replay(Location recoveryPosition, Location lastIndoubtPosition) throws IOException {
+        ExecutorService decoders = Executors.newFixedThreadPool(threads, threadFactory("ActiveMQ KahaDB Recovery Decoder"));
+        ThreadFactory laneFactory = threadFactory("ActiveMQ KahaDB Recovery Lane");
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new Lane();
+            laneFactory.newThread(lanes[i]).start();
+        }
+
+        int redoCounter = 0;
+        try {
+            Iterator<Integer> dataFileIds = new TreeSet<>(store.journal.getFileMap().keySet()).tailSet(recoveryPosition.getDataFileId()).iterator();
+            ArrayDeque<Future<List<Record>>> decoded = new ArrayDeque<>();
+            Location start = recoveryPosition;
+            while (decoded.size() < threads && dataFileIds.hasNext()) {
+                decoded.add(decoders.submit(decodeTask(dataFileIds.next(), start)));
+                start = null;
+            }
+
+            Location lastLocation = null;
+            while (!decoded.isEmpty()) {
+                List<Record> records = await(decoded.poll());
+                if (dataFileIds.hasNext()) {
+                    decoded.add(decoders.submit(decodeTask(dataFileIds.next(), null)));
+                }
+
+                for (Record record : records) {
+                    if (record.failure != null) {
+                        drain();
+                        throw new IOException("Failed to recover data at position:" + record.location, record.failure);
+                    }
+                    int offset = record.location.getOffset();
+                    apply(record.command, record.location, lastIndoubtPosition);
+                    lastLocation = record.location;
+                    redoCounter++;
+                    if (LOG.isInfoEnabled() && redoCounter % 100000 == 0) {
+                        LOG.info("@" + record.location + ", " + redoCounter + " entries recovered ..");
+                    }
+                    if (record.location.getOffset() != offset) {
+                        // a rewritten data file whose source still exists moves the location to
+                        // the end of its file, the sequential replay then continues with the next file
+                        break;
+                    }
+                }
+                // hold on to the minimum number of open files during recovery
+                store.journal.cleanup();
+            }
+            drain();
+
+            if (lastLocation != null) {
+                store.metadata.lastUpdate = lastLocation;
+            }
+        } finally {
+            decoders.shutdownNow();
+            for (Lane lane : lanes) {
+                if (lane != null) {
+                    lane.stop();
+                }
+            }
+        }
+        return redoCounter;
+    }
+
+    private void apply(JournalCommand<?> data, final Location location, Location lastIndoubtPosition) throws IOException {
+        if (lastIndoubtPosition != null && location.compareTo(lastIndoubtPosition) >= 0) {
+            LaneUpdate update = laneUpdate(data, location);
+            if (update != null) {
+                submit(update);
+                return;
+            }
+        }
+
+        drain();
+        store.metadata.lastUpdate = location;
+        store.process(data, location, lastIndoubtPosition);
+    }
+
+    /**
+     * @return the index update for a record that can be applied on a destination lane,
+     *         or null if the record has to be processed as a barrier
+     */
+    private LaneUpdate laneUpdate(JournalCommand<?> data, final Location location) throws IOException {
+        final LaneUpdate[] result = new LaneUpdate[1];
+        data.visit(new Visitor() {
+            @Override
+            public void visit(final KahaAddMessageCommand command) throws IOException {
+                if (!command.hasTransactionInfo() && isIndexed(command.getDestination())) {
+                    result[0] = new LaneUpdate(command.getDestination(), location, tx -> store.updateIndex(tx, command, location));
+                }
+            }
+
+            @Override
+            public void visit(final KahaRemoveMessageCommand command) throws IOException {
+                if (!command.hasTransactionInfo() && isIndexed(command.getDestination())) {
+                    result[0] = new LaneUpdate(command.getDestination(), location, tx -> store.updateIndex(tx, command, location));
+                }
+            }
+
+            @Override
+            public void visit(final KahaRemoveMessagesCommand command) throws IOException {
+                if (isIndexed(command.getDestination())) {
+                    result[0] = new LaneUpdate(command.getDestination(), location, tx -> store.updateIndex(tx, command, location));
+                }
+            }
+
+            @Override
+            public void visit(final KahaUpdateMessageCommand command) throws IOException {
+                if (isIndexed(command.getMessage().getDestination())) {
+                    result[0] = new LaneUpdate(command.getMessage().getDestination(), location, tx -> store.updateIndex(tx, command, location));
+                }
+            }
+        });
+        return result[0];
+    }
+
+    // only destinations already in storedDestinations can be updated without modifying it
+    private boolean isIndexed(KahaDestination destination) {
+        return store.storedDestinations.containsKey(store.key(destination));
+    }
+
+    private void submit(LaneUpdate update) throws IOException {
+        int hash = update.destinationKey.hashCode();
+        hash ^= (hash >>> 16);
+        Lane lane = lanes[(hash & Integer.MAX_VALUE) % lanes.length];
+        pending.incrementAndGet();
+        try {
+            lane.queue.put(update);
+        } catch (InterruptedException e) {
+            pending.decrementAndGet();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    /**
+     * Waits for the lanes to apply all submitted updates and handles their failures the
+     * way a sequential replay would.
+     */
+    private void drain() throws IOException {
+        if (pending.get() > 0) {
+            synchronized (pending) {
+                while (pending.get() > 0) {
+                    try {
+                        pending.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException();
+                    }
+                }
+            }
+        }
+
+        LaneFailure failure;
+        while ((failure = failures.poll()) != null) {
+            if (store.isIgnoreMissingJournalfiles()) {
+                LOG.debug("Failed to recover data at position:" + failure.location, failure.cause);
+                // track this dud location
+                store.journal.corruptRecoveryLocation(new Location(failure.location));
+            } else {
+                failures.clear();
+                throw new IOException("Failed to recover data at position:" + failure.location, failure.cause);
+            }
+        }
+    }
+
+    private Callable<List<Record>> decodeTask(final int dataFileId, final Location start) {
+        return () -> decode(dataFileId, start);
+    }
+
+    private List<Record> decode(int dataFileId, Location start) throws IOException {
+        List<Record> records = new ArrayList<>();
+        Location location = start != null ? start : store.journal.getNextLocation(new Location(dataFileId, 0));
+        while (location != null && location.getDataFileId() == dataFileId) {
+            try {
+                records.add(new Record(location, store.load(location), null));
+            } catch (IOException failedRecovery) {
+                if (store.isIgnoreMissingJournalfiles()) {
+                    LOG.debug("Failed to recover data at position:" + location, failedRecovery);
+                    // track this dud location
+                    store.journal.corruptRecoveryLocation(location);
+                } else {
+                    records.add(new Record(location, null, failedRecovery));
+                    break;
+                }
+            }
+            location = store.journal.getNextLocation(location);
+        }
+        return records;
+    }
+
+    private static List<Record> await(Future<List<Record>> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw IOExceptionSupport.create(e.getCause());
+        }
+    }
+
+    private static ThreadFactory threadFactory(final String name) {
+        final AtomicInteger counter = new AtomicInteger();
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, name + " " + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    private static final class Record {
+        final Location location;
+        final JournalCommand<?> command;
+        final IOException failure;
+
+        Record(Location location, JournalCommand<?> command, IOException failure) {
+            this.location = location;
+            this.command = command;
+            this.failure = failure;
+        }
+    }
+
+    private final class LaneUpdate {
+        final String destinationKey;
+        final Location location;
+        final Transaction.Closure<IOException> closure;
+
+        LaneUpdate(KahaDestination destination, Location location, Transaction.Closure<IOException> closure) {
+            this.destinationKey = store.key(destination);
+            this.location = location;
+            this.closure = closure;
+        }
+    }
+
+    private static final class LaneFailure {
+        final Location location;
+        final Throwable cause;
+
+        LaneFailure(Location location, Throwable cause) {
+            this.location = location;
+            this.cause = cause;
+        }
+    }
+
+    private final class Lane implements Runnable {
+
+        final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(LANE_QUEUE_SIZE);
+        private final Object stop = new Object();
+
+        @Override
+        public void run() {
+            while (true) {
+                Object item;
+                try {
+                    item = queue.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (item == stop) {
+                    return;
+                }
+                LaneUpdate update = (LaneUpdate) item;
+                try {
+                    store.pageFile.tx().execute(update.closure);
+                } catch (Throwable e) {
+                    failures.add(new LaneFailure(update.location, e));
+                } finally {
+                    if (pending.decrementAndGet() == 0) {
+                        synchronized (pending) {
+                            pending.notifyAll();
+                        }
+                    }
+                }
+            }
+        }
+
+        void stop() {
+            queue.clear();
+            queue.offer(stop);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.store.kahadb;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Partitions the index lock of a {@link MessageDatabase} into destination stripes.
+ *
+ * A stripe holds the read side of the shared index lock plus its own mutex, so index
+ * updates for destinations that hash to different stripes run concurrently while anything
+ * holding the write side of the index lock (checkpoint, destination add/remove, multi
+ * destination transactions) still has the index to itself.
+ */
+class StripedIndexLock {
+
+    private final Stripe[] stripes;
+    private final int mask;
+
+    StripedIndexLock(ReentrantReadWriteLock indexLock, int stripeCount) {
+        int size = 1;
+        while (size < stripeCount) {
+            size <<= 1;
+        }
+        this.stripes = new Stripe[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new Stripe(indexLock.readLock());
+        }
+    }
+
+    /**
+     * The returned lock only supports locking and unlocking: a stripe spans two locks, so
+     * {@link Lock#newCondition()} throws UnsupportedOperationException and the stripe must
+     * not be handed to code that waits on a condition.
+     *
+     * @return the stripe lock that guards the index of the given destination key
+     */
+    Lock forKey(String destinationKey) {
+        int hash = destinationKey.hashCode();
+        hash ^= (hash >>> 16);
+        return stripes[hash & mask];
+    }
+
+    int getStripeCount() {
+        return stripes.length;
+    }
+
+    // a Lock only so callers can release a stripe and the exclusive index lock alike, conditions are not supported
+    private static final class Stripe implements Lock {
+
+        private final Lock shared;
+        private final ReentrantLock mutex = new ReentrantLock();
+
+        Stripe(Lock shared) {
+            this.shared = shared;
+        }
+
+        @Override
+        public void lock() {
+            shared.lock();
+            try {
+                mutex.lock();
+            } catch (Throwable e) {
+                shared.unlock();
+                throw e;
+            }
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            shared.lockInterruptibly();
+            try {
+                mutex.lockInterruptibly();
+            } catch (Throwable e) {
+                shared.unlock();
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean tryLock() {
+            if (shared.tryLock()) {
+                if (mutex.tryLock()) {
+                    return true;
+                }
+                shared.unlock();
+            }
+            return false;
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(time);
+            if (shared.tryLock(time, unit)) {
+                try {
+                    if (mutex.tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                        return true;
+                    }
+                } catch (Throwable e) {
+                    shared.unlock();
+                    throw e;
+                }
+                shared.unlock();
+            }
+            return false;
+        }
+
+        @Override
+        public void unlock() {
+            try {
+                mutex.unlock();
+            } finally {
+                shared.unlock();
+            }
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException("Conditions are not supported on index lock stripes");
+        }
+    }
+}
@@ -27,6 +27,7 @@ import org.apache.activemq.store.kahadb.data.KahaPrepareCommand;
 import org.apache.activemq.store.kahadb.data.KahaProducerAuditCommand;
 import org.apache.activemq.store.kahadb.data.KahaRemoveDestinationCommand;
 import org.apache.activemq.store.kahadb.data.KahaRemoveMessageCommand;
+import org.apache.activemq.store.kahadb.data.KahaRemoveMessagesCommand;
 import org.apache.activemq.store.kahadb.data.KahaRemoveScheduledJobCommand;
 import org.apache.activemq.store.kahadb.data.KahaRemoveScheduledJobsCommand;
 import org.apache.activemq.store.kahadb.data.KahaRescheduleJobCommand;
@@ -47,6 +48,9 @@ public class Visitor {
     public void visit(KahaRemoveMessageCommand command) throws IOException {
     }
 
+    public void visit(KahaRemoveMessagesCommand command) throws IOException {
+    }
+
     public void visit(KahaPrepareCommand command) throws IOException {
     }
 
@@ -18,11 +18,15 @@ package org.apache.activemq.store.kahadb.disk.index;
 
 import java.io.IOException;
 import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiPredicate;
 
 import org.apache.activemq.store.kahadb.disk.index.ListNode.ListIterator;
 import org.apache.activemq.store.kahadb.disk.page.Page;
@@ -287,6 +291,29 @@ public class ListIndex<Key,Value> implements Index<Key,Value> {
         size.set(0);
     }
 
+    /**
+     * Passes every entry in list order to the updater and stores each node that holds an
+     * entry the updater changed in place once, rather than once per changed entry.
+     *
+     * @param updater returns true when it modified the value it was given
+     */
+    @SuppressWarnings("rawtypes")
+    synchronized public void updateAll(Transaction tx, BiPredicate<Key, Value> updater) throws IOException {
+        assertLoaded();
+        Set<ListNode<Key, Value>> modified = Collections.newSetFromMap(new IdentityHashMap<ListNode<Key, Value>, Boolean>());
+        Iterator<Map.Entry<Key, Value>> iterator = iterator(tx);
+        while (iterator.hasNext()) {
+            Map.Entry<Key, Value> entry = iterator.next();
+            if (updater.test(entry.getKey(), entry.getValue())) {
+                modified.add(((ListIterator) iterator).getCurrent());
+            }
+        }
+        for (ListNode<Key, Value> node : modified) {
+            node.storeUpdate(tx);
+        }
+        flushCache();
+    }
+
     synchronized public Iterator<ListNode<Key, Value>> listNodeIterator(Transaction tx) throws IOException {
         return getHead(tx).listNodeIterator(tx);
     }
@@ -18,11 +18,19 @@ package org.apache.activemq.store.kahadb.disk.journal;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 
 import org.apache.activemq.store.kahadb.disk.util.LinkedNode;
 import org.apache.activemq.store.kahadb.disk.util.SequenceSet;
 import org.apache.activemq.util.IOHelper;
 import org.apache.activemq.util.RecoverableRandomAccessFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * DataFile
@@ -31,12 +39,37 @@ public class DataFile extends LinkedNode<DataFile> implements Comparable<DataFil
 
     public final static byte STANDARD_LOG_FILE = 0x0;
 
+    private static final Logger LOG = LoggerFactory.getLogger(DataFile.class);
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (Exception e) {
+            LOG.debug("Mapped data files can not be unmapped explicitly: {}", e.toString());
+            unsafe = null;
+            invokeCleaner = null;
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
     protected final File file;
     protected final Integer dataFileId;
     protected volatile int length;
     protected int typeCode = STANDARD_LOG_FILE;
     protected final SequenceSet corruptedBlocks = new SequenceSet();
     protected RecoverableRandomAccessFile appendRandomAccessFile;
+    protected volatile MappedByteBuffer mappedBuffer;
+    private int mappedReaders;
+    private boolean unmapPending;
 
     DataFile(File file, int number) {
         this.file = file;
@@ -99,6 +132,65 @@ public class DataFile extends LinkedNode<DataFile> implements Comparable<DataFil
         }
     }
 
+    /**
+     * @return true if the JVM lets a mapping be released explicitly, otherwise it is only
+     *         released once it is garbage collected and the file stays open until then
+     */
+    static boolean isUnmapSupported() {
+        return INVOKE_CLEANER != null;
+    }
+
+    /**
+     * Maps the file read only so that records can be read without a seek and read system
+     * call each. Only meaningful once the file is no longer appended to; the mapping covers
+     * the file as it was when first mapped. Each view must be closed with
+     * {@link #closeMappedView()} once read, the mapping is not released while views are open.
+     *
+     * @return a view of the mapping the caller is free to reposition
+     */
+    synchronized ByteBuffer openMappedView() throws IOException {
+        if (mappedBuffer == null) {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                mappedBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(length, channel.size()));
+            }
+        }
+        mappedReaders++;
+        return mappedBuffer.duplicate();
+    }
+
+    synchronized void closeMappedView() {
+        if (--mappedReaders == 0 && unmapPending) {
+            releaseMapping();
+        }
+    }
+
+    /**
+     * Releases the read only mapping, or once the last open view is closed.
+     */
+    synchronized void unmap() {
+        if (mappedBuffer == null) {
+            return;
+        }
+        if (mappedReaders > 0) {
+            unmapPending = true;
+        } else {
+            releaseMapping();
+        }
+    }
+
+    private void releaseMapping() {
+        MappedByteBuffer mapped = mappedBuffer;
+        mappedBuffer = null;
+        unmapPending = false;
+        if (INVOKE_CLEANER != null) {
+            try {
+                INVOKE_CLEANER.invoke(UNSAFE, mapped);
+            } catch (Exception e) {
+                LOG.debug("Could not unmap {}, it is released once collected: {}", file, e.toString());
+            }
+        }
+    }
+
     public synchronized boolean delete() throws IOException {
         return file.delete();
     }
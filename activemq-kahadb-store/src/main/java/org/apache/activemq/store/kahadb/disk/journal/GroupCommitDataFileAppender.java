@@ -0,0 +1,359 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.store.kahadb.disk.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Adler32;
+
+import org.apache.activemq.util.ByteSequence;
+import org.apache.activemq.util.RecoverableRandomAccessFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.apache.activemq.store.kahadb.disk.journal.Journal.BATCH_CONTROL_RECORD_MAGIC;
+import static org.apache.activemq.store.kahadb.disk.journal.Journal.BATCH_CONTROL_RECORD_SIZE;
+import static org.apache.activemq.store.kahadb.disk.journal.Journal.EMPTY_BATCH_CONTROL_RECORD;
+import static org.apache.activemq.store.kahadb.disk.journal.Journal.EOF_RECORD;
+import static org.apache.activemq.store.kahadb.disk.journal.Journal.RECORD_HEAD_SPACE;
+
+/**
+ * A batch appender that writes through the {@link FileChannel} of the data file and
+ * group commits the disk syncs of consecutive write batches.
+ *
+ * The batch control records, record headers and record data are copied once into pooled
+ * direct buffers that are handed to the channel in a single gathering write, so the
+ * channel does not have to copy a heap array into a temporary native buffer first.
+ * Batches that queue up behind the writer thread are written and forced together; when
+ * a max latency is configured the writer also lingers up to that long for more batches
+ * before it forces. A group is closed early once it holds the configured max bytes.
+ */
+class GroupCommitDataFileAppender extends DataFileAppender {
+
+    private static final Logger logger = LoggerFactory.getLogger(GroupCommitDataFileAppender.class);
+
+    static final int CHUNK_SIZE = 64 * 1024;
+
+    private final long maxLatencyNanos;
+    private final int maxGroupBytes;
+    private final int maxPooledChunks;
+
+    // only touched by the writer thread
+    private final ArrayDeque<ByteBuffer> chunkPool = new ArrayDeque<ByteBuffer>();
+    private ByteBuffer[] chunks = new ByteBuffer[16];
+    private int chunkCount;
+    private long position;
+    private final byte[] recordHead = new byte[RECORD_HEAD_SPACE];
+    private final byte[] controlFields = new byte[4 + 8];
+    private final Adler32 checksum = new Adler32();
+
+    public GroupCommitDataFileAppender(Journal dataManager) {
+        super(dataManager);
+        this.maxLatencyNanos = TimeUnit.MICROSECONDS.toNanos(dataManager.getGroupCommitMaxLatency());
+        this.maxGroupBytes = dataManager.getGroupCommitMaxBytes();
+        this.maxPooledChunks = (Math.max(maxGroupBytes, maxWriteBatchSize) + maxWriteBatchSize) / CHUNK_SIZE + 1;
+    }
+
+    @Override
+    protected void processQueue() {
+        DataFile dataFile = null;
+        RecoverableRandomAccessFile file = null;
+        final List<WriteBatch> group = new ArrayList<WriteBatch>();
+        try {
+            while (true) {
+
+                // Block till we get a group of batches to write.
+                if (!takeGroup(group)) {
+                    return;
+                }
+
+                WriteBatch first = group.get(0);
+                if (dataFile != first.dataFile) {
+                    if (file != null) {
+                        if (periodicSync) {
+                            if (logger.isTraceEnabled()) {
+                                logger.trace("Syncing file {} on rotate", dataFile.getFile().getName());
+                            }
+                            file.sync();
+                        }
+                        dataFile.closeRandomAccessFile(file);
+                    }
+                    dataFile = first.dataFile;
+                    file = dataFile.appendRandomAccessFile();
+                }
+
+                boolean forceToDisk = write(file.getChannel(), group);
+                if (forceToDisk) {
+                    file.sync();
+                }
+
+                Journal.WriteCommand lastWrite = group.get(group.size() - 1).writes.getTail();
+                journal.setLastAppendLocation(lastWrite.location);
+
+                for (WriteBatch wb : group) {
+                    signalDone(wb);
+                }
+                group.clear();
+            }
+        } catch (Throwable error) {
+            if (!group.isEmpty()) {
+                logger.warn("Journal failed while writing at: " + group.get(0).dataFile.getDataFileId() + ":" + group.get(0).offset, error);
+            } else {
+                logger.warn("Journal failed while writing", error);
+            }
+            synchronized (enqueueMutex) {
+                shutdown = true;
+                running = false;
+                for (WriteBatch wb : group) {
+                    signalError(wb, error);
+                }
+                if (nextWriteBatch != null) {
+                    signalError(nextWriteBatch, error);
+                    nextWriteBatch = null;
+                    enqueueMutex.notifyAll();
+                }
+            }
+        } finally {
+            try {
+                if (file != null) {
+                    if (periodicSync) {
+                        if (logger.isTraceEnabled()) {
+                            logger.trace("Syncing file {} on close", dataFile.getFile().getName());
+                        }
+                        file.sync();
+                    }
+                    dataFile.closeRandomAccessFile(file);
+                }
+            } catch (Throwable ignore) {
+            }
+            chunkPool.clear();
+            shutdownDone.countDown();
+            running = false;
+        }
+    }
+
+    /**
+     * Takes the next write batch and any batches that directly follow it in the same
+     * data file, lingering for the configured max latency when the group has to be
+     * forced to disk.
+     *
+     * @return false if the appender was shutdown with nothing left to write
+     */
+    private boolean takeGroup(List<WriteBatch> group) throws InterruptedException {
+        synchronized (enqueueMutex) {
+            while (nextWriteBatch == null) {
+                if (shutdown) {
+                    return false;
+                }
+                enqueueMutex.wait();
+            }
+
+            final long deadline = System.nanoTime() + maxLatencyNanos;
+            long groupBytes = 0;
+            boolean forceToDisk = false;
+            while (true) {
+                WriteBatch wb = nextWriteBatch;
+                nextWriteBatch = null;
+                enqueueMutex.notifyAll();
+
+                group.add(wb);
+                groupBytes += wb.size;
+                forceToDisk |= requiresForce(wb);
+                if (groupBytes >= maxGroupBytes) {
+                    break;
+                }
+
+                if (nextWriteBatch == null) {
+                    if (!forceToDisk || maxLatencyNanos <= 0) {
+                        break;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    while (nextWriteBatch == null && remaining > 0 && !shutdown) {
+                        TimeUnit.NANOSECONDS.timedWait(enqueueMutex, remaining);
+                        remaining = deadline - System.nanoTime();
+                    }
+                    if (nextWriteBatch == null) {
+                        break;
+                    }
+                }
+
+                // only batches that continue where this one ends can share its write
+                if (nextWriteBatch.dataFile != wb.dataFile || nextWriteBatch.offset != wb.offset + wb.size) {
+                    break;
+                }
+            }
+            return true;
+        }
+    }
+
+    private boolean requiresForce(WriteBatch wb) {
+        Journal.WriteCommand write = wb.writes.getHead();
+        while (write != null) {
+            if (write.sync || (syncOnComplete && write.onComplete != null)) {
+                return true;
+            }
+            write = write.getNext();
+        }
+        return false;
+    }
+
+    /**
+     * Copies the group into the direct buffer chunks and writes them at the offset of
+     * the first batch with a gathering write.
+     *
+     * @return true if any write in the group has to be forced to disk
+     */
+    private boolean write(FileChannel channel, List<WriteBatch> group) throws IOException {
+        ReplicationTarget replicationTarget = journal.getReplicationTarget();
+        boolean forceToDisk = false;
+        position = 0;
+        try {
+            for (WriteBatch wb : group) {
+                final long batchStart = position;
+
+                // Write an empty batch control record.
+                put(EMPTY_BATCH_CONTROL_RECORD, 0, EMPTY_BATCH_CONTROL_RECORD.length);
+
+                checksum.reset();
+                boolean batchForceToDisk = false;
+                Journal.WriteCommand write = wb.writes.getHead();
+                while (write != null) {
+                    batchForceToDisk |= write.sync | (syncOnComplete && write.onComplete != null);
+                    int size = write.location.getSize();
+                    recordHead[0] = (byte) (size >>> 24);
+                    recordHead[1] = (byte) (size >>> 16);
+                    recordHead[2] = (byte) (size >>> 8);
+                    recordHead[3] = (byte) size;
+                    recordHead[4] = write.location.getType();
+                    put(recordHead, 0, recordHead.length);
+                    put(write.data.getData(), write.data.getOffset(), write.data.getLength());
+                    if (journal.isChecksum()) {
+                        checksum.update(recordHead, 0, recordHead.length);
+                        checksum.update(write.data.getData(), write.data.getOffset(), write.data.getLength());
+                    }
+                    write = write.getNext();
+                }
+
+                // Now we can fill in the batch control record properly.
+                ByteBuffer fields = ByteBuffer.wrap(controlFields);
+                fields.putInt(wb.size - BATCH_CONTROL_RECORD_SIZE);
+                if (journal.isChecksum()) {
+                    fields.putLong(checksum.getValue());
+                }
+                putAt(batchStart + RECORD_HEAD_SPACE + BATCH_CONTROL_RECORD_MAGIC.length, controlFields, fields.position());
+
+                if (replicationTarget != null) {
+                    replicationTarget.replicate(wb.writes.getHead().location, copyBatch(batchStart, wb.size), batchForceToDisk);
+                }
+                forceToDisk |= batchForceToDisk;
+            }
+
+            // append 'unset', zero length next batch so read can always find eof
+            put(EOF_RECORD, 0, EOF_RECORD.length);
+
+            if (maxStat > 0) {
+                if (statIdx < maxStat) {
+                    stats[statIdx++] = (int) position;
+                } else {
+                    long all = 0;
+                    for (;statIdx > 0;) {
+                        all+= stats[--statIdx];
+                    }
+                    logger.info("Ave writeSize: " + all/maxStat);
+                }
+            }
+
+            // Now do the 1 big gathering write.
+            for (int i = 0; i < chunkCount; i++) {
+                chunks[i].flip();
+            }
+            channel.position(group.get(0).offset);
+            long remaining = position;
+            while (remaining > 0) {
+                remaining -= channel.write(chunks, 0, chunkCount);
+            }
+        } finally {
+            releaseChunks();
+        }
+        return forceToDisk;
+    }
+
+    private void put(byte[] data, int offset, int length) {
+        while (length > 0) {
+            ByteBuffer chunk = currentChunk();
+            int count = Math.min(length, chunk.remaining());
+            chunk.put(data, offset, count);
+            offset += count;
+            length -= count;
+            position += count;
+        }
+    }
+
+    private void putAt(long index, byte[] data, int length) {
+        for (int i = 0; i < length; i++, index++) {
+            chunks[(int) (index / CHUNK_SIZE)].put((int) (index % CHUNK_SIZE), data[i]);
+        }
+    }
+
+    private ByteSequence copyBatch(long index, int size) {
+        byte[] data = new byte[size + EOF_RECORD.length];
+        int copied = 0;
+        while (copied < size) {
+            ByteBuffer chunk = chunks[(int) (index / CHUNK_SIZE)].duplicate();
+            chunk.position((int) (index % CHUNK_SIZE));
+            int count = Math.min(size - copied, CHUNK_SIZE - chunk.position());
+            chunk.get(data, copied, count);
+            copied += count;
+            index += count;
+        }
+        System.arraycopy(EOF_RECORD, 0, data, size, EOF_RECORD.length);
+        return new ByteSequence(data);
+    }
+
+    private ByteBuffer currentChunk() {
+        if (chunkCount > 0 && chunks[chunkCount - 1].hasRemaining()) {
+            return chunks[chunkCount - 1];
+        }
+        if (chunkCount == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunkCount * 2);
+        }
+        ByteBuffer chunk = chunkPool.poll();
+        if (chunk == null) {
+            chunk = ByteBuffer.allocateDirect(CHUNK_SIZE);
+        }
+        chunks[chunkCount++] = chunk;
+        return chunk;
+    }
+
+    private void releaseChunks() {
+        for (int i = 0; i < chunkCount; i++) {
+            ByteBuffer chunk = chunks[i];
+            chunks[i] = null;
+            if (chunkPool.size() < maxPooledChunks) {
+                chunk.clear();
+                chunkPool.push(chunk);
+            }
+        }
+        chunkCount = 0;
+    }
+}
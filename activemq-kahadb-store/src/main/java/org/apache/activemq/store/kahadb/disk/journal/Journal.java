@@ -117,6 +117,13 @@ public class Journal {
         return accessorPool;
     }
 
+    protected FileAppender createAppender() {
+        if (groupCommit) {
+            return new GroupCommitDataFileAppender(this);
+        }
+        return callerBufferAppender ? new CallerBufferingDataFileAppender(this) : new DataFileAppender(this);
+    }
+
     public void allowIOResumption() {
         if (appender instanceof DataFileAppender) {
             DataFileAppender dataFileAppender = (DataFileAppender)appender;
@@ -229,6 +236,10 @@ public class Journal {
     protected boolean checksum;
     protected boolean checkForCorruptionOnStartup;
     protected boolean enableAsyncDiskSync = true;
+    protected boolean memoryMappedReads;
+    protected boolean groupCommit;
+    protected long groupCommitMaxLatency;
+    protected int groupCommitMaxBytes = DEFAULT_MAX_WRITE_BATCH_SIZE;
     private int nextDataFileId = 1;
     private Object dataFileIdLock = new Object();
     private final AtomicReference<DataFile> currentDataFile = new AtomicReference<>(null);
@@ -254,10 +265,15 @@ public class Journal {
         }
 
         long start = System.currentTimeMillis();
+        if (memoryMappedReads && !DataFile.isUnmapSupported() && isWindows()) {
+            // windows can not delete or archive a data file while a mapping of it is live
+            LOG.warn("Memory mapped reads are disabled, mapped data files can not be released on this JVM");
+            memoryMappedReads = false;
+        }
         accessorPool = new DataFileAccessorPool(this);
         started = true;
 
-        appender = callerBufferAppender ? new CallerBufferingDataFileAppender(this) : new DataFileAppender(this);
+        appender = createAppender();
 
         File[] files = directory.listFiles(new FilenameFilter() {
             @Override
@@ -745,6 +761,9 @@ public class Journal {
         // the appender can be calling back to to the journal blocking a close AMQ-5620
         appender.close();
         synchronized (currentDataFile) {
+            for (DataFile dataFile : fileMap.values()) {
+                dataFile.unmap();
+            }
             fileMap.clear();
             fileByFileMap.clear();
             dataFiles.clear();
@@ -768,6 +787,7 @@ public class Journal {
         boolean result = true;
         for (Iterator<DataFile> i = fileMap.values().iterator(); i.hasNext();) {
             DataFile dataFile = i.next();
+            dataFile.unmap();
             result &= dataFile.delete();
         }
 
@@ -790,7 +810,7 @@ public class Journal {
         }
         // reopen open file handles...
         accessorPool = new DataFileAccessorPool(this);
-        appender = new DataFileAppender(this);
+        appender = createAppender();
         return result;
     }
 
@@ -816,6 +836,7 @@ public class Journal {
 
     private void forceRemoveDataFile(DataFile dataFile) throws IOException {
         accessorPool.disposeDataFileAccessors(dataFile);
+        dataFile.unmap();
         totalLength.addAndGet(-dataFile.getLength());
         if (archiveDataLogs) {
             File directoryArchive = getDirectoryArchive();
@@ -947,6 +968,12 @@ public class Journal {
 
     public ByteSequence read(Location location) throws IOException, IllegalStateException {
         DataFile dataFile = getDataFile(location);
+        if (memoryMappedReads && isSealed(dataFile)) {
+            ByteSequence rc = readMapped(dataFile, location);
+            if (rc != null) {
+                return rc;
+            }
+        }
         DataFileAccessor reader = accessorPool.openDataFileAccessor(dataFile);
         ByteSequence rc = null;
         try {
@@ -957,6 +984,54 @@ public class Journal {
         return rc;
     }
 
+    private boolean isSealed(DataFile dataFile) {
+        DataFile current = currentDataFile.get();
+        return current != null && dataFile.getDataFileId() < current.getDataFileId();
+    }
+
+    /**
+     * Reads a record from the read only mapping of a data file that is no longer appended to.
+     *
+     * @return the record or null if the record is not covered by the mapping and has to be
+     *         read through a DataFileAccessor
+     */
+    private ByteSequence readMapped(DataFile dataFile, Location location) throws IOException {
+        if (!location.isValid()) {
+            throw new IOException("Invalid location: " + location);
+        }
+
+        WriteCommand asyncWrite = inflightWrites.get(new WriteKey(location));
+        if (asyncWrite != null) {
+            return asyncWrite.data;
+        }
+
+        ByteBuffer view = dataFile.openMappedView();
+        try {
+            int offset = location.getOffset();
+            int size = location.getSize();
+            if (size == Location.NOT_SET) {
+                if ((long) offset + RECORD_HEAD_SPACE > view.limit()) {
+                    return null;
+                }
+                size = view.getInt(offset);
+                if (size < RECORD_HEAD_SPACE || (long) offset + size > view.limit()) {
+                    return null;
+                }
+                location.setSize(size);
+                location.setType(view.get(offset + 4));
+            } else if (size < RECORD_HEAD_SPACE || (long) offset + size > view.limit()) {
+                return null;
+            }
+
+            byte[] data = new byte[size - RECORD_HEAD_SPACE];
+            view.position(offset + RECORD_HEAD_SPACE);
+            view.get(data);
+            return new ByteSequence(data, 0, data.length);
+        } finally {
+            dataFile.closeMappedView();
+        }
+    }
+
     public Location write(ByteSequence data, boolean sync) throws IOException, IllegalStateException {
         Location loc = appender.storeItem(data, Location.USER_TYPE, sync);
         return loc;
@@ -1140,6 +1215,60 @@ public class Journal {
        this.totalLength = storeSizeAccumulator;
     }
 
+    private static boolean isWindows() {
+        return System.getProperty("os.name", "").toLowerCase().startsWith("windows");
+    }
+
+    public boolean isMemoryMappedReads() {
+        return memoryMappedReads;
+    }
+
+    /**
+     * Serve reads of data files that are no longer appended to from a read only memory
+     * mapping of the file instead of a pooled RandomAccessFile. Mappings are released when
+     * their data file is removed; on Windows this is turned off at start if the JVM can not
+     * release a mapping explicitly.
+     */
+    public void setMemoryMappedReads(boolean memoryMappedReads) {
+        this.memoryMappedReads = memoryMappedReads;
+    }
+
+    public boolean isGroupCommit() {
+        return groupCommit;
+    }
+
+    /**
+     * Append through the data file channel with gathering writes and force consecutive
+     * write batches to disk together rather than one batch at a time.
+     */
+    public void setGroupCommit(boolean groupCommit) {
+        this.groupCommit = groupCommit;
+    }
+
+    public long getGroupCommitMaxLatency() {
+        return groupCommitMaxLatency;
+    }
+
+    /**
+     * The max time in microseconds a group commit waits for more write batches before it
+     * forces the ones it has to disk, 0 forces as soon as no more batches are queued.
+     */
+    public void setGroupCommitMaxLatency(long groupCommitMaxLatency) {
+        this.groupCommitMaxLatency = groupCommitMaxLatency;
+    }
+
+    public int getGroupCommitMaxBytes() {
+        return groupCommitMaxBytes;
+    }
+
+    /**
+     * The number of bytes after which a group commit is written and forced to disk
+     * without waiting for more write batches.
+     */
+    public void setGroupCommitMaxBytes(int groupCommitMaxBytes) {
+        this.groupCommitMaxBytes = groupCommitMaxBytes;
+    }
+
     public void setEnableAsyncDiskSync(boolean val) {
         this.enableAsyncDiskSync = val;
     }
@@ -0,0 +1,250 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.store.kahadb.disk.page;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.apache.activemq.management.CountStatisticImpl;
+
+/**
+ * A cache of raw page images kept outside of the java heap.
+ *
+ * Pages are stored in fixed size slots of direct buffer segments that are allocated as the
+ * cache fills up, so a large index can stay mostly resident without growing the heap.  A
+ * page id to slot table with open addressing avoids boxing the keys, and slots are reused
+ * with the clock (second chance) approximation of LRU once the capacity is reached.
+ *
+ * The cache only ever holds the image of a page as it is on disk: the {@link PageFile}
+ * puts pages as it writes them and populates it with the pages it reads, guarded by a
+ * modification stamp so a read that raced a write cannot install a stale image.
+ */
+public class OffHeapPageCache {
+
+    static final int MAX_SEGMENT_SIZE = 1 << 30;
+    static final int MAX_PAGES = 1 << 28;
+    private static final long EMPTY = -1;
+
+    private final int pageSize;
+    private final int capacity;
+    private final int slotsPerSegment;
+    private final ByteBuffer[] segments;
+
+    // which page each slot holds and its clock reference bit
+    private final long[] slotPageIds;
+    private final boolean[] referenced;
+    private int used;
+    private int hand;
+
+    // page id -> slot, linear probing
+    private final long[] keys;
+    private final int[] values;
+    private final int mask;
+
+    private long modificationStamp;
+
+    private final CountStatisticImpl hits = new CountStatisticImpl("hits", "Index page reads served from the off heap page cache");
+    private final CountStatisticImpl misses = new CountStatisticImpl("misses", "Index page reads that had to go to disk");
+    private final CountStatisticImpl evictions = new CountStatisticImpl("evictions", "Pages evicted from the off heap page cache");
+
+    public OffHeapPageCache(long capacityBytes, int pageSize) {
+        if (pageSize <= 0 || capacityBytes < pageSize) {
+            throw new IllegalArgumentException("The off heap page cache must be able to hold at least one page of " + pageSize + " bytes");
+        }
+        this.pageSize = pageSize;
+        this.capacity = (int) Math.min(capacityBytes / pageSize, MAX_PAGES);
+        this.slotsPerSegment = Math.max(1, MAX_SEGMENT_SIZE / pageSize);
+        this.segments = new ByteBuffer[(capacity + slotsPerSegment - 1) / slotsPerSegment];
+        this.slotPageIds = new long[capacity];
+        this.referenced = new boolean[capacity];
+
+        int tableSize = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 2;
+        this.keys = new long[tableSize];
+        this.values = new int[tableSize];
+        this.mask = tableSize - 1;
+        Arrays.fill(keys, EMPTY);
+
+        hits.setEnabled(true);
+        misses.setEnabled(true);
+        evictions.setEnabled(true);
+    }
+
+    /**
+     * Copies the cached image of a page, or as much of it as fits, into data.
+     *
+     * @return false if the page is not cached
+     */
+    public synchronized boolean get(long pageId, byte[] data) {
+        int slot = find(pageId);
+        if (slot < 0) {
+            misses.increment();
+            return false;
+        }
+        referenced[slot] = true;
+        ByteBuffer segment = segmentOf(slot);
+        segment.position(offsetOf(slot));
+        segment.get(data, 0, Math.min(data.length, pageSize));
+        hits.increment();
+        return true;
+    }
+
+    /**
+     * Stores the image of a page that was just written to disk.
+     */
+    public synchronized void put(long pageId, byte[] data) {
+        modificationStamp++;
+        store(pageId, data);
+    }
+
+    /**
+     * Stores the image of a page read from disk unless the page is already cached or a
+     * page was put since the given stamp was taken.
+     *
+     * @return true if the page was stored
+     */
+    public synchronized boolean putIfUnmodified(long pageId, byte[] data, long stamp) {
+        if (stamp != modificationStamp || find(pageId) >= 0) {
+            return false;
+        }
+        store(pageId, data);
+        return true;
+    }
+
+    /**
+     * @return the stamp to pass to {@link #putIfUnmodified(long, byte[], long)} for a page
+     *         that is about to be read from disk
+     */
+    public synchronized long getModificationStamp() {
+        return modificationStamp;
+    }
+
+    public synchronized void clear() {
+        modificationStamp++;
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(referenced, false);
+        used = 0;
+        hand = 0;
+    }
+
+    public synchronized int size() {
+        return used;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public CountStatisticImpl getHits() {
+        return hits;
+    }
+
+    public CountStatisticImpl getMisses() {
+        return misses;
+    }
+
+    public CountStatisticImpl getEvictions() {
+        return evictions;
+    }
+
+    private void store(long pageId, byte[] data) {
+        int slot = find(pageId);
+        if (slot < 0) {
+            slot = allocateSlot();
+            slotPageIds[slot] = pageId;
+            insert(pageId, slot);
+        }
+        referenced[slot] = true;
+        ByteBuffer segment = segmentOf(slot);
+        segment.position(offsetOf(slot));
+        segment.put(data, 0, pageSize);
+    }
+
+    private int allocateSlot() {
+        if (used < capacity) {
+            return used++;
+        }
+        while (true) {
+            int slot = hand;
+            hand = hand + 1 == capacity ? 0 : hand + 1;
+            if (referenced[slot]) {
+                referenced[slot] = false;
+            } else {
+                delete(slotPageIds[slot]);
+                evictions.increment();
+                return slot;
+            }
+        }
+    }
+
+    private ByteBuffer segmentOf(int slot) {
+        int index = slot / slotsPerSegment;
+        ByteBuffer segment = segments[index];
+        if (segment == null) {
+            int slots = Math.min(slotsPerSegment, capacity - index * slotsPerSegment);
+            segment = ByteBuffer.allocateDirect(slots * pageSize);
+            segments[index] = segment;
+        }
+        return segment;
+    }
+
+    private int offsetOf(int slot) {
+        return (slot % slotsPerSegment) * pageSize;
+    }
+
+    private int indexFor(long pageId) {
+        int h = (int) (pageId ^ (pageId >>> 32)) * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private int find(long pageId) {
+        for (int i = indexFor(pageId); keys[i] != EMPTY; i = (i + 1) & mask) {
+            if (keys[i] == pageId) {
+                return values[i];
+            }
+        }
+        return -1;
+    }
+
+    private void insert(long pageId, int slot) {
+        int i = indexFor(pageId);
+        while (keys[i] != EMPTY) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = pageId;
+        values[i] = slot;
+    }
+
+    private void delete(long pageId) {
+        int i = indexFor(pageId);
+        while (keys[i] != pageId) {
+            if (keys[i] == EMPTY) {
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        // shift back the entries that probed past the removed one
+        for (int j = (i + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+            int home = indexFor(keys[j]);
+            if (i <= j ? (home <= i || home > j) : (home <= i && home > j)) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        keys[i] = EMPTY;
+    }
+}
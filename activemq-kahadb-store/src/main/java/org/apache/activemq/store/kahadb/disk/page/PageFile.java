@@ -116,6 +116,9 @@ public class PageFile {
     private boolean enablePageCaching = true;
     // How many pages will we keep in the cache?
     private int pageCacheSize = DEFAULT_PAGE_CACHE_SIZE;
+    // How many bytes of raw page images will we keep off heap, 0 to disable
+    private long offHeapPageCacheSize = 0;
+    private volatile OffHeapPageCache offHeapPageCache;
 
     // Should first log the page write to the recovery buffer? Avoids partial
     // page write failures..
@@ -136,6 +139,8 @@ public class PageFile {
     // Keeps track of free pages.
     private final AtomicLong nextFreePageId = new AtomicLong();
     private SequenceSet freeList = new SequenceSet();
+    // allocate and free may be called concurrently when the index is updated by several lock stripes
+    private final Object freeListMutex = new Object();
 
     private AtomicReference<SequenceSet> recoveredFreeList = new AtomicReference<SequenceSet>();
     private AtomicReference<SequenceSet> trackingFreeDuringRecovery = new AtomicReference<SequenceSet>();
@@ -430,6 +435,9 @@ public class PageFile {
             metaData.setCleanShutdown(false);
             storeMetaData();
             getFreeFile().delete();
+            if (offHeapPageCacheSize > 0) {
+                offHeapPageCache = new OffHeapPageCache(offHeapPageCacheSize, pageSize);
+            }
             startWriter();
             if (trackingFreeDuringRecovery.get() != null) {
                 asyncFreePageRecovery(nextFreePageId.get());
@@ -547,6 +555,7 @@ public class PageFile {
                 if (pageCache != null) {
                     pageCache = null;
                 }
+                offHeapPageCache = null;
                 synchronized (writes) {
                     writes.clear();
                 }
@@ -582,13 +591,15 @@ public class PageFile {
         SequenceSet recovered = recoveredFreeList.get();
         if (recovered != null) {
             recoveredFreeList.lazySet(null);
-            SequenceSet inUse = trackingFreeDuringRecovery.get();
-            recovered.remove(inUse);
-            freeList.merge(recovered);
-
-            // all set for clean shutdown
-            trackingFreeDuringRecovery.set(null);
-            inUse.clear();
+            synchronized (freeListMutex) {
+                SequenceSet inUse = trackingFreeDuringRecovery.get();
+                recovered.remove(inUse);
+                freeList.merge(recovered);
+
+                // all set for clean shutdown
+                trackingFreeDuringRecovery.set(null);
+                inUse.clear();
+            }
         }
 
         // Setup a latch that gets notified when all buffered writes hits the disk.
@@ -823,6 +834,29 @@ public class PageFile {
         this.pageCacheSize = pageCacheSize;
     }
 
+    /**
+     * @return the number of bytes of page images that will get stored in the off heap page cache.
+     */
+    public long getOffHeapPageCacheSize() {
+        return this.offHeapPageCacheSize;
+    }
+
+    /**
+     * @param offHeapPageCacheSize Sets the number of bytes of raw page images kept in direct memory
+     *                             in front of the page file, 0 disables the off heap page cache.
+     */
+    public void setOffHeapPageCacheSize(long offHeapPageCacheSize) {
+        assertNotLoaded();
+        this.offHeapPageCacheSize = offHeapPageCacheSize;
+    }
+
+    /**
+     * @return the off heap page cache or null if it is disabled or the page file is not loaded
+     */
+    public OffHeapPageCache getOffHeapPageCache() {
+        return offHeapPageCache;
+    }
+
     public boolean isEnabledWriteThread() {
         return enabledWriteThread;
     }
@@ -926,7 +960,10 @@ public class PageFile {
             throw new IllegalArgumentException("The allocation count must be larger than zero");
         }
 
-        Sequence seq = freeList.removeFirstSequence(count);
+        Sequence seq;
+        synchronized (freeListMutex) {
+            seq = freeList.removeFirstSequence(count);
+        }
 
         // We may need to create new free pages...
         if (seq == null) {
@@ -967,19 +1004,40 @@ public class PageFile {
         return nextTxid.incrementAndGet();
     }
 
-    synchronized void readPage(long pageId, byte[] data) throws IOException {
-        readFile.seek(toOffset(pageId));
-        readFile.readFully(data);
+    void readPage(long pageId, byte[] data) throws IOException {
+        OffHeapPageCache cache = offHeapPageCache;
+        if (cache == null) {
+            synchronized (this) {
+                readFile.seek(toOffset(pageId));
+                readFile.readFully(data);
+            }
+            return;
+        }
+
+        if (cache.get(pageId, data)) {
+            return;
+        }
+        long stamp = cache.getModificationStamp();
+        synchronized (this) {
+            readFile.seek(toOffset(pageId));
+            readFile.readFully(data);
+        }
+        // only whole pages can be cached, header reads just count as a miss
+        if (data.length == pageSize) {
+            cache.putIfUnmodified(pageId, data, stamp);
+        }
     }
 
     public void freePage(long pageId) {
-        freeList.add(pageId);
-        removeFromCache(pageId);
+        synchronized (freeListMutex) {
+            freeList.add(pageId);
 
-        SequenceSet trackFreeDuringRecovery = trackingFreeDuringRecovery.get();
-        if (trackFreeDuringRecovery != null) {
-            trackFreeDuringRecovery.add(pageId);
+            SequenceSet trackFreeDuringRecovery = trackingFreeDuringRecovery.get();
+            if (trackFreeDuringRecovery != null) {
+                trackFreeDuringRecovery.add(pageId);
+            }
         }
+        removeFromCache(pageId);
     }
 
     @SuppressWarnings("unchecked")
@@ -1187,9 +1245,14 @@ public class PageFile {
                 }
             }
 
+            OffHeapPageCache cache = offHeapPageCache;
             for (PageWrite w : batch) {
+                byte[] diskBound = w.getDiskBound(tmpFilesForRemoval);
                 writeFile.seek(toOffset(w.page.getPageId()));
-                writeFile.write(w.getDiskBound(tmpFilesForRemoval), 0, pageSize);
+                writeFile.write(diskBound, 0, pageSize);
+                if (cache != null) {
+                    cache.put(w.page.getPageId(), diskBound);
+                }
                 w.done();
             }
 
@@ -26,7 +26,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.TreeMap;
 
@@ -92,6 +94,14 @@ public class Transaction implements Iterable<Page> {
         public R execute(Transaction tx) throws T;
     }
 
+    /**
+     * Notified once the page updates of the transaction it was added to have been committed
+     * or rolled back.
+     */
+    public interface Synchronization {
+        public void afterCompletion(Transaction tx, boolean committed);
+    }
+
 
     // The page file that this Transaction operates against.
     private final PageFile pageFile;
@@ -108,6 +118,8 @@ public class Transaction implements Iterable<Page> {
 
     private long size = 0;
 
+    private List<Synchronization> synchronizations;
+
     Transaction(PageFile pageFile) {
         this.pageFile = pageFile;
     }
@@ -678,6 +690,7 @@ public class Transaction implements Iterable<Page> {
             freePages(allocateList);
         }
         size = 0;
+        complete(true);
     }
 
     /**
@@ -702,6 +715,28 @@ public class Transaction implements Iterable<Page> {
             freePages(allocateList);
         }
         size = 0;
+        complete(false);
+    }
+
+    /**
+     * Registers a synchronization that is notified the next time this transaction commits or
+     * rolls back.
+     */
+    public void addSynchronization(Synchronization synchronization) {
+        if (synchronizations == null) {
+            synchronizations = new ArrayList<Synchronization>();
+        }
+        synchronizations.add(synchronization);
+    }
+
+    private void complete(boolean committed) {
+        if (synchronizations != null) {
+            List<Synchronization> completed = synchronizations;
+            synchronizations = null;
+            for (Synchronization synchronization : completed) {
+                synchronization.afterCompletion(this, committed);
+            }
+        }
     }
 
     private long getWriteTransactionId() {
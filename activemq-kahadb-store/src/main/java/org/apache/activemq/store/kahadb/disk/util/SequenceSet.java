@@ -39,7 +39,12 @@ public class SequenceSet extends LinkedNodeList<Sequence> implements Iterable<Lo
 
         public SequenceSet readPayload(DataInput in) throws IOException {
             SequenceSet value = new SequenceSet();
-            int count = in.readInt();
+            byte first = in.readByte();
+            if (first == CompactMarshaller.MARKER) {
+                CompactMarshaller.readRanges(in, value);
+                return value;
+            }
+            int count = ((first & 0xFF) << 24) | (in.readUnsignedByte() << 16) | (in.readUnsignedByte() << 8) | in.readUnsignedByte();
             for (int i = 0; i < count; i++) {
                 if( in.readBoolean() ) {
                     Sequence sequence = new Sequence(in.readLong(), in.readLong());
@@ -87,6 +92,64 @@ public class SequenceSet extends LinkedNodeList<Sequence> implements Iterable<Lo
         }
     }
 
+    /**
+     * Writes the ranges as variable length deltas from the end of the previous range, which
+     * keeps the sets of a list index node small when the sequences are dense. Sets in either
+     * format are read by both marshallers.
+     */
+    public static class CompactMarshaller extends Marshaller {
+
+        public static final CompactMarshaller INSTANCE = new CompactMarshaller();
+
+        // a negative count can not start the fixed size format
+        static final byte MARKER = (byte) 0xFF;
+
+        @Override
+        public void writePayload(SequenceSet value, DataOutput out) throws IOException {
+            out.writeByte(MARKER);
+            writeVarLong(out, value.size());
+            long next = 0;
+            Sequence sequence = value.getHead();
+            while (sequence != null) {
+                writeVarLong(out, sequence.first - next);
+                writeVarLong(out, sequence.last - sequence.first);
+                next = sequence.last + 1;
+                sequence = sequence.getNext();
+            }
+        }
+
+        static void readRanges(DataInput in, SequenceSet value) throws IOException {
+            long count = readVarLong(in);
+            long next = 0;
+            for (long i = 0; i < count; i++) {
+                long first = next + readVarLong(in);
+                long last = first + readVarLong(in);
+                value.addLast(new Sequence(first, last));
+                next = last + 1;
+            }
+        }
+
+        private static void writeVarLong(DataOutput out, long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                out.writeByte((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.writeByte((int) value);
+        }
+
+        private static long readVarLong(DataInput in) throws IOException {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = in.readByte();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IOException("Malformed variable length sequence value");
+        }
+    }
+
     public void add(Sequence value) {
         // TODO we can probably optimize this a bit
         for(long i=value.first; i<value.last+1; i++) {
@@ -0,0 +1,137 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.store.kahadb;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.apache.activemq.broker.ConnectionContext;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.command.ActiveMQTextMessage;
+import org.apache.activemq.command.ConnectionId;
+import org.apache.activemq.command.LocalTransactionId;
+import org.apache.activemq.command.MessageId;
+import org.apache.activemq.store.MessageStore;
+import org.apache.activemq.store.kahadb.data.KahaAddMessageCommand;
+import org.apache.activemq.store.kahadb.data.KahaEntryType;
+import org.apache.activemq.store.kahadb.disk.util.DataByteArrayInputStream;
+import org.apache.activemq.util.ByteSequence;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class KahaDBAddMessageRecordTest {
+
+    private static final int[] BODY_SIZES = {0, 10, 120, 16 * 1024, 300 * 1024};
+
+    @Rule
+    public TemporaryFolder dataDir = new TemporaryFolder(new File("target"));
+
+    private final ActiveMQQueue queue = new ActiveMQQueue("Record.Queue");
+    private KahaDBPersistenceAdapter adapter;
+
+    private MessageStore startStore() throws Exception {
+        adapter = new KahaDBPersistenceAdapter();
+        adapter.setDirectory(dataDir.getRoot());
+        adapter.start();
+        MessageStore store = adapter.createQueueMessageStore(queue);
+        store.start();
+        return store;
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (adapter != null) {
+            adapter.stop();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testRecordReadsBackAsAddCommand() throws Exception {
+        startStore();
+        KahaDBStore kahaDBStore = adapter.getStore();
+        for (int size : BODY_SIZES) {
+            ActiveMQTextMessage message = message(size);
+            message.setTransactionId(new LocalTransactionId(new ConnectionId("record"), size));
+
+            KahaAddMessageCommand command = new KahaAddMessageCommand();
+            command.setDestination(kahaDBStore.convert(queue));
+            command.setMessageId(message.getMessageId().toProducerKey());
+            command.setTransactionInfo(TransactionIdConversion.convert(message.getTransactionId()));
+            command.setPriority(message.getPriority());
+            command.setPrioritySupported(true);
+            ByteSequence record = kahaDBStore.toByteSequence(command, message);
+            ByteSequence encoded = kahaDBStore.toByteSequence(command);
+            assertEquals(encoded.getLength(), record.getLength());
+
+            // read back from a copy, the way the journal returns it
+            DataByteArrayInputStream in = new DataByteArrayInputStream(toArray(record));
+            assertEquals(KahaEntryType.KAHA_ADD_MESSAGE_COMMAND, KahaEntryType.valueOf(in.readByte()));
+            KahaAddMessageCommand parsed = new KahaAddMessageCommand();
+            parsed.mergeFramed(in);
+            assertEquals(command.getMessageId(), parsed.getMessageId());
+            assertEquals(command.getDestination(), parsed.getDestination());
+            assertEquals(command.getTransactionInfo(), parsed.getTransactionInfo());
+            assertEquals(command.getPriority(), parsed.getPriority());
+            assertTrue(parsed.getPrioritySupported());
+            assertArrayEquals(toArray(kahaDBStore.wireFormat.marshal(message)), parsed.getMessage().toByteArray());
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testMessagesRecoveredFromJournal() throws Exception {
+        MessageStore store = startStore();
+        ConnectionContext context = new ConnectionContext();
+        for (int size : BODY_SIZES) {
+            store.addMessage(context, message(size));
+        }
+        adapter.stop();
+        assertTrue(new File(dataDir.getRoot(), "db.data").delete());
+
+        store = startStore();
+        assertEquals(BODY_SIZES.length, store.getMessageCount());
+        for (int size : BODY_SIZES) {
+            ActiveMQTextMessage recovered = (ActiveMQTextMessage) store.getMessage(new MessageId("ID:record-1:1:1:1:" + size));
+            assertEquals(text(size), recovered.getText());
+        }
+    }
+
+    private ActiveMQTextMessage message(int size) throws Exception {
+        ActiveMQTextMessage message = new ActiveMQTextMessage();
+        message.setMessageId(new MessageId("ID:record-1:1:1:1:" + size));
+        message.setDestination(queue);
+        message.setPersistent(true);
+        message.setStringProperty("size", String.valueOf(size));
+        message.setText(text(size));
+        return message;
+    }
+
+    private byte[] toArray(ByteSequence sequence) {
+        return Arrays.copyOfRange(sequence.getData(), sequence.getOffset(), sequence.getOffset() + sequence.getLength());
+    }
+
+    private String text(int size) {
+        char[] text = new char[size];
+        Arrays.fill(text, 'r');
+        return new String(text);
+    }
+}
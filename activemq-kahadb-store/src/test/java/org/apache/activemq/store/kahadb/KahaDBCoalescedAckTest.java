@@ -0,0 +1,163 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.store.kahadb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.jms.Connection;
+import jakarta.jms.DeliveryMode;
+import jakarta.jms.Message;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.ActiveMQSession;
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.broker.TransportConnector;
+import org.apache.activemq.broker.region.Destination;
+import org.apache.activemq.broker.region.policy.PolicyEntry;
+import org.apache.activemq.broker.region.policy.PolicyMap;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.store.kahadb.data.KahaRemoveMessagesCommand;
+import org.apache.activemq.store.kahadb.disk.journal.Journal;
+import org.apache.activemq.store.kahadb.disk.journal.Location;
+import org.apache.activemq.util.Wait;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class KahaDBCoalescedAckTest {
+
+    private static final int MESSAGES = 1000;
+    private static final int UNACKED = 10;
+
+    @Rule
+    public TemporaryFolder dataDir = new TemporaryFolder(new File("target"));
+
+    private final ActiveMQQueue queue = new ActiveMQQueue("Coalesced.Acks");
+    private BrokerService broker;
+
+    @After
+    public void tearDown() throws Exception {
+        stopBroker();
+    }
+
+    @Test(timeout = 60000)
+    public void testIndividualAckBurstIsRemovedTogether() throws Exception {
+        startBroker();
+        Connection connection = new ActiveMQConnectionFactory(broker.getTransportConnectors().get(0).getPublishableConnectString()).createConnection();
+        connection.start();
+        Session session = connection.createSession(false, ActiveMQSession.INDIVIDUAL_ACKNOWLEDGE);
+        MessageProducer producer = session.createProducer(queue);
+        producer.setDeliveryMode(DeliveryMode.PERSISTENT);
+        for (int i = 0; i < MESSAGES; i++) {
+            producer.send(session.createTextMessage("message " + i));
+        }
+
+        MessageConsumer consumer = session.createConsumer(queue);
+        List<Message> received = new ArrayList<>();
+        for (int i = 0; i < MESSAGES; i++) {
+            Message message = consumer.receive(5000);
+            assertNotNull("message " + i, message);
+            received.add(message);
+        }
+        // ack all but a few, out of order, in one burst
+        for (int i = MESSAGES - 1; i >= UNACKED; i--) {
+            received.get(i).acknowledge();
+        }
+
+        final Destination destination = broker.getRegionBroker().getDestinationMap().get(queue);
+        assertTrue("acks applied", Wait.waitFor(new Wait.Condition() {
+            @Override
+            public boolean isSatisified() throws Exception {
+                return destination.getDestinationStatistics().getMessages().getCount() == UNACKED;
+            }
+        }));
+        assertEquals(UNACKED, destination.getMessageStore().getMessageCount());
+        assertTrue("combined remove records written", countCombinedRemoves() > 0);
+        connection.close();
+
+        // rebuild the index from the journal
+        stopBroker();
+        File kahaDir = new File(dataDir.getRoot(), "kahadb");
+        assertTrue(new File(kahaDir, "db.data").delete());
+        new File(kahaDir, "db.redo").delete();
+        startBroker();
+
+        connection = new ActiveMQConnectionFactory("vm://localhost?create=false").createConnection();
+        connection.start();
+        consumer = connection.createSession(false, Session.AUTO_ACKNOWLEDGE).createConsumer(queue);
+        for (int i = 0; i < UNACKED; i++) {
+            TextMessage message = (TextMessage) consumer.receive(5000);
+            assertNotNull("message " + i, message);
+            assertEquals("message " + i, message.getText());
+        }
+        assertNull(consumer.receive(500));
+        connection.close();
+    }
+
+    private int countCombinedRemoves() throws Exception {
+        KahaDBStore store = ((KahaDBPersistenceAdapter) broker.getPersistenceAdapter()).getStore();
+        Journal journal = store.getJournal();
+        int count = 0;
+        for (Location location = journal.getNextLocation(null); location != null; location = journal.getNextLocation(location)) {
+            if (store.load(location) instanceof KahaRemoveMessagesCommand) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void startBroker() throws Exception {
+        broker = new BrokerService();
+        broker.setBrokerName("localhost");
+        broker.setUseJmx(false);
+        broker.setAdvisorySupport(false);
+        KahaDBPersistenceAdapter adapter = new KahaDBPersistenceAdapter();
+        adapter.setDirectory(new File(dataDir.getRoot(), "kahadb"));
+        adapter.setCombineQueueRemoves(true);
+        broker.setPersistenceAdapter(adapter);
+        // page in the whole backlog for the consumer to hold unacked
+        PolicyEntry policy = new PolicyEntry();
+        policy.setMaxPageSize(MESSAGES);
+        PolicyMap policyMap = new PolicyMap();
+        policyMap.setDefaultEntry(policy);
+        broker.setDestinationPolicy(policyMap);
+        TransportConnector connector = broker.addConnector("tcp://localhost:0");
+        connector.setCoalesceAcks(true);
+        broker.start();
+        broker.waitUntilStarted();
+    }
+
+    private void stopBroker() throws Exception {
+        if (broker != null) {
+            broker.stop();
+            broker.waitUntilStopped();
+            broker = null;
+        }
+    }
+}
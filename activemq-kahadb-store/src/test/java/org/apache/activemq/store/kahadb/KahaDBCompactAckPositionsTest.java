@@ -0,0 +1,124 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.store.kahadb;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+
+import org.apache.activemq.broker.ConnectionContext;
+import org.apache.activemq.command.ActiveMQTextMessage;
+import org.apache.activemq.command.ActiveMQTopic;
+import org.apache.activemq.command.MessageAck;
+import org.apache.activemq.command.MessageId;
+import org.apache.activemq.command.SubscriptionInfo;
+import org.apache.activemq.store.TopicMessageStore;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class KahaDBCompactAckPositionsTest {
+
+    private static final int SUBSCRIPTIONS = 200;
+    private static final int MESSAGES = 100;
+    private static final String CLIENT_ID = "compact";
+
+    @Rule
+    public TemporaryFolder dataDir = new TemporaryFolder(new File("target"));
+
+    private final ActiveMQTopic topic = new ActiveMQTopic("Compact.Topic");
+    private KahaDBPersistenceAdapter adapter;
+
+    private TopicMessageStore startStore(boolean compactAckPositions) throws Exception {
+        adapter = new KahaDBPersistenceAdapter();
+        adapter.setDirectory(dataDir.getRoot());
+        adapter.setCompactAckPositions(compactAckPositions);
+        adapter.start();
+        TopicMessageStore store = adapter.createTopicMessageStore(topic);
+        store.start();
+        return store;
+    }
+
+    private void stopStore() throws Exception {
+        adapter.stop();
+        adapter = null;
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (adapter != null) {
+            stopStore();
+        }
+    }
+
+    @Test(timeout = 120000)
+    public void testAckPositionsSurviveFormatChanges() throws Exception {
+        TopicMessageStore store = startStore(true);
+        ConnectionContext context = new ConnectionContext();
+        for (int i = 0; i < SUBSCRIPTIONS; i++) {
+            store.addSubscription(subscription(i), false);
+        }
+        for (int j = 0; j < MESSAGES; j++) {
+            ActiveMQTextMessage message = new ActiveMQTextMessage();
+            message.setMessageId(new MessageId("ID:compact-1:1:1:1:" + j));
+            message.setDestination(topic);
+            message.setText("message " + j);
+            message.setPersistent(true);
+            store.addMessage(context, message);
+        }
+        // subscription i acks the first i % MESSAGES messages
+        for (int i = 0; i < SUBSCRIPTIONS; i++) {
+            for (int j = 0; j < i % MESSAGES; j++) {
+                MessageId messageId = new MessageId("ID:compact-1:1:1:1:" + j);
+                store.acknowledge(context, CLIENT_ID, "sub" + i, messageId, ack(messageId));
+            }
+        }
+        assertCounts(store);
+        stopStore();
+
+        assertCounts(startStore(false));
+        stopStore();
+
+        store = startStore(true);
+        assertCounts(store);
+        assertEquals(MESSAGES, store.getMessageCount());
+    }
+
+    private void assertCounts(TopicMessageStore store) throws Exception {
+        for (int i = 0; i < SUBSCRIPTIONS; i++) {
+            assertEquals("sub" + i, MESSAGES - i % MESSAGES, store.getMessageCount(CLIENT_ID, "sub" + i));
+        }
+    }
+
+    private SubscriptionInfo subscription(int i) {
+        SubscriptionInfo info = new SubscriptionInfo();
+        info.setClientId(CLIENT_ID);
+        info.setSubscriptionName("sub" + i);
+        info.setDestination(topic);
+        info.setSubscribedDestination(topic);
+        return info;
+    }
+
+    private MessageAck ack(MessageId messageId) {
+        MessageAck ack = new MessageAck();
+        ack.setDestination(topic);
+        ack.setLastMessageId(messageId);
+        ack.setAckType(MessageAck.STANDARD_ACK_TYPE);
+        return ack;
+    }
+}
@@ -0,0 +1,231 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.store.kahadb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.activemq.broker.ConnectionContext;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.command.ActiveMQTextMessage;
+import org.apache.activemq.command.MessageAck;
+import org.apache.activemq.command.MessageId;
+import org.apache.activemq.store.MessageStore;
+import org.apache.activemq.store.kahadb.disk.journal.Location;
+import org.apache.activemq.store.kahadb.disk.page.Transaction;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class KahaDBIncrementalJournalCleanupTest {
+
+    private static final int MESSAGES = 200;
+
+    @Rule
+    public TemporaryFolder dataDir = new TemporaryFolder(new File("target"));
+
+    private final ActiveMQQueue drained = new ActiveMQQueue("Cleanup.Drained");
+    private final ActiveMQQueue retained = new ActiveMQQueue("Cleanup.Retained");
+    private final ConnectionContext context = new ConnectionContext();
+    private KahaDBPersistenceAdapter adapter;
+
+    private void startStore() throws Exception {
+        adapter = new KahaDBPersistenceAdapter();
+        adapter.setDirectory(dataDir.getRoot());
+        adapter.setJournalMaxFileLength(16 * 1024);
+        adapter.setIncrementalJournalCleanup(true);
+        adapter.start();
+    }
+
+    private void stopStore() throws Exception {
+        adapter.stop();
+        adapter = null;
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (adapter != null) {
+            stopStore();
+        }
+    }
+
+    @Test(timeout = 120000)
+    public void testUnreferencedFilesAreRemoved() throws Exception {
+        startStore();
+        MessageStore drainedStore = adapter.createQueueMessageStore(drained);
+        MessageStore retainedStore = adapter.createQueueMessageStore(retained);
+        drainedStore.start();
+        retainedStore.start();
+        for (int i = 0; i < MESSAGES; i++) {
+            drainedStore.addMessage(context, message(drained, "drained", i));
+        }
+        for (int i = 0; i < MESSAGES; i++) {
+            retainedStore.addMessage(context, message(retained, "retained", i));
+        }
+        assertTrue(adapter.getStore().getJournal().getFileMap().size() > 2);
+
+        adapter.checkpoint(true);
+        DataFileReferences references = adapter.getStore().getDataFileReferences();
+        assertTrue(references.isInitialized());
+        Set<Integer> drainedFiles = new HashSet<>(indexedFiles(drained).keySet());
+        drainedFiles.removeAll(indexedFiles(retained).keySet());
+        assertFalse(drainedFiles.isEmpty());
+        for (Integer fileId : drainedFiles) {
+            assertTrue(references.isReferenced(fileId));
+        }
+        assertReferencesMatchIndex();
+
+        for (int i = 0; i < MESSAGES; i++) {
+            MessageId id = new MessageId("ID:drained-1:1:1:1:" + i);
+            drainedStore.removeMessage(context, ack(drained, id));
+        }
+        for (Integer fileId : drainedFiles) {
+            assertFalse(references.isReferenced(fileId));
+        }
+        assertReferencesMatchIndex();
+
+        adapter.checkpoint(true);
+        for (Integer fileId : drainedFiles) {
+            assertFalse(adapter.getStore().getJournal().getFileMap().containsKey(fileId));
+        }
+        assertEquals(MESSAGES, retainedStore.getMessageCount());
+        stopStore();
+
+        startStore();
+        drainedStore = adapter.createQueueMessageStore(drained);
+        retainedStore = adapter.createQueueMessageStore(retained);
+        drainedStore.start();
+        retainedStore.start();
+        assertEquals(0, drainedStore.getMessageCount());
+        assertEquals(MESSAGES, retainedStore.getMessageCount());
+        adapter.checkpoint(true);
+        assertReferencesMatchIndex();
+    }
+
+    @Test(timeout = 120000)
+    public void testRolledBackRemoveKeepsFiles() throws Exception {
+        startStore();
+        MessageStore drainedStore = adapter.createQueueMessageStore(drained);
+        MessageStore retainedStore = adapter.createQueueMessageStore(retained);
+        drainedStore.start();
+        retainedStore.start();
+        for (int i = 0; i < MESSAGES; i++) {
+            drainedStore.addMessage(context, message(drained, "drained", i));
+        }
+        for (int i = 0; i < MESSAGES; i++) {
+            retainedStore.addMessage(context, message(retained, "retained", i));
+        }
+        adapter.checkpoint(true);
+        assertTrue(adapter.getStore().getDataFileReferences().isInitialized());
+        final Set<Integer> drainedFiles = new HashSet<>(indexedFiles(drained).keySet());
+        drainedFiles.removeAll(indexedFiles(retained).keySet());
+        assertFalse(drainedFiles.isEmpty());
+
+        final MessageDatabase store = adapter.getStore();
+        Map<Integer, Long> committed = new HashMap<>();
+        for (Integer fileId : store.getJournal().getFileMap().keySet()) {
+            committed.put(fileId, store.getDataFileReferences().getCount(fileId));
+        }
+        store.indexLock.writeLock().lock();
+        try {
+            store.pageFile.tx().execute((Transaction.Closure<IOException>) tx -> {
+                for (Map.Entry<String, MessageDatabase.StoredDestination> entry : store.storedDestinations.entrySet()) {
+                    if (entry.getKey().endsWith(drained.getPhysicalName())) {
+                        entry.getValue().locationIndex.clear(tx);
+                    }
+                }
+                throw new IOException("roll back the removal");
+            });
+            fail("expected the index transaction to roll back");
+        } catch (IOException expected) {
+        } finally {
+            store.indexLock.writeLock().unlock();
+        }
+        for (Map.Entry<Integer, Long> count : committed.entrySet()) {
+            assertEquals("file " + count.getKey(), count.getValue().longValue(), store.getDataFileReferences().getCount(count.getKey()));
+        }
+
+        adapter.checkpoint(true);
+        for (Integer fileId : drainedFiles) {
+            assertTrue(store.getDataFileReferences().isReferenced(fileId));
+            assertTrue(store.getJournal().getFileMap().containsKey(fileId));
+        }
+        assertEquals(MESSAGES, drainedStore.getMessageCount());
+        for (int i = 0; i < MESSAGES; i++) {
+            assertNotNull(drainedStore.getMessage(new MessageId("ID:drained-1:1:1:1:" + i)));
+        }
+    }
+
+    private void assertReferencesMatchIndex() throws Exception {
+        MessageDatabase store = adapter.getStore();
+        Map<Integer, Long> counts = indexedFiles(null);
+        for (Integer fileId : store.getJournal().getFileMap().keySet()) {
+            assertEquals("file " + fileId, counts.getOrDefault(fileId, 0L).longValue(),
+                store.getDataFileReferences().getCount(fileId));
+        }
+    }
+
+    private Map<Integer, Long> indexedFiles(ActiveMQQueue queue) throws Exception {
+        final MessageDatabase store = adapter.getStore();
+        final Map<Integer, Long> counts = new HashMap<>();
+        store.indexLock.writeLock().lock();
+        try {
+            store.pageFile.tx().execute(tx -> {
+                for (Map.Entry<String, MessageDatabase.StoredDestination> entry : store.storedDestinations.entrySet()) {
+                    if (queue != null && !entry.getKey().endsWith(queue.getPhysicalName())) {
+                        continue;
+                    }
+                    for (Iterator<Map.Entry<Location, Long>> iterator = entry.getValue().locationIndex.iterator(tx); iterator.hasNext();) {
+                        counts.merge(iterator.next().getKey().getDataFileId(), 1L, Long::sum);
+                    }
+                }
+            });
+        } finally {
+            store.indexLock.writeLock().unlock();
+        }
+        return counts;
+    }
+
+    private ActiveMQTextMessage message(ActiveMQQueue queue, String producer, int i) throws Exception {
+        ActiveMQTextMessage message = new ActiveMQTextMessage();
+        message.setMessageId(new MessageId("ID:" + producer + "-1:1:1:1:" + i));
+        message.setDestination(queue);
+        message.setText("message " + i);
+        message.setPersistent(true);
+        return message;
+    }
+
+    private MessageAck ack(ActiveMQQueue queue, MessageId messageId) {
+        MessageAck ack = new MessageAck();
+        ack.setDestination(queue);
+        ack.setLastMessageId(messageId);
+        ack.setAckType(MessageAck.STANDARD_ACK_TYPE);
+        return ack;
+    }
+}
@@ -0,0 +1,155 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.store.kahadb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.broker.ConnectionContext;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.command.ActiveMQTextMessage;
+import org.apache.activemq.command.MessageAck;
+import org.apache.activemq.command.MessageId;
+import org.apache.activemq.store.MessageStore;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class KahaDBIndexLockStripesTest {
+
+    private static final int DESTINATIONS = 12;
+    private static final int MESSAGES = 300;
+
+    @Rule
+    public TemporaryFolder dataDir = new TemporaryFolder(new File("target"));
+
+    private BrokerService broker;
+    private KahaDBPersistenceAdapter adapter;
+
+    private void startBroker(boolean deleteAllMessages) throws Exception {
+        broker = new BrokerService();
+        broker.setDeleteAllMessagesOnStartup(deleteAllMessages);
+        broker.setPersistent(true);
+        broker.setUseJmx(false);
+        broker.setDataDirectory(dataDir.getRoot().getAbsolutePath());
+        adapter = (KahaDBPersistenceAdapter) broker.getPersistenceAdapter();
+        adapter.setIndexLockStripes(4);
+        broker.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (broker != null) {
+            broker.stop();
+            broker.waitUntilStopped();
+        }
+    }
+
+    @Test(timeout = 120000)
+    public void testConcurrentUpdatesAcrossStripes() throws Exception {
+        startBroker(true);
+        assertEquals(4, adapter.getIndexLockStripes());
+
+        final KahaDBStore store = adapter.getStore();
+        final ConnectionContext context = broker.getAdminConnectionContext();
+        final List<MessageStore> messageStores = new ArrayList<>();
+        for (int i = 0; i < DESTINATIONS; i++) {
+            MessageStore messageStore = store.createQueueMessageStore(new ActiveMQQueue("Stripe." + i));
+            messageStore.start();
+            messageStores.add(messageStore);
+        }
+
+        final AtomicBoolean done = new AtomicBoolean();
+        final CountDownLatch checkpointed = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(DESTINATIONS + 1);
+        try {
+            // checkpoints must exclude every stripe while they run
+            Future<?> checkpointer = executor.submit(() -> {
+                while (!done.get()) {
+                    store.checkpoint(true);
+                    checkpointed.countDown();
+                    TimeUnit.MILLISECONDS.sleep(10);
+                }
+                return null;
+            });
+
+            List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < DESTINATIONS; i++) {
+                final int destination = i;
+                workers.add(executor.submit(() -> {
+                    MessageStore messageStore = messageStores.get(destination);
+                    for (int j = 0; j < MESSAGES; j++) {
+                        ActiveMQTextMessage message = createMessage(destination, j);
+                        messageStore.addMessage(context, message);
+                        if (j % 2 == 0) {
+                            MessageAck ack = new MessageAck();
+                            ack.setLastMessageId(message.getMessageId());
+                            messageStore.removeMessage(context, ack);
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+            assertTrue(checkpointed.await(30, TimeUnit.SECONDS));
+            done.set(true);
+            checkpointer.get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (MessageStore messageStore : messageStores) {
+            assertEquals(MESSAGES / 2, messageStore.getMessageCount());
+            assertEquals(null, messageStore.getMessage(createMessage(0, -1).getMessageId()));
+        }
+
+        broker.stop();
+        broker.waitUntilStopped();
+
+        startBroker(false);
+        for (int i = 0; i < DESTINATIONS; i++) {
+            MessageStore messageStore = adapter.getStore().createQueueMessageStore(new ActiveMQQueue("Stripe." + i));
+            messageStore.start();
+            assertEquals(MESSAGES / 2, messageStore.getMessageCount());
+            assertEquals(null, messageStore.getMessage(createMessage(i, 0).getMessageId()));
+            assertEquals("Stripe." + i + ":1", messageStore.getMessage(createMessage(i, 1).getMessageId()).getCorrelationId());
+        }
+    }
+
+    private ActiveMQTextMessage createMessage(int destination, int sequence) throws Exception {
+        ActiveMQTextMessage message = new ActiveMQTextMessage();
+        message.setMessageId(new MessageId("ID:stripe-" + destination + ":1:1:1:" + sequence));
+        message.setCorrelationId("Stripe." + destination + ":" + sequence);
+        message.setText("payload");
+        return message;
+    }
+}
@@ -0,0 +1,220 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.store.kahadb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.broker.ConnectionContext;
+import org.apache.activemq.broker.region.Destination;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.command.ActiveMQTextMessage;
+import org.apache.activemq.command.MessageId;
+import org.apache.activemq.command.ProducerId;
+import org.apache.activemq.store.MessageStore;
+import org.apache.activemq.util.IOExceptionHandler;
+import org.apache.activemq.util.Wait;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class KahaDBLazyIndexLoadTest {
+
+    private static final int QUEUES = 20;
+    private static final int MESSAGES = 10;
+
+    @Rule
+    public TemporaryFolder dataDir = new TemporaryFolder(new File("target"));
+
+    private KahaDBPersistenceAdapter adapter;
+
+    private void startStore(boolean lazy, boolean ignoreMissingJournalfiles) throws Exception {
+        startStore(lazy, ignoreMissingJournalfiles, null);
+    }
+
+    private void startStore(boolean lazy, boolean ignoreMissingJournalfiles, BrokerService brokerService) throws Exception {
+        adapter = new KahaDBPersistenceAdapter();
+        adapter.setBrokerService(brokerService);
+        adapter.setDirectory(dataDir.getRoot());
+        adapter.setJournalMaxFileLength(16 * 1024);
+        adapter.setCheckpointInterval(Long.MAX_VALUE);
+        adapter.setCleanupInterval(Long.MAX_VALUE);
+        adapter.setLazyIndexLoad(lazy);
+        adapter.setIgnoreMissingJournalfiles(ignoreMissingJournalfiles);
+        adapter.start();
+    }
+
+    private void stopStore() throws Exception {
+        adapter.stop();
+        adapter = null;
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (adapter != null) {
+            stopStore();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testDestinationsLoadOnFirstAccess() throws Exception {
+        startStore(false, false);
+        fill();
+        stopStore();
+
+        startStore(true, false);
+        final KahaDBStore store = adapter.getStore();
+        MessageStore messageStore = store.createQueueMessageStore(queue(QUEUES - 1));
+        messageStore.start();
+        assertEquals(MESSAGES, messageStore.getMessageCount());
+
+        assertTrue("all destinations loaded in the background", Wait.waitFor(new Wait.Condition() {
+            @Override
+            public boolean isSatisified() throws Exception {
+                return store.isStoredDestinationsLoaded();
+            }
+        }));
+        assertEquals(MESSAGES - 1, adapter.getLastProducerSequenceId(producer(0)));
+        assertEquals(QUEUES, adapter.getDestinations().size());
+        for (int i = 0; i < QUEUES; i++) {
+            messageStore = store.createQueueMessageStore(queue(i));
+            messageStore.start();
+            assertEquals(MESSAGES, messageStore.getMessageCount());
+        }
+
+        // the restored audit and the lazy state survive another restart
+        stopStore();
+        startStore(true, false);
+        assertEquals(MESSAGES - 1, adapter.getLastProducerSequenceId(producer(0)));
+    }
+
+    @Test(timeout = 60000)
+    public void testMissingJournalFileDetectedOnFirstAccess() throws Exception {
+        startStore(false, false);
+        fill();
+        File journalDir = adapter.getDirectory();
+        stopStore();
+
+        assertTrue(new File(journalDir, "db-1.log").delete());
+
+        startStore(true, false);
+        try {
+            adapter.getStore().createQueueMessageStore(queue(0)).start();
+            fail("missing journal file not detected");
+        } catch (IOException expected) {
+        }
+        assertFalse(adapter.getStore().isStoredDestinationsLoaded());
+        stopStore();
+
+        startStore(true, true);
+        MessageStore messageStore = adapter.getStore().createQueueMessageStore(queue(0));
+        messageStore.start();
+        assertTrue(messageStore.getMessageCount() < MESSAGES);
+    }
+
+    @Test(timeout = 60000)
+    public void testBackgroundLoadFailureIsReported() throws Exception {
+        startStore(false, false);
+        fill();
+        File journalDir = adapter.getDirectory();
+        stopStore();
+
+        assertTrue(new File(journalDir, "db-1.log").delete());
+
+        final AtomicReference<IOException> reported = new AtomicReference<>();
+        BrokerService brokerService = new BrokerService();
+        brokerService.setIoExceptionHandler(new IOExceptionHandler() {
+            @Override
+            public void handle(IOException exception) {
+                reported.set(exception);
+            }
+
+            @Override
+            public void setBrokerService(BrokerService brokerService) {
+            }
+        });
+        startStore(true, false, brokerService);
+        assertTrue("background load failure reported", Wait.waitFor(new Wait.Condition() {
+            @Override
+            public boolean isSatisified() throws Exception {
+                return reported.get() != null;
+            }
+        }));
+        assertFalse(adapter.getStore().isStoredDestinationsLoaded());
+    }
+
+    @Test(timeout = 60000)
+    public void testBrokerRestoresDestinationsAsync() throws Exception {
+        startStore(false, false);
+        fill();
+        stopStore();
+
+        final BrokerService broker = new BrokerService();
+        broker.setUseJmx(false);
+        broker.setRestoreDestinationsAsync(true);
+        KahaDBPersistenceAdapter persistenceAdapter = new KahaDBPersistenceAdapter();
+        persistenceAdapter.setDirectory(dataDir.getRoot());
+        persistenceAdapter.setLazyIndexLoad(true);
+        broker.setPersistenceAdapter(persistenceAdapter);
+        broker.start();
+        try {
+            assertTrue("destinations restored", Wait.waitFor(new Wait.Condition() {
+                @Override
+                public boolean isSatisified() throws Exception {
+                    return broker.getRegionBroker().getDestinationMap().size() >= QUEUES;
+                }
+            }));
+            Destination destination = broker.getDestination(queue(0));
+            assertEquals(MESSAGES, destination.getDestinationStatistics().getMessages().getCount());
+        } finally {
+            broker.stop();
+            broker.waitUntilStopped();
+        }
+    }
+
+    private void fill() throws Exception {
+        ConnectionContext context = new ConnectionContext();
+        for (int i = 0; i < QUEUES; i++) {
+            MessageStore messageStore = adapter.createQueueMessageStore(queue(i));
+            messageStore.start();
+            for (int j = 0; j < MESSAGES; j++) {
+                ActiveMQTextMessage message = new ActiveMQTextMessage();
+                message.setMessageId(new MessageId("ID:lazy-" + i + ":1:1:1:" + j));
+                message.setDestination(queue(i));
+                message.setText(new String(new byte[512]));
+                message.setPersistent(true);
+                messageStore.addMessage(context, message);
+            }
+        }
+    }
+
+    private static ProducerId producer(int i) {
+        return new MessageId("ID:lazy-" + i + ":1:1:1:0").getProducerId();
+    }
+
+    private static ActiveMQQueue queue(int i) {
+        return new ActiveMQQueue("Lazy." + i);
+    }
+}
@@ -0,0 +1,212 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.store.kahadb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Collections;
+
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.broker.ConnectionContext;
+import org.apache.activemq.command.ActiveMQDestination;
+import org.apache.activemq.command.ActiveMQQueue;
+import org.apache.activemq.command.ActiveMQTextMessage;
+import org.apache.activemq.command.ActiveMQTopic;
+import org.apache.activemq.command.MessageAck;
+import org.apache.activemq.command.MessageId;
+import org.apache.activemq.command.SubscriptionInfo;
+import org.apache.activemq.store.MessageStore;
+import org.apache.activemq.store.TopicMessageStore;
+import org.apache.activemq.store.kahadb.data.KahaRewrittenDataFileCommand;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class KahaDBParallelRecoveryTest {
+
+    private static final int QUEUES = 8;
+    private static final int MESSAGES = 150;
+    private static final String CLIENT_ID = "recovery";
+
+    @Rule
+    public TemporaryFolder dataDir = new TemporaryFolder(new File("target"));
+
+    private BrokerService broker;
+    private KahaDBPersistenceAdapter adapter;
+
+    private void startBroker(boolean deleteAllMessages, int recoveryThreads) throws Exception {
+        broker = new BrokerService();
+        broker.setDeleteAllMessagesOnStartup(deleteAllMessages);
+        broker.setPersistent(true);
+        broker.setUseJmx(false);
+        broker.setDataDirectory(dataDir.getRoot().getAbsolutePath());
+        adapter = (KahaDBPersistenceAdapter) broker.getPersistenceAdapter();
+        adapter.setJournalMaxFileLength(64 * 1024);
+        adapter.setCheckpointInterval(Long.MAX_VALUE);
+        adapter.setCleanupInterval(Long.MAX_VALUE);
+        adapter.setRecoveryThreads(recoveryThreads);
+        broker.start();
+    }
+
+    private void stopBroker() throws Exception {
+        broker.stop();
+        broker.waitUntilStopped();
+        broker = null;
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (broker != null) {
+            stopBroker();
+        }
+    }
+
+    @Test(timeout = 120000)
+    public void testRebuildIndexWithParallelReplay() throws Exception {
+        startBroker(true, 0);
+        KahaDBStore store = adapter.getStore();
+        ConnectionContext context = broker.getAdminConnectionContext();
+
+        for (int i = 0; i < QUEUES; i++) {
+            MessageStore messageStore = store.createQueueMessageStore(queue(i));
+            messageStore.start();
+            for (int j = 0; j < MESSAGES; j++) {
+                ActiveMQTextMessage message = createMessage(queue(i), i, j);
+                messageStore.addMessage(context, message);
+                if (j % 3 == 0) {
+                    messageStore.removeMessage(context, ack(queue(i), message.getMessageId()));
+                }
+            }
+        }
+
+        ActiveMQTopic topic = new ActiveMQTopic("Recovery.Topic");
+        TopicMessageStore topicStore = store.createTopicMessageStore(topic);
+        topicStore.start();
+        topicStore.addSubscription(subscription(topic, "first"), false);
+        topicStore.addSubscription(subscription(topic, "second"), false);
+        for (int j = 0; j < MESSAGES; j++) {
+            ActiveMQTextMessage message = createMessage(topic, QUEUES, j);
+            topicStore.addMessage(context, message);
+            if (j < MESSAGES / 2) {
+                topicStore.acknowledge(context, CLIENT_ID, "first", message.getMessageId(), ack(topic, message.getMessageId()));
+            }
+        }
+        assertTrue("several journal files", store.getJournal().getFileMap().size() > 4);
+
+        stopBroker();
+
+        // drop the index so that the whole journal is replayed
+        File kahaDir = adapter.getDirectory();
+        assertTrue(new File(kahaDir, "db.data").delete());
+        new File(kahaDir, "db.redo").delete();
+
+        startBroker(false, 4);
+        assertEquals(4, adapter.getRecoveryThreads());
+        store = adapter.getStore();
+
+        for (int i = 0; i < QUEUES; i++) {
+            MessageStore messageStore = store.createQueueMessageStore(queue(i));
+            messageStore.start();
+            assertEquals(MESSAGES - (MESSAGES + 2) / 3, messageStore.getMessageCount());
+            assertNull(messageStore.getMessage(createMessage(queue(i), i, 0).getMessageId()));
+            assertNotNull(messageStore.getMessage(createMessage(queue(i), i, 1).getMessageId()));
+            assertEquals(queue(i).getPhysicalName() + ":" + (MESSAGES - 1),
+                    messageStore.getMessage(createMessage(queue(i), i, MESSAGES - 1).getMessageId()).getCorrelationId());
+        }
+
+        topicStore = store.createTopicMessageStore(topic);
+        topicStore.start();
+        assertEquals(MESSAGES / 2, topicStore.getMessageCount(CLIENT_ID, "first"));
+        assertEquals(MESSAGES, topicStore.getMessageCount(CLIENT_ID, "second"));
+    }
+
+    @Test(timeout = 120000)
+    public void testRewrittenDataFileSkippedLikeSequentialReplay() throws Exception {
+        startBroker(true, 0);
+        KahaDBStore store = adapter.getStore();
+        ConnectionContext context = broker.getAdminConnectionContext();
+        MessageStore messageStore = store.createQueueMessageStore(queue(0));
+        messageStore.start();
+        for (int j = 0; j < MESSAGES; j++) {
+            messageStore.addMessage(context, createMessage(queue(0), 0, j));
+        }
+
+        // a rewritten data file is skipped on replay while its source data file exists
+        KahaRewrittenDataFileCommand marker = new KahaRewrittenDataFileCommand();
+        marker.setSourceDataFileId(Collections.min(store.getJournal().getFileMap().keySet()));
+        marker.setRewriteType(MessageDatabase.COMPACTED_JOURNAL_FILE);
+        int markerFileId = store.store(marker, true, null, null).getDataFileId();
+        int skipped = 0;
+        while (store.getJournal().getCurrentDataFileId() == markerFileId) {
+            messageStore.addMessage(context, createMessage(queue(0), 0, MESSAGES + skipped++));
+        }
+        assertTrue(skipped > 1);
+        stopBroker();
+
+        File kahaDir = adapter.getDirectory();
+        int[] counts = new int[2];
+        int[] recoveryThreads = {0, 4};
+        for (int i = 0; i < recoveryThreads.length; i++) {
+            assertTrue(new File(kahaDir, "db.data").delete());
+            new File(kahaDir, "db.redo").delete();
+            startBroker(false, recoveryThreads[i]);
+            messageStore = adapter.getStore().createQueueMessageStore(queue(0));
+            messageStore.start();
+            counts[i] = messageStore.getMessageCount();
+            stopBroker();
+        }
+        // the message that rolled over to the next data file is replayed
+        assertEquals(MESSAGES + 1, counts[0]);
+        assertEquals(counts[0], counts[1]);
+    }
+
+    private static ActiveMQQueue queue(int i) {
+        return new ActiveMQQueue("Recovery." + i);
+    }
+
+    private static SubscriptionInfo subscription(ActiveMQTopic topic, String name) {
+        SubscriptionInfo info = new SubscriptionInfo();
+        info.setClientId(CLIENT_ID);
+        info.setSubscriptionName(name);
+        info.setDestination(topic);
+        info.setSubscribedDestination(topic);
+        return info;
+    }
+
+    private static MessageAck ack(ActiveMQDestination destination, MessageId messageId) {
+        MessageAck ack = new MessageAck();
+        ack.setDestination(destination);
+        ack.setLastMessageId(messageId);
+        ack.setAckType(MessageAck.STANDARD_ACK_TYPE);
+        return ack;
+    }
+
+    private static ActiveMQTextMessage createMessage(ActiveMQDestination destination, int producer, int sequence) throws Exception {
+        ActiveMQTextMessage message = new ActiveMQTextMessage();
+        message.setMessageId(new MessageId("ID:recovery-" + producer + ":1:1:1:" + sequence));
+        message.setDestination(destination);
+        message.setCorrelationId(destination.getPhysicalName() + ":" + sequence);
+        message.setText(new String(new byte[512]));
+        message.setPersistent(true);
+        return message;
+    }
+}
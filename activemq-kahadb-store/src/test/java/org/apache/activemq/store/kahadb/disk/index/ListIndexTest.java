@@ -133,6 +133,47 @@ public class ListIndexTest extends IndexTestSupport {
         tx.commit();
     }
 
+    @Test(timeout=60000)
+    public void testUpdateAll() throws Exception {
+        createPageFileAndIndex(200);
+        tx = pf.tx();
+        long id = tx.allocate().getPageId();
+        ListIndex<String, SequenceSet> sets = new ListIndex<String, SequenceSet>(pf, id);
+        sets.setKeyMarshaller(StringMarshaller.INSTANCE);
+        sets.setValueMarshaller(SequenceSet.CompactMarshaller.INSTANCE);
+        sets.load(tx);
+        for (int i = 0; i < 50; i++) {
+            SequenceSet set = new SequenceSet();
+            set.add(i);
+            sets.add(tx, key(i), set);
+        }
+        tx.commit();
+
+        tx = pf.tx();
+        final HashSet<String> visited = new HashSet<String>();
+        sets.updateAll(tx, (key, set) -> {
+            visited.add(key);
+            if (Integer.parseInt(key.substring(4)) % 2 == 0) {
+                set.add(new Sequence(1000, 1010));
+                return true;
+            }
+            return false;
+        });
+        tx.commit();
+        assertEquals(50, visited.size());
+
+        sets.unload(tx);
+        tx.commit();
+        tx = pf.tx();
+        sets.load(tx);
+        for (int i = 0; i < 50; i++) {
+            SequenceSet set = sets.get(tx, key(i));
+            assertEquals(key(i), i % 2 == 0 ? 12 : 1, set.rangeSize());
+            assertTrue(set.contains(i));
+        }
+        tx.commit();
+    }
+
     @Test(timeout=60000)
     public void testAddFirst() throws Exception {
         createPageFileAndIndex(100);
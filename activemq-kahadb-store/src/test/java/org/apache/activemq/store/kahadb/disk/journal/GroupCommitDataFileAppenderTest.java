@@ -0,0 +1,155 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.store.kahadb.disk.journal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.activemq.util.ByteSequence;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class GroupCommitDataFileAppenderTest {
+
+    @Rule
+    public TemporaryFolder dataDir = new TemporaryFolder(new File("target"));
+
+    private Journal journal;
+
+    @Before
+    public void setUp() throws Exception {
+        journal = createJournal();
+        journal.setGroupCommit(true);
+        journal.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        journal.close();
+    }
+
+    private Journal createJournal() {
+        Journal journal = new Journal();
+        journal.setDirectory(dataDir.getRoot());
+        journal.setMaxFileLength(512 * 1024);
+        journal.setChecksum(true);
+        journal.setCheckForCorruptionOnStartup(true);
+        return journal;
+    }
+
+    @Test
+    public void testAppenderSelected() throws Exception {
+        assertTrue(journal.appender instanceof GroupCommitDataFileAppender);
+    }
+
+    @Test
+    public void testConcurrentWritesRecover() throws Exception {
+        doTestConcurrentWritesRecover();
+    }
+
+    @Test
+    public void testConcurrentWritesRecoverWithMaxLatency() throws Exception {
+        journal.close();
+        journal = createJournal();
+        journal.setGroupCommit(true);
+        journal.setGroupCommitMaxLatency(500);
+        journal.setGroupCommitMaxBytes(256 * 1024);
+        journal.start();
+
+        doTestConcurrentWritesRecover();
+    }
+
+    private void doTestConcurrentWritesRecover() throws Exception {
+        final int producers = 8;
+        final int perProducer = 50;
+        final Map<Location, Integer> written = new ConcurrentHashMap<>();
+        final AtomicInteger completions = new AtomicInteger();
+        final CountDownLatch asyncDone = new CountDownLatch(producers * perProducer / 2);
+
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        Future<?>[] futures = new Future<?>[producers];
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+            futures[p] = executor.submit(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    int id = producer * perProducer + i;
+                    Location location;
+                    if (i % 2 == 0) {
+                        location = journal.write(record(id), true);
+                    } else {
+                        location = journal.write(record(id), () -> {
+                            completions.incrementAndGet();
+                            asyncDone.countDown();
+                        });
+                    }
+                    written.put(location, id);
+                }
+                return null;
+            });
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        assertTrue(asyncDone.await(30, TimeUnit.SECONDS));
+        assertEquals(producers * perProducer / 2, completions.get());
+        assertTrue("rolled over data files", journal.getFileMap().size() > 1);
+
+        for (Map.Entry<Location, Integer> entry : written.entrySet()) {
+            assertArrayEquals(record(entry.getValue()).getData(), journal.read(entry.getKey()).getData());
+        }
+
+        journal.close();
+        journal = createJournal();
+        journal.start();
+
+        int recovered = 0;
+        for (Location location = journal.getNextLocation(null); location != null; location = journal.getNextLocation(location)) {
+            Integer id = written.get(location);
+            assertTrue("unexpected record at " + location, id != null);
+            assertArrayEquals(record(id).getData(), journal.read(location).getData());
+            recovered++;
+        }
+        assertEquals(written.size(), recovered);
+        for (DataFile dataFile : journal.getFileMap().values()) {
+            assertTrue("no corruption in " + dataFile, dataFile.getCorruptedBlocks().isEmpty());
+        }
+    }
+
+    private ByteSequence record(int id) {
+        // sizes that straddle the direct buffer chunks
+        byte[] data = new byte[100 + (id % 7) * (GroupCommitDataFileAppender.CHUNK_SIZE / 5)];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (id + i);
+        }
+        return new ByteSequence(data);
+    }
+}
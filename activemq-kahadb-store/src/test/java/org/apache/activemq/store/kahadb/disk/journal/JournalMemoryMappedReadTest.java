@@ -0,0 +1,120 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.store.kahadb.disk.journal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.activemq.util.ByteSequence;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class JournalMemoryMappedReadTest {
+
+    @Rule
+    public TemporaryFolder dataDir = new TemporaryFolder(new File("target"));
+
+    private Journal journal;
+
+    @Before
+    public void setUp() throws Exception {
+        journal = new Journal();
+        journal.setDirectory(dataDir.getRoot());
+        journal.setMaxFileLength(64 * 1024);
+        journal.setMemoryMappedReads(true);
+        journal.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        journal.close();
+    }
+
+    @Test
+    public void testReadsFromSealedAndCurrentFiles() throws Exception {
+        List<Location> locations = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            locations.add(journal.write(record(i), true));
+        }
+        assertEquals(true, journal.getFileMap().size() > 2);
+
+        for (int i = 0; i < locations.size(); i++) {
+            assertArrayEquals(record(i).getData(), journal.read(locations.get(i)).getData());
+        }
+
+        // size and type are read from the record header when not known
+        Location first = locations.get(0);
+        Location unsized = new Location(first.getDataFileId(), first.getOffset());
+        assertArrayEquals(record(0).getData(), journal.read(unsized).getData());
+        assertEquals(first.getSize(), unsized.getSize());
+        assertEquals(Location.USER_TYPE, unsized.getType());
+    }
+
+    @Test
+    public void testMappingDroppedWhenDataFileRemoved() throws Exception {
+        Location location = null;
+        for (int i = 0; i < 100; i++) {
+            Location written = journal.write(record(i), true);
+            if (location == null) {
+                location = written;
+            }
+        }
+
+        DataFile dataFile = journal.getDataFileById(location.getDataFileId());
+        journal.read(location);
+        assertEquals(true, dataFile.mappedBuffer != null);
+
+        journal.removeDataFiles(Collections.singleton(dataFile.getDataFileId()));
+        assertNull(dataFile.mappedBuffer);
+    }
+
+    @Test
+    public void testMappingReleasedOnceOpenViewClosed() throws Exception {
+        Location location = null;
+        for (int i = 0; i < 100; i++) {
+            Location written = journal.write(record(i), true);
+            if (location == null) {
+                location = written;
+            }
+        }
+
+        DataFile dataFile = journal.getDataFileById(location.getDataFileId());
+        dataFile.openMappedView();
+        journal.removeDataFiles(Collections.singleton(dataFile.getDataFileId()));
+        assertEquals(true, dataFile.mappedBuffer != null);
+
+        dataFile.closeMappedView();
+        assertNull(dataFile.mappedBuffer);
+    }
+
+    private ByteSequence record(int i) {
+        byte[] data = new byte[2048];
+        for (int j = 0; j < data.length; j++) {
+            data[j] = (byte) (i + j);
+        }
+        return new ByteSequence(data);
+    }
+}
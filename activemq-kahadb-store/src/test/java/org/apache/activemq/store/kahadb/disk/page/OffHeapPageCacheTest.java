@@ -0,0 +1,181 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.activemq.store.kahadb.disk.page;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.activemq.store.kahadb.disk.util.StringMarshaller;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class OffHeapPageCacheTest {
+
+    private static final int PAGE_SIZE = 16;
+
+    @Rule
+    public TemporaryFolder dataDir = new TemporaryFolder(new File("target"));
+
+    @Test
+    public void testClockEviction() throws Exception {
+        OffHeapPageCache cache = new OffHeapPageCache(4 * PAGE_SIZE, PAGE_SIZE);
+        assertEquals(4, cache.getCapacity());
+        for (int i = 0; i < 4; i++) {
+            cache.put(i, page(i));
+        }
+        byte[] data = new byte[PAGE_SIZE];
+        assertTrue(cache.get(0, data));
+        assertArrayEquals(page(0), data);
+
+        // every slot was referenced, the first sweep clears them all and reuses page 0
+        cache.put(4, page(4));
+        assertFalse(cache.get(0, data));
+
+        // page 2 is referenced again so it gets a second chance over 1 and 3
+        assertTrue(cache.get(2, data));
+        cache.put(5, page(5));
+        cache.put(6, page(6));
+        assertFalse(cache.get(1, data));
+        assertFalse(cache.get(3, data));
+        assertTrue(cache.get(2, data));
+        assertArrayEquals(page(2), data);
+
+        assertEquals(3, cache.getEvictions().getCount());
+        assertEquals(4, cache.size());
+        assertEquals(3, cache.getHits().getCount());
+        assertEquals(3, cache.getMisses().getCount());
+    }
+
+    @Test
+    public void testReadPopulationLosesToConcurrentWrite() throws Exception {
+        OffHeapPageCache cache = new OffHeapPageCache(4 * PAGE_SIZE, PAGE_SIZE);
+        long stamp = cache.getModificationStamp();
+        cache.put(1, page(2));
+        assertFalse(cache.putIfUnmodified(1, page(1), stamp));
+        assertFalse(cache.putIfUnmodified(7, page(7), stamp));
+
+        stamp = cache.getModificationStamp();
+        assertTrue(cache.putIfUnmodified(7, page(7), stamp));
+        assertFalse(cache.putIfUnmodified(7, page(8), stamp));
+
+        byte[] data = new byte[PAGE_SIZE];
+        assertTrue(cache.get(1, data));
+        assertArrayEquals(page(2), data);
+        assertTrue(cache.get(7, data));
+        assertArrayEquals(page(7), data);
+
+        // header reads get the start of the page
+        byte[] header = new byte[4];
+        assertTrue(cache.get(7, header));
+        assertArrayEquals(Arrays.copyOf(page(7), 4), header);
+    }
+
+    @Test
+    public void testRandomOperationsMatchCachedContent() throws Exception {
+        OffHeapPageCache cache = new OffHeapPageCache(64 * PAGE_SIZE, PAGE_SIZE);
+        Map<Long, Integer> written = new HashMap<>();
+        Random random = new Random(42);
+        byte[] data = new byte[PAGE_SIZE];
+        for (int i = 0; i < 20000; i++) {
+            long pageId = random.nextInt(256);
+            if (random.nextBoolean()) {
+                cache.put(pageId, page(i));
+                written.put(pageId, i);
+            } else if (cache.get(pageId, data)) {
+                assertArrayEquals(page(written.get(pageId)), data);
+            }
+        }
+        assertEquals(64, cache.size());
+        assertEquals(cache.getHits().getCount() + cache.getMisses().getCount(), 20000 - countPuts(42));
+    }
+
+    @Test
+    public void testPageFileReadsThroughCache() throws Exception {
+        PageFile pf = new PageFile(dataDir.getRoot(), "offheap");
+        pf.setEnablePageCaching(false);
+        pf.setOffHeapPageCacheSize(1024 * 1024);
+        pf.load();
+
+        Transaction tx = pf.tx();
+        for (int i = 0; i < 100; i++) {
+            Page<String> page = tx.allocate();
+            page.set("page:" + i);
+            tx.store(page, StringMarshaller.INSTANCE, false);
+            tx.commit();
+        }
+        pf.flush();
+        pf.unload();
+
+        pf.load();
+        OffHeapPageCache cache = pf.getOffHeapPageCache();
+        assertNotNull(cache);
+        assertEquals(0, cache.size());
+
+        for (int pass = 0; pass < 2; pass++) {
+            tx = pf.tx();
+            int i = 0;
+            for (Page<String> page : tx) {
+                tx.load(page, StringMarshaller.INSTANCE);
+                assertEquals("page:" + i++, page.get());
+            }
+            assertEquals(100, i);
+        }
+        assertTrue(cache.getHits().getCount() >= 100);
+        assertTrue(cache.size() >= 100);
+
+        // written pages replace the cached image
+        tx = pf.tx();
+        Page<String> first = tx.load(0, StringMarshaller.INSTANCE);
+        first.set("updated");
+        tx.store(first, StringMarshaller.INSTANCE, false);
+        tx.commit();
+        pf.flush();
+        assertEquals("updated", pf.tx().load(0, StringMarshaller.INSTANCE).get());
+
+        pf.unload();
+        assertEquals(null, pf.getOffHeapPageCache());
+    }
+
+    private static int countPuts(long seed) {
+        Random random = new Random(seed);
+        int puts = 0;
+        for (int i = 0; i < 20000; i++) {
+            random.nextInt(256);
+            if (random.nextBoolean()) {
+                puts++;
+            }
+        }
+        return puts;
+    }
+
+    private static byte[] page(int value) {
+        byte[] data = new byte[PAGE_SIZE];
+        Arrays.fill(data, (byte) value);
+        data[0] = (byte) (value >>> 8);
+        return data;
+    }
+}
@@ -19,6 +19,10 @@ package org.apache.activemq.store.kahadb.disk.util;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.util.Iterator;
 
 import org.junit.Test;
@@ -189,4 +193,38 @@ public class SequenceSetTest {
             fail("Should not have any elements");
         }
     }
+
+    @Test
+    public void testCompactMarshaller() throws Exception {
+        SequenceSet set = new SequenceSet();
+        set.add(new Sequence(0, 2));
+        set.add(new Sequence(7));
+        set.add(new Sequence(300, 100000));
+        set.add(new Sequence(Long.MAX_VALUE - 1));
+
+        byte[] compact = marshal(SequenceSet.CompactMarshaller.INSTANCE, set);
+        byte[] fixed = marshal(SequenceSet.Marshaller.INSTANCE, set);
+        assertTrue(compact.length < fixed.length);
+
+        // both formats are read by either marshaller
+        for (byte[] data : new byte[][] {compact, fixed}) {
+            for (SequenceSet.Marshaller marshaller : new SequenceSet.Marshaller[] {SequenceSet.Marshaller.INSTANCE, SequenceSet.CompactMarshaller.INSTANCE}) {
+                SequenceSet read = marshaller.readPayload(new DataInputStream(new ByteArrayInputStream(data)));
+                assertEquals(set.toString(), read.toString());
+                assertEquals(set.rangeSize(), read.rangeSize());
+            }
+        }
+
+        SequenceSet empty = SequenceSet.CompactMarshaller.INSTANCE.readPayload(new DataInputStream(
+                new ByteArrayInputStream(marshal(SequenceSet.CompactMarshaller.INSTANCE, new SequenceSet()))));
+        assertTrue(empty.isEmpty());
+    }
+
+    private static byte[] marshal(SequenceSet.Marshaller marshaller, SequenceSet set) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        marshaller.writePayload(set, out);
+        out.flush();
+        return bytes.toByteArray();
+    }
 }
@@ -287,22 +287,22 @@ public class ActiveMQJMS2ContextTest extends ActiveMQJMS2TestBase {
         messageProducer.setDeliveryDelay(1000l);
     }
 
-    @Test(expected = UnsupportedOperationException.class)
+    @Test(expected = IllegalArgumentException.class)
     public void testProducerSendMessageCompletionListener() throws JMSException {
          messageProducer.send(session.createQueue(methodNameDestinationName), null, (CompletionListener)null);
     }
 
-    @Test(expected = UnsupportedOperationException.class)
+    @Test(expected = IllegalArgumentException.class)
     public void testProducerSendMessageQoSParamsCompletionListener() throws JMSException {
          messageProducer.send(null, 1, 4, 0l, null);
     }
 
-    @Test(expected = UnsupportedOperationException.class)
+    @Test(expected = IllegalArgumentException.class)
     public void testProducerSendDestinationMessageCompletionListener() throws JMSException {
          messageProducer.send(session.createQueue(methodNameDestinationName), null, null);
     }
 
-    @Test(expected = UnsupportedOperationException.class)
+    @Test(expected = IllegalArgumentException.class)
     public void testProducerSendDestinationMessageQosParamsCompletionListener() throws JMSException {
          messageProducer.send(session.createQueue(methodNameDestinationName), null, 1, 4, 0l, null);
     }